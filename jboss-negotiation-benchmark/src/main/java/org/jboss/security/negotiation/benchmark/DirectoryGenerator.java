@@ -0,0 +1,242 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+
+/**
+ * Populates an {@link InMemoryDirectory} with generated users and nested groups laid out as Active Directory would, so
+ * the same directory can be used with both the AdvancedLdapLoginModule and the AdvancedADLoginModule.
+ *
+ * Groups are arranged in levels, each user is a direct member of groups in the first level and each group is a member
+ * of groups in the next level. All users have "Domain Users" as their primary group, this group does not list the users
+ * as members. The account used for the searches is SEARCH_DN with the same password as the users. The generated
+ * directory is the same for the same settings and seed.
+ */
+public final class DirectoryGenerator {
+
+    public static final String BASE_DN = "DC=example,DC=com";
+    public static final String USERS_DN = "OU=Users," + BASE_DN;
+    public static final String GROUPS_DN = "OU=Groups," + BASE_DN;
+    public static final String DOMAIN_USERS_DN = "CN=Domain Users," + GROUPS_DN;
+    public static final String SEARCH_DN = "CN=Search," + BASE_DN;
+
+    private static final int DOMAIN_USERS_RID = 513;
+    private static final int FIRST_RID = 1000;
+
+    private static final int[] DOMAIN_SUB_AUTHORITIES = { 21, 1004336348, 1177238915, 682003330 };
+
+    private int users = 1000;
+    private int groupsPerLevel = 100;
+    private int groupLevels = 3;
+    private int groupsPerUser = 5;
+    private int parentsPerGroup = 2;
+    private String password = "password";
+    private long seed = 1;
+
+    public DirectoryGenerator setUsers(final int users) {
+        this.users = users;
+        return this;
+    }
+
+    public DirectoryGenerator setGroupsPerLevel(final int groupsPerLevel) {
+        this.groupsPerLevel = groupsPerLevel;
+        return this;
+    }
+
+    public DirectoryGenerator setGroupLevels(final int groupLevels) {
+        this.groupLevels = groupLevels;
+        return this;
+    }
+
+    public DirectoryGenerator setGroupsPerUser(final int groupsPerUser) {
+        this.groupsPerUser = groupsPerUser;
+        return this;
+    }
+
+    public DirectoryGenerator setParentsPerGroup(final int parentsPerGroup) {
+        this.parentsPerGroup = parentsPerGroup;
+        return this;
+    }
+
+    public DirectoryGenerator setPassword(final String password) {
+        this.password = password;
+        return this;
+    }
+
+    public DirectoryGenerator setSeed(final long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public static String userName(final int index) {
+        return "user" + index;
+    }
+
+    public static String userDN(final int index) {
+        return "CN=" + userName(index) + "," + USERS_DN;
+    }
+
+    public static String groupName(final int level, final int index) {
+        return "group" + level + "-" + index;
+    }
+
+    public static String groupDN(final int level, final int index) {
+        return "CN=" + groupName(level, index) + "," + GROUPS_DN;
+    }
+
+    /**
+     * Generate the entries into a new directory.
+     */
+    public InMemoryDirectory generate() {
+        Random random = new Random(seed);
+        Map<String, Set<String>> memberOf = new HashMap<String, Set<String>>();
+        Map<String, Set<String>> members = new HashMap<String, Set<String>>();
+
+        for (int i = 0; i < users; i++) {
+            for (String current : pick(random, 0, groupsPerUser)) {
+                link(memberOf, members, userDN(i), current);
+            }
+        }
+        for (int level = 0; level < groupLevels - 1; level++) {
+            for (int i = 0; i < groupsPerLevel; i++) {
+                for (String current : pick(random, level + 1, parentsPerGroup)) {
+                    link(memberOf, members, groupDN(level, i), current);
+                }
+            }
+        }
+
+        InMemoryDirectory directory = new InMemoryDirectory();
+        directory.add(BASE_DN, attributes("domain", "dc", "example"));
+        directory.add(USERS_DN, attributes("organizationalUnit", "ou", "Users"));
+        directory.add(GROUPS_DN, attributes("organizationalUnit", "ou", "Groups"));
+
+        Attributes search = attributes("user", "cn", "Search");
+        search.put("userPassword", password);
+        directory.add(SEARCH_DN, search);
+
+        Attributes domainUsers = attributes("group", "cn", "Domain Users");
+        domainUsers.put("objectSid", objectSid(DOMAIN_USERS_RID));
+        directory.add(DOMAIN_USERS_DN, domainUsers);
+
+        int rid = FIRST_RID;
+        for (int level = 0; level < groupLevels; level++) {
+            for (int i = 0; i < groupsPerLevel; i++) {
+                String dn = groupDN(level, i);
+                Attributes group = attributes("group", "cn", groupName(level, i));
+                group.put("sAMAccountName", groupName(level, i));
+                group.put("objectSid", objectSid(rid++));
+                put(group, "member", members.get(dn));
+                put(group, "memberOf", memberOf.get(dn));
+                directory.add(dn, group);
+            }
+        }
+
+        for (int i = 0; i < users; i++) {
+            String dn = userDN(i);
+            Attributes user = attributes("user", "cn", userName(i));
+            user.put("sAMAccountName", userName(i));
+            user.put("uid", userName(i));
+            user.put("userPassword", password);
+            user.put("objectSid", objectSid(rid++));
+            user.put("primaryGroupID", String.valueOf(DOMAIN_USERS_RID));
+            put(user, "memberOf", memberOf.get(dn));
+            directory.add(dn, user);
+        }
+
+        return directory;
+    }
+
+    private List<String> pick(final Random random, final int level, final int count) {
+        Set<String> picked = new LinkedHashSet<String>();
+        int wanted = Math.min(count, groupsPerLevel);
+        while (level < groupLevels && picked.size() < wanted) {
+            picked.add(groupDN(level, random.nextInt(groupsPerLevel)));
+        }
+
+        return new ArrayList<String>(picked);
+    }
+
+    private static void link(final Map<String, Set<String>> memberOf, final Map<String, Set<String>> members,
+            final String memberDN, final String groupDN) {
+        get(memberOf, memberDN).add(groupDN);
+        get(members, groupDN).add(memberDN);
+    }
+
+    private static Set<String> get(final Map<String, Set<String>> map, final String key) {
+        Set<String> values = map.get(key);
+        if (values == null) {
+            values = new LinkedHashSet<String>();
+            map.put(key, values);
+        }
+
+        return values;
+    }
+
+    private static Attributes attributes(final String objectClass, final String namingAttribute, final String name) {
+        Attributes attributes = new BasicAttributes(true);
+        attributes.put("objectClass", objectClass);
+        attributes.put(namingAttribute, name);
+        return attributes;
+    }
+
+    private static void put(final Attributes attributes, final String attributeID, final Set<String> values) {
+        if (values != null && values.isEmpty() == false) {
+            Attribute attribute = new BasicAttribute(attributeID);
+            for (String current : values) {
+                attribute.add(current);
+            }
+            attributes.put(attribute);
+        }
+    }
+
+    /**
+     * Create the binary objectSid for the relative identifier within the generated domain.
+     */
+    static byte[] objectSid(final int rid) {
+        ByteBuffer sid = ByteBuffer.allocate(8 + (DOMAIN_SUB_AUTHORITIES.length + 1) * 4);
+        sid.put((byte) 1).put((byte) (DOMAIN_SUB_AUTHORITIES.length + 1));
+        sid.put(new byte[] { 0, 0, 0, 0, 0, 5 });
+        sid.order(ByteOrder.LITTLE_ENDIAN);
+        for (int current : DOMAIN_SUB_AUTHORITIES) {
+            sid.putInt(current);
+        }
+        sid.putInt(rid);
+
+        return sid.array();
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.benchmark;
+
+import java.net.URI;
+import java.util.Hashtable;
+
+import javax.naming.CommunicationException;
+import javax.naming.ConfigurationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.spi.InitialContextFactory;
+
+/**
+ * An {@link InitialContextFactory} for the {@link InMemoryDirectory} registered with the host name of the provider URL,
+ * e.g. ldap://benchmark:389 uses the directory registered as 'benchmark'.
+ *
+ * To use set the java.naming.factory.initial option of the login module to the name of this class.
+ */
+public class InMemoryContextFactory implements InitialContextFactory {
+
+    public Context getInitialContext(final Hashtable<?, ?> environment) throws NamingException {
+        Object providerURL = environment.get(Context.PROVIDER_URL);
+        if (providerURL == null) {
+            throw new ConfigurationException("No " + Context.PROVIDER_URL + " specified");
+        }
+
+        String host;
+        try {
+            host = new URI(providerURL.toString().trim().split(" ")[0]).getHost();
+        } catch (Exception e) {
+            ConfigurationException ce = new ConfigurationException("Invalid " + Context.PROVIDER_URL + " " + providerURL);
+            ce.setRootCause(e);
+            throw ce;
+        }
+
+        InMemoryDirectory directory = host != null ? InMemoryDirectory.lookup(host) : null;
+        if (directory == null) {
+            throw new CommunicationException("No directory registered for " + providerURL);
+        }
+
+        return new InMemoryLdapContext(directory, environment);
+    }
+
+}
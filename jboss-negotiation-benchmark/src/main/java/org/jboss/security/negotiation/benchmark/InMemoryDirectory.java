@@ -0,0 +1,290 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.AuthenticationException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+
+/**
+ * A directory held in memory for benchmarking the login modules without a directory server, the entries are populated
+ * before the benchmark starts and are not modified while it runs.
+ *
+ * Each operation can be delayed to simulate the round trip to a remote server and the operations are counted so the
+ * number of directory operations needed for each login can be reported.
+ */
+public final class InMemoryDirectory {
+
+    private static final ConcurrentMap<String, InMemoryDirectory> DIRECTORIES = new ConcurrentHashMap<String, InMemoryDirectory>();
+
+    private static final String USER_PASSWORD = "userPassword";
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    // Entries by each attribute value so that searches with an equality match do not visit every entry.
+    private final Map<String, List<Entry>> index = new HashMap<String, List<Entry>>();
+
+    private volatile long latencyNanos;
+
+    private final AtomicLong binds = new AtomicLong();
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong reads = new AtomicLong();
+
+    /**
+     * Register a directory so that it can be used by the {@link InMemoryContextFactory} with the provider URL
+     * ldap://name.
+     */
+    public static void register(final String name, final InMemoryDirectory directory) {
+        DIRECTORIES.put(name, directory);
+    }
+
+    static InMemoryDirectory lookup(final String name) {
+        return DIRECTORIES.get(name);
+    }
+
+    /**
+     * Set the delay added to each operation to simulate the round trip to the server.
+     */
+    public void setLatency(final long latency, final TimeUnit unit) {
+        latencyNanos = unit.toNanos(latency);
+    }
+
+    /**
+     * Add an entry, the distinguishedName attribute is added automatically.
+     */
+    public void add(final String dn, final Attributes attributes) {
+        Attributes copy = (Attributes) attributes.clone();
+        copy.put("distinguishedName", dn);
+        String normalizedDN = LdapFilter.normalize(dn);
+        Entry entry = new Entry(normalizedDN, dn, copy);
+        entries.put(normalizedDN, entry);
+
+        try {
+            NamingEnumeration<? extends Attribute> all = copy.getAll();
+            while (all.hasMore()) {
+                Attribute current = all.next();
+                for (int i = 0; i < current.size(); i++) {
+                    String key = LdapFilter.indexKey(current.getID(), current.get(i));
+                    List<Entry> indexed = index.get(key);
+                    if (indexed == null) {
+                        indexed = new ArrayList<Entry>(1);
+                        index.put(key, indexed);
+                    }
+                    indexed.add(entry);
+                }
+            }
+        } catch (NamingException e) {
+            throw new IllegalStateException("Unable to index " + dn, e);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getBinds() {
+        return binds.get();
+    }
+
+    public long getSearches() {
+        return searches.get();
+    }
+
+    public long getReads() {
+        return reads.get();
+    }
+
+    void bind(final String dn, final Object credential) throws NamingException {
+        binds.incrementAndGet();
+        delay();
+
+        if (dn == null || dn.length() == 0) {
+            // Anonymous
+            return;
+        }
+
+        Entry entry = entries.get(LdapFilter.normalize(unquote(dn)));
+        Attribute password = entry != null ? entry.attributes.get(USER_PASSWORD) : null;
+        String expected = password != null ? (String) password.get() : null;
+        String actual = credential instanceof char[] ? new String((char[]) credential) : (String) credential;
+        if (expected == null || actual == null || expected.equals(actual) == false) {
+            throw new AuthenticationException("[LDAP: error code 49 - Invalid Credentials]");
+        }
+    }
+
+    Attributes getAttributes(final String dn, final String[] attributeIDs) throws NamingException {
+        reads.incrementAndGet();
+        delay();
+
+        Entry entry = entries.get(LdapFilter.normalize(unquote(dn)));
+        if (entry == null) {
+            throw new NameNotFoundException("[LDAP: error code 32 - No Such Object] " + dn);
+        }
+
+        return select(entry.attributes, attributeIDs);
+    }
+
+    List<SearchResult> search(final String base, final LdapFilter filter, final SearchControls controls)
+            throws NamingException {
+        searches.incrementAndGet();
+        delay();
+
+        String normalizedBase = LdapFilter.normalize(unquote(base));
+        if (entries.containsKey(normalizedBase) == false) {
+            throw new NameNotFoundException("[LDAP: error code 32 - No Such Object] " + base);
+        }
+
+        String key = filter.indexKey();
+        Collection<Entry> candidates = key != null ? index.get(key) : entries.values();
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+
+        List<SearchResult> results = new ArrayList<SearchResult>();
+        for (Entry current : candidates) {
+            String relative = relativeName(current.normalizedDN, current.dn, normalizedBase, controls.getSearchScope());
+            if (relative != null && filter.matches(current.attributes)) {
+                SearchResult result = new SearchResult(relative, null, select(current.attributes,
+                        controls.getReturningAttributes()), true);
+                result.setNameInNamespace(current.dn);
+                results.add(result);
+                if (controls.getCountLimit() > 0 && results.size() >= controls.getCountLimit()) {
+                    break;
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Obtain the name of the entry relative to the search base or null if it is not within the scope of the search.
+     */
+    private static String relativeName(final String normalizedDN, final String dn, final String normalizedBase,
+            final int scope) {
+        if (normalizedDN.equals(normalizedBase)) {
+            return scope == SearchControls.ONELEVEL_SCOPE ? null : "";
+        }
+        if (scope == SearchControls.OBJECT_SCOPE || normalizedDN.endsWith("," + normalizedBase) == false) {
+            return null;
+        }
+
+        String relative = normalizedDN.substring(0, normalizedDN.length() - normalizedBase.length() - 1);
+        if (scope == SearchControls.ONELEVEL_SCOPE && relative.indexOf(',') >= 0) {
+            return null;
+        }
+
+        // Return the relative name with the case used when the entry was added.
+        int depth = relative.split(",").length;
+        String[] rdns = dn.split("\\s*,\\s*");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(rdns[i]);
+        }
+
+        return sb.toString();
+    }
+
+    private static Attributes select(final Attributes attributes, final String[] attributeIDs) {
+        if (attributeIDs == null) {
+            Attributes all = (Attributes) attributes.clone();
+            all.remove(USER_PASSWORD);
+            return all;
+        }
+
+        Attributes selected = new BasicAttributes(true);
+        for (String current : attributeIDs) {
+            Attribute attribute = attributes.get(current);
+            if (attribute != null && USER_PASSWORD.equalsIgnoreCase(current) == false) {
+                selected.put((Attribute) attribute.clone());
+            }
+        }
+
+        return selected;
+    }
+
+    private static String unquote(final String dn) {
+        String temp = dn.trim();
+        if (temp.length() > 1 && temp.startsWith("\"") && temp.endsWith("\"")) {
+            return temp.substring(1, temp.length() - 1);
+        }
+
+        return temp;
+    }
+
+    private void delay() {
+        long remaining = latencyNanos;
+        if (remaining > 0) {
+            long end = System.nanoTime() + remaining;
+            try {
+                while (remaining > 0) {
+                    TimeUnit.NANOSECONDS.sleep(remaining);
+                    remaining = end - System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryDirectory [entries=" + entries.size() + ", latencyNanos=" + latencyNanos + ", binds=" + binds
+                + ", searches=" + searches + ", reads=" + reads + "]";
+    }
+
+    private static final class Entry {
+
+        private final String normalizedDN;
+        private final String dn;
+        private final Attributes attributes;
+
+        private Entry(final String normalizedDN, final String dn, final Attributes attributes) {
+            this.normalizedDN = normalizedDN;
+            this.dn = dn;
+            this.attributes = attributes;
+        }
+    }
+
+}
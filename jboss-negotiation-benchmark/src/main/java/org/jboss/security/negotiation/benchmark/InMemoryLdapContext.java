@@ -0,0 +1,367 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.benchmark;
+
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.naming.Binding;
+import javax.naming.CompositeName;
+import javax.naming.Context;
+import javax.naming.Name;
+import javax.naming.NameClassPair;
+import javax.naming.NameParser;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.ExtendedRequest;
+import javax.naming.ldap.ExtendedResponse;
+import javax.naming.ldap.LdapContext;
+
+/**
+ * A read only {@link LdapContext} over an {@link InMemoryDirectory}, only the operations used by the login modules are
+ * supported. Request controls are accepted and ignored so paged searches return all results in a single page.
+ */
+final class InMemoryLdapContext implements LdapContext {
+
+    private final InMemoryDirectory directory;
+    private final Hashtable<Object, Object> environment;
+    private Control[] requestControls;
+
+    InMemoryLdapContext(final InMemoryDirectory directory, final Hashtable<?, ?> environment) throws NamingException {
+        this.directory = directory;
+        this.environment = new Hashtable<Object, Object>(environment);
+        authenticate();
+    }
+
+    private InMemoryLdapContext(final InMemoryLdapContext existing, final Control[] requestControls) {
+        this.directory = existing.directory;
+        this.environment = new Hashtable<Object, Object>(existing.environment);
+        this.requestControls = requestControls;
+    }
+
+    private void authenticate() throws NamingException {
+        Object principal = environment.get(Context.SECURITY_PRINCIPAL);
+        directory.bind(principal != null ? principal.toString() : null, environment.get(Context.SECURITY_CREDENTIALS));
+    }
+
+    // Operations used by the login modules.
+
+    public Attributes getAttributes(final String name, final String[] attrIds) throws NamingException {
+        return directory.getAttributes(name, attrIds);
+    }
+
+    public Attributes getAttributes(final Name name, final String[] attrIds) throws NamingException {
+        return getAttributes(name.toString(), attrIds);
+    }
+
+    public Attributes getAttributes(final String name) throws NamingException {
+        return getAttributes(name, null);
+    }
+
+    public Attributes getAttributes(final Name name) throws NamingException {
+        return getAttributes(name.toString(), null);
+    }
+
+    public NamingEnumeration<SearchResult> search(final String name, final String filterExpr, final Object[] filterArgs,
+            final SearchControls cons) throws NamingException {
+        SearchControls controls = cons != null ? cons : new SearchControls();
+        return new Results(directory.search(name, LdapFilter.parse(filterExpr, filterArgs), controls));
+    }
+
+    public NamingEnumeration<SearchResult> search(final Name name, final String filterExpr, final Object[] filterArgs,
+            final SearchControls cons) throws NamingException {
+        return search(name.toString(), filterExpr, filterArgs, cons);
+    }
+
+    public NamingEnumeration<SearchResult> search(final String name, final String filter, final SearchControls cons)
+            throws NamingException {
+        return search(name, filter, new Object[0], cons);
+    }
+
+    public NamingEnumeration<SearchResult> search(final Name name, final String filter, final SearchControls cons)
+            throws NamingException {
+        return search(name.toString(), filter, new Object[0], cons);
+    }
+
+    public LdapContext newInstance(final Control[] requestControls) throws NamingException {
+        return new InMemoryLdapContext(this, requestControls);
+    }
+
+    public void reconnect(final Control[] connCtls) throws NamingException {
+        authenticate();
+    }
+
+    public Object addToEnvironment(final String propName, final Object propVal) throws NamingException {
+        return environment.put(propName, propVal);
+    }
+
+    public Object removeFromEnvironment(final String propName) throws NamingException {
+        return environment.remove(propName);
+    }
+
+    public Hashtable<?, ?> getEnvironment() throws NamingException {
+        return new Hashtable<Object, Object>(environment);
+    }
+
+    public void setRequestControls(final Control[] requestControls) throws NamingException {
+        this.requestControls = requestControls;
+    }
+
+    public Control[] getRequestControls() throws NamingException {
+        return requestControls;
+    }
+
+    public Control[] getResponseControls() throws NamingException {
+        return null;
+    }
+
+    public Control[] getConnectControls() throws NamingException {
+        return null;
+    }
+
+    public void close() throws NamingException {
+    }
+
+    public String getNameInNamespace() throws NamingException {
+        return "";
+    }
+
+    public Name composeName(final Name name, final Name prefix) throws NamingException {
+        return ((Name) prefix.clone()).addAll(name);
+    }
+
+    public String composeName(final String name, final String prefix) throws NamingException {
+        return composeName(new CompositeName(name), new CompositeName(prefix)).toString();
+    }
+
+    // Unsupported operations.
+
+    public ExtendedResponse extendedOperation(final ExtendedRequest request) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public Object lookup(final Name name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public Object lookup(final String name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void bind(final Name name, final Object obj) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void bind(final String name, final Object obj) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void rebind(final Name name, final Object obj) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void rebind(final String name, final Object obj) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void unbind(final Name name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void unbind(final String name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void rename(final Name oldName, final Name newName) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void rename(final String oldName, final String newName) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public NamingEnumeration<NameClassPair> list(final Name name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public NamingEnumeration<NameClassPair> list(final String name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public NamingEnumeration<Binding> listBindings(final Name name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public NamingEnumeration<Binding> listBindings(final String name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void destroySubcontext(final Name name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void destroySubcontext(final String name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public Context createSubcontext(final Name name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public Context createSubcontext(final String name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public Object lookupLink(final Name name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public Object lookupLink(final String name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public NameParser getNameParser(final Name name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public NameParser getNameParser(final String name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void modifyAttributes(final Name name, final int modOp, final Attributes attrs) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void modifyAttributes(final String name, final int modOp, final Attributes attrs) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void modifyAttributes(final Name name, final ModificationItem[] mods) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void modifyAttributes(final String name, final ModificationItem[] mods) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void bind(final Name name, final Object obj, final Attributes attrs) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void bind(final String name, final Object obj, final Attributes attrs) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void rebind(final Name name, final Object obj, final Attributes attrs) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public void rebind(final String name, final Object obj, final Attributes attrs) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public DirContext createSubcontext(final Name name, final Attributes attrs) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public DirContext createSubcontext(final String name, final Attributes attrs) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public DirContext getSchema(final Name name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public DirContext getSchema(final String name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public DirContext getSchemaClassDefinition(final Name name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public DirContext getSchemaClassDefinition(final String name) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public NamingEnumeration<SearchResult> search(final Name name, final Attributes matchingAttributes,
+            final String[] attributesToReturn) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public NamingEnumeration<SearchResult> search(final String name, final Attributes matchingAttributes,
+            final String[] attributesToReturn) throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public NamingEnumeration<SearchResult> search(final Name name, final Attributes matchingAttributes)
+            throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    public NamingEnumeration<SearchResult> search(final String name, final Attributes matchingAttributes)
+            throws NamingException {
+        throw new OperationNotSupportedException();
+    }
+
+    private static final class Results implements NamingEnumeration<SearchResult> {
+
+        private final Iterator<SearchResult> iterator;
+
+        private Results(final List<SearchResult> results) {
+            this.iterator = results.iterator();
+        }
+
+        public SearchResult next() throws NamingException {
+            return nextElement();
+        }
+
+        public boolean hasMore() throws NamingException {
+            return iterator.hasNext();
+        }
+
+        public void close() throws NamingException {
+        }
+
+        public boolean hasMoreElements() {
+            return iterator.hasNext();
+        }
+
+        public SearchResult nextElement() {
+            if (iterator.hasNext() == false) {
+                throw new NoSuchElementException();
+            }
+            return iterator.next();
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.benchmark;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.security.auth.Subject;
+import javax.security.auth.login.LoginException;
+
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.GSSManager;
+import org.ietf.jgss.GSSName;
+import org.jboss.security.SecurityContext;
+import org.jboss.security.SecurityContextAssociation;
+import org.jboss.security.SubjectInfo;
+import org.jboss.security.negotiation.Constants;
+import org.jboss.security.negotiation.KerberosLoginModule;
+
+/**
+ * Drives the KerberosLoginModule through login, commit and logout using a delegation credential on concurrent threads
+ * and reports the throughput and the latency percentiles of commit(), which converts the delegation credential to the
+ * contents of the Subject.
+ *
+ * The delegation credential is a stand-in for the principal so no KDC is required, run against two builds to compare
+ * them.
+ *
+ * Usage: KerberosCommitBenchmark [--principal name] [--threads n] [--warmup seconds] [--duration seconds]
+ */
+public class KerberosCommitBenchmark {
+
+    private final Map<String, String> settings = new HashMap<String, String>();
+
+    private final Map<String, String> options = new HashMap<String, String>();
+
+    private final PrintStream out;
+
+    private GSSCredential delegationCredential;
+
+    public KerberosCommitBenchmark(final PrintStream out) {
+        this.out = out;
+        settings.put("principal", "alice@EXAMPLE.COM");
+        settings.put("threads", "8");
+        settings.put("warmup", "5");
+        settings.put("duration", "30");
+
+        options.put(KerberosLoginModule.DELEGATION_CREDENTIAL, "REQUIRE");
+        options.put(KerberosLoginModule.ADD_GSS_CREDENTIAL, "true");
+        options.put(KerberosLoginModule.WRAP_GSS_CREDENTIAL, "true");
+    }
+
+    public static void main(final String[] args) throws Exception {
+        KerberosCommitBenchmark benchmark = new KerberosCommitBenchmark(System.out);
+        try {
+            benchmark.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: KerberosCommitBenchmark [--principal name] [--threads n] [--warmup seconds] "
+                    + "[--duration seconds]");
+            System.exit(1);
+        }
+
+        benchmark.setUp();
+        benchmark.run();
+    }
+
+    void parse(final String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            if (args[i].startsWith("--") && settings.containsKey(args[i].substring(2))) {
+                settings.put(args[i].substring(2), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * Create the delegation credential for the principal.
+     */
+    void setUp() throws Exception {
+        final GSSName name = GSSManager.getInstance().createName(settings.get("principal"), GSSName.NT_USER_NAME,
+                Constants.KERBEROS_V5);
+        delegationCredential = (GSSCredential) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { GSSCredential.class }, new InvocationHandler() {
+
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        String methodName = method.getName();
+                        if ("getName".equals(methodName)) {
+                            return name;
+                        } else if ("getRemainingLifetime".equals(methodName)) {
+                            return GSSCredential.INDEFINITE_LIFETIME;
+                        } else if ("hashCode".equals(methodName)) {
+                            return System.identityHashCode(proxy);
+                        } else if ("equals".equals(methodName)) {
+                            return proxy == args[0];
+                        }
+                        return null;
+                    }
+                });
+        out.println("Delegation credential for " + name);
+    }
+
+    void run() throws Exception {
+        int threads = Integer.parseInt(settings.get("threads"));
+
+        associate();
+        cycle(new Subject(), true);
+
+        out.printf("Warming up for %s seconds with %d threads%n", settings.get("warmup"), threads);
+        runPhase(threads, Integer.parseInt(settings.get("warmup")));
+
+        out.printf("Measuring for %s seconds with %d threads%n", settings.get("duration"), threads);
+        Phase result = runPhase(threads, Integer.parseInt(settings.get("duration")));
+
+        long commits = result.latencies.length;
+        out.printf("Commits:     %d (%d failed)%n", commits, result.failures);
+        out.printf("Throughput:  %.1f logins/s%n", commits / (result.elapsedNanos / 1e9));
+        if (commits > 0) {
+            Arrays.sort(result.latencies);
+            out.printf("Commit us:   p50 %.2f  p90 %.2f  p99 %.2f  max %.2f%n", percentile(result.latencies, 50),
+                    percentile(result.latencies, 90), percentile(result.latencies, 99),
+                    result.latencies[result.latencies.length - 1] / 1e3);
+        }
+    }
+
+    /**
+     * Associate a security context holding the delegation credential with the current thread as the authenticator
+     * does for a request.
+     */
+    private void associate() {
+        final Subject authenticated = new Subject();
+        authenticated.getPrivateCredentials().add(delegationCredential);
+
+        final SubjectInfo subjectInfo = (SubjectInfo) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { SubjectInfo.class }, new InvocationHandler() {
+
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        return "getAuthenticatedSubject".equals(method.getName()) ? authenticated : null;
+                    }
+                });
+        SecurityContext securityContext = (SecurityContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { SecurityContext.class }, new InvocationHandler() {
+
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        return "getSubjectInfo".equals(method.getName()) ? subjectInfo : null;
+                    }
+                });
+        SecurityContextAssociation.setSecurityContext(securityContext);
+    }
+
+    /**
+     * A single login, commit and logout returning the time taken by commit() in nanoseconds.
+     */
+    private long cycle(final Subject subject, final boolean report) throws LoginException {
+        KerberosLoginModule module = new KerberosLoginModule();
+        module.initialize(subject, null, new HashMap<String, Object>(), options);
+        if (module.login() == false) {
+            throw new LoginException("login() returned false");
+        }
+        long start = System.nanoTime();
+        module.commit();
+        long elapsed = System.nanoTime() - start;
+        if (report) {
+            out.printf("Commit populated %d principals and %d private credentials%n", subject.getPrincipals().size(),
+                    subject.getPrivateCredentials().size());
+        }
+        module.logout();
+
+        return elapsed;
+    }
+
+    private Phase runPhase(final int threads, final int seconds) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicLong failures = new AtomicLong();
+        final long[][] recorded = new long[threads][];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            Thread worker = new Thread(new Runnable() {
+
+                public void run() {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    try {
+                        associate();
+                        while (System.nanoTime() < deadline) {
+                            long elapsed;
+                            try {
+                                elapsed = cycle(new Subject(), false);
+                            } catch (LoginException e) {
+                                failures.incrementAndGet();
+                                continue;
+                            }
+                            if (count == latencies.length) {
+                                latencies = Arrays.copyOf(latencies, count * 2);
+                            }
+                            latencies[count++] = elapsed;
+                        }
+                    } finally {
+                        recorded[thread] = Arrays.copyOf(latencies, count);
+                        done.countDown();
+                    }
+                }
+            }, "Commit Benchmark " + i);
+            worker.start();
+        }
+        done.await();
+
+        int total = 0;
+        for (long[] current : recorded) {
+            total += current.length;
+        }
+        long[] latencies = new long[total];
+        int position = 0;
+        for (long[] current : recorded) {
+            System.arraycopy(current, 0, latencies, position, current.length);
+            position += current.length;
+        }
+
+        return new Phase(latencies, failures.get(), System.nanoTime() - start);
+    }
+
+    private static double percentile(final long[] sorted, final double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e3;
+    }
+
+    private static final class Phase {
+
+        private final long[] latencies;
+        private final long failures;
+        private final long elapsedNanos;
+
+        private Phase(final long[] latencies, final long failures, final long elapsedNanos) {
+            this.latencies = latencies;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+}
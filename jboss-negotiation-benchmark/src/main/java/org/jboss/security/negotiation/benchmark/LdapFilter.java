@@ -0,0 +1,269 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.InvalidSearchFilterException;
+
+/**
+ * A parsed search filter supporting the subset of RFC 4515 used by the login modules, that is and, or, not, equality,
+ * presence and substring matches with {n} arguments substituted as either strings or binary values.
+ */
+final class LdapFilter {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Pattern SEPARATOR_SPACE = Pattern.compile("\\s*([,=])\\s*");
+
+    private final char type;
+    private final String attributeID;
+    private final Object value;
+    private final Pattern pattern;
+    private final List<LdapFilter> children;
+
+    private LdapFilter(final char type, final String attributeID, final Object value, final Pattern pattern,
+            final List<LdapFilter> children) {
+        this.type = type;
+        this.attributeID = attributeID;
+        this.value = value;
+        this.pattern = pattern;
+        this.children = children;
+    }
+
+    /**
+     * Parse the filter substituting the arguments.
+     */
+    static LdapFilter parse(final String filter, final Object[] args) throws NamingException {
+        Parser parser = new Parser(filter.trim(), args);
+        LdapFilter result = parser.filter();
+        if (parser.position != parser.filter.length()) {
+            throw new InvalidSearchFilterException("Unexpected content at " + parser.position + " of " + filter);
+        }
+
+        return result;
+    }
+
+    boolean matches(final Attributes attributes) throws NamingException {
+        switch (type) {
+            case '&':
+                for (LdapFilter current : children) {
+                    if (current.matches(attributes) == false) {
+                        return false;
+                    }
+                }
+                return true;
+            case '|':
+                for (LdapFilter current : children) {
+                    if (current.matches(attributes)) {
+                        return true;
+                    }
+                }
+                return false;
+            case '!':
+                return children.get(0).matches(attributes) == false;
+            default:
+                Attribute attribute = attributes.get(attributeID);
+                if (attribute == null) {
+                    return false;
+                }
+                if (type == '*') {
+                    return true;
+                }
+                for (int i = 0; i < attribute.size(); i++) {
+                    if (valueMatches(attribute.get(i))) {
+                        return true;
+                    }
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Obtain the index key of an equality match that all matching entries must satisfy, or null if there is none.
+     */
+    String indexKey() {
+        if (type == '=') {
+            return indexKey(attributeID, value);
+        }
+        if (type == '&') {
+            for (LdapFilter current : children) {
+                String key = current.indexKey();
+                if (key != null) {
+                    return key;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    static String indexKey(final String attributeID, final Object value) {
+        String normalizedValue;
+        if (value instanceof byte[]) {
+            StringBuilder sb = new StringBuilder("#");
+            for (byte current : (byte[]) value) {
+                sb.append(String.format("%02x", current & 0xFF));
+            }
+            normalizedValue = sb.toString();
+        } else {
+            normalizedValue = normalize(String.valueOf(value));
+        }
+
+        return attributeID.toLowerCase(Locale.ENGLISH) + '=' + normalizedValue;
+    }
+
+    private boolean valueMatches(final Object candidate) {
+        if (value instanceof byte[]) {
+            return candidate instanceof byte[] && Arrays.equals((byte[]) value, (byte[]) candidate);
+        }
+        if (candidate instanceof byte[]) {
+            return false;
+        }
+        if (pattern != null) {
+            return pattern.matcher(String.valueOf(candidate).toLowerCase(Locale.ENGLISH)).matches();
+        }
+
+        return normalize((String) value).equals(normalize(String.valueOf(candidate)));
+    }
+
+    /**
+     * Values are compared ignoring case and the space around DN separators so DN valued attributes can be matched.
+     */
+    static String normalize(final String value) {
+        return SEPARATOR_SPACE.matcher(value.trim().toLowerCase(Locale.ENGLISH)).replaceAll("$1");
+    }
+
+    private static final class Parser {
+
+        private final String filter;
+        private final Object[] args;
+        private int position;
+
+        private Parser(final String filter, final Object[] args) {
+            this.filter = filter;
+            this.args = args;
+        }
+
+        private LdapFilter filter() throws NamingException {
+            expect('(');
+            LdapFilter result;
+            char next = peek();
+            if (next == '&' || next == '|' || next == '!') {
+                position++;
+                List<LdapFilter> children = new ArrayList<LdapFilter>();
+                while (peek() == '(') {
+                    children.add(filter());
+                }
+                if (children.isEmpty() || (next == '!' && children.size() != 1)) {
+                    throw new InvalidSearchFilterException("Invalid filter " + filter);
+                }
+                result = new LdapFilter(next, null, null, null, children);
+            } else {
+                result = item();
+            }
+            expect(')');
+
+            return result;
+        }
+
+        private LdapFilter item() throws NamingException {
+            int equals = filter.indexOf('=', position);
+            int end = filter.indexOf(')', position);
+            if (equals < 0 || end < 0 || equals > end) {
+                throw new InvalidSearchFilterException("Invalid filter " + filter);
+            }
+            String attributeID = filter.substring(position, equals).trim();
+            String rawValue = filter.substring(equals + 1, end);
+            position = end;
+
+            if ("*".equals(rawValue)) {
+                return new LdapFilter('*', attributeID, null, null, null);
+            }
+
+            Object value = value(rawValue);
+            if (value instanceof String && ((String) value).indexOf('*') >= 0 && rawValue.startsWith("{") == false) {
+                StringBuilder regex = new StringBuilder();
+                for (String current : ((String) value).toLowerCase(Locale.ENGLISH).split("\\*", -1)) {
+                    if (regex.length() > 0) {
+                        regex.append(".*");
+                    }
+                    regex.append(Pattern.quote(current));
+                }
+                return new LdapFilter('~', attributeID, value, Pattern.compile(regex.toString()), null);
+            }
+
+            return new LdapFilter('=', attributeID, value, null, null);
+        }
+
+        private Object value(final String rawValue) throws NamingException {
+            if (rawValue.startsWith("{") && rawValue.endsWith("}")) {
+                try {
+                    return args[Integer.parseInt(rawValue.substring(1, rawValue.length() - 1))];
+                } catch (RuntimeException e) {
+                    throw new InvalidSearchFilterException("Invalid argument " + rawValue);
+                }
+            }
+
+            // Decode any \xx escapes.
+            if (rawValue.indexOf('\\') < 0) {
+                return rawValue;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (int i = 0; i < rawValue.length(); i++) {
+                char current = rawValue.charAt(i);
+                if (current == '\\' && i + 2 < rawValue.length()) {
+                    bytes.write(Integer.parseInt(rawValue.substring(i + 1, i + 3), 16));
+                    i += 2;
+                } else {
+                    bytes.write(current);
+                }
+            }
+            return new String(bytes.toByteArray(), UTF_8);
+        }
+
+        private char peek() throws NamingException {
+            if (position >= filter.length()) {
+                throw new InvalidSearchFilterException("Unexpected end of filter " + filter);
+            }
+            return filter.charAt(position);
+        }
+
+        private void expect(final char expected) throws NamingException {
+            if (peek() != expected) {
+                throw new InvalidSearchFilterException("Expected '" + expected + "' at " + position + " of " + filter);
+            }
+            position++;
+        }
+    }
+
+}
@@ -0,0 +1,320 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.Context;
+import javax.security.auth.Subject;
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.PasswordCallback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag;
+import javax.security.auth.login.Configuration;
+import javax.security.auth.login.LoginContext;
+import javax.security.auth.login.LoginException;
+
+/**
+ * Drives concurrent JAAS logins through the AdvancedLdapLoginModule or AdvancedADLoginModule against a generated
+ * {@link InMemoryDirectory} and reports the throughput, the latency percentiles and the directory operations per login.
+ *
+ * Usage: LoginBenchmark [--module ldap|ad] [--users n] [--groups-per-level n] [--group-levels n] [--groups-per-user n]
+ * [--parents-per-group n] [--threads n] [--warmup seconds] [--duration seconds] [--latency milliseconds]
+ * [-o option=value]...
+ *
+ * Each -o sets or overrides a login module option, e.g. -o userDNCacheTimeout=300
+ */
+public class LoginBenchmark {
+
+    private static final String DIRECTORY_NAME = "benchmark";
+
+    private static final String CONFIGURATION_NAME = "benchmark";
+
+    private final Map<String, String> settings = new HashMap<String, String>();
+
+    private final Map<String, String> moduleOptions = new LinkedHashMap<String, String>();
+
+    private final PrintStream out;
+
+    private InMemoryDirectory directory;
+
+    private Configuration configuration;
+
+    private int users;
+
+    private String password;
+
+    public LoginBenchmark(final PrintStream out) {
+        this.out = out;
+        settings.put("module", "ldap");
+        settings.put("users", "1000");
+        settings.put("groups-per-level", "100");
+        settings.put("group-levels", "3");
+        settings.put("groups-per-user", "5");
+        settings.put("parents-per-group", "2");
+        settings.put("threads", "8");
+        settings.put("warmup", "5");
+        settings.put("duration", "30");
+        settings.put("latency", "0");
+        settings.put("password", "password");
+    }
+
+    public static void main(final String[] args) throws Exception {
+        LoginBenchmark benchmark = new LoginBenchmark(System.out);
+        try {
+            benchmark.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: LoginBenchmark [--module ldap|ad] [--users n] [--groups-per-level n] "
+                    + "[--group-levels n] [--groups-per-user n] [--parents-per-group n] [--threads n] "
+                    + "[--warmup seconds] [--duration seconds] [--latency milliseconds] [-o option=value]...");
+            System.exit(1);
+        }
+
+        benchmark.setUp();
+        benchmark.run();
+    }
+
+    void parse(final String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            if ("-o".equals(args[i])) {
+                String option = args[++i];
+                int separator = option.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Invalid option " + option);
+                }
+                moduleOptions.put(option.substring(0, separator), option.substring(separator + 1));
+            } else if (args[i].startsWith("--") && settings.containsKey(args[i].substring(2))) {
+                settings.put(args[i].substring(2), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * Generate and register the directory and create the JAAS configuration.
+     */
+    void setUp() {
+        users = Integer.parseInt(settings.get("users"));
+        password = settings.get("password");
+
+        long start = System.nanoTime();
+        directory = new DirectoryGenerator().setUsers(users)
+                .setGroupsPerLevel(Integer.parseInt(settings.get("groups-per-level")))
+                .setGroupLevels(Integer.parseInt(settings.get("group-levels")))
+                .setGroupsPerUser(Integer.parseInt(settings.get("groups-per-user")))
+                .setParentsPerGroup(Integer.parseInt(settings.get("parents-per-group")))
+                .setPassword(password).generate();
+        double latency = Double.parseDouble(settings.get("latency"));
+        directory.setLatency((long) (latency * 1000000), TimeUnit.NANOSECONDS);
+        InMemoryDirectory.register(DIRECTORY_NAME, directory);
+        out.printf("Generated %d entries in %d ms%n", directory.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        boolean ad = "ad".equals(settings.get("module"));
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        options.put(Context.INITIAL_CONTEXT_FACTORY, InMemoryContextFactory.class.getName());
+        options.put(Context.PROVIDER_URL, "ldap://" + DIRECTORY_NAME + ":389");
+        options.put("bindDN", DirectoryGenerator.SEARCH_DN);
+        options.put("bindCredential", password);
+        options.put("baseFilter", "(sAMAccountName={0})");
+        options.put("recurseRoles", "true");
+        options.put("searchScope", "SUBTREE_SCOPE");
+        if (ad) {
+            // As recommended for Active Directory, the groups are found from the memberOf attributes.
+            options.put("baseCtxDN", DirectoryGenerator.BASE_DN);
+            options.put("rolesCtxDN", DirectoryGenerator.BASE_DN);
+            options.put("roleFilter", "(distinguishedName={1})");
+            options.put("roleAttributeID", "memberOf");
+            options.put("roleAttributeIsDN", "true");
+            options.put("roleNameAttributeID", "cn");
+        } else {
+            // The groups are found by searching for groups with the user or group as a member.
+            options.put("baseCtxDN", DirectoryGenerator.USERS_DN);
+            options.put("rolesCtxDN", DirectoryGenerator.GROUPS_DN);
+            options.put("roleFilter", "(member={1})");
+            options.put("roleAttributeID", "cn");
+            options.put("roleAttributeIsDN", "false");
+        }
+        options.putAll(moduleOptions);
+
+        String moduleClass = ad ? "org.jboss.security.negotiation.AdvancedADLoginModule"
+                : "org.jboss.security.negotiation.AdvancedLdapLoginModule";
+        final AppConfigurationEntry[] entries = { new AppConfigurationEntry(moduleClass, LoginModuleControlFlag.REQUIRED,
+                options) };
+        configuration = new Configuration() {
+
+            @Override
+            public AppConfigurationEntry[] getAppConfigurationEntry(final String name) {
+                return entries;
+            }
+        };
+
+        out.println("Login module " + moduleClass);
+        for (Map.Entry<String, String> current : options.entrySet()) {
+            out.println("  " + current.getKey() + "=" + ("bindCredential".equals(current.getKey()) ? "***" : current.getValue()));
+        }
+    }
+
+    void run() throws Exception {
+        int threads = Integer.parseInt(settings.get("threads"));
+
+        Subject sample = login(0);
+        out.printf("Login of %s found %d principals%n", DirectoryGenerator.userName(0), sample.getPrincipals().size());
+
+        out.printf("Warming up for %s seconds with %d threads%n", settings.get("warmup"), threads);
+        runPhase(threads, Integer.parseInt(settings.get("warmup")));
+
+        out.printf("Measuring for %s seconds with %d threads%n", settings.get("duration"), threads);
+        long binds = directory.getBinds();
+        long searches = directory.getSearches();
+        long reads = directory.getReads();
+        Phase result = runPhase(threads, Integer.parseInt(settings.get("duration")));
+        binds = directory.getBinds() - binds;
+        searches = directory.getSearches() - searches;
+        reads = directory.getReads() - reads;
+
+        long logins = result.latencies.length;
+        out.printf("Logins:      %d (%d failed)%n", logins, result.failures);
+        out.printf("Throughput:  %.1f logins/s%n", logins / (result.elapsedNanos / 1e9));
+        if (logins > 0) {
+            Arrays.sort(result.latencies);
+            out.printf("Latency ms:  p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  max %.3f%n",
+                    percentile(result.latencies, 50), percentile(result.latencies, 90),
+                    percentile(result.latencies, 99), percentile(result.latencies, 99.9),
+                    result.latencies[result.latencies.length - 1] / 1e6);
+            out.printf("Per login:   %.2f binds  %.2f searches  %.2f reads%n", (double) binds / logins,
+                    (double) searches / logins, (double) reads / logins);
+        }
+    }
+
+    Subject login(final int user) throws LoginException {
+        final String username = DirectoryGenerator.userName(user);
+        Subject subject = new Subject();
+        LoginContext context = new LoginContext(CONFIGURATION_NAME, subject, new CallbackHandler() {
+
+            public void handle(final Callback[] callbacks) throws IOException, UnsupportedCallbackException {
+                for (Callback current : callbacks) {
+                    if (current instanceof NameCallback) {
+                        ((NameCallback) current).setName(username);
+                    } else if (current instanceof PasswordCallback) {
+                        ((PasswordCallback) current).setPassword(password.toCharArray());
+                    } else {
+                        throw new UnsupportedCallbackException(current);
+                    }
+                }
+            }
+        }, configuration);
+        context.login();
+
+        return subject;
+    }
+
+    private Phase runPhase(final int threads, final int seconds) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicLong failures = new AtomicLong();
+        final long[][] recorded = new long[threads][];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            Thread worker = new Thread(new Runnable() {
+
+                public void run() {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            int user = ThreadLocalRandom.current().nextInt(users);
+                            long loginStart = System.nanoTime();
+                            try {
+                                login(user);
+                            } catch (LoginException e) {
+                                failures.incrementAndGet();
+                                continue;
+                            }
+                            if (count == latencies.length) {
+                                latencies = Arrays.copyOf(latencies, count * 2);
+                            }
+                            latencies[count++] = System.nanoTime() - loginStart;
+                        }
+                    } finally {
+                        recorded[thread] = Arrays.copyOf(latencies, count);
+                        done.countDown();
+                    }
+                }
+            }, "Login Benchmark " + i);
+            worker.start();
+        }
+        done.await();
+
+        int total = 0;
+        for (long[] current : recorded) {
+            total += current.length;
+        }
+        long[] latencies = new long[total];
+        int position = 0;
+        for (long[] current : recorded) {
+            System.arraycopy(current, 0, latencies, position, current.length);
+            position += current.length;
+        }
+
+        return new Phase(latencies, failures.get(), System.nanoTime() - start);
+    }
+
+    private static double percentile(final long[] sorted, final double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static final class Phase {
+
+        private final long[] latencies;
+        private final long failures;
+        private final long elapsedNanos;
+
+        private Phase(final long[] latencies, final long failures, final long elapsedNanos) {
+            this.latencies = latencies;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+}
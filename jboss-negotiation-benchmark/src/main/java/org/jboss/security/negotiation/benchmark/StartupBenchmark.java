@@ -0,0 +1,194 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.security.auth.Subject;
+
+import org.jboss.security.negotiation.Constants;
+import org.jboss.security.negotiation.KerberosLoginModule;
+import org.jboss.security.negotiation.MessageFactory;
+import org.jboss.security.negotiation.ntlm.NTLMMessageFactory;
+import org.jboss.security.negotiation.spnego.KerberosMessageFactory;
+import org.jboss.security.negotiation.spnego.SPNEGOMessageFactory;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenInit;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenInitEncoder;
+
+/**
+ * Measures the cold start of the negotiation stack, each run is a new JVM which decodes its first NegTokenInit and
+ * initialises its first KerberosLoginModule, the time to do so within the JVM and the time for the whole process are
+ * reported.
+ *
+ * The message factories are either registered explicitly or located by name, additional JVM options can be passed
+ * to compare e.g. a class data sharing archive with -XX:SharedArchiveFile.
+ *
+ * Usage: StartupBenchmark [--mode registered|reflective] [--runs n] [--jvm-options "options"]
+ */
+public class StartupBenchmark {
+
+    private static final String CHILD = "--child";
+
+    private final Map<String, String> settings = new HashMap<String, String>();
+
+    private final PrintStream out;
+
+    public StartupBenchmark(final PrintStream out) {
+        this.out = out;
+        settings.put("mode", "registered");
+        settings.put("runs", "10");
+        settings.put("jvm-options", "");
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length == 2 && CHILD.equals(args[0])) {
+            child(args[1]);
+            return;
+        }
+
+        StartupBenchmark benchmark = new StartupBenchmark(System.out);
+        try {
+            benchmark.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: StartupBenchmark [--mode registered|reflective] [--runs n] "
+                    + "[--jvm-options \"options\"]");
+            System.exit(1);
+        }
+
+        benchmark.run();
+    }
+
+    void parse(final String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            if (args[i].startsWith("--") && settings.containsKey(args[i].substring(2))) {
+                settings.put(args[i].substring(2), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        String mode = settings.get("mode");
+        if ("registered".equals(mode) == false && "reflective".equals(mode) == false) {
+            throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+    }
+
+    void run() throws Exception {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (String current : settings.get("jvm-options").split("\\s+")) {
+            if (current.length() > 0) {
+                command.add(current);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupBenchmark.class.getName());
+        command.add(CHILD);
+        command.add(settings.get("mode"));
+
+        int runs = Integer.parseInt(settings.get("runs"));
+        out.printf("Starting %d JVMs with the message factories %s%n", runs, settings.get("mode"));
+        long[] ready = new long[runs];
+        long[] uptime = new long[runs];
+        long[] process = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            Process child = new ProcessBuilder(command).redirectErrorStream(true).start();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(child.getInputStream(), "UTF-8"));
+            String result = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("ready ")) {
+                    result = line;
+                }
+            }
+            if (child.waitFor() != 0 || result == null) {
+                throw new IllegalStateException("Run " + i + " failed");
+            }
+            process[i] = System.nanoTime() - start;
+            String[] values = result.split(" ");
+            ready[i] = Long.parseLong(values[1]);
+            uptime[i] = Long.parseLong(values[2]);
+        }
+
+        out.printf("Ready us:    %s%n", summary(ready, 1e3));
+        out.printf("Uptime ms:   %s%n", summary(uptime, 1));
+        out.printf("Process ms:  %s%n", summary(process, 1e6));
+    }
+
+    /**
+     * A single cold start, prints the time in nanoseconds to become ready and the JVM uptime in milliseconds.
+     */
+    private static void child(final String mode) throws Exception {
+        long start = System.nanoTime();
+        if ("registered".equals(mode)) {
+            MessageFactory.register(new NTLMMessageFactory());
+            MessageFactory.register(new SPNEGOMessageFactory());
+            MessageFactory.register(new KerberosMessageFactory());
+        }
+
+        NegTokenInit negTokenInit = new NegTokenInit();
+        negTokenInit.setMessageOid(Constants.SPNEGO);
+        negTokenInit.addMechType(Constants.KERBEROS_V5);
+        negTokenInit.setMechToken(new byte[] { 0x60, 0x00 });
+        byte[] token = NegTokenInitEncoder.encode(negTokenInit);
+        ByteArrayInputStream is = new ByteArrayInputStream(token);
+        MessageFactory mf = MessageFactory.newInstance();
+        if (mf.accepts(is) == false || mf.createMessage(is) instanceof NegTokenInit == false) {
+            throw new IllegalStateException("NegTokenInit not decoded");
+        }
+
+        KerberosLoginModule module = new KerberosLoginModule();
+        module.initialize(new Subject(), null, new HashMap<String, Object>(), new HashMap<String, Object>());
+        long ready = System.nanoTime() - start;
+
+        System.out.println("ready " + ready + " " + ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    private static String summary(final long[] values, final double divisor) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long current : sorted) {
+            total += current;
+        }
+
+        return String.format("min %.1f  median %.1f  mean %.1f  max %.1f", sorted[0] / divisor,
+                sorted[sorted.length / 2] / divisor, total / divisor / sorted.length, sorted[sorted.length - 1] / divisor);
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.benchmark;
+
+import java.util.Properties;
+
+import javax.naming.AuthenticationException;
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapContext;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the InMemoryDirectory accessed through JNDI as the login modules access it.
+ */
+public class InMemoryDirectoryTestCase extends TestCase
+{
+
+   private InMemoryDirectory directory;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      directory = new DirectoryGenerator().setUsers(20).setGroupsPerLevel(5).setGroupLevels(2).setGroupsPerUser(2)
+            .setParentsPerGroup(1).generate();
+      InMemoryDirectory.register(getName(), directory);
+   }
+
+   public void testBind() throws NamingException
+   {
+      connect(DirectoryGenerator.userDN(3), "password").close();
+      try
+      {
+         connect(DirectoryGenerator.userDN(3), "wrong");
+         fail("Expected AuthenticationException");
+      }
+      catch (AuthenticationException expected)
+      {
+      }
+      assertEquals(2, directory.getBinds());
+   }
+
+   public void testUserSearch() throws NamingException
+   {
+      LdapContext ctx = connect(DirectoryGenerator.SEARCH_DN, "password");
+      SearchControls controls = new SearchControls();
+      controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+      NamingEnumeration<SearchResult> results = ctx.search(DirectoryGenerator.USERS_DN, "(sAMAccountName={0})",
+            new Object[] {"USER7"}, controls);
+
+      assertTrue(results.hasMore());
+      SearchResult result = results.next();
+      assertEquals("CN=user7", result.getName());
+      assertEquals(DirectoryGenerator.userDN(7), result.getNameInNamespace());
+      assertNull(result.getAttributes().get("userPassword"));
+      assertFalse(results.hasMore());
+   }
+
+   public void testNestedGroups() throws NamingException
+   {
+      LdapContext ctx = connect(DirectoryGenerator.SEARCH_DN, "password");
+      Attributes user = ctx.getAttributes("\"" + DirectoryGenerator.userDN(0) + "\"", new String[] {"memberOf"});
+      String groupDN = (String) user.get("memberOf").get(0);
+
+      SearchControls controls = new SearchControls();
+      controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+      controls.setReturningAttributes(new String[] {"cn"});
+      NamingEnumeration<SearchResult> results = ctx.search(DirectoryGenerator.GROUPS_DN, "(member={0})",
+            new Object[] {groupDN.toLowerCase()}, controls);
+
+      assertTrue(results.hasMore());
+      assertTrue(((String) results.next().getAttributes().get("cn").get()).startsWith("group1-"));
+      assertFalse(results.hasMore());
+   }
+
+   public void testPrimaryGroupSearch() throws NamingException
+   {
+      LdapContext ctx = connect(DirectoryGenerator.SEARCH_DN, "password");
+      Attributes user = ctx.getAttributes(DirectoryGenerator.userDN(1), new String[] {"objectSid", "primaryGroupID"});
+      assertEquals("513", user.get("primaryGroupID").get());
+
+      byte[] groupSid = ((byte[]) user.get("objectSid").get()).clone();
+      groupSid[groupSid.length - 4] = 0x01;
+      groupSid[groupSid.length - 3] = 0x02;
+      groupSid[groupSid.length - 2] = 0x00;
+      groupSid[groupSid.length - 1] = 0x00;
+
+      SearchControls controls = new SearchControls();
+      controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+      NamingEnumeration<SearchResult> results = ctx.search(DirectoryGenerator.BASE_DN, "(objectSid={0})",
+            new Object[] {groupSid}, controls);
+
+      assertTrue(results.hasMore());
+      assertEquals("CN=Domain Users,OU=Groups", results.next().getName());
+   }
+
+   private LdapContext connect(final String dn, final String credential) throws NamingException
+   {
+      Properties env = new Properties();
+      env.put(Context.INITIAL_CONTEXT_FACTORY, InMemoryContextFactory.class.getName());
+      env.put(Context.PROVIDER_URL, "ldap://" + getName() + ":389");
+      env.put(Context.SECURITY_PRINCIPAL, dn);
+      env.put(Context.SECURITY_CREDENTIALS, credential);
+
+      return new InitialLdapContext(env, null);
+   }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.ietf.jgss.GSSCredential;
+import org.jboss.security.negotiation.common.NegotiationContext;
+
+/**
+ * The delegation credential and {@link NegotiationContext} of a request captured so they can be restored on the
+ * threads performing asynchronous work for the request, e.g. within AsyncContext.start(), a ForkJoinPool or an
+ * executor of virtual threads.
+ *
+ * While restored the captured credential is returned by {@link DelegationCredentialContext#getDelegCredential()} in
+ * preference to any credential of the security context of the thread.
+ *
+ * Note: This class is a public API and all subsequent changes MUST be backwards compatible.
+ */
+public final class DelegationContextSnapshot {
+
+    private static final DelegationContextSnapshot EMPTY = new DelegationContextSnapshot(null, null);
+
+    private final GSSCredential delegationCredential;
+
+    private final NegotiationContext negotiationContext;
+
+    private DelegationContextSnapshot(final GSSCredential delegationCredential,
+            final NegotiationContext negotiationContext) {
+        this.delegationCredential = delegationCredential;
+        this.negotiationContext = negotiationContext;
+    }
+
+    /**
+     * Capture the delegation credential and {@link NegotiationContext} of the current thread.
+     *
+     * @return The snapshot, never null.
+     */
+    public static DelegationContextSnapshot capture() {
+        GSSCredential delegationCredential = DelegationCredentialContext.getDelegCredential();
+        NegotiationContext negotiationContext = NegotiationContext.getCurrentNegotiationContext();
+        if (delegationCredential == null && negotiationContext == null) {
+            return EMPTY;
+        }
+
+        return new DelegationContextSnapshot(delegationCredential, negotiationContext);
+    }
+
+    /**
+     * @return The captured delegation credential or null if none was available.
+     */
+    public GSSCredential getDelegationCredential() {
+        return delegationCredential;
+    }
+
+    /**
+     * Restore the snapshot to the current thread until the returned {@link Scope} is closed, which reinstates the
+     * previous state of the thread.
+     *
+     * @return The scope of the restoration.
+     */
+    public Scope restore() {
+        GSSCredential previousCredential = DelegationSecurityActions.setPropagatedCredential(delegationCredential);
+        NegotiationContext previousContext = NegotiationContext.getCurrentNegotiationContext();
+        if (negotiationContext != null) {
+            negotiationContext.associate();
+        } else if (previousContext != null) {
+            previousContext.disassociate();
+        }
+
+        return new Scope(previousCredential, previousContext);
+    }
+
+    /**
+     * Wrap the task so it runs with this snapshot restored.
+     */
+    public Runnable wrap(final Runnable task) {
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                Scope scope = restore();
+                try {
+                    task.run();
+                } finally {
+                    scope.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Wrap the task so it runs with this snapshot restored.
+     */
+    public <V> Callable<V> wrap(final Callable<V> task) {
+        return new Callable<V>() {
+
+            @Override
+            public V call() throws Exception {
+                Scope scope = restore();
+                try {
+                    return task.call();
+                } finally {
+                    scope.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Wrap the {@link Executor} so each task runs with the snapshot captured by the thread submitting it.
+     */
+    public static Executor propagating(final Executor executor) {
+        return new Executor() {
+
+            @Override
+            public void execute(final Runnable command) {
+                executor.execute(capture().wrap(command));
+            }
+        };
+    }
+
+    /**
+     * Wrap the {@link ExecutorService} so each task runs with the snapshot captured by the thread submitting it.
+     */
+    public static ExecutorService propagating(final ExecutorService executorService) {
+        return new PropagatingExecutorService(executorService);
+    }
+
+    /**
+     * The scope of a restored snapshot, must be closed on the same thread.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final GSSCredential previousCredential;
+
+        private final NegotiationContext previousContext;
+
+        private Scope(final GSSCredential previousCredential, final NegotiationContext previousContext) {
+            this.previousCredential = previousCredential;
+            this.previousContext = previousContext;
+        }
+
+        /**
+         * Reinstate the state of the thread from before the snapshot was restored.
+         */
+        @Override
+        public void close() {
+            DelegationSecurityActions.setPropagatedCredential(previousCredential);
+            if (previousContext != null) {
+                previousContext.associate();
+            } else {
+                NegotiationContext current = NegotiationContext.getCurrentNegotiationContext();
+                if (current != null) {
+                    current.disassociate();
+                }
+            }
+        }
+    }
+
+    private static final class PropagatingExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+
+        private PropagatingExecutorService(final ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        /*
+         * The submit and invoke methods of AbstractExecutorService all call execute on the submitting thread.
+         */
+
+        @Override
+        public void execute(final Runnable command) {
+            delegate.execute(capture().wrap(command));
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+
+}
@@ -38,10 +38,33 @@ import org.jboss.security.SubjectInfo;
  */
 final class DelegationSecurityActions {
 
+    // The credential restored from a DelegationContextSnapshot, takes precedence over the security context.
+    private static final ThreadLocal<GSSCredential> propagatedCredential = new ThreadLocal<GSSCredential>();
+
     static GSSCredential getDelegationCredential() {
+        GSSCredential propagated = propagatedCredential.get();
+        if (propagated != null) {
+            return propagated;
+        }
         return delegationCredentialAction().getDelegationCredential();
     }
 
+    /**
+     * Set the credential propagated to the current thread.
+     *
+     * @param credential - The credential or null to clear it.
+     * @return The previously propagated credential.
+     */
+    static GSSCredential setPropagatedCredential(final GSSCredential credential) {
+        GSSCredential previous = propagatedCredential.get();
+        if (credential != null) {
+            propagatedCredential.set(credential);
+        } else {
+            propagatedCredential.remove();
+        }
+        return previous;
+    }
+
     private static DelegationCredentialAction delegationCredentialAction() {
         return System.getSecurityManager() != null ? DelegationCredentialAction.PRIVILEGED : DelegationCredentialAction.NON_PRIVILEGED;
     }
@@ -42,17 +42,22 @@ public abstract class MessageFactory
    
    private static final String KERBEROS_MESSAGE_FACTORY_NAME = "org.jboss.security.negotiation.spnego.KerberosMessageFactory";
 
-   private static final Class<MessageFactory> NTLM_MESSAGE_FACTORY;
+   private static final List<MessageFactory> registered = new ArrayList<MessageFactory>(3);
 
-   private static final Class<MessageFactory> SPNEGO_MESSAGE_FACTORY;
-   
-   private static final Class<MessageFactory> KERBEROS_MESSAGE_FACTORY;
+   private static volatile MessageFactory registeredFactory;
 
-   static
+   /**
+    * The factories located by name, only loaded if no factories have been registered.
+    */
+   private static final class Reflective
    {
-      NTLM_MESSAGE_FACTORY = loadClass(NTLM_MESSAGE_FACTORY_NAME);
-      SPNEGO_MESSAGE_FACTORY = loadClass(SPNEGO_MESSAGE_FACTORY_NAME);
-      KERBEROS_MESSAGE_FACTORY = loadClass(KERBEROS_MESSAGE_FACTORY_NAME);
+
+      private static final Class<MessageFactory> NTLM_MESSAGE_FACTORY = loadClass(NTLM_MESSAGE_FACTORY_NAME);
+
+      private static final Class<MessageFactory> SPNEGO_MESSAGE_FACTORY = loadClass(SPNEGO_MESSAGE_FACTORY_NAME);
+
+      private static final Class<MessageFactory> KERBEROS_MESSAGE_FACTORY = loadClass(KERBEROS_MESSAGE_FACTORY_NAME);
+
    }
 
    /**
@@ -87,13 +92,57 @@ public abstract class MessageFactory
    }
 
    /**
-    * @return a new MessageFactory to process a message available from an InputStream.
+    * Register a MessageFactory to be returned by {@link #newInstance()} in place of locating the NTLM, SPNEGO and
+    * Kerberos factories by name, so that no reflection is needed where the factories are linked ahead of time
+    * e.g. a GraalVM native image or a class data sharing archive.
+    *
+    * Registered factories are consulted in the order they were registered and are shared so must be stateless.
+    *
+    * @param factory - The factory to register.
+    */
+   public static void register(final MessageFactory factory)
+   {
+      synchronized (registered)
+      {
+         registered.add(factory);
+         if (registered.size() == 1)
+         {
+            registeredFactory = factory;
+         }
+         else
+         {
+            registeredFactory = new DelegatingMessageFactory(new ArrayList<MessageFactory>(registered));
+         }
+      }
+   }
+
+   /**
+    * Discard the registered factories so that the factories are located by name again, for use by tests.
+    */
+   static void reset()
+   {
+      synchronized (registered)
+      {
+         registered.clear();
+         registeredFactory = null;
+      }
+   }
+
+   /**
+    * @return a MessageFactory to process a message available from an InputStream, either the registered factories
+    *         or a new MessageFactory delegating to the factories located by name.
     */
    public static MessageFactory newInstance() throws NegotiationException
    {
-      MessageFactory ntlm = newInstance(NTLM_MESSAGE_FACTORY);
-      MessageFactory spnego = newInstance(SPNEGO_MESSAGE_FACTORY);
-      MessageFactory kerberos = newInstance(KERBEROS_MESSAGE_FACTORY);
+      MessageFactory factory = registeredFactory;
+      if (factory != null)
+      {
+         return factory;
+      }
+
+      MessageFactory ntlm = newInstance(Reflective.NTLM_MESSAGE_FACTORY);
+      MessageFactory spnego = newInstance(Reflective.SPNEGO_MESSAGE_FACTORY);
+      MessageFactory kerberos = newInstance(Reflective.KERBEROS_MESSAGE_FACTORY);
 
       List<MessageFactory> delegates = new ArrayList<MessageFactory>(3);
       if (ntlm != null)
@@ -135,7 +135,7 @@ public abstract class AesCtsHmacSha1Decoder extends Decoder
                if (calculatedHmac[i] != ciphertext[hmacOffset + i])
                {
                   cksumFailed = true;
-                  log.error("Checksum failed !");
+                  log.trace("Checksum failed !");
                   break;
                }
             }
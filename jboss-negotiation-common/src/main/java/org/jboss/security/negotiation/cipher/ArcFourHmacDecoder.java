@@ -115,7 +115,6 @@ public class ArcFourHmacDecoder extends Decoder
             if (calculatedHmac[i] != ciphertext[i])
             {
                cksumFailed = true;
-               System.err.println("Checksum failed !");
                break;
             }
          }
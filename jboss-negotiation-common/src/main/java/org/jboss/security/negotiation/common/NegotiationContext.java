@@ -69,6 +69,19 @@ public class NegotiationContext
       negotiationContext.set(this);
    }
 
+   /**
+    * Remove the association with the current thread without clearing any state, e.g. at the end of a task the
+    * context was propagated to.
+    */
+   public void disassociate()
+   {
+      log.tracef("disassociate %h", this);
+      if (negotiationContext.get() == this)
+      {
+         negotiationContext.remove();
+      }
+   }
+
    /**
     * Clear any information that is not required to be retained between invocations.
     */
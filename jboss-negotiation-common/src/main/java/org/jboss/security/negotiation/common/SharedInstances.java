@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.common;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A registry of the process wide instances of a class shared between all login modules with the same configuration,
+ * e.g. the caches and pools of the LDAP and Kerberos login modules.
+ *
+ * The negotiation classes may be shared by several deployments so each instance records the deployments using it,
+ * identified by the context class loader of the thread obtaining it. As a deployment is undeployed
+ * {@link #release(ClassLoader)} removes the instances no other deployment is using, instances implementing
+ * {@link Disposable} are disposed of as they are removed so any background threads, connections or credentials they
+ * hold are released.
+ */
+public final class SharedInstances<K, V> {
+
+    private static final Logger log = Logger.getLogger(SharedInstances.class);
+
+    private static final Set<SharedInstances<?, ?>> REGISTRIES = new CopyOnWriteArraySet<SharedInstances<?, ?>>();
+
+    private final ConcurrentMap<K, Registration<V>> instances = new ConcurrentHashMap<K, Registration<V>>();
+
+    private SharedInstances() {
+    }
+
+    /**
+     * Create a new registry, tracked so that it is cleared by {@link #release(ClassLoader)} and {@link #clearAll()}.
+     */
+    public static <K, V> SharedInstances<K, V> create() {
+        SharedInstances<K, V> registry = new SharedInstances<K, V>();
+        REGISTRIES.add(registry);
+
+        return registry;
+    }
+
+    /**
+     * @return The instance registered for the key or null if there is none.
+     */
+    public V get(final K key) {
+        Registration<V> registration = instances.get(key);
+        if (registration == null || registration.addOwner(currentOwner()) == false) {
+            return null;
+        }
+
+        return registration.instance;
+    }
+
+    /**
+     * Register the instance for the key unless another thread has already registered one.
+     *
+     * @param key - The key identifying the configuration.
+     * @param instance - The newly created instance.
+     * @return The instance now registered, if this is not the supplied instance the supplied instance should be discarded.
+     */
+    public V register(final K key, final V instance) {
+        ClassLoader owner = currentOwner();
+        Registration<V> created = new Registration<V>(instance);
+        created.addOwner(owner);
+        while (true) {
+            Registration<V> existing = instances.putIfAbsent(key, created);
+            if (existing == null) {
+                return instance;
+            } else if (existing.addOwner(owner)) {
+                return existing.instance;
+            }
+            // Released by another thread, it is removed before the next attempt.
+            instances.remove(key, existing);
+        }
+    }
+
+    /**
+     * Remove and dispose of all instances of this registry.
+     */
+    public void clear() {
+        Iterator<Registration<V>> it = instances.values().iterator();
+        while (it.hasNext()) {
+            Registration<V> current = it.next();
+            it.remove();
+            if (current.release(null)) {
+                dispose(current.instance);
+            }
+        }
+    }
+
+    /**
+     * Remove and dispose of the instances of this registry only used by the deployment.
+     */
+    private void clear(final ClassLoader owner) {
+        for (Map.Entry<K, Registration<V>> current : instances.entrySet()) {
+            Registration<V> registration = current.getValue();
+            if (registration.release(owner)) {
+                instances.remove(current.getKey(), registration);
+                dispose(registration.instance);
+            }
+        }
+    }
+
+    /**
+     * Release the instances obtained by a deployment, called as the deployment is undeployed. Instances still used by
+     * other deployments are retained, the remainder are removed and disposed of.
+     *
+     * @param owner - The class loader of the deployment.
+     */
+    public static void release(final ClassLoader owner) {
+        for (SharedInstances<?, ?> current : REGISTRIES) {
+            current.clear(owner);
+        }
+    }
+
+    /**
+     * Remove and dispose of all instances of all registries regardless of the deployments using them, for use as the
+     * process shuts down. Instances obtained afterwards are created again so a login module that is still in use
+     * continues to work.
+     */
+    public static void clearAll() {
+        for (SharedInstances<?, ?> current : REGISTRIES) {
+            current.clear();
+        }
+    }
+
+    private static ClassLoader currentOwner() {
+        ClassLoader owner = Thread.currentThread().getContextClassLoader();
+
+        return owner != null ? owner : SharedInstances.class.getClassLoader();
+    }
+
+    private static void dispose(final Object instance) {
+        if (instance instanceof Disposable) {
+            try {
+                ((Disposable) instance).dispose();
+            } catch (RuntimeException e) {
+                log.debug("Unable to dispose of shared instance", e);
+            }
+        }
+    }
+
+    /**
+     * A registered instance and the deployments using it.
+     */
+    private static final class Registration<V> {
+
+        private final V instance;
+
+        // Weak so an undeployed deployment that never released its instances is not retained.
+        private final Set<ClassLoader> owners = Collections.newSetFromMap(new WeakHashMap<ClassLoader, Boolean>());
+
+        private boolean released;
+
+        private Registration(final V instance) {
+            this.instance = instance;
+        }
+
+        /**
+         * @return false if the instance has been released so must no longer be used.
+         */
+        synchronized boolean addOwner(final ClassLoader owner) {
+            if (released) {
+                return false;
+            }
+            owners.add(owner);
+
+            return true;
+        }
+
+        /**
+         * Remove the owner, or all owners if null.
+         *
+         * @return true if the instance is no longer used so should be disposed of.
+         */
+        synchronized boolean release(final ClassLoader owner) {
+            if (released) {
+                return false;
+            }
+            if (owner == null) {
+                owners.clear();
+            } else {
+                owners.remove(owner);
+            }
+            released = owners.isEmpty();
+
+            return released;
+        }
+    }
+
+    /**
+     * Implemented by shared instances holding resources that must be released when the instance is removed.
+     */
+    public interface Disposable {
+
+        void dispose();
+
+    }
+
+}
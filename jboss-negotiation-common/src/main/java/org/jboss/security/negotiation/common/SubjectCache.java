@@ -0,0 +1,228 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.common;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.LoginContext;
+import javax.security.auth.login.LoginException;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A process wide cache of the Subject obtained by logging in to a security domain, used where a server identity is
+ * needed to initiate or accept Kerberos authentication so that the keytab is not read and a new TGT obtained each time.
+ *
+ * The Subject is replaced by logging in again once 80% of the lifetime of the TGT has passed, the Subject is not
+ * read only so that service tickets obtained using it are also retained for reuse.
+ *
+ * A replaced Subject may still be in use by the threads that obtained it before it was replaced so it is only logged
+ * out once its TGT has expired, at which point it is no longer usable anyway, or when the cache is disposed of.
+ */
+public final class SubjectCache implements SharedInstances.Disposable {
+
+    private static final Logger log = Logger.getLogger(SubjectCache.class);
+
+    private static final SharedInstances<String, SubjectCache> INSTANCES = SharedInstances.create();
+
+    /*
+     * The time after which a Subject without a TGT is replaced.
+     */
+    private static final long DEFAULT_LIFETIME = 60 * 60 * 1000;
+
+    private static final String TGS_PREFIX = "krbtgt/";
+
+    private final String securityDomain;
+    private final Lock refreshLock = new ReentrantLock();
+    private volatile CachedSubject current;
+    // The replaced Subjects, logged out once they expire.
+    private final List<CachedSubject> retired = new ArrayList<CachedSubject>();
+
+    private SubjectCache(final String securityDomain) {
+        this.securityDomain = securityDomain;
+    }
+
+    /**
+     * Obtain the cache for the specified security domain.
+     *
+     * @param securityDomain - The name of the security domain to login to.
+     * @return The shared cache.
+     */
+    public static SubjectCache getInstance(final String securityDomain) {
+        SubjectCache cache = INSTANCES.get(securityDomain);
+        if (cache == null) {
+            cache = INSTANCES.register(securityDomain, new SubjectCache(securityDomain));
+        }
+
+        return cache;
+    }
+
+    /**
+     * Obtain the Subject, logging in if there is no cached Subject or the cached Subject is due for renewal.
+     *
+     * Whilst one thread is renewing the Subject other threads continue to use the cached Subject until it expires.
+     *
+     * @return The Subject for the security domain.
+     * @throws LoginException - If it is necessary to login and the login fails.
+     */
+    public Subject getSubject() throws LoginException {
+        CachedSubject cached = current;
+        long now = System.currentTimeMillis();
+        if (cached != null && now < cached.refreshTime) {
+            return cached.subject;
+        }
+
+        if (cached != null && now < cached.expiryTime) {
+            if (refreshLock.tryLock() == false) {
+                return cached.subject;
+            }
+        } else {
+            refreshLock.lock();
+        }
+        try {
+            cached = current;
+            if (cached == null || System.currentTimeMillis() >= cached.refreshTime) {
+                CachedSubject previous = cached;
+                cached = login();
+                current = cached;
+                retire(previous);
+            }
+
+            return cached.subject;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Discard the cached Subject so that the next call to {@link #getSubject()} logs in again, for use where the
+     * credentials of the cached Subject have been rejected.
+     *
+     * The discarded Subject is not logged out until it expires as other threads may still be using it.
+     */
+    public void invalidate() {
+        CachedSubject previous = current;
+        current = null;
+        retire(previous);
+    }
+
+    /**
+     * Log out of the cached and all replaced Subjects, called as the login modules are undeployed.
+     */
+    public void dispose() {
+        CachedSubject previous = current;
+        current = null;
+        List<CachedSubject> loggingOut;
+        synchronized (retired) {
+            loggingOut = new ArrayList<CachedSubject>(retired);
+            retired.clear();
+        }
+        loggingOut.add(previous);
+        for (CachedSubject cached : loggingOut) {
+            logout(cached);
+        }
+    }
+
+    /**
+     * Keep the replaced Subject until it expires and log out of any replaced Subjects that have now expired.
+     */
+    private void retire(final CachedSubject previous) {
+        List<CachedSubject> expired = new ArrayList<CachedSubject>();
+        long now = System.currentTimeMillis();
+        synchronized (retired) {
+            if (previous != null) {
+                retired.add(previous);
+            }
+            Iterator<CachedSubject> it = retired.iterator();
+            while (it.hasNext()) {
+                CachedSubject cached = it.next();
+                if (now >= cached.expiryTime) {
+                    it.remove();
+                    expired.add(cached);
+                }
+            }
+        }
+        for (CachedSubject cached : expired) {
+            logout(cached);
+        }
+    }
+
+    private CachedSubject login() throws LoginException {
+        LoginContext lc = new LoginContext(securityDomain);
+        lc.login();
+        Subject subject = lc.getSubject();
+
+        long now = System.currentTimeMillis();
+        long refreshTime = now + DEFAULT_LIFETIME;
+        long expiryTime = refreshTime;
+        for (KerberosTicket ticket : subject.getPrivateCredentials(KerberosTicket.class)) {
+            if (ticket.getServer().getName().startsWith(TGS_PREFIX)) {
+                Date start = ticket.getStartTime() != null ? ticket.getStartTime() : ticket.getAuthTime();
+                long startTime = start != null ? start.getTime() : now;
+                expiryTime = ticket.getEndTime().getTime();
+                refreshTime = expiryTime - (expiryTime - startTime) / 5;
+                break;
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Logged in to '" + securityDomain + "', Subject will be renewed after " + new Date(refreshTime));
+        }
+
+        return new CachedSubject(lc, refreshTime, expiryTime);
+    }
+
+    private void logout(final CachedSubject cached) {
+        if (cached == null) {
+            return;
+        }
+        try {
+            cached.loginContext.logout();
+        } catch (LoginException e) {
+            log.debug("Unable to logout from '" + securityDomain + "'", e);
+        }
+    }
+
+    private static final class CachedSubject {
+
+        private final LoginContext loginContext;
+        private final Subject subject;
+        private final long refreshTime;
+        private final long expiryTime;
+
+        private CachedSubject(final LoginContext loginContext, final long refreshTime, final long expiryTime) {
+            this.loginContext = loginContext;
+            this.subject = loginContext.getSubject();
+            this.refreshTime = refreshTime;
+            this.expiryTime = expiryTime;
+        }
+    }
+
+}
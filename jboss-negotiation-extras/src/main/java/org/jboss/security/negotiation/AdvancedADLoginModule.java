@@ -26,6 +26,8 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
@@ -44,6 +46,15 @@ public class AdvancedADLoginModule extends AdvancedLdapLoginModule
 
    private static final String PRIMARY_GROUP_ID = "primaryGroupID";
    private static final String OBJECT_SID = "objectSid";
+   private static final String PRIMARY_GROUP_CACHE_TIMEOUT = "primaryGroupCacheTimeout";
+
+   private static final String[] AD_VALID_OPTIONS =
+   {PRIMARY_GROUP_CACHE_TIMEOUT};
+
+   // The time in seconds the DN of each primary group is cached for, 0 disables the cache.
+   protected int primaryGroupCacheTimeout = 0;
+
+   private PrimaryGroupCache primaryGroupCache;
 
    /*
     * The rolesSearch method is called recursively, we need to ensure it is only called once 
@@ -54,7 +65,33 @@ public class AdvancedADLoginModule extends AdvancedLdapLoginModule
    @Override
    public void initialize(Subject subject, CallbackHandler callbackHandler, Map sharedState, Map options)
    {
+      addValidOptions(AD_VALID_OPTIONS);
       super.initialize(subject, callbackHandler, sharedState, options);
+
+      String temp = (String) options.get(PRIMARY_GROUP_CACHE_TIMEOUT);
+      if (temp != null)
+      {
+         try
+         {
+            primaryGroupCacheTimeout = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using primaryGroupCacheTimeout=" + primaryGroupCacheTimeout);
+         }
+      }
+      if (primaryGroupCacheTimeout > 0)
+      {
+         primaryGroupCache = PrimaryGroupCache.getInstance(configurationKey(), primaryGroupCacheTimeout * 1000L);
+         trackChanges(primaryGroupCache);
+      }
+   }
+
+   @Override
+   protected void resetRoles()
+   {
+      super.resetRoles();
+      skipPrimaryGroupSearch = false;
    }
 
    @Override
@@ -68,87 +105,184 @@ public class AdvancedADLoginModule extends AdvancedLdapLoginModule
    @Override
    protected void rolesSearch(LdapContext searchContext, String dn) throws LoginException
    {
-      boolean TRACE = log.isTraceEnabled();
       if (skipPrimaryGroupSearch == false)
       {
          skipPrimaryGroupSearch = true;
 
          try
          {
-            String[] attrNames =
-            {OBJECT_SID, PRIMARY_GROUP_ID};
-            Attributes result = searchContext.getAttributes(dn, attrNames);
-            Attribute primaryGroupIdAttribute = result.get(PRIMARY_GROUP_ID);
-            Attribute objectSidAttribute = result.get(OBJECT_SID);
-            if (primaryGroupIdAttribute != null && objectSidAttribute != null)
+            if (pipelineRequests)
+            {
+               pipelinedRolesSearch(searchContext, dn);
+            }
+            else
             {
-               int primaryGroupId = Integer.parseInt((String) primaryGroupIdAttribute.get());
-               byte[] objectSid = (byte[]) objectSidAttribute.get();
+               String primaryGroupDN = findPrimaryGroup(searchContext, dn);
+               if (primaryGroupDN != null)
+               {
+                  processRoleDN(searchContext, primaryGroupDN);
+               }
 
-               /*
-                * The objectSid of the primary group can be found by taking the object sid
-                * of the user and replacing the last four bytes with the little endian representation
-                * of the primary group id - this new byte[] can then be used in the search.
-                */
+               super.rolesSearch(searchContext, dn);
+            }
+         }
+         catch (NamingException e)
+         {
+            if (log.isTraceEnabled())
+               log.trace("Failed to load primary group", e);
+         }
+         finally
+         {
+            skipPrimaryGroupSearch = false;
+         }
+      }
+      else
+      {
+         super.rolesSearch(searchContext, dn);
+      }
 
-               byte[] searchObjectSid = new byte[objectSid.length];
-               System.arraycopy(objectSid, 0, searchObjectSid, 0, objectSid.length - 4);
+   }
 
-               ByteBuffer byteBuffer = ByteBuffer.wrap(searchObjectSid, objectSid.length - 4, 4);
-               byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
-               byteBuffer.putInt(primaryGroupId);
+   /**
+    * Look up the primary group on a second context sharing the connection of the search context
+    * while the remaining roles are searched for, only the directory requests run concurrently,
+    * the primary group is processed once both have completed.
+    */
+   private void pipelinedRolesSearch(LdapContext searchContext, final String dn) throws NamingException, LoginException
+   {
+      final LdapContext primaryGroupContext = searchContext.newInstance(null);
+      Future<String> pendingPrimaryGroup = LdapPipeline.submit(new Callable<String>()
+      {
 
-               if (TRACE)
-               {
-                  String objectSidBase64 = Base64.encodeBytes(objectSid);
-                  String searchObjectSidBase64 = Base64.encodeBytes(searchObjectSid);
-                  log.trace("Using base objectSid " + objectSidBase64 + " and replaced with primary group id "
-                        + primaryGroupId + " to create new search objectSid " + searchObjectSidBase64);
-               }
+         public String call() throws NamingException
+         {
+            try
+            {
+               return findPrimaryGroup(primaryGroupContext, dn);
+            }
+            finally
+            {
+               primaryGroupContext.close();
+            }
+         }
+      });
 
-               String primaryGroupFilter = "(objectSid={0})";
-               Object[] filterArgs =
-               {searchObjectSid};
+      String primaryGroupDN = null;
+      try
+      {
+         super.rolesSearch(searchContext, dn);
+      }
+      finally
+      {
+         primaryGroupDN = LdapPipeline.await(pendingPrimaryGroup);
+      }
 
-               NamingEnumeration searchResults = searchContext.search(baseCtxDN, primaryGroupFilter, filterArgs,
-                     roleSearchControls);
-               if (searchResults.hasMore() == true)
-               {
-                  SearchResult searchResult = (SearchResult) searchResults.next();
-                  String baseResultDN = canonicalize(searchResult.getName());
-                  String resultDN = "\"" + baseResultDN + "\"";
+      if (primaryGroupDN != null)
+      {
+         processRoleDN(searchContext, primaryGroupDN);
+      }
+   }
 
-                  if (TRACE)
-                  {
-                     log.trace("Search found primary group " + resultDN);
-                  }
+   /**
+    * Find the DN of the primary group of the user.
+    *
+    * @return The DN of the primary group or null if the user does not have one.
+    */
+   private String findPrimaryGroup(LdapContext searchContext, String dn) throws NamingException
+   {
+      boolean TRACE = log.isTraceEnabled();
+      String[] attrNames =
+      {OBJECT_SID, PRIMARY_GROUP_ID};
+      Attributes result;
+      long start = startOperation();
+      try
+      {
+         result = searchContext.getAttributes(dn, attrNames);
+      }
+      finally
+      {
+         endOperation(LdapMetrics.Operation.READ, start);
+      }
+      Attribute primaryGroupIdAttribute = result.get(PRIMARY_GROUP_ID);
+      Attribute objectSidAttribute = result.get(OBJECT_SID);
+      if (primaryGroupIdAttribute != null && objectSidAttribute != null)
+      {
+         int primaryGroupId = Integer.parseInt((String) primaryGroupIdAttribute.get());
+         byte[] objectSid = (byte[]) objectSidAttribute.get();
 
-                  loadRoleByRoleNameAttributeID(searchContext, resultDN);
-                  recurseRolesSearch(searchContext, baseResultDN);
-               }
+         /*
+          * The objectSid of the primary group can be found by taking the object sid
+          * of the user and replacing the last four bytes with the little endian representation
+          * of the primary group id - this new byte[] can then be used in the search.
+          */
 
-            }
-            else
+         byte[] searchObjectSid = new byte[objectSid.length];
+         System.arraycopy(objectSid, 0, searchObjectSid, 0, objectSid.length - 4);
+
+         ByteBuffer byteBuffer = ByteBuffer.wrap(searchObjectSid, objectSid.length - 4, 4);
+         byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+         byteBuffer.putInt(primaryGroupId);
+
+         if (TRACE)
+         {
+            String objectSidBase64 = Base64.encodeBytes(objectSid);
+            String searchObjectSidBase64 = Base64.encodeBytes(searchObjectSid);
+            log.trace("Using base objectSid " + objectSidBase64 + " and replaced with primary group id "
+                  + primaryGroupId + " to create new search objectSid " + searchObjectSidBase64);
+         }
+
+         if (primaryGroupCache != null)
+         {
+            String cachedDN = primaryGroupCache.get(searchObjectSid);
+            cacheAccess(LdapMetrics.Cache.PRIMARY_GROUP, cachedDN != null);
+            if (cachedDN != null)
             {
-               log.trace("primaryGroupIdAttribute or objectSidAttribute was null, skipping primary group search.");
+               if (TRACE)
+               {
+                  log.trace("Using cached primary group \"" + cachedDN + "\"");
+               }
+               return cachedDN;
             }
-
-            super.rolesSearch(searchContext, dn);
          }
-         catch (NamingException e)
+
+         String primaryGroupFilter = "(objectSid={0})";
+         Object[] filterArgs =
+         {searchObjectSid};
+
+         NamingEnumeration searchResults;
+         start = startOperation();
+         try
          {
-            if (TRACE)
-               log.trace("Failed to load primary group", e);
+            searchResults = searchContext.search(baseCtxDN, primaryGroupFilter, filterArgs, roleSearchControls);
          }
          finally
          {
-            skipPrimaryGroupSearch = false;
+            endOperation(LdapMetrics.Operation.SEARCH, start);
          }
+         if (searchResults.hasMore() == true)
+         {
+            SearchResult searchResult = (SearchResult) searchResults.next();
+            String baseResultDN = canonicalize(searchResult.getName());
+
+            if (TRACE)
+            {
+               log.trace("Search found primary group \"" + baseResultDN + "\"");
+            }
+
+            if (primaryGroupCache != null)
+            {
+               primaryGroupCache.put(searchObjectSid, baseResultDN);
+            }
+
+            return baseResultDN;
+         }
+
       }
       else
       {
-         super.rolesSearch(searchContext, dn);
+         log.trace("primaryGroupIdAttribute or objectSidAttribute was null, skipping primary group search.");
       }
 
+      return null;
    }
 }
@@ -26,15 +26,25 @@ import java.net.URISyntaxException;
 import java.security.Principal;
 import java.security.PrivilegedAction;
 import java.security.acl.Group;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Locale;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TimeZone;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
-import javax.management.ObjectName;
 import javax.naming.Context;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
@@ -45,17 +55,16 @@ import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
 import javax.naming.ldap.InitialLdapContext;
 import javax.naming.ldap.LdapContext;
+import javax.naming.AuthenticationException;
 import javax.naming.CompositeName;
+import javax.naming.NameNotFoundException;
 import javax.security.auth.Subject;
 import javax.security.auth.callback.CallbackHandler;
-import javax.security.auth.login.LoginContext;
 import javax.security.auth.login.LoginException;
 
 import org.jboss.security.SimpleGroup;
 import org.jboss.security.negotiation.common.CommonLoginModule;
-import org.jboss.security.negotiation.prototype.DecodeAction;
-import org.jboss.security.vault.SecurityVaultUtil;
-import org.jboss.security.vault.SecurityVaultException;
+import org.jboss.security.negotiation.common.SubjectCache;
 import org.picketbox.util.StringUtil;
 
 /**
@@ -93,6 +102,10 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
    private static final String BASE_CTX_DN = "baseCtxDN";
    private static final String BASE_FILTER = "baseFilter";
    private static final String SEARCH_TIME_LIMIT = "searchTimeLimit";
+   private static final String UNKNOWN_USER_CACHE_TIMEOUT = "unknownUserCacheTimeout";
+   private static final String UNKNOWN_USER_CACHE_SIZE = "unknownUserCacheSize";
+   private static final String USER_DN_CACHE_TIMEOUT = "userDNCacheTimeout";
+   private static final String USER_DN_CACHE_SIZE = "userDNCacheSize";
 
    // Role Search Settings
    private static final String ROLES_CTS_DN = "rolesCtxDN";
@@ -103,9 +116,19 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
    private static final String ROLE_NAME_ATTRIBUTE_ID = "roleNameAttributeID";
    private static final String ROLE_SEARCH_SCOPE = "searchScope";
    private static final String REFERRAL_USER_ATTRIBUTE_ID_TO_CHECK = "referralUserAttributeIDToCheck";
+   private static final String GROUP_CACHE_TIMEOUT = "groupCacheTimeout";
+   private static final String ROLE_PAGE_SIZE = "rolePageSize";
+   private static final String ROLE_SNAPSHOT_FILE = "roleSnapshotFile";
+   private static final String CHANGE_TRACKING_INTERVAL = "changeTrackingInterval";
+   private static final String CHANGE_TRACKING_ATTRIBUTE = "changeTrackingAttribute";
+   private static final String SEARCH_CONTEXT_POOL_SIZE = "searchContextPoolSize";
+   private static final String PIPELINE_REQUESTS = "pipelineRequests";
+   private static final String METRICS_NAME = "metricsName";
 
    // Authentication Settings
    private static final String ALLOW_EMPTY_PASSWORD = "allowEmptyPassword";
+   private static final String BIND_CACHE_TIMEOUT = "bindCacheTimeout";
+   private static final String BIND_CACHE_SIZE = "bindCacheSize";
 
    /*
     * Other Constants
@@ -119,14 +142,22 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
    private static final String OBJECT_SCOPE = "OBJECT_SCOPE";
    private static final String ONELEVEL_SCOPE = "ONELEVEL_SCOPE";
    private static final String SUBTREE_SCOPE = "SUBTREE_SCOPE";
+   private static final String USN_CHANGED = "uSNChanged";
+   private static final String MODIFY_TIMESTAMP = "modifyTimestamp";
+   private static final String HIGHEST_COMMITTED_USN = "highestCommittedUSN";
+   // The page size of the user search of a role export where rolePageSize is not set.
+   private static final int EXPORT_PAGE_SIZE = 500;
 
 
    private static final String[] ALL_VALID_OPTIONS =
    {
-      BIND_AUTHENTICATION,BIND_DN,BIND_CREDENTIAL,SECURITY_DOMAIN,
-      BASE_CTX_DN,BASE_FILTER,SEARCH_TIME_LIMIT,
-      ROLES_CTS_DN,ROLE_FILTER,RECURSE_ROLES,ROLE_ATTRIBUTE_ID,ROLE_ATTRIBUTE_IS_DN,ROLE_NAME_ATTRIBUTE_ID,ROLE_SEARCH_SCOPE,
-      ALLOW_EMPTY_PASSWORD,REFERRAL_USER_ATTRIBUTE_ID_TO_CHECK,
+      BIND_AUTHENTICATION,BIND_DN,BIND_CREDENTIAL,SECURITY_DOMAIN,SEARCH_CONTEXT_POOL_SIZE,PIPELINE_REQUESTS,
+      BASE_CTX_DN,BASE_FILTER,SEARCH_TIME_LIMIT,UNKNOWN_USER_CACHE_TIMEOUT,UNKNOWN_USER_CACHE_SIZE,
+      USER_DN_CACHE_TIMEOUT,USER_DN_CACHE_SIZE,
+      ROLES_CTS_DN,ROLE_FILTER,RECURSE_ROLES,ROLE_ATTRIBUTE_ID,ROLE_ATTRIBUTE_IS_DN,ROLE_NAME_ATTRIBUTE_ID,ROLE_SEARCH_SCOPE,ROLE_PAGE_SIZE,
+      GROUP_CACHE_TIMEOUT,ROLE_SNAPSHOT_FILE,CHANGE_TRACKING_INTERVAL,CHANGE_TRACKING_ATTRIBUTE,
+      ALLOW_EMPTY_PASSWORD,REFERRAL_USER_ATTRIBUTE_ID_TO_CHECK,BIND_CACHE_TIMEOUT,BIND_CACHE_SIZE,
+      METRICS_NAME,
 
       Context.INITIAL_CONTEXT_FACTORY,
       Context.OBJECT_FACTORIES,
@@ -155,8 +186,16 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
 
    protected String bindCredential;
 
+   private BindCredentialCache bindCredentialCache;
+
    protected String jaasSecurityDomain;
 
+   // The maximum number of idle search contexts to retain, 0 disables pooling.
+   protected int searchContextPoolSize = 0;
+
+   // Run independent directory requests concurrently over the search connection.
+   protected boolean pipelineRequests;
+
    // User Search Settings
    protected String baseCtxDN;
 
@@ -166,6 +205,16 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
 
    protected SearchControls userSearchControls;
 
+   // The time in seconds usernames not found by the user search are remembered for, 0 disables the cache.
+   protected int unknownUserCacheTimeout = 0;
+
+   protected int unknownUserCacheSize = 1000;
+
+   // The time in seconds the DN found for a username is cached for, 0 disables the cache.
+   protected int userDNCacheTimeout = 0;
+
+   protected int userDNCacheSize = 10000;
+
    // Role Search Settings
    protected String rolesCtxDN;
 
@@ -183,9 +232,31 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
 
    protected String referralUserAttributeIDToCheck = null;
 
+   // The number of results requested in each page of the role search, 0 disables paging.
+   protected int rolePageSize = 0;
+
+   // The time in seconds groups are cached for, 0 disables the cache.
+   protected int groupCacheTimeout = 0;
+
+   // The location of a snapshot of principal roles exported from the directory.
+   protected String roleSnapshotFile;
+
+   // The time in seconds between polls of the directory for changes, 0 disables change tracking.
+   protected int changeTrackingInterval = 0;
+
+   protected String changeTrackingAttribute = USN_CHANGED;
+
    // Authentication Settings
    protected boolean allowEmptyPassword;
 
+   // The time in seconds a credential verified by binding as the user is cached for, 0 disables the cache.
+   protected int bindCacheTimeout = 0;
+
+   protected int bindCacheSize = 1000;
+
+   // The name directory metrics are collected under, no metrics are collected if not set.
+   protected String metricsName;
+
    // inner state fields
    private String referralUserDNToCheck;
 
@@ -196,6 +267,37 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
 
    private Set<String> processedRoleDNs = new HashSet<String>();
 
+   private GroupGraphCache groupCache;
+
+   private RoleSnapshot.Reference roleSnapshot;
+
+   private LdapContextPool searchContextPool;
+
+   // Was the search context of the current login taken from the pool.
+   private boolean pooledSearchContext;
+
+   private UnknownUserCache unknownUserCache;
+
+   private UserDNCache userDNCache;
+
+   // The user DN of the current login was taken from the userDNCache.
+   private boolean cachedUserDN;
+
+   // The cached user DN of the current login no longer exists and has been discarded.
+   private boolean staleUserDN;
+
+   private BindCache bindCache;
+
+   private String poolKey;
+
+   private LdapMetrics metrics;
+
+   // The directory cost of the current login, only recorded when metrics are collected.
+   private LdapMetrics.Cost cost;
+
+   // Referral contexts obtained during this login and the pool to return them to, if any.
+   private final Map<LdapContext, LdapContextPool> referralContexts = new IdentityHashMap<LdapContext, LdapContextPool>();
+
    private boolean trace;
 
    @Override
@@ -208,208 +310,1084 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
       // Search Context Settings
       bindAuthentication = (String) options.get(BIND_AUTHENTICATION);
       bindDn = (String) options.get(BIND_DN);
+      // Any vault expression or encoding is resolved by the BindCredentialCache as the search context is created.
       bindCredential = (String) options.get(BIND_CREDENTIAL);
 
-      try
+      jaasSecurityDomain = (String) options.get(SECURITY_DOMAIN);
+
+      // User Search Settings
+      baseCtxDN = (String) options.get(BASE_CTX_DN);
+      baseFilter = (String) options.get(BASE_FILTER);
+
+      String temp = (String) options.get(SEARCH_TIME_LIMIT);
+      if (temp != null)
+      {
+         try
+         {
+            searchTimeLimit = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using searchTimeLimit=" + searchTimeLimit);
+         }
+      }
+
+      userSearchControls = new SearchControls();
+      userSearchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+      userSearchControls.setReturningAttributes(new String[0]);
+      userSearchControls.setTimeLimit(searchTimeLimit);
+
+      rolesCtxDN = (String) options.get(ROLES_CTS_DN);
+      roleFilter = (String) options.get(ROLE_FILTER);
+      referralUserAttributeIDToCheck = (String) options.get(REFERRAL_USER_ATTRIBUTE_ID_TO_CHECK);
+
+      temp = (String) options.get(RECURSE_ROLES);
+      recurseRoles = Boolean.parseBoolean(temp);
+
+      int searchScope = SearchControls.SUBTREE_SCOPE;
+      temp = (String) options.get(ROLE_SEARCH_SCOPE);
+      if (OBJECT_SCOPE.equalsIgnoreCase(temp))
+      {
+         searchScope = SearchControls.OBJECT_SCOPE;
+      }
+      else if (ONELEVEL_SCOPE.equalsIgnoreCase(temp))
+      {
+         searchScope = SearchControls.ONELEVEL_SCOPE;
+      }
+      if (SUBTREE_SCOPE.equalsIgnoreCase(temp))
+      {
+         searchScope = SearchControls.SUBTREE_SCOPE;
+      }
+
+      roleSearchControls = new SearchControls();
+      roleSearchControls.setSearchScope(searchScope);
+      roleSearchControls.setTimeLimit(searchTimeLimit);
+
+      roleAttributeID = (String) options.get(ROLE_ATTRIBUTE_ID);
+
+      temp = (String) options.get(ROLE_ATTRIBUTE_IS_DN);
+      roleAttributeIsDN = Boolean.parseBoolean(temp);
+
+      roleNameAttributeID = (String) options.get(ROLE_NAME_ATTRIBUTE_ID);
+      
+      ArrayList<String> roleSearchAttributeList = new ArrayList<String>(3); 
+      if (roleAttributeID != null) 
+      {
+          roleSearchAttributeList.add(roleAttributeID);
+      }
+      if (roleNameAttributeID != null)
+      {
+          roleSearchAttributeList.add(roleNameAttributeID);
+      } 
+      if (referralUserAttributeIDToCheck != null)
+      {
+          roleSearchAttributeList.add(referralUserAttributeIDToCheck);
+      } 
+      roleSearchControls.setReturningAttributes(roleSearchAttributeList.toArray(new String[0]));
+      
+      temp = (String) options.get(ROLE_PAGE_SIZE);
+      if (temp != null)
+      {
+         try
+         {
+            rolePageSize = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using rolePageSize=" + rolePageSize);
+         }
+      }
+
+      temp = (String) options.get(ALLOW_EMPTY_PASSWORD);
+      allowEmptyPassword = Boolean.parseBoolean(temp);
+
+      temp = (String) options.get(CHANGE_TRACKING_INTERVAL);
+      if (temp != null)
+      {
+         try
+         {
+            changeTrackingInterval = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using changeTrackingInterval=" + changeTrackingInterval);
+         }
+      }
+
+      temp = (String) options.get(CHANGE_TRACKING_ATTRIBUTE);
+      if (temp != null)
+      {
+         if (USN_CHANGED.equalsIgnoreCase(temp))
+         {
+            changeTrackingAttribute = USN_CHANGED;
+         }
+         else if (MODIFY_TIMESTAMP.equalsIgnoreCase(temp))
+         {
+            changeTrackingAttribute = MODIFY_TIMESTAMP;
+         }
+         else
+         {
+            log.warn("Unsupported changeTrackingAttribute '" + temp + "', using " + changeTrackingAttribute);
+         }
+      }
+
+      temp = (String) options.get(GROUP_CACHE_TIMEOUT);
+      if (temp != null)
+      {
+         try
+         {
+            groupCacheTimeout = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using groupCacheTimeout=" + groupCacheTimeout);
+         }
+      }
+
+      if (groupCacheTimeout > 0 && roleAttributeIsDN)
+      {
+         if (recurseRoles && roleFilter != null && roleFilter.contains("{0}"))
+         {
+            /*
+             * The parents of a group would depend on the user logging in so they can not be shared.
+             */
+            log.warn("The roleFilter references the username '{0}', the group cache can not be used with recurseRoles.");
+         }
+         else
+         {
+            groupCache = GroupGraphCache.getInstance(configurationKey(), groupCacheTimeout * 1000L);
+            trackChanges(groupCache);
+         }
+      }
+
+      temp = (String) options.get(SEARCH_CONTEXT_POOL_SIZE);
+      if (temp != null)
+      {
+         try
+         {
+            searchContextPoolSize = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using searchContextPoolSize=" + searchContextPoolSize);
+         }
+      }
+      temp = (String) options.get(PIPELINE_REQUESTS);
+      pipelineRequests = Boolean.parseBoolean(temp);
+
+      if (searchContextPoolSize > 0)
+      {
+         poolKey = configurationKey();
+         searchContextPool = LdapContextPool.getInstance(poolKey, searchContextPoolSize);
+      }
+
+      temp = (String) options.get(UNKNOWN_USER_CACHE_TIMEOUT);
+      if (temp != null)
+      {
+         try
+         {
+            unknownUserCacheTimeout = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using unknownUserCacheTimeout=" + unknownUserCacheTimeout);
+         }
+      }
+      temp = (String) options.get(UNKNOWN_USER_CACHE_SIZE);
+      if (temp != null)
+      {
+         try
+         {
+            unknownUserCacheSize = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using unknownUserCacheSize=" + unknownUserCacheSize);
+         }
+      }
+      if (unknownUserCacheTimeout > 0 && baseCtxDN != null)
+      {
+         unknownUserCache = UnknownUserCache.getInstance(configurationKey(), unknownUserCacheTimeout * 1000L,
+               unknownUserCacheSize);
+         trackChanges(unknownUserCache);
+      }
+
+      temp = (String) options.get(USER_DN_CACHE_TIMEOUT);
+      if (temp != null)
+      {
+         try
+         {
+            userDNCacheTimeout = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using userDNCacheTimeout=" + userDNCacheTimeout);
+         }
+      }
+      temp = (String) options.get(USER_DN_CACHE_SIZE);
+      if (temp != null)
+      {
+         try
+         {
+            userDNCacheSize = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using userDNCacheSize=" + userDNCacheSize);
+         }
+      }
+      if (userDNCacheTimeout > 0 && baseCtxDN != null)
+      {
+         userDNCache = UserDNCache.getInstance(configurationKey(), userDNCacheTimeout * 1000L, userDNCacheSize);
+         trackChanges(userDNCache);
+      }
+
+      temp = (String) options.get(BIND_CACHE_TIMEOUT);
+      if (temp != null)
+      {
+         try
+         {
+            bindCacheTimeout = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using bindCacheTimeout=" + bindCacheTimeout);
+         }
+      }
+      temp = (String) options.get(BIND_CACHE_SIZE);
+      if (temp != null)
+      {
+         try
+         {
+            bindCacheSize = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using bindCacheSize=" + bindCacheSize);
+         }
+      }
+      if (bindCacheTimeout > 0)
+      {
+         bindCache = BindCache.getInstance(configurationKey(), bindCacheTimeout * 1000L, bindCacheSize);
+         trackChanges(bindCache);
+      }
+
+      roleSnapshotFile = (String) options.get(ROLE_SNAPSHOT_FILE);
+      if (roleSnapshotFile != null && roleSnapshotFile.length() > 0)
+      {
+         roleSnapshot = RoleSnapshot.getReference(Paths.get(roleSnapshotFile));
+      }
+
+      metricsName = (String) options.get(METRICS_NAME);
+      if (metricsName != null && metricsName.length() > 0)
+      {
+         metrics = LdapMetrics.getInstance(metricsName);
+      }
+   }
+
+   /**
+    * Register a cache to be notified of changes to the directory, if change tracking is enabled.
+    */
+   protected void trackChanges(DirectoryChangeTracker.ChangeListener listener)
+   {
+      if (changeTrackingInterval <= 0)
+      {
+         return;
+      }
+
+      String configurationKey = configurationKey();
+      // The source is only built for the first login of the configuration, later logins find the tracker.
+      DirectoryChangeTracker tracker = DirectoryChangeTracker.getInstance(configurationKey);
+      if (tracker == null)
+      {
+         Set<String> searchBases = new HashSet<String>();
+         if (baseCtxDN != null)
+         {
+            searchBases.add(baseCtxDN);
+         }
+         if (rolesCtxDN != null)
+         {
+            searchBases.add(rolesCtxDN);
+         }
+         /*
+          * The tracker is process wide so the source is built from the connection settings alone,
+          * it must not reference this login module and the Subject or shared state of a login.
+          */
+         DirectoryChangeSource source = new DirectoryChangeSource(constructLdapContextEnvironment(null, bindDn, null,
+               bindAuthentication), bindAuthentication, bindCredentialCache(), jaasSecurityDomain, searchBases,
+               changeTrackingAttribute, searchTimeLimit);
+         tracker = DirectoryChangeTracker.getInstance(configurationKey, changeTrackingInterval * 1000L, source);
+      }
+      tracker.addListener(listener);
+   }
+
+   /**
+    * A key identifying the directory and search settings in use so that state shared between
+    * login module instances is only shared between identical configurations.
+    */
+   protected String configurationKey()
+   {
+      StringBuilder sb = new StringBuilder(getClass().getName());
+      Object[] values =
+      {options.get(Context.INITIAL_CONTEXT_FACTORY), options.get(Context.PROVIDER_URL),
+            options.get(Context.SECURITY_PROTOCOL), bindAuthentication, bindDn,
+            bindCredential != null ? Integer.valueOf(bindCredential.hashCode()) : null, jaasSecurityDomain, baseCtxDN, baseFilter,
+            rolesCtxDN, roleFilter, Integer.valueOf(roleSearchControls.getSearchScope()), roleAttributeID,
+            Boolean.valueOf(roleAttributeIsDN), roleNameAttributeID, Boolean.valueOf(recurseRoles),
+            Integer.valueOf(groupCacheTimeout), Integer.valueOf(changeTrackingInterval), changeTrackingAttribute};
+      for (Object current : values)
+      {
+         sb.append('|').append(current);
+      }
+
+      return sb.toString();
+   }
+
+   @Override
+   public boolean login() throws LoginException
+   {
+      Object result = runAsSearchIdentity(new AuthorizeAction());
+
+      if (result instanceof LoginException)
+      {
+         if (log.isDebugEnabled())
+         {
+            log.debug("Login failed", (LoginException) result);
+         }
+         throw (LoginException) result;
+      }
+
+      return ((Boolean) result).booleanValue();
+   }
+
+   /**
+    * Run the action using the identity configured for the search context, for GSSAPI this
+    * is the Subject of the jaasSecurityDomain.
+    */
+   private Object runAsSearchIdentity(PrivilegedAction<Object> action) throws LoginException
+   {
+      Object result = null;
+
+      if (AUTH_TYPE_GSSAPI.equals(bindAuthentication))
+      {
+         log.trace("Using GSSAPI to connect to LDAP");
+         /*
+          * The Subject is shared and renewed before the TGT expires, service tickets for the LDAP
+          * server obtained by earlier logins are retained in the Subject and reused.
+          */
+         Subject serverSubject = SubjectCache.getInstance(jaasSecurityDomain).getSubject();
+
+         if (log.isDebugEnabled())
+         {
+            log.debug("Subject = " + serverSubject);
+         }
+
+         result = Subject.doAs(serverSubject, action);
+      }
+      else
+      {
+         result = action.run();
+      }
+
+      return result;
+   }
+
+   @Override
+   protected Group[] getRoleSets() throws LoginException
+   {
+      Group[] roleSets =
+      {userRoles};
+      return roleSets;
+   }
+
+   protected Boolean innerLogin() throws LoginException
+   {
+      // Obtain the username and password
+      processIdentityAndCredential();
+      if (trace) {
+         log.trace("Identity - " + getIdentity().getName());
+      }
+
+      String[] snapshotRoles = snapshotRoles();
+      if (super.loginOk && snapshotRoles != null)
+      {
+         // Already authenticated by a previous module and the roles are known, no need to connect.
+         addRoles(snapshotRoles);
+         return Boolean.TRUE;
+      }
+
+      if (snapshotRoles == null && unknownUserCache != null)
+      {
+         boolean unknown = unknownUserCache.isUnknown(getIdentity().getName());
+         cacheAccess(LdapMetrics.Cache.UNKNOWN_USER, unknown);
+         if (unknown)
+         {
+            if (trace) {
+               log.trace("Identity '" + getIdentity().getName() + "' recently not found, rejecting without search.");
+            }
+            throw new LoginException("Search of baseDN(" + baseCtxDN + ") found no matches");
+         }
+      }
+
+      boolean authenticated = super.loginOk;
+      try
+      {
+         return searchAndAuthenticate(snapshotRoles, true);
+      }
+      catch (LoginException e)
+      {
+         if (staleUserDN)
+         {
+            /*
+             * The user has been renamed or moved since the DN was cached, the login is retried once
+             * with a new search for the user.
+             */
+            log.debug("Cached user DN not found, retrying with a new user search", e);
+            resetRoles();
+            super.loginOk = authenticated;
+
+            return searchAndAuthenticate(snapshotRoles, true);
+         }
+         /*
+          * An idle connection may have been closed by the server or a firewall since it was
+          * pooled, in which case the login is retried once on a new connection.
+          */
+         if (pooledSearchContext == false || LdapContextPool.isCommunicationFailure(e) == false)
+         {
+            throw e;
+         }
+         log.debug("Pooled LdapContext failed, retrying with a new connection", e);
+         resetRoles();
+
+         return searchAndAuthenticate(snapshotRoles, false);
+      }
+   }
+
+   private Boolean searchAndAuthenticate(String[] snapshotRoles, boolean usePool) throws LoginException
+   {
+      LdapContext searchContext = null;
+      boolean reusable = false;
+      Future<Object> pendingRoles = null;
+      String userDN = null;
+      pooledSearchContext = false;
+      cachedUserDN = false;
+      staleUserDN = false;
+
+      try
+      {
+         searchContext = obtainSearchContext(usePool);
+         log.debug("Obtained LdapContext");
+
+         // Search for user in LDAP
+         userDN = findUserDN(searchContext);
+         if (referralUserAttributeIDToCheck != null)
+         {
+            if (isUserDnAbsolute(userDN))
+            {
+                referralUserDNToCheck = localUserDN(userDN);
+            }
+            else 
+            {
+               referralUserDNToCheck = userDN;
+            }
+         }
+         
+         /*
+          * The role search does not depend on the outcome of authentication so where pipelining
+          * is enabled it runs while the credential is verified, the roles are discarded if the
+          * verification fails. This is the trade-off of pipelining, an attempt with a valid
+          * username and the wrong credential also costs the directory a role search, so it is
+          * not started where the credential is already known to be rejected.
+          */
+         if (pipelineRequests && super.loginOk == false && snapshotRoles == null && credentialAccepted())
+         {
+            pendingRoles = submitRolesSearch(searchContext, userDN);
+         }
+
+         // If authentication required authenticate as user
+         if (super.loginOk == false)
+         {
+            try
+            {
+               authenticate(userDN);
+            }
+            catch (LoginException e)
+            {
+               if (userDNCache != null)
+               {
+                  // The cached DN may no longer be valid so search again next time.
+                  userDNCache.remove(getIdentity().getName());
+               }
+               throw e;
+            }
+         }
+
+         if (pendingRoles != null)
+         {
+            Future<Object> pending = pendingRoles;
+            pendingRoles = null;
+            awaitRolesSearch(pending);
+            if (super.loginOk == false)
+            {
+               resetRoles();
+            }
+         }
+         else if (super.loginOk)
+         {
+            if (snapshotRoles != null)
+            {
+               addRoles(snapshotRoles);
+            }
+            else
+            {
+               // Search for roles in LDAP
+               rolesSearch(searchContext, userDN);
+            }
+         }
+         reusable = true;
+      }
+      catch (LoginException e)
+      {
+         reusable = LdapContextPool.isCommunicationFailure(e) == false;
+         if (cachedUserDN && isNameNotFound(e))
+         {
+            discardUserDN(userDN);
+         }
+         throw e;
+      }
+      finally
+      {
+         if (pendingRoles != null)
+         {
+            // The search context can not be released while the role search is still using it.
+            try
+            {
+               awaitRolesSearch(pendingRoles);
+            }
+            catch (LoginException e)
+            {
+               reusable = false;
+            }
+            resetRoles();
+         }
+         releaseReferralContexts(reusable);
+         if (searchContext != null)
+         {
+            releaseSearchContext(searchContext, reusable);
+         }
+      }
+
+      return Boolean.valueOf(super.loginOk);
+   }
+
+   /**
+    * Discard the cached DN of the user that no longer exists in the directory and any credential
+    * verified against it so the next attempt searches for the user again.
+    */
+   private void discardUserDN(String userDN)
+   {
+      userDNCache.remove(getIdentity().getName());
+      if (bindCache != null)
+      {
+         bindCache.remove(userDN);
+      }
+      staleUserDN = true;
+   }
+
+   private static boolean isNameNotFound(Throwable failure)
+   {
+      Throwable current = failure;
+      while (current != null)
+      {
+         if (current instanceof NameNotFoundException)
+         {
+            return true;
+         }
+         current = current.getCause();
+      }
+
+      return false;
+   }
+
+   /**
+    * @return false if the credential of the user will be rejected without contacting the directory.
+    */
+   private boolean credentialAccepted()
+   {
+      char[] credential = getCredential();
+      return credential != null && (credential.length > 0 || allowEmptyPassword);
+   }
+
+   /**
+    * Start the role search for the user to run concurrently with the calling thread.
+    */
+   private Future<Object> submitRolesSearch(final LdapContext searchContext, final String userDN)
+   {
+      return LdapPipeline.submit(new Callable<Object>()
+      {
+
+         public Object call() throws LoginException
+         {
+            rolesSearch(searchContext, userDN);
+            return null;
+         }
+      });
+   }
+
+   private void awaitRolesSearch(Future<Object> pending) throws LoginException
+   {
+      try
+      {
+         LdapPipeline.await(pending);
+      }
+      catch (NamingException e)
+      {
+         LoginException le = new LoginException("Error finding roles");
+         le.initCause(e);
+         throw le;
+      }
+   }
+
+   /**
+    * Obtain a search context, from the pool if pooling is enabled.
+    */
+   private LdapContext obtainSearchContext(boolean usePool) throws LoginException
+   {
+      if (searchContextPool != null && usePool)
+      {
+         LdapContext pooled = searchContextPool.borrow();
+         cacheAccess(LdapMetrics.Cache.CONTEXT_POOL, pooled != null);
+         if (pooled != null)
+         {
+            log.trace("Using pooled LdapContext");
+            pooledSearchContext = true;
+            return pooled;
+         }
+      }
+
+      char[] credential = searchCredential();
+      try
+      {
+         return newSearchContext(credential);
+      }
+      catch (LoginException e)
+      {
+         if (e.getCause() instanceof AuthenticationException == false || refreshBindCredential(credential) == false)
+         {
+            throw e;
+         }
+         log.debug("Search bind rejected, retrying with the bindCredential resolved again.");
+
+         return newSearchContext(searchCredential());
+      }
+   }
+
+   private LdapContext newSearchContext(char[] credential) throws LoginException
+   {
+      long start = startOperation();
+      try
+      {
+         return constructLdapContext(null, bindDn, credential, bindAuthentication);
+      }
+      finally
+      {
+         endOperation(LdapMetrics.Operation.BIND, start);
+      }
+   }
+
+   /**
+    * @return The start time of a directory operation, only taken if metrics are being collected.
+    */
+   long startOperation()
+   {
+      return cost != null ? System.nanoTime() : 0L;
+   }
+
+   void endOperation(LdapMetrics.Operation operation, long start)
+   {
+      LdapMetrics.Cost cost = this.cost;
+      if (cost != null)
+      {
+         cost.operation(operation, start);
+      }
+   }
+
+   void cacheAccess(LdapMetrics.Cache cache, boolean hit)
+   {
+      LdapMetrics.Cost cost = this.cost;
+      if (cost != null)
+      {
+         cost.cache(cache, hit);
+      }
+   }
+
+   /**
+    * Resolve the vaulted or encoded bindCredential again, this allows a credential changed in the
+    * vault or keystore to be picked up without restarting.
+    *
+    * @param rejected - The credential the directory rejected.
+    * @return true if the resolved credential differs from the rejected credential.
+    */
+   private boolean refreshBindCredential(char[] rejected)
+   {
+      BindCredentialCache credentialCache = bindCredentialCache();
+      if (credentialCache == null)
+      {
+         return false;
+      }
+
+      try
+      {
+         return credentialCache.refresh(rejected);
+      }
+      catch (Exception e)
+      {
+         log.warn("Unable to obtain bindCredential: ", e);
+         return false;
+      }
+   }
+
+   /**
+    * Obtain a context to follow a referral, when pooling is enabled contexts are pooled by the
+    * referral URL so that the connection to the referred server is reused.
+    */
+   private LdapContext referralContext(ReferralException e) throws NamingException
+   {
+      endOperation(LdapMetrics.Operation.REFERRAL, startOperation());
+      LdapContextPool pool = null;
+      LdapContext referralContext = null;
+      if (searchContextPool != null)
       {
-        //Check if the credential is vaultified
-        if(bindCredential != null && SecurityVaultUtil.isVaultFormat(bindCredential))
-        {
-          bindCredential = SecurityVaultUtil.getValueAsString(bindCredential);
-        }
+         pool = LdapContextPool.getInstance(poolKey + "|referral|" + e.getReferralInfo(), searchContextPoolSize);
+         referralContext = pool.borrow();
+         if (trace && referralContext != null) {
+            log.trace("Using pooled LdapContext for referral " + e.getReferralInfo());
+         }
       }
-      catch (SecurityVaultException e)
+      if (referralContext == null)
       {
-        log.warn("Unable to obtain bindCredentials from Vault: ", e);
+         referralContext = (LdapContext) e.getReferralContext();
       }
+      referralContexts.put(referralContext, pool);
 
-      jaasSecurityDomain = (String) options.get(SECURITY_DOMAIN);
-
-      // User Search Settings
-      baseCtxDN = (String) options.get(BASE_CTX_DN);
-      baseFilter = (String) options.get(BASE_FILTER);
+      return referralContext;
+   }
 
-      String temp = (String) options.get(SEARCH_TIME_LIMIT);
-      if (temp != null)
+   private void releaseReferralContexts(boolean reusable)
+   {
+      for (Map.Entry<LdapContext, LdapContextPool> current : referralContexts.entrySet())
       {
-         try
+         if (current.getValue() != null && reusable)
          {
-            searchTimeLimit = Integer.parseInt(temp);
+            current.getValue().release(current.getKey());
          }
-         catch (NumberFormatException e)
+         else
          {
-            log.warn("Failed to parse: " + temp + ", using searchTimeLimit=" + searchTimeLimit);
+            LdapContextPool.close(current.getKey());
          }
       }
+      referralContexts.clear();
+   }
 
-      userSearchControls = new SearchControls();
-      userSearchControls.setSearchScope(SearchControls.SUBTREE_SCOPE);
-      userSearchControls.setReturningAttributes(new String[0]);
-      userSearchControls.setTimeLimit(searchTimeLimit);
-
-      rolesCtxDN = (String) options.get(ROLES_CTS_DN);
-      roleFilter = (String) options.get(ROLE_FILTER);
-      referralUserAttributeIDToCheck = (String) options.get(REFERRAL_USER_ATTRIBUTE_ID_TO_CHECK);
-
-      temp = (String) options.get(RECURSE_ROLES);
-      recurseRoles = Boolean.parseBoolean(temp);
-
-      int searchScope = SearchControls.SUBTREE_SCOPE;
-      temp = (String) options.get(ROLE_SEARCH_SCOPE);
-      if (OBJECT_SCOPE.equalsIgnoreCase(temp))
+   /**
+    * Verify the credential of a user by binding on a pooled connection to the specified server,
+    * the connection is authenticated again each time it is used.
+    */
+   private void pooledBind(String namingProviderURL, String dn, Object credential) throws NamingException
+   {
+      LdapContextPool pool = LdapContextPool.getInstance(poolKey + "|bind|" + namingProviderURL, searchContextPoolSize);
+      LdapContext bindContext = pool.borrow();
+      boolean reusable = false;
+      try
       {
-         searchScope = SearchControls.OBJECT_SCOPE;
+         if (bindContext != null)
+         {
+            bindContext.addToEnvironment(Context.SECURITY_PRINCIPAL, dn);
+            bindContext.addToEnvironment(Context.SECURITY_CREDENTIALS, credential);
+            bindContext.reconnect(null);
+         }
+         else
+         {
+            Properties env = constructLdapContextEnvironment(namingProviderURL, dn, credential, null);
+            bindContext = new InitialLdapContext(env, null);
+         }
+         reusable = true;
       }
-      else if (ONELEVEL_SCOPE.equalsIgnoreCase(temp))
+      catch (AuthenticationException e)
       {
-         searchScope = SearchControls.ONELEVEL_SCOPE;
+         // Only the credential was rejected, the connection remains usable.
+         reusable = true;
+         throw e;
       }
-      if (SUBTREE_SCOPE.equalsIgnoreCase(temp))
+      finally
       {
-         searchScope = SearchControls.SUBTREE_SCOPE;
+         if (bindContext != null)
+         {
+            if (reusable)
+            {
+               try
+               {
+                  bindContext.removeFromEnvironment(Context.SECURITY_CREDENTIALS);
+               }
+               catch (NamingException e)
+               {
+                  reusable = false;
+               }
+            }
+            if (reusable)
+            {
+               pool.release(bindContext);
+            }
+            else
+            {
+               LdapContextPool.close(bindContext);
+            }
+         }
       }
+   }
 
-      roleSearchControls = new SearchControls();
-      roleSearchControls.setSearchScope(searchScope);
-      roleSearchControls.setTimeLimit(searchTimeLimit);
-
-      roleAttributeID = (String) options.get(ROLE_ATTRIBUTE_ID);
-
-      temp = (String) options.get(ROLE_ATTRIBUTE_IS_DN);
-      roleAttributeIsDN = Boolean.parseBoolean(temp);
-
-      roleNameAttributeID = (String) options.get(ROLE_NAME_ATTRIBUTE_ID);
-      
-      ArrayList<String> roleSearchAttributeList = new ArrayList<String>(3); 
-      if (roleAttributeID != null) 
+   private void releaseSearchContext(LdapContext searchContext, boolean reusable)
+   {
+      if (searchContextPool != null && reusable)
       {
-          roleSearchAttributeList.add(roleAttributeID);
+         searchContextPool.release(searchContext);
       }
-      if (roleNameAttributeID != null)
-      {
-          roleSearchAttributeList.add(roleNameAttributeID);
-      } 
-      if (referralUserAttributeIDToCheck != null)
+      else
       {
-          roleSearchAttributeList.add(referralUserAttributeIDToCheck);
-      } 
-      roleSearchControls.setReturningAttributes(roleSearchAttributeList.toArray(new String[0]));
-      
-      temp = (String) options.get(ALLOW_EMPTY_PASSWORD);
-      allowEmptyPassword = Boolean.parseBoolean(temp);
-
+         LdapContextPool.close(searchContext);
+      }
    }
 
-   @Override
-   public boolean login() throws LoginException
+   /**
+    * Obtain the credential to use for the search context, decoding it if required, the decoded
+    * credential is cached so the JaasSecurityDomain is only called once for each configuration.
+    */
+   private char[] searchCredential() throws LoginException
    {
-      Object result = null;
+      return searchCredential(bindCredentialCache());
+   }
 
-      AuthorizeAction action = new AuthorizeAction();
-      if (AUTH_TYPE_GSSAPI.equals(bindAuthentication))
+   private static char[] searchCredential(BindCredentialCache credentialCache) throws LoginException
+   {
+      if (credentialCache == null)
       {
-         log.trace("Using GSSAPI to connect to LDAP");
-         LoginContext lc = new LoginContext(jaasSecurityDomain);
-         lc.login();
-         Subject serverSubject = lc.getSubject();
-
-         if (log.isDebugEnabled())
-         {
-            log.debug("Subject = " + serverSubject);
-            log.debug("Logged in '" + lc + "' LoginContext");
-         }
+         return null;
+      }
 
-         result = Subject.doAs(serverSubject, action);
-         lc.logout();
+      try
+      {
+         return credentialCache.getCredential();
       }
-      else
+      catch (Exception e)
       {
-         result = action.run();
+         LoginException le = new LoginException("Unable to obtain bindCredential");
+         le.initCause(e);
+         throw le;
       }
+   }
 
-      if (result instanceof LoginException)
+   /**
+    * @return The cache of the bindCredential of this configuration or null if no credential is used.
+    */
+   private BindCredentialCache bindCredentialCache()
+   {
+      if (bindCredentialCache == null && bindCredential != null && AUTH_TYPE_GSSAPI.equals(bindAuthentication) == false)
       {
-         if (log.isDebugEnabled())
-         {
-            log.debug("Login failed", (LoginException) result);
-         }
-         throw (LoginException) result;
+         bindCredentialCache = BindCredentialCache.getInstance(configurationKey(), bindCredential, jaasSecurityDomain);
       }
 
-      return ((Boolean) result).booleanValue();
+      return bindCredentialCache;
    }
 
-   @Override
-   protected Group[] getRoleSets() throws LoginException
+   /**
+    * Obtain the roles of the current identity from the role snapshot.
+    *
+    * @return The roles or null if there is no snapshot or the identity is not in the snapshot.
+    */
+   private String[] snapshotRoles()
    {
-      Group[] roleSets =
-      {userRoles};
-      return roleSets;
+      RoleSnapshot snapshot = roleSnapshot != null ? roleSnapshot.get() : null;
+      if (snapshot == null)
+      {
+         return null;
+      }
+
+      String[] roles = snapshot.getRoles(getIdentity().getName());
+      if (trace)
+      {
+         log.trace("Identity '" + getIdentity().getName() + "' " + (roles != null ? "found" : "not found")
+               + " in role snapshot.");
+      }
+      return roles;
    }
 
-   protected Boolean innerLogin() throws LoginException
+   /**
+    * Open the search contexts for this configuration ahead of the first login, when pooling is enabled the pool
+    * is filled otherwise a single context is opened and closed so the connection setup has been paid for.
+    *
+    * @return The number of contexts opened.
+    */
+   int openSearchContexts() throws LoginException
    {
-      // Obtain the username and password
-      processIdentityAndCredential();
-      if (trace) {
-         log.trace("Identity - " + getIdentity().getName());
-      }
-      // Initialise search ctx
-      String bindCredential = this.bindCredential;
-      if (AUTH_TYPE_GSSAPI.equals(bindAuthentication) == false)
+      Object result = runAsSearchIdentity(new PrivilegedAction<Object>()
       {
-         if (jaasSecurityDomain != null && jaasSecurityDomain.length() > 0)
+
+         public Object run()
          {
+            int count = Math.max(searchContextPoolSize, 1);
+            List<LdapContext> opened = new ArrayList<LdapContext>(count);
             try
             {
-               ObjectName serviceName = new ObjectName(jaasSecurityDomain);
-               char[] tmp = DecodeAction.decode(bindCredential, serviceName);
-               bindCredential = new String(tmp);
+               for (int i = 0; i < count; i++)
+               {
+                  opened.add(newSearchContext(searchCredential()));
+               }
+            }
+            catch (LoginException e)
+            {
+               return e;
             }
-            catch (Exception e)
+            finally
             {
-               LoginException le = new LoginException("Unable to decode bindCredential");
-               le.initCause(e);
-               throw le;
+               for (LdapContext current : opened)
+               {
+                  releaseSearchContext(current, true);
+               }
             }
+
+            return Integer.valueOf(opened.size());
          }
+      });
+
+      if (result instanceof LoginException)
+      {
+         throw (LoginException) result;
       }
 
-      LdapContext searchContext = null;
+      return ((Integer) result).intValue();
+   }
 
-      try
+   /**
+    * Export the roles of all users matched by the baseFilter for writing to a role snapshot,
+    * the roles of each user are obtained using the same searches as a login.
+    *
+    * @param principalAttributeID - The attribute of the user entries holding the name used to login.
+    * @return The role names of each user.
+    */
+   Map<String, Set<String>> exportRoles(final String principalAttributeID) throws LoginException
+   {
+      Object result = runAsSearchIdentity(new PrivilegedAction<Object>()
       {
-         searchContext = constructLdapContext(null, bindDn, bindCredential, bindAuthentication);
-         log.debug("Obtained LdapContext");
 
-         // Search for user in LDAP
-         String userDN = findUserDN(searchContext);
-         if (referralUserAttributeIDToCheck != null)
+         public Object run()
          {
-            if (isUserDnAbsolute(userDN))
+            try
             {
-                referralUserDNToCheck = localUserDN(userDN);
+               return innerExportRoles(principalAttributeID);
             }
-            else 
+            catch (LoginException e)
             {
-               referralUserDNToCheck = userDN;
+               return e;
             }
          }
-         
-         // If authentication required authenticate as user
-         if (super.loginOk == false)
-         {
-            authenticate(userDN);
-         }
+      });
+
+      if (result instanceof LoginException)
+      {
+         throw (LoginException) result;
+      }
+
+      @SuppressWarnings("unchecked")
+      Map<String, Set<String>> exported = (Map<String, Set<String>>) result;
+      return exported;
+   }
+
+   private Map<String, Set<String>> innerExportRoles(final String principalAttributeID) throws LoginException
+   {
+      if (baseCtxDN == null || baseFilter == null)
+      {
+         throw new LoginException("Both baseCtxDN and baseFilter are required to export roles.");
+      }
 
-         if (super.loginOk)
+      Map<String, Set<String>> exported = new HashMap<String, Set<String>>();
+      SearchControls controls = new SearchControls();
+      controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+      controls.setReturningAttributes(new String[] {principalAttributeID});
+      // The wildcard must not be passed as a filter argument or it would be escaped.
+      String filter = baseFilter.replace("{0}", "*");
+
+      LdapContext searchContext = null;
+      LdapContext pagedContext = null;
+      NamingEnumeration results = null;
+      try
+      {
+         searchContext = constructLdapContext(null, bindDn, searchCredential(), bindAuthentication);
+         /*
+          * The search is always paged as the export would otherwise stop at the size limit of the
+          * server, 1000 entries by default on Active Directory.
+          */
+         int pageSize = rolePageSize > 0 ? rolePageSize : EXPORT_PAGE_SIZE;
+         pagedContext = LdapPaging.pagedContext(searchContext, pageSize);
+         boolean morePages = true;
+         while (morePages)
          {
-            // Search for roles in LDAP
-            rolesSearch(searchContext, userDN);
+            results = pagedContext.search(baseCtxDN, filter, controls);
+            while (results.hasMore())
+            {
+               SearchResult sr = (SearchResult) results.next();
+               Attribute principalAttribute = sr.getAttributes().get(principalAttributeID);
+               if (principalAttribute == null || principalAttribute.size() == 0)
+               {
+                  continue;
+               }
+               String name = String.valueOf(principalAttribute.get());
+               String userDN = sr.isRelative() ? new CompositeName(sr.getName()).get(0) + "," + baseCtxDN : sr.getName();
+
+               setIdentity(createIdentity(name));
+               resetRoles();
+               rolesSearch(searchContext, userDN);
+
+               Set<String> roleNames = new HashSet<String>();
+               Enumeration<? extends Principal> members = userRoles.members();
+               while (members.hasMoreElements())
+               {
+                  roleNames.add(members.nextElement().getName());
+               }
+               exported.put(name, roleNames);
+            }
+            results.close();
+            results = null;
+            morePages = LdapPaging.nextPage(pagedContext, pageSize);
          }
       }
+      catch (LoginException e)
+      {
+         throw e;
+      }
+      catch (Exception e)
+      {
+         LoginException le = new LoginException("Unable to export roles");
+         le.initCause(e);
+         throw le;
+      }
       finally
       {
+         if (results != null)
+         {
+            try
+            {
+               results.close();
+            }
+            catch (NamingException e)
+            {
+               log.warn("Problem closing results", e);
+            }
+         }
+         releaseReferralContexts(false);
+         if (pagedContext != null)
+         {
+            LdapContextPool.close(pagedContext);
+         }
          if (searchContext != null)
          {
             try
@@ -421,9 +1399,11 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
                log.warn("Error closing context", e);
             }
          }
+         setIdentity(null);
+         resetRoles();
       }
 
-      return Boolean.valueOf(super.loginOk);
+      return exported;
    }
 
    private Properties constructLdapContextEnvironment(String namingProviderURL, String principalDN, Object credential, String authentication) 
@@ -519,6 +1499,20 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
          return getIdentity().getName();
       }
 
+      if (userDNCache != null)
+      {
+         String cachedDN = userDNCache.get(getIdentity().getName());
+         cacheAccess(LdapMetrics.Cache.USER_DN, cachedDN != null);
+         if (cachedDN != null)
+         {
+            if (trace) {
+               log.trace("findUserDN - " + cachedDN + " (cached)");
+            }
+            cachedUserDN = true;
+            return cachedDN;
+         }
+      }
+
       try
       {
          NamingEnumeration results = null;
@@ -534,7 +1528,15 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
          {
             try 
             {
-               results = ldapCtx.search(baseCtxDN, baseFilter, filterArgs, userSearchControls);
+               long start = startOperation();
+               try
+               {
+                  results = ldapCtx.search(baseCtxDN, baseFilter, filterArgs, userSearchControls);
+               }
+               finally
+               {
+                  endOperation(LdapMetrics.Operation.SEARCH, start);
+               }
                while (results.hasMore()) 
                {
                   sr = (SearchResult) results.next();
@@ -544,7 +1546,7 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
             }
             catch (ReferralException e) 
             {
-               ldapCtx = (LdapContext) e.getReferralContext();
+               ldapCtx = referralContext(e);
                if (results != null) 
                {
                   results.close();
@@ -555,6 +1557,10 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
          if (sr == null)
          {
             results.close();
+            if (unknownUserCache != null)
+            {
+               unknownUserCache.addUnknown(getIdentity().getName());
+            }
             throw new LoginException("Search of baseDN(" + baseCtxDN + ") found no matches");
          }
          
@@ -575,6 +1581,10 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
          if (trace) {
             log.trace("findUserDN - " + userDN);
          }
+         if (userDNCache != null)
+         {
+            userDNCache.put(getIdentity().getName(), userDN);
+         }
          return userDN;
       }
       catch (NamingException e)
@@ -606,6 +1616,11 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
        
        try 
        {
+          if (searchContextPool != null)
+          {
+             pooledBind(namingProviderURL, name, credential);
+             return;
+          }
           Properties refEnv = constructLdapContextEnvironment(namingProviderURL, name, credential, null);
           refCtx = new InitialLdapContext(refEnv, null);
           refCtx.close();
@@ -654,13 +1669,65 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
       char[] credential = getCredential();
       if (credential.length == 0)
       {
-         if (allowEmptyPassword == false)
+         if (allowEmptyPassword == false)
+         {
+            log.trace("Rejecting empty password.");
+            return;
+         }
+      }
+
+      /*
+       * An empty credential may be accepted by the server as an anonymous bind so is never cached.
+       */
+      boolean cacheable = bindCache != null && credential.length > 0;
+      boolean verified = cacheable && bindCache.verify(userDN, credential);
+      if (cacheable)
+      {
+         cacheAccess(LdapMetrics.Cache.BIND, verified);
+      }
+      if (verified)
+      {
+         log.trace("Credential verified by a previous bind.");
+      }
+      else
+      {
+         long start = startOperation();
+         try
          {
-            log.trace("Rejecting empty password.");
-            return;
+            bind(userDN, credential);
+         }
+         catch (LoginException e)
+         {
+            if (bindCache != null)
+            {
+               bindCache.remove(userDN);
+            }
+            throw e;
+         }
+         finally
+         {
+            endOperation(LdapMetrics.Operation.BIND, start);
+         }
+         if (cacheable)
+         {
+            bindCache.add(userDN, credential);
          }
       }
 
+      super.loginOk = true;
+      if (getUseFirstPass() == true)
+      { // Add the username and password to the shared state map
+         sharedState.put("javax.security.auth.login.name", getIdentity().getName());
+         sharedState.put("javax.security.auth.login.password", credential);
+      }
+
+   }
+
+   /**
+    * Verify the credential by binding to the directory as the user.
+    */
+   private void bind(String userDN, char[] credential) throws LoginException
+   {
       if (isUserDnAbsolute(userDN))
       {
          // user object resides in referral 
@@ -671,8 +1738,15 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
          // non referral user authentication 
          try
          {
-            LdapContext authContext = constructLdapContext(null, userDN, credential, null);
-            authContext.close();
+            if (searchContextPool != null)
+            {
+               pooledBind(null, userDN, credential);
+            }
+            else
+            {
+               LdapContext authContext = constructLdapContext(null, userDN, credential, null);
+               authContext.close();
+            }
          }
          catch (NamingException ne)
          {
@@ -683,13 +1757,6 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
             throw le;
          }
       }
-      super.loginOk = true;
-      if (getUseFirstPass() == true)
-      { // Add the username and password to the shared state map
-         sharedState.put("javax.security.auth.login.name", getIdentity().getName());
-         sharedState.put("javax.security.auth.login.password", credential);
-      }
-
    }
 
    protected void rolesSearch(LdapContext searchContext, String dn) throws LoginException
@@ -720,32 +1787,60 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
             boolean referralsExist = true;
             while (referralsExist)
             {
+               /*
+                * Where paging is enabled the search is issued on a second context sharing the
+                * connection so the attribute reads for each result do not carry the paging control.
+                */
+               LdapContext pagedContext = rolePageSize > 0 ? LdapPaging.pagedContext(searchContext, rolePageSize) : null;
                try
                {
-                  results = searchContext.search(rolesCtxDN, roleFilter, filterArgs, roleSearchControls);
-                  while (results.hasMore())
+                  boolean morePages = true;
+                  while (morePages)
                   {
-                     SearchResult sr = (SearchResult) results.next();
-                     String resultDN = null;
-                     if (sr.isRelative())
+                     long start = startOperation();
+                     try
+                     {
+                        results = (pagedContext != null ? pagedContext : searchContext).search(rolesCtxDN, roleFilter,
+                              filterArgs, roleSearchControls);
+                     }
+                     finally
                      {
-                        resultDN = canonicalize(sr.getName());
+                        endOperation(LdapMetrics.Operation.SEARCH, start);
                      }
-                     else
+                     while (results.hasMore())
                      {
-                        resultDN = sr.getNameInNamespace();
+                        SearchResult sr = (SearchResult) results.next();
+                        String resultDN = null;
+                        if (sr.isRelative())
+                        {
+                           resultDN = canonicalize(sr.getName());
+                        }
+                        else
+                        {
+                           resultDN = sr.getNameInNamespace();
+                        }
+                        /*
+                         * By this point if the distinguished name needs to be quoted for attribute
+                         * searches it will have been already.
+                         */
+                        obtainRole(searchContext, resultDN, sr);
                      }
-                     /*
-                      * By this point if the distinguished name needs to be quoted for attribute
-                      * searches it will have been already.
-                      */
-                     obtainRole(searchContext, resultDN, sr);
+                     results.close();
+                     results = null;
+                     morePages = pagedContext != null && LdapPaging.nextPage(pagedContext, rolePageSize);
                   }
                   referralsExist = false;
                }
                catch (ReferralException e)
                {
-                  searchContext = (LdapContext) e.getReferralContext();
+                  searchContext = referralContext(e);
+               }
+               finally
+               {
+                  if (pagedContext != null)
+                  {
+                     LdapContextPool.close(pagedContext);
+                  }
                }
             }
          }
@@ -797,41 +1892,83 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
          log.trace("rolesSearch resultDN = " + dn);
       }
 
-      String[] attrNames =
-      {roleAttributeID};
+      /*
+       * The values are processed as they are read, where the server only returns a range of a
+       * large attribute the remaining ranges are read one at a time.
+       */
+      final LdapContext ctx = searchContext;
+      LdapPaging.forEachValue(searchContext, dn, roleAttributes(searchContext, dn, sr), roleAttributeID,
+            new LdapPaging.ValueHandler<LoginException>()
+            {
 
-      Attributes result = null;
-      if (sr == null || ( sr.isRelative() && sr.getAttributes().size() == 0 ) ) {
-          result = searchContext.getAttributes(dn, attrNames);
-      }
-      else if (sr != null && sr.isRelative() && sr.getAttributes().size() != 0 ) {
-          result = sr.getAttributes();
-      }
-      else
+               public void value(String roleName) throws LoginException
+               {
+                  if (roleAttributeIsDN)
+                  {
+                     processRoleDN(ctx, roleName);
+                  }
+                  else
+                  {
+                     // The role attribute value is the role name
+                     addRole(roleName);
+                  }
+               }
+            });
+   }
+
+   private Attributes roleAttributes(LdapContext searchContext, String dn, SearchResult sr) throws NamingException
+   {
+      if (sr == null || (sr.isRelative() && sr.getAttributes().size() == 0))
       {
-         result = sr.getAttributes();
+         String[] attrNames =
+         {roleAttributeID};
+
+         Attributes attributes;
+         long start = startOperation();
+         try
+         {
+            attributes = searchContext.getAttributes(dn, attrNames);
+         }
+         finally
+         {
+            endOperation(LdapMetrics.Operation.READ, start);
+         }
+
+         return attributes;
       }
-      if (result != null && result.size() > 0)
+
+      return sr.getAttributes();
+   }
+
+   /**
+    * Add the roles for the role object identified by the unquoted roleDN, if enabled
+    * this includes a recursive search of the roles of the role object.
+    */
+   protected void processRoleDN(LdapContext searchContext, String roleDN) throws LoginException
+   {
+      if (groupCache != null)
       {
-         Attribute roles = result.get(roleAttributeID);
-         for (int n = 0; n < roles.size(); n++)
+         try
          {
-            String roleName = (String) roles.get(n);
-            if (roleAttributeIsDN)
+            DirectoryGroupLoader loader = new DirectoryGroupLoader(searchContext);
+            for (String roleName : groupCache.getRoleNames(roleDN, loader))
             {
-               // Query the roleDN location for the value of roleNameAttributeID
-               String roleDN = "\"" + roleName + "\"";
-
-               loadRoleByRoleNameAttributeID(searchContext, roleDN);
-               recurseRolesSearch(searchContext, roleName);
-            }
-            else
-            {
-               // The role attribute value is the role name
                addRole(roleName);
             }
+            cacheAccess(LdapMetrics.Cache.GROUP, loader.loads == 0);
+            return;
+         }
+         catch (NamingException e)
+         {
+            if (trace) {
+               log.trace("Failed to load group '" + roleDN + "' for cache, searching directly.", e);
+            }
          }
       }
+
+      // Query the roleDN location for the value of roleNameAttributeID
+      loadRoleByRoleNameAttributeID(searchContext, "\"" + roleDN + "\"");
+      recurseRolesSearch(searchContext, roleDN);
    }
 
    private Attributes getAttributesFromReferralEntity(SearchResult sr) throws NamingException
@@ -867,7 +2004,16 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
       }
       try
       {
-         Attributes result2 = searchContext.getAttributes(roleDN, returnAttribute);
+         Attributes result2;
+         long start = startOperation();
+         try
+         {
+            result2 = searchContext.getAttributes(roleDN, returnAttribute);
+         }
+         finally
+         {
+            endOperation(LdapMetrics.Operation.READ, start);
+         }
          Attribute roles2 = result2.get(roleNameAttributeID);
          if (roles2 != null)
          {
@@ -947,13 +2093,32 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
       return result;
    }
 
+   /**
+    * Discard any roles found so far, used where the roles of more than one user are obtained
+    * by the same instance.
+    */
+   protected void resetRoles()
+   {
+      userRoles = new SimpleGroup("Roles");
+      processedRoleDNs.clear();
+   }
+
+   private void addRoles(String[] roleNames)
+   {
+      for (String roleName : roleNames)
+      {
+         addRole(roleName);
+      }
+   }
+
    private void addRole(String roleName)
    {
       if (roleName != null)
       {
          try
          {
-            Principal p = super.createIdentity(roleName);
+            // Role names are shared by many users so a single instance of each is retained.
+            Principal p = super.createIdentity(roleName.intern());
             if (trace) {
                log.trace("Assign user '" + getIdentity().getName() + "' to role " + roleName);
             }
@@ -967,11 +2132,298 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
       }
    }
 
+   /**
+    * Loads a single group for the GroupGraphCache using the same searches as rolesSearch
+    * but without adding any roles to the user.
+    */
+   private class DirectoryGroupLoader implements GroupGraphCache.GroupLoader
+   {
+
+      private final LdapContext searchContext;
+
+      // The number of groups loaded from the directory rather than the cache.
+      private int loads;
+
+      private DirectoryGroupLoader(final LdapContext searchContext)
+      {
+         this.searchContext = searchContext;
+      }
+
+      public GroupGraphCache.GroupNode load(final String groupDN) throws NamingException
+      {
+         loads++;
+         Set<String> roleNames = new HashSet<String>();
+         String[] returnAttribute = {roleNameAttributeID};
+         Attribute names;
+         long start = startOperation();
+         try
+         {
+            names = searchContext.getAttributes(quoted(groupDN), returnAttribute).get(roleNameAttributeID);
+         }
+         finally
+         {
+            endOperation(LdapMetrics.Operation.READ, start);
+         }
+         for (int i = 0; names != null && i < names.size(); i++)
+         {
+            roleNames.add(((String) names.get(i)).intern());
+         }
+
+         Set<String> parentDNs = new HashSet<String>();
+         if (recurseRoles)
+         {
+            if (roleFilter != null && roleFilter.length() > 0 && rolesCtxDN != null)
+            {
+               Object[] filterArgs = {getIdentity().getName(), groupDN};
+               LdapContext ldapCtx = searchContext;
+               boolean referralsExist = true;
+               while (referralsExist)
+               {
+                  NamingEnumeration results = null;
+                  try
+                  {
+                     start = startOperation();
+                     try
+                     {
+                        results = ldapCtx.search(rolesCtxDN, roleFilter, filterArgs, roleSearchControls);
+                     }
+                     finally
+                     {
+                        endOperation(LdapMetrics.Operation.SEARCH, start);
+                     }
+                     while (results.hasMore())
+                     {
+                        SearchResult sr = (SearchResult) results.next();
+                        String resultDN = sr.isRelative() ? canonicalize(sr.getName()) : sr.getNameInNamespace();
+                        addParents(parentDNs, ldapCtx, resultDN, roleAttributes(ldapCtx, resultDN, sr));
+                     }
+                     referralsExist = false;
+                  }
+                  catch (ReferralException e)
+                  {
+                     ldapCtx = referralContext(e);
+                  }
+                  finally
+                  {
+                     if (results != null)
+                     {
+                        results.close();
+                     }
+                  }
+               }
+            }
+            else
+            {
+               addParents(parentDNs, searchContext, quoted(groupDN), roleAttributes(searchContext, quoted(groupDN), null));
+            }
+         }
+
+         return new GroupGraphCache.GroupNode(roleNames, parentDNs);
+      }
+
+      private void addParents(final Set<String> parentDNs, final LdapContext ctx, final String dn,
+            final Attributes attributes) throws NamingException
+      {
+         LdapPaging.forEachValue(ctx, dn, attributes, roleAttributeID, new LdapPaging.ValueHandler<NamingException>()
+         {
+
+            public void value(String parentDN)
+            {
+               parentDNs.add(parentDN);
+            }
+         });
+      }
+
+   }
+
+   /**
+    * Finds entries under the baseCtxDN and rolesCtxDN that have changed using the changeTrackingAttribute.
+    *
+    * uSNChanged is not replicated so when used the provider URL should always resolve to the same
+    * domain controller.
+    */
+   private static final class DirectoryChangeSource implements DirectoryChangeTracker.ChangeSource
+   {
+
+      /*
+       * The initial position for modifyTimestamp is taken from the local clock so allow for the same
+       * skew as Kerberos.
+       */
+      private static final long CLOCK_SKEW = 5 * 60 * 1000;
+
+      private final Properties env;
+
+      private final String bindAuthentication;
+
+      private final BindCredentialCache credentialCache;
+
+      private final String jaasSecurityDomain;
+
+      private final Set<String> searchBases;
+
+      private final String changeTrackingAttribute;
+
+      private final int searchTimeLimit;
+
+      private DirectoryChangeSource(Properties env, String bindAuthentication, BindCredentialCache credentialCache,
+            String jaasSecurityDomain, Set<String> searchBases, String changeTrackingAttribute, int searchTimeLimit)
+      {
+         this.env = env;
+         this.bindAuthentication = bindAuthentication;
+         this.credentialCache = credentialCache;
+         this.jaasSecurityDomain = jaasSecurityDomain;
+         this.searchBases = searchBases;
+         this.changeTrackingAttribute = changeTrackingAttribute;
+         this.searchTimeLimit = searchTimeLimit;
+      }
+
+      public String findChanges(final String highWaterMark, final Set<String> changedDNs) throws NamingException
+      {
+         PrivilegedAction<Object> action = new PrivilegedAction<Object>()
+         {
+
+            public Object run()
+            {
+               try
+               {
+                  return innerFindChanges(highWaterMark, changedDNs);
+               }
+               catch (NamingException e)
+               {
+                  return e;
+               }
+               catch (LoginException e)
+               {
+                  return e;
+               }
+            }
+         };
+
+         Object result;
+         try
+         {
+            if (AUTH_TYPE_GSSAPI.equals(bindAuthentication))
+            {
+               result = Subject.doAs(SubjectCache.getInstance(jaasSecurityDomain).getSubject(), action);
+            }
+            else
+            {
+               result = action.run();
+            }
+         }
+         catch (LoginException e)
+         {
+            result = e;
+         }
+
+         if (result instanceof NamingException)
+         {
+            throw (NamingException) result;
+         }
+         else if (result instanceof LoginException)
+         {
+            NamingException ne = new NamingException("Unable to connect to search for changes");
+            ne.setRootCause((LoginException) result);
+            throw ne;
+         }
+
+         return (String) result;
+      }
+
+      private String innerFindChanges(final String highWaterMark, final Set<String> changedDNs) throws NamingException,
+            LoginException
+      {
+         boolean usn = USN_CHANGED.equals(changeTrackingAttribute);
+         Properties connectionEnv = (Properties) env.clone();
+         char[] credential = searchCredential(credentialCache);
+         if (credential != null)
+         {
+            connectionEnv.put(Context.SECURITY_CREDENTIALS, credential);
+         }
+         LdapContext searchContext = new InitialLdapContext(connectionEnv, null);
+         try
+         {
+            if (highWaterMark == null)
+            {
+               return initialHighWaterMark(searchContext, usn);
+            }
+
+            Object[] filterArgs =
+            {usn ? String.valueOf(Long.parseLong(highWaterMark) + 1) : highWaterMark};
+            String filter = "(" + changeTrackingAttribute + ">={0})";
+            SearchControls controls = new SearchControls();
+            controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+            controls.setReturningAttributes(new String[] {changeTrackingAttribute});
+            controls.setTimeLimit(searchTimeLimit);
+
+            String newHighWaterMark = highWaterMark;
+            for (String currentBase : searchBases)
+            {
+               NamingEnumeration results = searchContext.search(currentBase, filter, filterArgs, controls);
+               try
+               {
+                  while (results.hasMore())
+                  {
+                     SearchResult sr = (SearchResult) results.next();
+                     changedDNs.add(sr.getNameInNamespace());
+                     Attribute changed = sr.getAttributes().get(changeTrackingAttribute);
+                     if (changed != null)
+                     {
+                        newHighWaterMark = later(newHighWaterMark, String.valueOf(changed.get()), usn);
+                     }
+                  }
+               }
+               finally
+               {
+                  results.close();
+               }
+            }
+
+            return newHighWaterMark;
+         }
+         finally
+         {
+            searchContext.close();
+         }
+      }
+
+      private String initialHighWaterMark(final LdapContext searchContext, final boolean usn) throws NamingException
+      {
+         if (usn)
+         {
+            Attribute highest = searchContext.getAttributes("", new String[] {HIGHEST_COMMITTED_USN}).get(
+                  HIGHEST_COMMITTED_USN);
+            if (highest == null)
+            {
+               throw new NamingException(HIGHEST_COMMITTED_USN + " not available from the root DSE");
+            }
+            return String.valueOf(highest.get());
+         }
+
+         SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss'Z'", Locale.ENGLISH);
+         format.setTimeZone(TimeZone.getTimeZone("UTC"));
+         return format.format(new Date(System.currentTimeMillis() - CLOCK_SKEW));
+      }
+
+      private String later(final String current, final String candidate, final boolean usn)
+      {
+         if (usn)
+         {
+            return Long.parseLong(candidate) > Long.parseLong(current) ? candidate : current;
+         }
+
+         // Generalized time values with the same precision sort lexically.
+         return candidate.compareTo(current) > 0 ? candidate : current;
+      }
+
+   }
+
    private class AuthorizeAction implements PrivilegedAction<Object>
    {
 
       public Object run()
       {
+         cost = metrics != null ? metrics.startLogin() : null;
          try
          {
             return innerLogin();
@@ -980,6 +2432,14 @@ public class AdvancedLdapLoginModule extends CommonLoginModule
          {
             return e;
          }
+         finally
+         {
+            if (cost != null)
+            {
+               cost.finish(getIdentity() != null ? getIdentity().getName() : null);
+               cost = null;
+            }
+         }
       }
 
    }
@@ -0,0 +1,167 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * A process wide cache of the credentials verified by a successful bind as a user, allowing repeat logins with the same
+ * credential to be verified without binding to the directory again.
+ *
+ * The credential itself is never held, only an HMAC-SHA256 of it with the DN of the user keyed by a random salt of
+ * the entry.
+ *
+ * A deliberately slow hash such as PBKDF2 is not used as the cache exists to verify a repeat login in microseconds,
+ * PBKDF2 with 4096 iterations took tens of milliseconds for each login which is more than the bind it replaces. The
+ * trade-off is that a credential hashed here can be guessed far faster by anyone able to read the heap of the server,
+ * which is limited by entries only being held for the short bindCacheTimeout.
+ */
+final class BindCache implements DirectoryChangeTracker.ChangeListener {
+
+    private static final Logger log = Logger.getLogger(BindCache.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final SharedInstances<String, BindCache> INSTANCES = SharedInstances.create();
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final int SALT_LENGTH = 32;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final ExpiringCache<String, VerifiedBind> verified;
+
+    private BindCache(final long timeout, final int maxSize) {
+        verified = new ExpiringCache<String, VerifiedBind>(timeout, maxSize);
+    }
+
+    /**
+     * Obtain the cache for the specified configuration, creating it if it does not already exist.
+     *
+     * @param configurationKey - The key identifying the login module configuration.
+     * @param timeout - The time in milliseconds a verified bind is cached for.
+     * @param maxSize - The maximum number of verified binds to cache.
+     * @return The shared cache.
+     */
+    static BindCache getInstance(final String configurationKey, final long timeout, final int maxSize) {
+        BindCache cache = INSTANCES.get(configurationKey);
+        if (cache == null) {
+            cache = INSTANCES.register(configurationKey, new BindCache(timeout, maxSize));
+        }
+
+        return cache;
+    }
+
+    /**
+     * Check if the credential matches a credential recently verified by binding as the user.
+     *
+     * @param userDN - The DN of the user.
+     * @param credential - The credential to check.
+     * @return true if the credential matches a cached verified bind.
+     */
+    boolean verify(final String userDN, final char[] credential) {
+        VerifiedBind current = verified.get(normalize(userDN));
+        if (current == null) {
+            return false;
+        }
+
+        byte[] hash = hash(userDN, credential, current.salt);
+        return hash != null && MessageDigest.isEqual(hash, current.hash);
+    }
+
+    /**
+     * Record a credential successfully verified by binding as the user.
+     */
+    void add(final String userDN, final char[] credential) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        byte[] hash = hash(userDN, credential, salt);
+        if (hash != null) {
+            verified.put(normalize(userDN), new VerifiedBind(salt, hash));
+        }
+    }
+
+    void remove(final String userDN) {
+        verified.remove(normalize(userDN));
+    }
+
+    /**
+     * A change to the user entry may be a change of credential so the cached bind is discarded.
+     */
+    public void entryChanged(final String dn) {
+        remove(dn);
+    }
+
+    public void allChanged() {
+        verified.clear();
+    }
+
+    private static byte[] hash(final String userDN, final char[] credential, final byte[] salt) {
+        ByteBuffer encoded = UTF_8.encode(CharBuffer.wrap(credential));
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(salt, ALGORITHM));
+            mac.update(normalize(userDN).getBytes(UTF_8));
+            // The DN is included so a hash only matches for the user it was verified for.
+            mac.update((byte) 0);
+            mac.update(encoded);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            log.debug("Unable to hash credential, bind cache not used.", e);
+            return null;
+        } finally {
+            if (encoded.hasArray()) {
+                Arrays.fill(encoded.array(), (byte) 0);
+            }
+        }
+    }
+
+    private static String normalize(final String userDN) {
+        return DirectoryChangeTracker.normalizeDN(userDN);
+    }
+
+    private static final class VerifiedBind {
+
+        private final byte[] salt;
+        private final byte[] hash;
+
+        private VerifiedBind(final byte[] salt, final byte[] hash) {
+            this.salt = salt;
+            this.hash = hash;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Arrays;
+
+import javax.management.ObjectName;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+import org.jboss.security.negotiation.prototype.DecodeAction;
+import org.jboss.security.vault.SecurityVaultUtil;
+
+/**
+ * A cache of the bind credential of a login module configuration obtained from the vault or decoded using a
+ * JaasSecurityDomain so that this only happens once for each configuration rather than for each login.
+ *
+ * The credential is held as a char[] that is cleared as the login modules are undeployed, where the referenced value
+ * has changed without the configuration changing it is resolved again when the directory rejects it.
+ */
+final class BindCredentialCache implements SharedInstances.Disposable {
+
+    private static final SharedInstances<String, BindCredentialCache> INSTANCES = SharedInstances.create();
+
+    private final String configured;
+    private final String jaasSecurityDomain;
+    private char[] credential;
+
+    private BindCredentialCache(final String configured, final String jaasSecurityDomain) {
+        this.configured = configured;
+        this.jaasSecurityDomain = jaasSecurityDomain;
+    }
+
+    /**
+     * Obtain the cache for the specified configuration, creating it if it does not already exist.
+     *
+     * @param configurationKey - The key identifying the login module configuration.
+     * @param configured - The bindCredential as configured, possibly a vault expression or encoded.
+     * @param jaasSecurityDomain - The JaasSecurityDomain to decode the credential with or null if it is not encoded.
+     * @return The shared cache.
+     */
+    static BindCredentialCache getInstance(final String configurationKey, final String configured,
+            final String jaasSecurityDomain) {
+        BindCredentialCache cache = INSTANCES.get(configurationKey);
+        if (cache == null) {
+            cache = INSTANCES.register(configurationKey, new BindCredentialCache(configured, jaasSecurityDomain));
+        }
+
+        return cache;
+    }
+
+    /**
+     * @return A copy of the credential, resolving it if it is not already cached.
+     */
+    synchronized char[] getCredential() throws Exception {
+        if (credential == null) {
+            credential = resolve();
+        }
+
+        return credential.clone();
+    }
+
+    /**
+     * Discard the cached credential and resolve it again, this allows a credential changed in the vault or keystore to
+     * be picked up without restarting.
+     *
+     * @param rejected - The credential the directory rejected.
+     * @return true if the credential now differs from the rejected credential so is worth trying.
+     */
+    synchronized boolean refresh(final char[] rejected) throws Exception {
+        char[] current = resolve();
+        clear(credential);
+        credential = current;
+
+        return Arrays.equals(current, rejected) == false;
+    }
+
+    public synchronized void dispose() {
+        clear(credential);
+        credential = null;
+    }
+
+    private char[] resolve() throws Exception {
+        char[] value = SecurityVaultUtil.isVaultFormat(configured) ? SecurityVaultUtil.getValue(configured)
+                : configured.toCharArray();
+        if (value == null) {
+            throw new IllegalStateException("No value in the vault for the bindCredential");
+        }
+        if (jaasSecurityDomain != null && jaasSecurityDomain.length() > 0) {
+            try {
+                return DecodeAction.decode(new String(value), new ObjectName(jaasSecurityDomain));
+            } finally {
+                clear(value);
+            }
+        }
+
+        return value;
+    }
+
+    private static void clear(final char[] value) {
+        if (value != null) {
+            Arrays.fill(value, '\0');
+        }
+    }
+
+}
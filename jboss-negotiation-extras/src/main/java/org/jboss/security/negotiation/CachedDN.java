@@ -0,0 +1,56 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+/**
+ * A DN held by one of the caches of the {@link AdvancedLdapLoginModule}, compared using the normalized form of the DN
+ * so that the entries for a DN reported by the {@link DirectoryChangeTracker} can be found.
+ */
+final class CachedDN {
+
+    private final String dn;
+    private final String normalized;
+
+    CachedDN(final String dn) {
+        this.dn = dn;
+        this.normalized = DirectoryChangeTracker.normalizeDN(dn);
+    }
+
+    /**
+     * @return The DN as it was cached.
+     */
+    String getDN() {
+        return dn;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CachedDN && normalized.equals(((CachedDN) obj).normalized);
+    }
+
+    @Override
+    public int hashCode() {
+        return normalized.hashCode();
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.naming.NamingException;
+
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * Periodically polls the directory for entries changed since the last poll and notifies the registered caches so that
+ * only the affected entries are discarded, this allows the caches to use long timeouts without serving stale roles.
+ *
+ * Instances are shared between all login modules with the same configuration and polled by a single daemon thread.
+ */
+final class DirectoryChangeTracker implements SharedInstances.Disposable {
+
+    private static final Logger log = Logger.getLogger(DirectoryChangeTracker.class);
+
+    private static final SharedInstances<String, DirectoryChangeTracker> INSTANCES = SharedInstances.create();
+
+    private static final Pattern SEPARATOR_SPACE = Pattern.compile("\\s*([,=])\\s*");
+
+    private static ScheduledExecutorService executor;
+
+    private final ChangeSource source;
+    private final Set<ChangeListener> listeners = new CopyOnWriteArraySet<ChangeListener>();
+    private String highWaterMark;
+    private ScheduledFuture<?> scheduled;
+    private boolean disposed;
+
+    private DirectoryChangeTracker(final ChangeSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Obtain the tracker for the specified configuration if it has already been created.
+     *
+     * @param configurationKey - The key identifying the login module configuration.
+     * @return The shared tracker or null if there is none.
+     */
+    static DirectoryChangeTracker getInstance(final String configurationKey) {
+        return INSTANCES.get(configurationKey);
+    }
+
+    /**
+     * Obtain the tracker for the specified configuration, creating and scheduling it if it does not already exist.
+     *
+     * @param configurationKey - The key identifying the login module configuration.
+     * @param interval - The time in milliseconds between polls.
+     * @param source - The source of changes to use if the tracker is created.
+     * @return The shared tracker.
+     */
+    static DirectoryChangeTracker getInstance(final String configurationKey, final long interval, final ChangeSource source) {
+        DirectoryChangeTracker tracker = INSTANCES.get(configurationKey);
+        if (tracker == null) {
+            final DirectoryChangeTracker created = new DirectoryChangeTracker(source);
+            tracker = INSTANCES.register(configurationKey, created);
+            if (tracker == created) {
+                created.schedule(interval);
+            }
+        }
+
+        return tracker;
+    }
+
+    /**
+     * Create a tracker which is not shared or scheduled, the caller is responsible for calling {@link #poll()}.
+     */
+    static DirectoryChangeTracker create(final ChangeSource source) {
+        return new DirectoryChangeTracker(source);
+    }
+
+    private synchronized void schedule(final long interval) {
+        if (disposed == false) {
+            scheduled = getExecutor().scheduleWithFixedDelay(new Runnable() {
+
+                public void run() {
+                    poll();
+                }
+            }, 0, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop polling and drop the listeners, the thread exits once no trackers are scheduled.
+     */
+    public synchronized void dispose() {
+        disposed = true;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        listeners.clear();
+    }
+
+    private static synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            ScheduledThreadPoolExecutor created = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Negotiation Directory Change Tracker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            created.setRemoveOnCancelPolicy(true);
+            created.setKeepAliveTime(1, TimeUnit.MINUTES);
+            created.allowCoreThreadTimeOut(true);
+            executor = created;
+        }
+
+        return executor;
+    }
+
+    void addListener(final ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Check the directory for changes, on the first poll the current position is established and all listeners are
+     * reset as nothing is known about changes before that point.
+     */
+    synchronized void poll() {
+        Set<String> changedDNs = new HashSet<String>();
+        try {
+            String previous = highWaterMark;
+            highWaterMark = source.findChanges(previous, changedDNs);
+            if (previous == null) {
+                log.debugf("Directory change tracking started at '%s'", highWaterMark);
+                for (ChangeListener current : listeners) {
+                    current.allChanged();
+                }
+                return;
+            }
+        } catch (NamingException e) {
+            // The high water mark is unchanged so the same changes will be found on the next poll.
+            log.warn("Unable to poll the directory for changes.", e);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Unable to poll the directory for changes.", e);
+            return;
+        }
+
+        if (changedDNs.isEmpty() == false) {
+            log.debugf("Found %d changed entries, now at '%s'", changedDNs.size(), highWaterMark);
+            for (String currentDN : changedDNs) {
+                for (ChangeListener current : listeners) {
+                    current.entryChanged(currentDN);
+                }
+            }
+        }
+    }
+
+    /**
+     * Normalize a DN so that DNs reported as changed can be compared with cached DNs, DNs that only differ by case or the
+     * space around separators are considered equal. Where the DN is an absolute URL only the DN portion is retained.
+     */
+    static String normalizeDN(final String dn) {
+        String temp = dn.trim();
+        int schemeEnd = temp.indexOf("://");
+        if (schemeEnd > 0) {
+            int pathStart = temp.indexOf('/', schemeEnd + 3);
+            temp = pathStart > 0 ? temp.substring(pathStart + 1) : temp;
+        }
+
+        return SEPARATOR_SPACE.matcher(temp.toLowerCase(Locale.ENGLISH)).replaceAll("$1");
+    }
+
+    /**
+     * A source of changes from the directory.
+     */
+    interface ChangeSource {
+
+        /**
+         * Find the DNs of all entries changed after the specified position.
+         *
+         * @param highWaterMark - The position returned from the previous call or null on the first call.
+         * @param changedDNs - The set to add the DNs of changed entries to, not used on the first call.
+         * @return The new position.
+         * @throws NamingException - If the directory can not be searched.
+         */
+        String findChanges(final String highWaterMark, final Set<String> changedDNs) throws NamingException;
+
+    }
+
+    /**
+     * A cache to be notified of changes to the directory.
+     */
+    interface ChangeListener {
+
+        void entryChanged(final String dn);
+
+        void allChanged();
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+
+import javax.security.auth.Subject;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.Configuration;
+import javax.security.auth.login.LoginException;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Warm-up phase to open the directory connections of each {@link AdvancedLdapLoginModule} in a security domain before
+ * the first login, the connections are opened using the same identity as a login so for GSSAPI the service ticket
+ * for the directory is also obtained.
+ *
+ * Where the searchContextPoolSize option is set the pool is filled, idle contexts are still closed after the idle
+ * timeout of the pool if no logins follow.
+ */
+public final class DirectoryWarmUp implements Callable<Integer> {
+
+    private static final Logger log = Logger.getLogger(DirectoryWarmUp.class);
+
+    private final String securityDomain;
+
+    /**
+     * @param securityDomain - The name of the security domain containing the login modules.
+     */
+    public DirectoryWarmUp(final String securityDomain) {
+        this.securityDomain = securityDomain;
+    }
+
+    /**
+     * Open the directory connections.
+     *
+     * @return The number of connections opened.
+     * @throws LoginException - If a connection can not be opened.
+     */
+    @Override
+    public Integer call() throws Exception {
+        AppConfigurationEntry[] entries = Configuration.getConfiguration().getAppConfigurationEntry(securityDomain);
+        if (entries == null) {
+            throw new LoginException("No configuration for security domain '" + securityDomain + "'");
+        }
+
+        int opened = 0;
+        for (AppConfigurationEntry current : entries) {
+            Class<?> loginModuleClass = Class.forName(current.getLoginModuleName());
+            if (AdvancedLdapLoginModule.class.isAssignableFrom(loginModuleClass)) {
+                AdvancedLdapLoginModule loginModule = (AdvancedLdapLoginModule) loginModuleClass.newInstance();
+                loginModule.initialize(new Subject(), null, new HashMap<String, Object>(), current.getOptions());
+                opened += loginModule.openSearchContexts();
+            }
+        }
+        log.debugf("Opened %d directory connections for '%s'", opened, securityDomain);
+
+        return opened;
+    }
+
+}
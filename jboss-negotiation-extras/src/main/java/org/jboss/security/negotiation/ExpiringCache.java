@@ -0,0 +1,128 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A simple size bounded cache where entries expire a fixed time after they were added.
+ *
+ * Once the maximum size is reached the least recently used entry is evicted.
+ */
+final class ExpiringCache<K, V> {
+
+    private final long timeout;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    /**
+     * @param timeout - The time in milliseconds entries remain valid for, a value less than or equal to 0 means entries
+     *        never expire.
+     * @param maxSize - The maximum number of entries to hold, a value less than or equal to 0 means unbounded.
+     */
+    ExpiringCache(final long timeout, final int maxSize) {
+        this.timeout = timeout;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return maxSize > 0 && size() > maxSize;
+            }
+        };
+    }
+
+    synchronized V get(final K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key);
+            return null;
+        }
+
+        return entry.value;
+    }
+
+    synchronized void put(final K key, final V value) {
+        long expiry = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+        entries.put(key, new Entry<V>(value, expiry));
+    }
+
+    synchronized V remove(final K key) {
+        Entry<V> removed = entries.remove(key);
+        return removed != null ? removed.value : null;
+    }
+
+    /**
+     * Remove all entries with the specified value.
+     */
+    synchronized void removeValue(final V value) {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (value.equals(it.next().value)) {
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Remove any entries that have already expired.
+     */
+    synchronized void purge() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isExpired(now)) {
+                it.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long expiry;
+
+        private Entry(final V value, final long expiry) {
+            this.value = value;
+            this.expiry = expiry;
+        }
+
+        private boolean isExpired(final long now) {
+            return now >= expiry;
+        }
+    }
+
+}
@@ -22,8 +22,6 @@
 
 package org.jboss.security.negotiation;
 
-import java.lang.reflect.Method;
-
 import javax.security.auth.Subject;
 import javax.security.auth.login.LoginException;
 
@@ -41,8 +39,6 @@ class GSSUtil {
 
     private static final Logger log = Logger.getLogger(GSSUtil.class);
 
-    private static final Method CREATE_SUBJECT_METHOD = SecurityActions.getCreateSubjectMethod();
-
     /**
      * Populate the supplied {@link Subject} based on the supplied {@link GSSCredential}
      *
@@ -53,10 +49,10 @@ class GSSUtil {
      */
     static Subject populateSubject(Subject subject, GSSCredential delegatedCredential, GSSCredential privateCredential) throws LoginException {
         Subject intermediateSubject = null;
-        if (CREATE_SUBJECT_METHOD != null) {
+        if (KerberosPlatform.isCreateSubjectAvailable()) {
             try {
                 GSSName name = delegatedCredential.getName(Constants.KERBEROS_V5);
-                intermediateSubject = SecurityActions.invokeCreateSubject(CREATE_SUBJECT_METHOD, name, delegatedCredential);
+                intermediateSubject = SecurityActions.invokeCreateSubject(name, delegatedCredential);
                 log.trace("Delegated credential converted to Subject.");
                 SecurityActions.copySubjectContents(intermediateSubject, subject);
                 log.trace("Copied conents of temporary Subject to Subject from the LoginContext");
@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.naming.NamingException;
+
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * A process wide cache of the group hierarchy read from LDAP by the {@link AdvancedLdapLoginModule}.
+ *
+ * For each group DN the cache holds the role names of the group and the DNs of the groups it is a member of, the
+ * transitive closure of role names reachable from a group is memoized so that after the first login only the direct
+ * memberships of a user need to be read from the directory.
+ *
+ * Instances are shared between all login modules with the same configuration.
+ */
+final class GroupGraphCache implements DirectoryChangeTracker.ChangeListener {
+
+    private static final Logger log = Logger.getLogger(GroupGraphCache.class);
+
+    private static final SharedInstances<String, GroupGraphCache> INSTANCES = SharedInstances.create();
+
+    private final ExpiringCache<String, GroupNode> nodes;
+    private final ExpiringCache<String, Set<String>> closures;
+
+    private GroupGraphCache(final long timeout) {
+        nodes = new ExpiringCache<String, GroupNode>(timeout, 0);
+        closures = new ExpiringCache<String, Set<String>>(timeout, 0);
+    }
+
+    /**
+     * Obtain the cache for the specified configuration, creating it if it does not already exist.
+     *
+     * @param configurationKey - The key identifying the login module configuration.
+     * @param timeout - The time in milliseconds cached groups remain valid.
+     * @return The shared cache.
+     */
+    static GroupGraphCache getInstance(final String configurationKey, final long timeout) {
+        GroupGraphCache cache = INSTANCES.get(configurationKey);
+        if (cache == null) {
+            cache = INSTANCES.register(configurationKey, new GroupGraphCache(timeout));
+        }
+
+        return cache;
+    }
+
+    /**
+     * Obtain all role names reachable from the specified group, loading any groups not already cached.
+     *
+     * @param groupDN - The unquoted DN of the group.
+     * @param loader - The loader to use for any groups not already cached.
+     * @return The role names of the group and all groups it is transitively a member of.
+     * @throws NamingException - If loading any of the groups fails, in which case nothing is memoized for this group.
+     */
+    Set<String> getRoleNames(final String groupDN, final GroupLoader loader) throws NamingException {
+        String key = DirectoryChangeTracker.normalizeDN(groupDN);
+        Set<String> closure = closures.get(key);
+        if (closure != null) {
+            log.tracef("Role names for '%s' obtained from cache.", groupDN);
+            return closure;
+        }
+
+        Set<String> roleNames = new HashSet<String>();
+        Set<String> visited = new HashSet<String>();
+        Deque<String> toVisit = new ArrayDeque<String>();
+        toVisit.push(groupDN);
+        while (toVisit.isEmpty() == false) {
+            String currentDN = toVisit.pop();
+            String currentKey = DirectoryChangeTracker.normalizeDN(currentDN);
+            if (visited.add(currentKey) == false) {
+                continue;
+            }
+
+            if (currentKey.equals(key) == false) {
+                Set<String> known = closures.get(currentKey);
+                if (known != null) {
+                    roleNames.addAll(known);
+                    continue;
+                }
+            }
+
+            GroupNode node = nodes.get(currentKey);
+            if (node == null) {
+                log.tracef("Loading group '%s'", currentDN);
+                node = loader.load(currentDN);
+                nodes.put(currentKey, node);
+            }
+            roleNames.addAll(node.roleNames);
+            for (String parentDN : node.parentDNs) {
+                toVisit.push(parentDN);
+            }
+        }
+
+        closure = Collections.unmodifiableSet(roleNames);
+        closures.put(key, closure);
+
+        return closure;
+    }
+
+    void invalidateAll() {
+        nodes.clear();
+        closures.clear();
+    }
+
+    /**
+     * The membership of a group is held in the member attribute of the parent group, the memberOf attribute of the child
+     * is a backlink that does not change the child entry. A change to any group could therefore add any cached group to
+     * it, as the changed entry can not be identified as a group all groups are discarded.
+     */
+    public void entryChanged(final String dn) {
+        invalidateAll();
+    }
+
+    public void allChanged() {
+        invalidateAll();
+    }
+
+    /**
+     * The cached representation of a single group.
+     */
+    static final class GroupNode {
+
+        private final Set<String> roleNames;
+        private final Set<String> parentDNs;
+
+        GroupNode(final Set<String> roleNames, final Set<String> parentDNs) {
+            this.roleNames = Collections.unmodifiableSet(roleNames);
+            this.parentDNs = Collections.unmodifiableSet(parentDNs);
+        }
+
+    }
+
+    /**
+     * Callback to load a group from the directory.
+     */
+    interface GroupLoader {
+
+        GroupNode load(final String groupDN) throws NamingException;
+
+    }
+
+}
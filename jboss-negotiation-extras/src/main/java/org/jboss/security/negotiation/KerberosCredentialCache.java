@@ -0,0 +1,302 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.LoginException;
+import javax.security.auth.spi.LoginModule;
+
+import org.ietf.jgss.GSSCredential;
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * A process wide cache of the Kerberos credentials obtained by the wrapped Krb5LoginModule for each distinct set of
+ * options, the options include the principal and keytab so each cache holds the credentials of a single identity.
+ *
+ * The credentials are re-acquired in the background once 80% of the lifetime of the TGT has elapsed so logins are not
+ * held up by the KDC, if the cache has not been used since the credentials were last acquired they are left to expire
+ * and are only re-acquired on the next use.
+ *
+ * If target services are specified their service tickets are obtained in the background each time the credentials are
+ * acquired, logins in the meantime receive the credentials without them.
+ */
+final class KerberosCredentialCache implements SharedInstances.Disposable {
+
+    private static final Logger log = Logger.getLogger(KerberosCredentialCache.class);
+
+    private static final SharedInstances<String, KerberosCredentialCache> INSTANCES = SharedInstances.create();
+
+    private static final long DEFAULT_LIFETIME = TimeUnit.HOURS.toMillis(1);
+
+    private static final long RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String TGS_PREFIX = "krbtgt/";
+
+    private static final ScheduledThreadPoolExecutor RENEWAL = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Kerberos Credential Renewal");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    static {
+        // The thread exits once all caches have been disposed of and their renewals cancelled.
+        RENEWAL.setRemoveOnCancelPolicy(true);
+        RENEWAL.setKeepAliveTime(1, TimeUnit.MINUTES);
+        RENEWAL.allowCoreThreadTimeOut(true);
+    }
+
+    private final Class<LoginModule> moduleClass;
+    private final Map<String, ?> options;
+    private final boolean addGssCredential;
+    private final int credentialLifetime;
+    private final List<String> targetServices;
+
+    private volatile Credentials current;
+    // Have the current credentials been handed out since they were acquired.
+    private volatile boolean used;
+    private volatile boolean disposed;
+    private ScheduledFuture<?> renewal;
+
+    private KerberosCredentialCache(final Class<LoginModule> moduleClass, final Map<String, ?> options,
+            final boolean addGssCredential, final int credentialLifetime, final List<String> targetServices) {
+        this.moduleClass = moduleClass;
+        this.options = options;
+        this.addGssCredential = addGssCredential;
+        this.credentialLifetime = credentialLifetime;
+        this.targetServices = targetServices;
+    }
+
+    /**
+     * Obtain the cache for the specified options, creating it if it does not already exist.
+     *
+     * @param moduleClass - The Krb5LoginModule used to acquire the credentials.
+     * @param options - The options for the Krb5LoginModule.
+     * @param addGssCredential - Should a {@link GSSCredential} also be created for the acquired credentials.
+     * @param credentialLifetime - The lifetime of the {@link GSSCredential}.
+     * @param targetServices - The services to obtain service tickets for, may be empty.
+     * @return The shared cache.
+     */
+    static KerberosCredentialCache getInstance(final Class<LoginModule> moduleClass, final Map<String, ?> options,
+            final boolean addGssCredential, final int credentialLifetime, final List<String> targetServices) {
+        String key = moduleClass.getName() + "|" + new TreeMap<String, Object>(options) + "|" + addGssCredential + "|"
+                + credentialLifetime + "|" + targetServices;
+        KerberosCredentialCache cache = INSTANCES.get(key);
+        if (cache == null) {
+            cache = INSTANCES.register(key, new KerberosCredentialCache(moduleClass, new HashMap<String, Object>(options),
+                    addGssCredential, credentialLifetime, targetServices));
+        }
+
+        return cache;
+    }
+
+    /**
+     * Obtain the current credentials, if there are no current credentials or they have expired they are acquired now.
+     *
+     * The returned credentials are shared so must never be destroyed or modified by the caller.
+     */
+    Credentials getCredentials() throws LoginException {
+        long now = System.currentTimeMillis();
+        Credentials credentials = current;
+        if (credentials == null || now >= credentials.expiryTime) {
+            synchronized (this) {
+                credentials = current;
+                if (credentials == null || System.currentTimeMillis() >= credentials.expiryTime) {
+                    credentials = acquire();
+                }
+            }
+        }
+        used = true;
+
+        return credentials;
+    }
+
+    private synchronized Credentials acquire() throws LoginException {
+        Subject subject = new Subject();
+        LoginModule module = SecurityActions.newInstance(moduleClass);
+        if (module == null) {
+            throw new LoginException("Unable to instantiate Krb5LoginModule");
+        }
+        module.initialize(subject, null, new HashMap<String, Object>(), options);
+        if (module.login() == false || module.commit() == false) {
+            throw new LoginException("Krb5LoginModule did not authenticate");
+        }
+
+        GSSCredential credential = addGssCredential ? KerberosLoginModule
+                .wrapCredential(KerberosLoginModule.createCredential(subject, credentialLifetime)) : null;
+
+        long loginTime = System.currentTimeMillis();
+        long expiryTime = loginTime + DEFAULT_LIFETIME;
+        for (KerberosTicket ticket : subject.getPrivateCredentials(KerberosTicket.class)) {
+            Date endTime = ticket.getEndTime();
+            if (endTime != null && ticket.getServer().getName().startsWith(TGS_PREFIX)) {
+                expiryTime = endTime.getTime();
+                break;
+            }
+        }
+
+        final Credentials credentials = new Credentials(subject, credential, loginTime, expiryTime);
+        used = false;
+        current = credentials;
+        long refreshTime = loginTime + (expiryTime - loginTime) * 4 / 5;
+        schedule(refreshTime - loginTime);
+        log.debugf("Acquired Kerberos credentials valid until %s, renewal at %s", new Date(expiryTime), new Date(
+                refreshTime));
+        if (targetServices.isEmpty() == false && disposed == false) {
+            RENEWAL.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    prefetch(credentials);
+                }
+            });
+        }
+
+        return credentials;
+    }
+
+    /**
+     * Obtain the service tickets using a copy of the acquired credentials and replace them with the copy, the
+     * published credentials are never modified as logins may be copying them.
+     */
+    private void prefetch(final Credentials credentials) {
+        Subject subject = new Subject();
+        SecurityActions.copySubjectContents(credentials.subject, subject);
+        int fetched = ServiceTicketPrefetch.fetch(subject, null, targetServices);
+        synchronized (this) {
+            if (current == credentials) {
+                current = new Credentials(subject, credentials.credential, credentials.loginTime,
+                        credentials.expiryTime);
+            }
+        }
+        log.debugf("Obtained %d of %d service tickets", fetched, targetServices.size());
+    }
+
+    private synchronized void schedule(final long delay) {
+        if (renewal != null) {
+            renewal.cancel(false);
+        }
+        if (disposed) {
+            return;
+        }
+        renewal = RENEWAL.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                renew();
+            }
+        }, Math.max(delay, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancel the renewal, the credentials are not destroyed as logins may still be using them.
+     */
+    public synchronized void dispose() {
+        disposed = true;
+        if (renewal != null) {
+            renewal.cancel(false);
+            renewal = null;
+        }
+        current = null;
+    }
+
+    /**
+     * Acquire the credentials again ahead of their expiry, called by the scheduled renewal.
+     */
+    void renew() {
+        Credentials credentials = current;
+        if (credentials == null) {
+            return;
+        }
+        if (used == false) {
+            log.debug("Kerberos credentials not used since they were acquired, not renewing.");
+            return;
+        }
+
+        try {
+            acquire();
+        } catch (LoginException e) {
+            // Logins continue to use the existing credentials until they expire.
+            if (System.currentTimeMillis() + RETRY_INTERVAL < credentials.expiryTime) {
+                log.warn("Unable to renew Kerberos credentials, retrying in " + RETRY_INTERVAL + "ms", e);
+                schedule(RETRY_INTERVAL);
+            } else {
+                log.warn("Unable to renew Kerberos credentials, they will be acquired again on the next login", e);
+            }
+        }
+    }
+
+    /**
+     * The shared credentials acquired by a single login of the wrapped module.
+     */
+    static final class Credentials {
+
+        private final Subject subject;
+        private final GSSCredential credential;
+        private final long loginTime;
+        private final long expiryTime;
+
+        private Credentials(final Subject subject, final GSSCredential credential, final long loginTime,
+                final long expiryTime) {
+            this.subject = subject;
+            this.credential = credential;
+            this.loginTime = loginTime;
+            this.expiryTime = expiryTime;
+        }
+
+        /**
+         * @return The Subject populated by the wrapped module.
+         */
+        Subject getSubject() {
+            return subject;
+        }
+
+        /**
+         * @return The non-disposable {@link GSSCredential} or null if one was not requested.
+         */
+        GSSCredential getCredential() {
+            return credential;
+        }
+
+        long getExpiryTime() {
+            return expiryTime;
+        }
+
+    }
+
+}
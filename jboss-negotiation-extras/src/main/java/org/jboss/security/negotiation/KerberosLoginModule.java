@@ -24,13 +24,17 @@ package org.jboss.security.negotiation;
 
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.security.auth.Subject;
 import javax.security.auth.callback.CallbackHandler;
 import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
 import javax.security.auth.login.LoginException;
 import javax.security.auth.spi.LoginModule;
 
@@ -85,13 +89,51 @@ public class KerberosLoginModule implements LoginModule {
      */
     public static final String CREDENTIAL_LIFETIME = "credentialLifetime";
 
-    private static final String SUN_MODULE = "com.sun.security.auth.module.Krb5LoginModule";
+    /**
+     * Module option to share the credentials obtained from the keytab between all logins using the same options, the
+     * shared credentials are renewed in the background ahead of the expiry of the TGT instead of contacting the KDC
+     * for each login.
+     *
+     * Any {@link GSSCredential} added to the {@link Subject} is always wrapped to prevent disposal of the shared
+     * credential, requires useKeyTab=true.
+     *
+     * Defaults to false.
+     */
+    public static final String SHARE_CREDENTIAL = "shareCredential";
+
+    /**
+     * Module option to cache the service tickets obtained using a delegation credential so subsequent logins for the
+     * same client reuse them until they expire, the value is the maximum number of clients to cache tickets for. The
+     * cache is shared by the login modules with the same principal in the same security domain.
+     *
+     * Defaults to 0, service tickets are not cached.
+     */
+    public static final String SERVICE_TICKET_CACHE_SIZE = "serviceTicketCacheSize";
+
+    /**
+     * Module option to specify a comma separated list of service principal names to obtain service tickets for in the
+     * background as soon as a TGT or delegation credential is available, e.g. HTTP/backend.example.com@EXAMPLE.COM
+     *
+     * With shareCredential the tickets are obtained again each time the shared credentials are renewed. With a
+     * delegation credential the tickets are obtained once for each client not already held by the cache enabled by
+     * serviceTicketCacheSize and used by the subsequent logins of the client.
+     *
+     * Requires shareCredential or serviceTicketCacheSize, otherwise the option is ignored and a warning logged as the
+     * tickets would be discarded as each login is logged out.
+     */
+    public static final String TARGET_SERVICES = "targetServices";
+
     private static final String IBM_MODULE = "com.ibm.security.auth.module.Krb5LoginModule";
 
+    private static final String PRINCIPAL = "principal";
+
+    // Added to the options of each login module by the security domain.
+    private static final String SECURITY_DOMAIN_OPTION = "jboss.security.security_domain";
+
     private static Class<LoginModule> WRAPPED_CLASS;
 
     static {
-        Class<LoginModule> wrappedClass = SecurityActions.loadLoginModuleClass(SUN_MODULE);
+        Class<LoginModule> wrappedClass = KerberosPlatform.getLoginModuleClass();
         if (wrappedClass == null) {
             wrappedClass = SecurityActions.loadLoginModuleClass(IBM_MODULE);
         }
@@ -111,41 +153,35 @@ public class KerberosLoginModule implements LoginModule {
     private boolean wrapGssCredential;
     private int credentialLifetime = GSSCredential.DEFAULT_LIFETIME;
     private LoginModule wrapped;
+    private KerberosCredentialCache credentialCache;
+    private ServiceTicketCache serviceTicketCache;
+    private List<String> targetServices = Collections.emptyList();
 
     private Subject subject;
     private GSSCredential rawCredential;
     private GSSCredential storedCredential;
     private boolean usingWrappedLoginModule;
     private Subject intermediateSubject;
+    private KerberosCredentialCache.Credentials sharedCredentials;
+    private String delegatedClient;
+    private Set<KerberosTicket> cachedTickets;
 
     @Override
     public void initialize(Subject subject, CallbackHandler callbackHandler, Map<String, ?> sharedState, Map<String, ?> options) {
+        Map<String, ?> tweakedOptions = new HashMap<String, Object>(options);
+        tweakedOptions.remove(ADD_GSS_CREDENTIAL);
+        tweakedOptions.remove(WRAP_GSS_CREDENTIAL);
+        tweakedOptions.remove(CREDENTIAL_LIFETIME);
+        tweakedOptions.remove(DELEGATION_CREDENTIAL);
+        tweakedOptions.remove(SHARE_CREDENTIAL);
+        tweakedOptions.remove(SERVICE_TICKET_CACHE_SIZE);
+        tweakedOptions.remove(TARGET_SERVICES);
+
         if (options.containsKey(DELEGATION_CREDENTIAL)) {
             delegationCredential = DelegationCredential.valueOf((String)options.get(DELEGATION_CREDENTIAL));
         }
         log.tracef("delegationCredential=%s", delegationCredential);
 
-        if (delegationCredential != DelegationCredential.REQUIRE) {
-            /*
-             * If the setting is REQUIRE we would never have a need to call the wrapped module.
-             */
-            wrapped = SecurityActions.newInstance(WRAPPED_CLASS);
-            if (wrapped == null) {
-                throw new IllegalStateException("Unable to instantiate Krb5LoginModule to wrap!");
-            }
-
-            Map<String, ?> tweakedOptions = new HashMap<String, Object>(options);
-            tweakedOptions.remove(ADD_GSS_CREDENTIAL);
-            tweakedOptions.remove(WRAP_GSS_CREDENTIAL);
-            tweakedOptions.remove(CREDENTIAL_LIFETIME);
-            tweakedOptions.remove(DELEGATION_CREDENTIAL);
-
-            wrapped.initialize(subject, callbackHandler, sharedState, tweakedOptions);
-            log.trace("Initialised wrapped login module.");
-        } else {
-            log.trace("Skipping wrapped login module initialisation.");
-        }
-
         this.subject = subject;
         addGssCredential = Boolean.parseBoolean((String) options.get(ADD_GSS_CREDENTIAL));
         log.tracef("addGssCredential=%b", addGssCredential);
@@ -162,6 +198,65 @@ public class KerberosLoginModule implements LoginModule {
             }
             log.tracef("credentialLifetime=%d", credentialLifetime);
         }
+
+        String temp = (String) options.get(TARGET_SERVICES);
+        if (temp != null) {
+            targetServices = new ArrayList<String>();
+            for (String current : temp.split(",")) {
+                if (current.trim().length() > 0) {
+                    targetServices.add(current.trim());
+                }
+            }
+            log.tracef("targetServices=%s", targetServices);
+        }
+
+        boolean shareCredential = Boolean.parseBoolean((String) options.get(SHARE_CREDENTIAL));
+        log.tracef("shareCredential=%b", shareCredential);
+        if (shareCredential && delegationCredential != DelegationCredential.REQUIRE) {
+            if (Boolean.parseBoolean((String) options.get("useKeyTab"))) {
+                credentialCache = KerberosCredentialCache.getInstance(WRAPPED_CLASS, tweakedOptions, addGssCredential,
+                        credentialLifetime, targetServices);
+            } else {
+                log.warnf("Option '%s' requires useKeyTab=true, credentials will not be shared.", SHARE_CREDENTIAL);
+            }
+        }
+
+        if (delegationCredential != DelegationCredential.REQUIRE && credentialCache == null) {
+            /*
+             * If the setting is REQUIRE or the credentials are shared we would never have a need to call the wrapped
+             * module.
+             */
+            wrapped = SecurityActions.newInstance(WRAPPED_CLASS);
+            if (wrapped == null) {
+                throw new IllegalStateException("Unable to instantiate Krb5LoginModule to wrap!");
+            }
+
+            wrapped.initialize(subject, callbackHandler, sharedState, tweakedOptions);
+            log.trace("Initialised wrapped login module.");
+        } else {
+            log.trace("Skipping wrapped login module initialisation.");
+        }
+
+        if (options.containsKey(SERVICE_TICKET_CACHE_SIZE) && delegationCredential != DelegationCredential.IGNORE) {
+            temp = (String) options.get(SERVICE_TICKET_CACHE_SIZE);
+            int serviceTicketCacheSize = 0;
+            try {
+                serviceTicketCacheSize = Integer.parseInt(temp);
+            } catch (NumberFormatException e) {
+                log.warnf("Failed to parse: %s, using %s=%d", temp, SERVICE_TICKET_CACHE_SIZE, serviceTicketCacheSize);
+            }
+            log.tracef("serviceTicketCacheSize=%d", serviceTicketCacheSize);
+            if (serviceTicketCacheSize > 0) {
+                // The tickets are only shared by the logins of the same service principal and security domain.
+                String configurationKey = options.get(PRINCIPAL) + "|" + options.get(SECURITY_DOMAIN_OPTION);
+                serviceTicketCache = ServiceTicketCache.getInstance(configurationKey, serviceTicketCacheSize);
+            }
+        }
+
+        if (targetServices.isEmpty() == false && credentialCache == null && serviceTicketCache == null) {
+            log.warnf("Option '%s' requires '%s' or '%s', no service tickets will be obtained in the background.",
+                    TARGET_SERVICES, SHARE_CREDENTIAL, SERVICE_TICKET_CACHE_SIZE);
+        }
     }
 
     @Override
@@ -186,6 +281,12 @@ public class KerberosLoginModule implements LoginModule {
                 log.trace("No delegation credential so falling through to use wrapped login module.");
                 // If we did not have a credential fall through to the default approach.
             default:
+                if (credentialCache != null) {
+                    sharedCredentials = credentialCache.getCredentials();
+                    log.trace("Using shared credentials, login() is a success.");
+                    usingWrappedLoginModule = false;
+                    return true;
+                }
                 usingWrappedLoginModule = true;
                 return wrapped.login();
         }
@@ -201,47 +302,40 @@ public class KerberosLoginModule implements LoginModule {
 
             if (response && addGssCredential) {
                 log.trace("Adding GSSCredential to populated Subject");
-                final GSSManager manager = GSSManager.getInstance();
-                try {
-                    final GSSCredential credential = Subject.doAs(subject, new PrivilegedExceptionAction<GSSCredential>() {
-
-                        @Override
-                        public GSSCredential run() throws Exception {
-                            Set<KerberosPrincipal> principals = subject.getPrincipals(KerberosPrincipal.class);
-                            if (principals.size() < 1) {
-                                throw new LoginException("No KerberosPrincipal Found");
-                            } else if (principals.size() > 1) {
-                                throw new LoginException("Too Many KerberosPrincipals Found");
-                            }
-                            KerberosPrincipal principal = principals.iterator().next();
-                            log.tracef("Creating GSSName for Principal '%s'" , principal);
-                            GSSName name = manager.createName(principal.getName(), GSSName.NT_USER_NAME, Constants.KERBEROS_V5);
-
-                            return manager.createCredential(name, credentialLifetime, Constants.KERBEROS_V5,
-                                    GSSCredential.INITIATE_ONLY);
-                        }
-                    });
-
-                    storedCredential = wrapGssCredential ? wrapCredential(credential) : credential;
-                    SecurityActions.addPrivateCredential(subject, storedCredential);
-                    log.trace("Added private credential.");
-                    this.rawCredential = credential;
-                } catch (PrivilegedActionException e) {
-                    Exception cause = e.getException();
-                    if (cause instanceof LoginException) {
-                        throw (LoginException) cause;
-                    } else {
-                        log.debug(e);
-                        throw new LoginException("Unable to create GSSCredential");
-                    }
-                }
+                final GSSCredential credential = createCredential(subject, credentialLifetime);
+
+                storedCredential = wrapGssCredential ? wrapCredential(credential) : credential;
+                SecurityActions.addPrivateCredential(subject, storedCredential);
+                log.trace("Added private credential.");
+                this.rawCredential = credential;
+            }
+        } else if (sharedCredentials != null) {
+            log.trace("Copying shared credentials to Subject.");
+            SecurityActions.copySubjectContents(sharedCredentials.getSubject(), subject);
+            if (addGssCredential) {
+                storedCredential = sharedCredentials.getCredential();
+                SecurityActions.addPrivateCredential(subject, storedCredential);
             }
+
+            response = true;
         } else {
             log.trace("Jumping straight to mapping of delegation credential.");
             if (addGssCredential) {
                 storedCredential = wrapGssCredential ? wrapCredential(rawCredential) : rawCredential;
             }
             intermediateSubject = GSSUtil.populateSubject(subject, rawCredential, storedCredential);
+            if (serviceTicketCache != null) {
+                try {
+                    delegatedClient = rawCredential.getName().toString();
+                    cachedTickets = serviceTicketCache.addTickets(delegatedClient, subject);
+                    if (cachedTickets.isEmpty() && targetServices.isEmpty() == false) {
+                        // Obtained for the subsequent logins of the client, this Subject is not modified.
+                        serviceTicketCache.prefetch(delegatedClient, rawCredential, targetServices);
+                    }
+                } catch (GSSException e) {
+                    log.debug("Unable to obtain delegated client name, service tickets will not be cached.", e);
+                }
+            }
 
             response = true;
         }
@@ -274,7 +368,23 @@ public class KerberosLoginModule implements LoginModule {
 
                 log.trace("Passing to wrapped login module to logout.");
                 return wrapped.logout();
+            } else if (sharedCredentials != null) {
+                log.trace("Removing shared credentials from Subject.");
+                if (storedCredential != null) {
+                    SecurityActions.removePrivateCredential(subject, storedCredential);
+                }
+                // The shared credentials are only removed, they remain in use by other logins.
+                SecurityActions.removeSubjectContents(sharedCredentials.getSubject(), subject);
+
+                return true;
             } else {
+                if (delegatedClient != null) {
+                    log.trace("Caching service tickets obtained using delegation credential.");
+                    serviceTicketCache.storeTickets(delegatedClient, subject);
+                    for (KerberosTicket current : cachedTickets) {
+                        SecurityActions.removePrivateCredential(subject, current);
+                    }
+                }
                 log.trace("Removing credentials from Subject poplulated from delegation credential.");
                 GSSUtil.clearSubject(subject, intermediateSubject, storedCredential);
 
@@ -297,13 +407,51 @@ public class KerberosLoginModule implements LoginModule {
             }
         }
         rawCredential = null;
+        sharedCredentials = null;
+        delegatedClient = null;
+        cachedTickets = null;
     }
 
     private enum DelegationCredential {
         IGNORE, REQUIRE, USE;
     }
 
-    private static GSSCredential wrapCredential(final GSSCredential credential) {
+    /**
+     * Create an initiator {@link GSSCredential} for the single {@link KerberosPrincipal} of the populated {@link Subject}.
+     */
+    static GSSCredential createCredential(final Subject subject, final int credentialLifetime) throws LoginException {
+        final GSSManager manager = GSSManager.getInstance();
+        try {
+            return Subject.doAs(subject, new PrivilegedExceptionAction<GSSCredential>() {
+
+                @Override
+                public GSSCredential run() throws Exception {
+                    Set<KerberosPrincipal> principals = subject.getPrincipals(KerberosPrincipal.class);
+                    if (principals.size() < 1) {
+                        throw new LoginException("No KerberosPrincipal Found");
+                    } else if (principals.size() > 1) {
+                        throw new LoginException("Too Many KerberosPrincipals Found");
+                    }
+                    KerberosPrincipal principal = principals.iterator().next();
+                    log.tracef("Creating GSSName for Principal '%s'" , principal);
+                    GSSName name = manager.createName(principal.getName(), GSSName.NT_USER_NAME, Constants.KERBEROS_V5);
+
+                    return manager.createCredential(name, credentialLifetime, Constants.KERBEROS_V5,
+                            GSSCredential.INITIATE_ONLY);
+                }
+            });
+        } catch (PrivilegedActionException e) {
+            Exception cause = e.getException();
+            if (cause instanceof LoginException) {
+                throw (LoginException) cause;
+            } else {
+                log.debug(e);
+                throw new LoginException("Unable to create GSSCredential");
+            }
+        }
+    }
+
+    static GSSCredential wrapCredential(final GSSCredential credential) {
         return new GSSCredential() {
 
             @Override
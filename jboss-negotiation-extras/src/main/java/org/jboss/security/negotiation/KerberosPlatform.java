@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import javax.security.auth.Subject;
+import javax.security.auth.spi.LoginModule;
+
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.GSSName;
+import org.jboss.logging.Logger;
+
+import com.sun.security.auth.module.Krb5LoginModule;
+
+/**
+ * Direct links to the Kerberos classes of the JDK so the Krb5LoginModule is instantiated and GSSUtil.createSubject
+ * called without reflection where the JDK provides them, allowing them to be compiled ahead of time by GraalVM
+ * native-image and archived by class data sharing.
+ *
+ * The classes are only resolved when first used so on a JDK without them the NoClassDefFoundError is caught here and
+ * the callers fall back to locating the IBM Krb5LoginModule by name.
+ */
+final class KerberosPlatform {
+
+    private static final Logger log = Logger.getLogger(KerberosPlatform.class);
+
+    private static final Class<LoginModule> LOGIN_MODULE_CLASS = loginModuleClass();
+
+    private static final boolean CREATE_SUBJECT_AVAILABLE = createSubjectAvailable();
+
+    private KerberosPlatform() {
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<LoginModule> loginModuleClass() {
+        try {
+            return (Class<LoginModule>) (Class<?>) Krb5LoginModule.class;
+        } catch (LinkageError e) {
+            log.debug(e);
+            return null;
+        }
+    }
+
+    private static boolean createSubjectAvailable() {
+        try {
+            // Resolving the class throws NoClassDefFoundError if it is not present.
+            return com.sun.security.jgss.GSSUtil.class != null;
+        } catch (LinkageError e) {
+            log.debug(e);
+            return false;
+        }
+    }
+
+    /**
+     * @return The Krb5LoginModule of the JDK or null if it is not available.
+     */
+    static Class<LoginModule> getLoginModuleClass() {
+        return LOGIN_MODULE_CLASS;
+    }
+
+    /**
+     * @return A new instance of the specified class if it is the Krb5LoginModule of the JDK, otherwise null.
+     */
+    static LoginModule newLoginModule(final Class<LoginModule> moduleClass) {
+        return moduleClass != null && moduleClass == LOGIN_MODULE_CLASS ? new Krb5LoginModule() : null;
+    }
+
+    /**
+     * @return true if {@link #createSubject(GSSName, GSSCredential)} can be called.
+     */
+    static boolean isCreateSubjectAvailable() {
+        return CREATE_SUBJECT_AVAILABLE;
+    }
+
+    static Subject createSubject(final GSSName gssName, final GSSCredential gssCredential) throws GSSException {
+        return com.sun.security.jgss.GSSUtil.createSubject(gssName, gssCredential);
+    }
+
+}
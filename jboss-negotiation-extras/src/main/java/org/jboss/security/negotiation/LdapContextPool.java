@@ -0,0 +1,183 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+import javax.naming.ldap.LdapContext;
+
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * A pool of idle LdapContexts all bound with the same identity.
+ *
+ * The JDK connection pool does not pool GSSAPI authenticated connections so this pool is used for the search contexts
+ * of the {@link AdvancedLdapLoginModule} regardless of the authentication mechanism, a context is only ever used by one
+ * login at a time.
+ */
+final class LdapContextPool implements SharedInstances.Disposable {
+
+    private static final Logger log = Logger.getLogger(LdapContextPool.class);
+
+    private static final SharedInstances<String, LdapContextPool> INSTANCES = SharedInstances.create();
+
+    /*
+     * Idle connections are likely to be closed by the server or a firewall so are not kept indefinitely.
+     */
+    private static final long IDLE_TIMEOUT = 30000;
+
+    private final int maxIdle;
+    private final Deque<IdleContext> idle = new ArrayDeque<IdleContext>();
+    private boolean disposed;
+
+    private LdapContextPool(final int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Obtain the pool for the specified configuration, creating it if it does not already exist.
+     *
+     * @param configurationKey - The key identifying the login module configuration.
+     * @param maxIdle - The maximum number of idle contexts to retain.
+     * @return The shared pool.
+     */
+    static LdapContextPool getInstance(final String configurationKey, final int maxIdle) {
+        LdapContextPool pool = INSTANCES.get(configurationKey);
+        if (pool == null) {
+            pool = INSTANCES.register(configurationKey, new LdapContextPool(maxIdle));
+        }
+
+        return pool;
+    }
+
+    /**
+     * The context is not validated as a round trip for each login would cost as much as it saves, the caller is
+     * expected to retry on a new connection if the context fails with a communication failure.
+     *
+     * @return The most recently used idle context or null if there are no idle contexts.
+     */
+    LdapContext borrow() {
+        List<IdleContext> expired = null;
+        LdapContext result = null;
+        synchronized (idle) {
+            long now = System.currentTimeMillis();
+            Iterator<IdleContext> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                IdleContext current = it.next();
+                if (now - current.released < IDLE_TIMEOUT) {
+                    break;
+                }
+                it.remove();
+                if (expired == null) {
+                    expired = new ArrayList<IdleContext>();
+                }
+                expired.add(current);
+            }
+
+            IdleContext next = idle.pollFirst();
+            if (next != null) {
+                result = next.context;
+            }
+        }
+
+        if (expired != null) {
+            for (IdleContext current : expired) {
+                close(current.context);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Return a context to the pool, if the pool is already full the context is closed.
+     */
+    void release(final LdapContext context) {
+        synchronized (idle) {
+            if (disposed == false && idle.size() < maxIdle) {
+                idle.addFirst(new IdleContext(context, System.currentTimeMillis()));
+                return;
+            }
+        }
+
+        close(context);
+    }
+
+    /**
+     * Close all idle contexts, contexts released afterwards are closed instead of being pooled.
+     */
+    public void dispose() {
+        List<IdleContext> closing;
+        synchronized (idle) {
+            disposed = true;
+            closing = new ArrayList<IdleContext>(idle);
+            idle.clear();
+        }
+
+        for (IdleContext current : closing) {
+            close(current.context);
+        }
+    }
+
+    static void close(final LdapContext context) {
+        try {
+            context.close();
+        } catch (NamingException e) {
+            log.warn("Error closing context", e);
+        }
+    }
+
+    /**
+     * Check if a failure was caused by the connection to the server so the context should not be reused.
+     */
+    static boolean isCommunicationFailure(final Throwable failure) {
+        Throwable current = failure;
+        while (current != null) {
+            if (current instanceof CommunicationException) {
+                return true;
+            }
+            current = current.getCause();
+        }
+
+        return false;
+    }
+
+    private static final class IdleContext {
+
+        private final LdapContext context;
+        private final long released;
+
+        private IdleContext(final LdapContext context, final long released) {
+            this.context = context;
+            this.released = released;
+        }
+    }
+
+}
@@ -0,0 +1,329 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.common.SharedInstances;
+import org.jboss.security.util.MBeanServerLocator;
+
+/**
+ * Process wide counters of the directory operations and cache accesses of the LDAP login modules sharing the same
+ * metricsName, exposed through JMX as an {@link LdapMetricsMBean}.
+ *
+ * Each login records into its own {@link Cost} which is added to the totals when the login completes, at debug level
+ * the cost of each login is also logged to this category to identify the users driving the load on the directory.
+ */
+final class LdapMetrics implements LdapMetricsMBean, SharedInstances.Disposable {
+
+    private static final Logger log = Logger.getLogger(LdapMetrics.class);
+
+    private static final SharedInstances<String, LdapMetrics> INSTANCES = SharedInstances.create();
+
+    private static final String DOMAIN = "jboss.security.negotiation";
+
+    enum Operation {
+        SEARCH, READ, BIND, REFERRAL
+    }
+
+    enum Cache {
+        USER_DN("userDNCache"), UNKNOWN_USER("unknownUserCache"), BIND("bindCache"), GROUP("groupCache"),
+        PRIMARY_GROUP("primaryGroupCache"), CONTEXT_POOL("contextPool");
+
+        private final String label;
+
+        private Cache(final String label) {
+            this.label = label;
+        }
+    }
+
+    private static final int OPERATIONS = Operation.values().length;
+    private static final int CACHES = Cache.values().length;
+
+    private final LongAdder logins = new LongAdder();
+
+    // The count of each operation followed by the total time in nanoseconds.
+    private final LongAdder[] operations = adders(OPERATIONS * 2);
+
+    // The hits of each cache followed by the misses.
+    private final LongAdder[] caches = adders(CACHES * 2);
+
+    private MBeanServer server;
+    private ObjectName objectName;
+
+    private LdapMetrics() {
+    }
+
+    /**
+     * Obtain the metrics for the specified name, creating and registering them if they do not already exist.
+     *
+     * @param name - The name the metrics are registered with.
+     * @return The shared metrics.
+     */
+    static LdapMetrics getInstance(final String name) {
+        LdapMetrics metrics = INSTANCES.get(name);
+        if (metrics == null) {
+            LdapMetrics created = new LdapMetrics();
+            metrics = INSTANCES.register(name, created);
+            if (metrics == created) {
+                metrics.register(name);
+            }
+        }
+
+        return metrics;
+    }
+
+    private synchronized void register(final String name) {
+        try {
+            MBeanServer server = MBeanServerLocator.locateJBoss();
+            if (server == null) {
+                server = ManagementFactory.getPlatformMBeanServer();
+            }
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=LdapMetrics,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName) == false) {
+                server.registerMBean(new StandardMBean(this, LdapMetricsMBean.class), objectName);
+                this.server = server;
+                this.objectName = objectName;
+            }
+        } catch (Exception e) {
+            // The metrics are still collected and logged.
+            log.warn("Unable to register the LDAP metrics '" + name + "'", e);
+        }
+    }
+
+    /**
+     * Unregister the MBean, login modules still holding the metrics continue to record into them.
+     */
+    public synchronized void dispose() {
+        if (server != null) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (Exception e) {
+                log.debug("Unable to unregister the LDAP metrics " + objectName, e);
+            }
+            server = null;
+        }
+    }
+
+    /**
+     * Start recording the cost of a login.
+     */
+    Cost startLogin() {
+        return new Cost();
+    }
+
+    private static LongAdder[] adders(final int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+
+        return adders;
+    }
+
+    private long operations(final Operation operation) {
+        return operations[operation.ordinal()].sum();
+    }
+
+    private long operationTime(final Operation operation) {
+        return TimeUnit.NANOSECONDS.toMillis(operations[OPERATIONS + operation.ordinal()].sum());
+    }
+
+    private long hits(final Cache cache) {
+        return caches[cache.ordinal()].sum();
+    }
+
+    private long misses(final Cache cache) {
+        return caches[CACHES + cache.ordinal()].sum();
+    }
+
+    public long getLogins() {
+        return logins.sum();
+    }
+
+    public long getSearches() {
+        return operations(Operation.SEARCH);
+    }
+
+    public long getSearchTime() {
+        return operationTime(Operation.SEARCH);
+    }
+
+    public long getReads() {
+        return operations(Operation.READ);
+    }
+
+    public long getReadTime() {
+        return operationTime(Operation.READ);
+    }
+
+    public long getBinds() {
+        return operations(Operation.BIND);
+    }
+
+    public long getBindTime() {
+        return operationTime(Operation.BIND);
+    }
+
+    public long getReferrals() {
+        return operations(Operation.REFERRAL);
+    }
+
+    public long getUserDNCacheHits() {
+        return hits(Cache.USER_DN);
+    }
+
+    public long getUserDNCacheMisses() {
+        return misses(Cache.USER_DN);
+    }
+
+    public long getUnknownUserCacheHits() {
+        return hits(Cache.UNKNOWN_USER);
+    }
+
+    public long getBindCacheHits() {
+        return hits(Cache.BIND);
+    }
+
+    public long getBindCacheMisses() {
+        return misses(Cache.BIND);
+    }
+
+    public long getGroupCacheHits() {
+        return hits(Cache.GROUP);
+    }
+
+    public long getGroupCacheMisses() {
+        return misses(Cache.GROUP);
+    }
+
+    public long getPrimaryGroupCacheHits() {
+        return hits(Cache.PRIMARY_GROUP);
+    }
+
+    public long getPrimaryGroupCacheMisses() {
+        return misses(Cache.PRIMARY_GROUP);
+    }
+
+    public long getContextPoolHits() {
+        return hits(Cache.CONTEXT_POOL);
+    }
+
+    public long getContextPoolMisses() {
+        return misses(Cache.CONTEXT_POOL);
+    }
+
+    public void reset() {
+        logins.reset();
+        for (LongAdder current : operations) {
+            current.reset();
+        }
+        for (LongAdder current : caches) {
+            current.reset();
+        }
+    }
+
+    /**
+     * The directory cost of a single login, the role search may run on a second thread so the counters are atomic.
+     */
+    final class Cost {
+
+        private final AtomicLongArray operationCounts = new AtomicLongArray(OPERATIONS * 2);
+        private final AtomicLongArray cacheCounts = new AtomicLongArray(CACHES * 2);
+
+        private Cost() {
+        }
+
+        /**
+         * Record an operation started at the specified System.nanoTime().
+         */
+        void operation(final Operation operation, final long start) {
+            operationCounts.incrementAndGet(operation.ordinal());
+            operationCounts.addAndGet(OPERATIONS + operation.ordinal(), System.nanoTime() - start);
+        }
+
+        void cache(final Cache cache, final boolean hit) {
+            cacheCounts.incrementAndGet(hit ? cache.ordinal() : CACHES + cache.ordinal());
+        }
+
+        /**
+         * Add the cost of the completed login to the totals.
+         *
+         * @param name - The name of the user, used for the debug trace.
+         */
+        void finish(final String name) {
+            logins.increment();
+            for (int i = 0; i < operationCounts.length(); i++) {
+                long value = operationCounts.get(i);
+                if (value != 0) {
+                    operations[i].add(value);
+                }
+            }
+            for (int i = 0; i < cacheCounts.length(); i++) {
+                long value = cacheCounts.get(i);
+                if (value != 0) {
+                    caches[i].add(value);
+                }
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Directory cost for '" + name + "' " + this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("[");
+            for (Operation current : Operation.values()) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(current.name().toLowerCase(Locale.ENGLISH)).append('=').append(operationCounts.get(current.ordinal()));
+                if (current != Operation.REFERRAL) {
+                    long nanos = operationCounts.get(OPERATIONS + current.ordinal());
+                    sb.append(" (").append(TimeUnit.NANOSECONDS.toMicros(nanos)).append("us)");
+                }
+            }
+            for (Cache current : Cache.values()) {
+                long hits = cacheCounts.get(current.ordinal());
+                long misses = cacheCounts.get(CACHES + current.ordinal());
+                if (hits != 0 || misses != 0) {
+                    sb.append(", ").append(current.label).append('=').append(hits).append('/')
+                            .append(hits + misses);
+                }
+            }
+
+            return sb.append(']').toString();
+        }
+    }
+
+}
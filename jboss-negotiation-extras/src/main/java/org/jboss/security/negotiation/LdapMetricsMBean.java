@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+/**
+ * The management interface of the directory metrics collected by the LDAP login modules configured with the
+ * metricsName option, registered as jboss.security.negotiation:type=LdapMetrics,name={metricsName}.
+ *
+ * Times are the totals in milliseconds since the metrics were created or last reset.
+ */
+public interface LdapMetricsMBean {
+
+    long getLogins();
+
+    long getSearches();
+
+    long getSearchTime();
+
+    long getReads();
+
+    long getReadTime();
+
+    long getBinds();
+
+    long getBindTime();
+
+    long getReferrals();
+
+    long getUserDNCacheHits();
+
+    long getUserDNCacheMisses();
+
+    long getUnknownUserCacheHits();
+
+    long getBindCacheHits();
+
+    long getBindCacheMisses();
+
+    long getGroupCacheHits();
+
+    long getGroupCacheMisses();
+
+    long getPrimaryGroupCacheHits();
+
+    long getPrimaryGroupCacheMisses();
+
+    long getContextPoolHits();
+
+    long getContextPoolMisses();
+
+    /**
+     * Set all of the counters back to zero.
+     */
+    void reset();
+
+}
@@ -0,0 +1,178 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
+
+/**
+ * Support for reading large results a page at a time, both searches using the paged results control (RFC 2696) and
+ * attributes with more values than the server will return at once using ranged retrieval as used by Active Directory,
+ * e.g. member;range=0-1499.
+ */
+final class LdapPaging {
+
+    private static final String RANGE = ";range=";
+
+    private static final String LAST_RANGE = "-*";
+
+    private LdapPaging() {
+    }
+
+    /**
+     * Obtain a context sharing the connection of the specified context that requests the first page of results for each
+     * search, the control is not critical so servers without paging support return all results.
+     */
+    static LdapContext pagedContext(final LdapContext ctx, final int pageSize) throws NamingException {
+        return ctx.newInstance(new Control[] { pagedResultsControl(pageSize, null) });
+    }
+
+    /**
+     * Prepare the paged context for the next page of the last search.
+     *
+     * @return true if there is another page, false if all results have been returned.
+     */
+    static boolean nextPage(final LdapContext pagedContext, final int pageSize) throws NamingException {
+        byte[] cookie = null;
+        Control[] responseControls = pagedContext.getResponseControls();
+        for (int i = 0; responseControls != null && i < responseControls.length; i++) {
+            if (responseControls[i] instanceof PagedResultsResponseControl) {
+                cookie = ((PagedResultsResponseControl) responseControls[i]).getCookie();
+            }
+        }
+
+        if (cookie == null || cookie.length == 0) {
+            pagedContext.setRequestControls(new Control[] { pagedResultsControl(pageSize, null) });
+            return false;
+        }
+
+        pagedContext.setRequestControls(new Control[] { pagedResultsControl(pageSize, cookie) });
+        return true;
+    }
+
+    private static Control pagedResultsControl(final int pageSize, final byte[] cookie) throws NamingException {
+        try {
+            return new PagedResultsControl(pageSize, cookie, Control.NONCRITICAL);
+        } catch (IOException e) {
+            NamingException ne = new NamingException("Unable to create paged results control");
+            ne.setRootCause(e);
+            throw ne;
+        }
+    }
+
+    /**
+     * Pass each value of the attribute to the handler, where the server returned a range of the values the remaining
+     * ranges are retrieved one at a time so only a single range is held in memory.
+     *
+     * @param ctx - The context to retrieve further ranges with.
+     * @param dn - The DN of the entry the attributes were obtained from.
+     * @param attributes - The attributes already obtained for the entry, may be null.
+     * @param attributeID - The ID of the attribute without any range option.
+     * @param handler - The handler to receive each value.
+     */
+    static <E extends Exception> void forEachValue(final LdapContext ctx, final String dn, final Attributes attributes,
+            final String attributeID, final ValueHandler<E> handler) throws NamingException, E {
+        if (attributes == null) {
+            return;
+        }
+
+        Attribute current = attributes.get(attributeID);
+        if (current == null) {
+            current = rangedAttribute(attributes, attributeID);
+        }
+
+        while (current != null) {
+            for (int i = 0; i < current.size(); i++) {
+                handler.value((String) current.get(i));
+            }
+
+            int nextStart = nextRangeStart(current.getID());
+            if (nextStart < 0) {
+                return;
+            }
+
+            String nextID = attributeID + RANGE + nextStart + LAST_RANGE;
+            current = rangedAttribute(ctx.getAttributes(dn, new String[] { nextID }), attributeID);
+        }
+    }
+
+    private static Attribute rangedAttribute(final Attributes attributes, final String attributeID) throws NamingException {
+        String prefix = (attributeID + RANGE).toLowerCase(Locale.ENGLISH);
+        NamingEnumeration<String> ids = attributes.getIDs();
+        try {
+            while (ids.hasMore()) {
+                String id = ids.next();
+                if (id.toLowerCase(Locale.ENGLISH).startsWith(prefix)) {
+                    return attributes.get(id);
+                }
+            }
+        } finally {
+            ids.close();
+        }
+
+        return null;
+    }
+
+    /**
+     * Find the first value of the range following the range of the attribute ID.
+     *
+     * @return The start of the next range or -1 if this is the last range or the attribute is not ranged.
+     */
+    static int nextRangeStart(final String rangedID) {
+        int rangeStart = rangedID.toLowerCase(Locale.ENGLISH).indexOf(RANGE);
+        if (rangeStart < 0 || rangedID.endsWith(LAST_RANGE)) {
+            return -1;
+        }
+
+        String range = rangedID.substring(rangeStart + RANGE.length());
+        int separator = range.indexOf('-');
+        if (separator < 0) {
+            return -1;
+        }
+
+        try {
+            return Integer.parseInt(range.substring(separator + 1)) + 1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Receives the values of an attribute as they are read.
+     */
+    interface ValueHandler<E extends Exception> {
+
+        void value(final String value) throws E;
+
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.NamingException;
+import javax.security.auth.Subject;
+import javax.security.auth.login.LoginException;
+
+/**
+ * Runs directory requests that do not depend on each other concurrently so that a login waits for the slowest request
+ * rather than the sum of them.
+ *
+ * Requests issued on contexts obtained from {@link javax.naming.ldap.LdapContext#newInstance} share the connection of
+ * the original context and are multiplexed over it by message ID. Where all threads are busy the request is run by the
+ * calling thread so the pipeline never queues work behind other logins.
+ */
+final class LdapPipeline {
+
+    private static final int MAX_THREADS = 64;
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(0, MAX_THREADS, KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Negotiation LDAP Pipeline " + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private LdapPipeline() {
+    }
+
+    /**
+     * Submit a request to run concurrently with the calling thread, the request runs as the Subject of the calling thread
+     * so that any new connection, e.g. to follow a referral, is established with the same identity.
+     */
+    static <T> Future<T> submit(final Callable<T> request) {
+        final Subject subject = Subject.getSubject(AccessController.getContext());
+        return EXECUTOR.submit(new Callable<T>() {
+
+            public T call() throws Exception {
+                if (subject == null) {
+                    return request.call();
+                }
+
+                try {
+                    return Subject.doAs(subject, new PrivilegedExceptionAction<T>() {
+
+                        public T run() throws Exception {
+                            return request.call();
+                        }
+                    });
+                } catch (PrivilegedActionException e) {
+                    throw e.getException();
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait for the result of a request, failures of the request are reported as they would have been had the request run
+     * on the calling thread.
+     */
+    static <T> T await(final Future<T> pending) throws NamingException, LoginException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return pending.get();
+                } catch (InterruptedException e) {
+                    // The request is already in progress on a shared connection, it is not abandoned part way.
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NamingException) {
+                throw (NamingException) cause;
+            } else if (cause instanceof LoginException) {
+                throw (LoginException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            LoginException le = new LoginException("Directory request failed");
+            le.initCause(cause);
+            throw le;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * A process wide cache of the DN of the group with each objectSid found by the primary group search of the
+ * {@link AdvancedADLoginModule}, as most users share the same primary group the search is rarely needed.
+ */
+final class PrimaryGroupCache implements DirectoryChangeTracker.ChangeListener {
+
+    private static final SharedInstances<String, PrimaryGroupCache> INSTANCES = SharedInstances.create();
+
+    /*
+     * Only groups used as a primary group are cached and there are few of these in a domain.
+     */
+    private static final int MAX_SIZE = 1000;
+
+    private final ExpiringCache<String, CachedDN> groupDNs;
+
+    private PrimaryGroupCache(final long timeout) {
+        groupDNs = new ExpiringCache<String, CachedDN>(timeout, MAX_SIZE);
+    }
+
+    /**
+     * Obtain the cache for the specified configuration, creating it if it does not already exist.
+     *
+     * @param configurationKey - The key identifying the login module configuration.
+     * @param timeout - The time in milliseconds group DNs are cached for.
+     * @return The shared cache.
+     */
+    static PrimaryGroupCache getInstance(final String configurationKey, final long timeout) {
+        PrimaryGroupCache cache = INSTANCES.get(configurationKey);
+        if (cache == null) {
+            cache = INSTANCES.register(configurationKey, new PrimaryGroupCache(timeout));
+        }
+
+        return cache;
+    }
+
+    String get(final byte[] objectSid) {
+        CachedDN cached = groupDNs.get(toString(objectSid));
+        return cached != null ? cached.getDN() : null;
+    }
+
+    void put(final byte[] objectSid, final String groupDN) {
+        groupDNs.put(toString(objectSid), new CachedDN(groupDN));
+    }
+
+    public void entryChanged(final String dn) {
+        groupDNs.removeValue(new CachedDN(dn));
+    }
+
+    public void allChanged() {
+        groupDNs.clear();
+    }
+
+    /**
+     * Convert a binary objectSid to the string form, e.g. S-1-5-21-3623811015-3361044348-30300820-513.
+     */
+    static String toString(final byte[] objectSid) {
+        StringBuilder sb = new StringBuilder("S-");
+        sb.append(objectSid[0] & 0xFF);
+
+        long authority = 0;
+        for (int i = 2; i < 8; i++) {
+            authority = (authority << 8) | (objectSid[i] & 0xFF);
+        }
+        sb.append('-').append(authority);
+
+        int subAuthorities = objectSid[1] & 0xFF;
+        for (int i = 0; i < subAuthorities; i++) {
+            int offset = 8 + i * 4;
+            long subAuthority = (objectSid[offset] & 0xFF) | (objectSid[offset + 1] & 0xFF) << 8
+                    | (objectSid[offset + 2] & 0xFF) << 16 | ((long) (objectSid[offset + 3] & 0xFF)) << 24;
+            sb.append('-').append(subAuthority);
+        }
+
+        return sb.toString();
+    }
+
+}
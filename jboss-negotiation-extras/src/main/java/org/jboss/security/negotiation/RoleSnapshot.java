@@ -0,0 +1,404 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A read only, memory mapped snapshot of the roles of each principal as exported from the directory.
+ *
+ * The file is laid out as: -
+ *  - A header of the magic number, version, role count, slot count and principal count.
+ *  - The table of role names, each role name is stored once and referenced by index.
+ *  - An open addressing hash table of slots holding the offset of each principal record.
+ *  - The principal records, each the hash, name and the indexes of the roles of the principal.
+ *
+ * Principal names are matched case insensitively.
+ */
+final class RoleSnapshot {
+
+    private static final Logger log = Logger.getLogger(RoleSnapshot.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x4A4E5253;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 20;
+
+    private static final String[] NO_ROLES = new String[0];
+
+    private static final ConcurrentMap<Path, Reference> REFERENCES = new ConcurrentHashMap<Path, Reference>();
+
+    private final ByteBuffer buffer;
+    private final String[] roleNames;
+    private final int slotCount;
+    private final int slotsOffset;
+    private final int principalCount;
+
+    private RoleSnapshot(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a role snapshot file.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported role snapshot version " + buffer.getInt(4));
+        }
+        int roleCount = buffer.getInt(8);
+        slotCount = buffer.getInt(12);
+        principalCount = buffer.getInt(16);
+        if (slotCount <= 0 || Integer.bitCount(slotCount) != 1) {
+            throw new IOException("Invalid slot count " + slotCount);
+        }
+        if (roleCount < 0 || principalCount < 0 || principalCount > slotCount) {
+            throw new IOException("Invalid role count " + roleCount + " or principal count " + principalCount);
+        }
+
+        roleNames = new String[roleCount];
+        int position = HEADER_LENGTH;
+        for (int i = 0; i < roleCount; i++) {
+            checkBounds(position, 2);
+            int length = buffer.getShort(position) & 0xFFFF;
+            position += 2;
+            checkBounds(position, length);
+            roleNames[i] = new String(bytes(position, length), UTF_8).intern();
+            position += length;
+        }
+        slotsOffset = position;
+        checkBounds(slotsOffset, (long) slotCount << 2);
+        checkRecords();
+    }
+
+    /**
+     * Check every slot references a complete record within the file so that a truncated or corrupt snapshot is rejected
+     * as it is opened instead of failing logins.
+     */
+    private void checkRecords() throws IOException {
+        int recordsOffset = slotsOffset + (slotCount << 2);
+        for (int i = 0; i < slotCount; i++) {
+            int recordOffset = buffer.getInt(slotsOffset + (i << 2));
+            if (recordOffset == 0) {
+                continue;
+            }
+            if (recordOffset < recordsOffset) {
+                throw new IOException("Invalid record offset " + recordOffset + " in slot " + i);
+            }
+            checkBounds(recordOffset, 6);
+            int position = recordOffset + 6 + (buffer.getShort(recordOffset + 4) & 0xFFFF);
+            checkBounds(position, 4);
+            int count = buffer.getInt(position);
+            position += 4;
+            if (count < 0) {
+                throw new IOException("Invalid role count " + count + " for record at " + recordOffset);
+            }
+            checkBounds(position, (long) count << 2);
+            for (int j = 0; j < count; j++) {
+                int index = buffer.getInt(position + (j << 2));
+                if (index < 0 || index >= roleNames.length) {
+                    throw new IOException("Invalid role index " + index + " for record at " + recordOffset);
+                }
+            }
+        }
+    }
+
+    private void checkBounds(final int offset, final long length) throws IOException {
+        if (offset + length > buffer.limit()) {
+            throw new IOException("Role snapshot truncated, " + length + " bytes at " + offset + " exceed the length "
+                    + buffer.limit());
+        }
+    }
+
+    /**
+     * Open and map the snapshot file.
+     *
+     * @param file - The snapshot file.
+     * @return The mapped snapshot.
+     * @throws IOException - If the file can not be read or is not a valid snapshot.
+     */
+    static RoleSnapshot open(final Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            // The mapping remains valid after the channel is closed and after the file is replaced.
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new RoleSnapshot(mapped);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Obtain the shared reference to the snapshot at the specified location.
+     */
+    static Reference getReference(final Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        Reference reference = REFERENCES.get(key);
+        if (reference == null) {
+            reference = new Reference(key);
+            Reference existing = REFERENCES.putIfAbsent(key, reference);
+            if (existing != null) {
+                reference = existing;
+            }
+        }
+
+        return reference;
+    }
+
+    /**
+     * Obtain the roles of a principal.
+     *
+     * @param principal - The name of the principal.
+     * @return The names of the roles of the principal or null if the principal is not in the snapshot.
+     */
+    String[] getRoles(final String principal) {
+        byte[] name = normalize(principal).getBytes(UTF_8);
+        int hash = hash(name);
+        int mask = slotCount - 1;
+        for (int i = 0; i < slotCount; i++) {
+            int recordOffset = buffer.getInt(slotsOffset + (((hash + i) & mask) << 2));
+            if (recordOffset == 0) {
+                return null;
+            }
+            if (buffer.getInt(recordOffset) == hash && matches(recordOffset + 4, name)) {
+                int position = recordOffset + 6 + name.length;
+                int count = buffer.getInt(position);
+                position += 4;
+                if (count == 0) {
+                    return NO_ROLES;
+                }
+                String[] roles = new String[count];
+                for (int j = 0; j < count; j++) {
+                    roles[j] = roleNames[buffer.getInt(position)];
+                    position += 4;
+                }
+                return roles;
+            }
+        }
+
+        return null;
+    }
+
+    int size() {
+        return principalCount;
+    }
+
+    private boolean matches(final int offset, final byte[] name) {
+        if ((buffer.getShort(offset) & 0xFFFF) != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (buffer.get(offset + 2 + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] bytes(final int offset, final int length) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = buffer.get(offset + i);
+        }
+        return result;
+    }
+
+    /**
+     * Write a new snapshot, the file is written alongside the target and then moved into place so that readers only ever
+     * see a complete file.
+     *
+     * @param file - The location of the snapshot.
+     * @param principalRoles - The roles of each principal.
+     * @throws IOException - If the snapshot can not be written.
+     */
+    static void write(final Path file, final Map<String, ? extends Collection<String>> principalRoles) throws IOException {
+        Map<String, Integer> roleIndexes = new HashMap<String, Integer>();
+        ByteArrayDataOutput roleTable = new ByteArrayDataOutput();
+        Map<String, byte[]> names = new HashMap<String, byte[]>(principalRoles.size());
+        for (Map.Entry<String, ? extends Collection<String>> current : principalRoles.entrySet()) {
+            names.put(current.getKey(), checkedBytes(normalize(current.getKey())));
+            for (String role : current.getValue()) {
+                if (roleIndexes.containsKey(role) == false) {
+                    roleIndexes.put(role, Integer.valueOf(roleIndexes.size()));
+                    byte[] roleBytes = checkedBytes(role);
+                    roleTable.data.writeShort(roleBytes.length);
+                    roleTable.data.write(roleBytes);
+                }
+            }
+        }
+
+        // Keep the table at most half full so probe sequences remain short.
+        int slotCount = Integer.highestOneBit(Math.max(principalRoles.size(), 1) * 2 - 1) << 1;
+        int[] slots = new int[slotCount];
+        int recordOffset = HEADER_LENGTH + roleTable.size() + (slotCount << 2);
+        ByteArrayDataOutput records = new ByteArrayDataOutput();
+        for (Map.Entry<String, ? extends Collection<String>> current : principalRoles.entrySet()) {
+            byte[] name = names.get(current.getKey());
+            int hash = hash(name);
+            int slot = hash & (slotCount - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            slots[slot] = recordOffset + records.size();
+
+            records.data.writeInt(hash);
+            records.data.writeShort(name.length);
+            records.data.write(name);
+            records.data.writeInt(current.getValue().size());
+            for (String role : current.getValue()) {
+                records.data.writeInt(roleIndexes.get(role).intValue());
+            }
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(roleIndexes.size());
+                out.writeInt(slotCount);
+                out.writeInt(principalRoles.size());
+                roleTable.writeTo(out);
+                for (int current : slots) {
+                    out.writeInt(current);
+                }
+                records.writeTo(out);
+            } finally {
+                out.close();
+            }
+
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static byte[] checkedBytes(final String value) throws IOException {
+        byte[] result = value.getBytes(UTF_8);
+        if (result.length > 0xFFFF) {
+            throw new IOException("Value too long for role snapshot '" + value + "'");
+        }
+        return result;
+    }
+
+    private static String normalize(final String principal) {
+        return principal.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static int hash(final byte[] value) {
+        int h = 1;
+        for (byte current : value) {
+            h = 31 * h + current;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static final class ByteArrayDataOutput {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(bytes);
+
+        int size() {
+            return data.size();
+        }
+
+        void writeTo(final OutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+    }
+
+    /**
+     * A shared reference to the most recent snapshot at a given location, the file is checked for modification at most
+     * once a second and re-mapped if it has been replaced.
+     */
+    static final class Reference {
+
+        private static final long CHECK_INTERVAL = 1000;
+
+        private final Path file;
+        private volatile RoleSnapshot current;
+        private volatile long lastModified = -1;
+        private volatile long lastChecked;
+
+        private Reference(final Path file) {
+            this.file = file;
+        }
+
+        /**
+         * @return The current snapshot or null if no snapshot is available.
+         */
+        RoleSnapshot get() {
+            long now = System.currentTimeMillis();
+            if (now - lastChecked >= CHECK_INTERVAL) {
+                refresh(now);
+            }
+
+            return current;
+        }
+
+        private synchronized void refresh(final long now) {
+            if (now - lastChecked < CHECK_INTERVAL) {
+                return;
+            }
+            lastChecked = now;
+            try {
+                if (Files.exists(file) == false) {
+                    if (current != null) {
+                        log.debugf("Role snapshot '%s' removed.", file);
+                    }
+                    current = null;
+                    lastModified = -1;
+                    return;
+                }
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                if (modified != lastModified) {
+                    current = open(file);
+                    lastModified = modified;
+                    log.debugf("Loaded role snapshot '%s' containing %d principals.", file, current.size());
+                }
+            } catch (IOException e) {
+                log.warn("Unable to load role snapshot '" + file + "'", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.Subject;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.Configuration;
+
+/**
+ * Utility to be called from the command line, or scheduled, to export the roles of all users to the role snapshot file
+ * used by the roleSnapshotFile option of the {@link AdvancedLdapLoginModule}.
+ *
+ * The directory is searched using the options of the first {@link AdvancedLdapLoginModule} in the named security domain,
+ * the new snapshot atomically replaces any existing snapshot so it can be rebuilt while logins are in progress.
+ *
+ * Usage: RoleSnapshotExport &lt;security domain&gt; &lt;principal attribute&gt; &lt;snapshot file&gt;
+ */
+public class RoleSnapshotExport {
+
+    /**
+     * Utility entry point.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.err.println("Usage: RoleSnapshotExport <security domain> <principal attribute> <snapshot file>");
+            System.exit(1);
+        }
+
+        AppConfigurationEntry[] entries = Configuration.getConfiguration().getAppConfigurationEntry(args[0]);
+        AdvancedLdapLoginModule loginModule = null;
+        for (int i = 0; entries != null && i < entries.length && loginModule == null; i++) {
+            Class<?> loginModuleClass = Class.forName(entries[i].getLoginModuleName());
+            if (AdvancedLdapLoginModule.class.isAssignableFrom(loginModuleClass)) {
+                loginModule = (AdvancedLdapLoginModule) loginModuleClass.newInstance();
+                loginModule.initialize(new Subject(), null, new HashMap<String, Object>(), entries[i].getOptions());
+            }
+        }
+        if (loginModule == null) {
+            System.err.println("No AdvancedLdapLoginModule configured for '" + args[0] + "'");
+            System.exit(1);
+        }
+
+        Map<String, Set<String>> roles = loginModule.exportRoles(args[1]);
+        RoleSnapshot.write(Paths.get(args[2]), roles);
+
+        System.out.println("Exported roles of " + roles.size() + " principals to " + args[2]);
+    }
+
+}
@@ -22,8 +22,6 @@
 
 package org.jboss.security.negotiation;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
@@ -47,9 +45,6 @@ class SecurityActions {
 
     private static final Logger log = Logger.getLogger(DelegationSecurityActions.class);
 
-    private static final String SUN_GSSUTIL = "com.sun.security.jgss.GSSUtil";
-    private static final String CREATE_SUBJECT = "createSubject";
-
     static Class<LoginModule> loadLoginModuleClass(final String className) {
         return loginModuleActions().loadLoginModuleClass(className);
     }
@@ -66,12 +61,8 @@ class SecurityActions {
         loginModuleActions().removePrivateCredential(subject, credential);
     }
 
-    static Method getCreateSubjectMethod() {
-        return loginModuleActions().getCreateSubjectMethod();
-    }
-
-    static Subject invokeCreateSubject(final Method createSubjectMethod, final GSSName gssName, final GSSCredential gssCredential) throws GSSException {
-        return loginModuleActions().invokeCreateSubject(createSubjectMethod, gssName, gssCredential);
+    static Subject invokeCreateSubject(final GSSName gssName, final GSSCredential gssCredential) throws GSSException {
+        return loginModuleActions().invokeCreateSubject(gssName, gssCredential);
     }
 
     static void copySubjectContents(final Subject from, final Subject to) {
@@ -96,9 +87,7 @@ class SecurityActions {
 
         void removePrivateCredential(final Subject subject, final Object credential);
 
-        Method getCreateSubjectMethod();
-
-        Subject invokeCreateSubject(final Method createSubjectMethod, final GSSName gssName, final GSSCredential gssCredential) throws GSSException;
+        Subject invokeCreateSubject(final GSSName gssName, final GSSCredential gssCredential) throws GSSException;
 
         void copySubjectContents(final Subject from, final Subject to);
 
@@ -123,6 +112,10 @@ class SecurityActions {
 
             @Override
             public LoginModule newInstance(Class<LoginModule> moduleClass) {
+                LoginModule linked = KerberosPlatform.newLoginModule(moduleClass);
+                if (linked != null) {
+                    return linked;
+                }
                 try {
                     return moduleClass.newInstance();
                 } catch (InstantiationException e) {
@@ -147,43 +140,8 @@ class SecurityActions {
             }
 
             @Override
-            @SuppressWarnings({ "rawtypes", "unchecked" })
-            public Method getCreateSubjectMethod() {
-                try {
-                    Class sunGssUtil = GSSUtil.class.getClassLoader().loadClass(SUN_GSSUTIL);
-                    return sunGssUtil.getMethod(CREATE_SUBJECT, GSSName.class, GSSCredential.class);
-                } catch (ClassNotFoundException e) {
-                    log.debug(e);
-                    return null;
-                } catch (NoSuchMethodException e) {
-                    log.debug(e);
-                    return null;
-                } catch (SecurityException e) {
-                    log.debug(e);
-                    return null;
-                }
-
-            }
-
-            @Override
-            public Subject invokeCreateSubject(Method createSubjectMethod, GSSName gssName, GSSCredential gssCredential) throws GSSException {
-
-                try {
-                    return (Subject)createSubjectMethod.invoke(null, gssName, gssCredential);
-                } catch (IllegalAccessException e) {
-                    log.debug(e);
-                    return null;
-                } catch (IllegalArgumentException e) {
-                    log.debug(e);
-                    return null;
-                } catch (InvocationTargetException e) {
-                    Throwable cause = e.getCause();
-                    if (cause instanceof GSSException) {
-                        throw (GSSException) cause;
-                    }
-                    log.debug(e);
-                    return null;
-                }
+            public Subject invokeCreateSubject(GSSName gssName, GSSCredential gssCredential) throws GSSException {
+                return KerberosPlatform.createSubject(gssName, gssCredential);
             }
 
             @Override
@@ -209,14 +167,6 @@ class SecurityActions {
 
         static final LoginModuleActions PRIVILEGED = new LoginModuleActions() {
 
-            private PrivilegedAction<Method> GET_CREATE_SUBJECT_METHOD_ACTION = new PrivilegedAction<Method>() {
-
-                @Override
-                public Method run() {
-                    return NON_PRIVILEGED.getCreateSubjectMethod();
-                }
-            };
-
             @Override
             public Class<LoginModule> loadLoginModuleClass(final String className) {
                 return AccessController.doPrivileged(new PrivilegedAction<Class<LoginModule>>() {
@@ -264,19 +214,14 @@ class SecurityActions {
             }
 
             @Override
-            public Method getCreateSubjectMethod() {
-                return AccessController.doPrivileged(GET_CREATE_SUBJECT_METHOD_ACTION);
-            }
-
-            @Override
-            public Subject invokeCreateSubject(final Method createSubjectMethod, final GSSName gssName,
-                    final GSSCredential gssCredential) throws GSSException {
+            public Subject invokeCreateSubject(final GSSName gssName, final GSSCredential gssCredential)
+                    throws GSSException {
                 try {
                     return AccessController.doPrivileged(new PrivilegedExceptionAction<Subject>() {
 
                         @Override
                         public Subject run() throws Exception {
-                            return NON_PRIVILEGED.invokeCreateSubject(createSubjectMethod, gssName, gssCredential);
+                            return NON_PRIVILEGED.invokeCreateSubject(gssName, gssCredential);
                         }
                     });
                 } catch (PrivilegedActionException e) {
@@ -0,0 +1,231 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosTicket;
+
+import org.ietf.jgss.GSSCredential;
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * A process wide cache of the service tickets obtained using delegated credentials, held for each client principal
+ * and target service until the ticket expires.
+ *
+ * When a GSSContext is initiated under a Subject the JDK first looks for a service ticket in the private credentials of
+ * the Subject and adds any ticket it obtains from the KDC to them, however each login populates a new Subject from the
+ * delegated credential so without this cache each call to the same service repeats the TGS exchange.
+ */
+final class ServiceTicketCache implements SharedInstances.Disposable {
+
+    private static final Logger log = Logger.getLogger(ServiceTicketCache.class);
+
+    private static final SharedInstances<String, ServiceTicketCache> INSTANCES = SharedInstances.create();
+
+    private static final int MAX_TARGETS = 32;
+
+    // Tickets this close to expiry are not handed out as they could expire before the service receives them.
+    private static final long MIN_REMAINING = TimeUnit.SECONDS.toMillis(30);
+
+    private static final String TGS_PREFIX = "krbtgt/";
+
+    private final ExpiringCache<String, Map<String, KerberosTicket>> clients;
+
+    // The clients service tickets are currently being obtained for in the background.
+    private final Set<String> prefetching = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private ServiceTicketCache(final int maxSize) {
+        clients = new ExpiringCache<String, Map<String, KerberosTicket>>(0, maxSize);
+    }
+
+    /**
+     * Obtain the cache holding the tickets of up to maxSize clients, creating it if it does not already exist.
+     *
+     * @param configurationKey - The key identifying the login module configuration, caches are not shared between
+     *        configurations as the tickets were delegated to a specific service.
+     * @param maxSize - The maximum number of clients to hold tickets for.
+     * @return The shared cache.
+     */
+    static ServiceTicketCache getInstance(final String configurationKey, final int maxSize) {
+        String key = configurationKey + "|" + maxSize;
+        ServiceTicketCache cache = INSTANCES.get(key);
+        if (cache == null) {
+            cache = INSTANCES.register(key, new ServiceTicketCache(maxSize));
+        }
+
+        return cache;
+    }
+
+    /**
+     * Add the cached service tickets of the client to the private credentials of the Subject.
+     *
+     * @param client - The name of the client principal.
+     * @param subject - The Subject populated from the delegated credential of the client.
+     * @return The tickets that were added so they can be removed again on logout.
+     */
+    Set<KerberosTicket> addTickets(final String client, final Subject subject) {
+        Map<String, KerberosTicket> targets = clients.get(client);
+        if (targets == null) {
+            return Collections.emptySet();
+        }
+
+        Set<KerberosTicket> added = new HashSet<KerberosTicket>();
+        long now = System.currentTimeMillis();
+        synchronized (targets) {
+            Iterator<KerberosTicket> it = targets.values().iterator();
+            while (it.hasNext()) {
+                KerberosTicket current = it.next();
+                if (isUsable(current, now)) {
+                    added.add(current);
+                } else {
+                    it.remove();
+                }
+            }
+        }
+        for (KerberosTicket current : added) {
+            SecurityActions.addPrivateCredential(subject, current);
+        }
+        log.tracef("Added %d cached service tickets for '%s'", added.size(), client);
+
+        return added;
+    }
+
+    /**
+     * Store the service tickets of the client obtained while the Subject was in use.
+     *
+     * @param client - The name of the client principal.
+     * @param subject - The Subject populated from the delegated credential of the client.
+     */
+    void storeTickets(final String client, final Subject subject) {
+        long now = System.currentTimeMillis();
+        Map<String, KerberosTicket> targets = null;
+        for (KerberosTicket current : subject.getPrivateCredentials(KerberosTicket.class)) {
+            if (isUsable(current, now) == false || client.equals(current.getClient().getName()) == false) {
+                continue;
+            }
+            String server = current.getServer().getName();
+            if (server.startsWith(TGS_PREFIX)) {
+                continue;
+            }
+
+            if (targets == null) {
+                targets = getTargets(client);
+            }
+            synchronized (targets) {
+                KerberosTicket existing = targets.get(server);
+                if (existing == null || existing.getEndTime().before(current.getEndTime())) {
+                    targets.put(server, current);
+                    log.tracef("Cached service ticket for '%s' to '%s'", client, server);
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtain the service tickets of the client for the targets in the background and cache them, subsequent logins of
+     * the client then find them through {@link #addTickets(String, Subject)}.
+     *
+     * The tickets are obtained into a Subject of their own, nothing is started if the tickets of the client are already
+     * being obtained.
+     *
+     * @param client - The name of the client principal.
+     * @param credential - The delegated credential of the client.
+     * @param targets - The service principal names to obtain tickets for.
+     */
+    void prefetch(final String client, final GSSCredential credential, final List<String> targets) {
+        if (prefetching.add(client) == false) {
+            return;
+        }
+        boolean started = false;
+        try {
+            started = ServiceTicketPrefetch.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        Subject subject = new Subject();
+                        int fetched = ServiceTicketPrefetch.fetch(subject, credential, targets);
+                        storeTickets(client, subject);
+                        log.debugf("Obtained %d of %d service tickets for '%s'", fetched, targets.size(), client);
+                    } finally {
+                        prefetching.remove(client);
+                    }
+                }
+            });
+        } finally {
+            if (started == false) {
+                prefetching.remove(client);
+            }
+        }
+    }
+
+    /**
+     * Discard all cached tickets, the tickets are not destroyed as Subjects they were added to may still be in use.
+     */
+    public void dispose() {
+        clients.clear();
+    }
+
+    private Map<String, KerberosTicket> getTargets(final String client) {
+        synchronized (clients) {
+            Map<String, KerberosTicket> targets = clients.get(client);
+            if (targets == null) {
+                // Access ordered so the targets the client has not used for longest are discarded first.
+                targets = new LinkedHashMap<String, KerberosTicket>(16, 0.75f, true) {
+
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, KerberosTicket> eldest) {
+                        return size() > MAX_TARGETS;
+                    }
+                };
+                clients.put(client, targets);
+            }
+
+            return targets;
+        }
+    }
+
+    private static boolean isUsable(final KerberosTicket ticket, final long now) {
+        if (ticket.isDestroyed()) {
+            return false;
+        }
+        Date endTime = ticket.getEndTime();
+
+        return endTime != null && endTime.getTime() - now > MIN_REMAINING;
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.security.PrivilegedExceptionAction;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Subject;
+
+import org.ietf.jgss.GSSContext;
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.GSSManager;
+import org.ietf.jgss.GSSName;
+import org.ietf.jgss.Oid;
+import org.jboss.logging.Logger;
+
+/**
+ * Obtains the service tickets for a list of target services in the background so the first call to each service does
+ * not wait for the TGS exchange.
+ *
+ * A context is initiated to each target within Subject.doAs, the JDK adds the service ticket it obtains to the private
+ * credentials of the Subject where it is found again by subsequent calls, the token produced is discarded. The tickets
+ * are always obtained into a Subject of their own as the private credentials of a Subject in use by a login must not be
+ * modified by another thread, they are then published through the {@link KerberosCredentialCache} or the
+ * {@link ServiceTicketCache}.
+ */
+final class ServiceTicketPrefetch {
+
+    private static final Logger log = Logger.getLogger(ServiceTicketPrefetch.class);
+
+    private static final Oid KRB5_PRINCIPAL_NAME;
+
+    static {
+        try {
+            KRB5_PRINCIPAL_NAME = new Oid("1.2.840.113554.1.2.2.1");
+        } catch (GSSException e) {
+            throw new IllegalStateException("Unable to initialise Oid", e);
+        }
+    }
+
+    private static final int MAX_THREADS = 4;
+
+    private static final int MAX_QUEUED = 256;
+
+    /*
+     * Bounded so a burst of new delegated clients does not start a thread each, the idle threads exit after a minute.
+     */
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60,
+            TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUED), new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Kerberos Service Ticket Prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private ServiceTicketPrefetch() {
+    }
+
+    /**
+     * Run the task obtaining service tickets in the background, the task must only modify a Subject no login is using.
+     *
+     * @return false if the task was not accepted as too many tasks are already waiting to run.
+     */
+    static boolean execute(final Runnable task) {
+        try {
+            EXECUTOR.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.debug("Too many service ticket prefetches waiting, skipping prefetch.");
+            return false;
+        }
+    }
+
+    /**
+     * Obtain the service tickets for the targets on the calling thread, failures are logged and the remaining targets
+     * are still attempted.
+     *
+     * @param subject - The Subject to add the service tickets to.
+     * @param credential - The credential to use or null to use the Kerberos credentials of the Subject.
+     * @param targets - The service principal names e.g. HTTP/www.example.com@EXAMPLE.COM or HTTP@www.example.com
+     * @return The number of targets a ticket was obtained for.
+     */
+    static int fetch(final Subject subject, final GSSCredential credential, final List<String> targets) {
+        int fetched = 0;
+        for (final String current : targets) {
+            try {
+                Subject.doAs(subject, new PrivilegedExceptionAction<Void>() {
+
+                    @Override
+                    public Void run() throws GSSException {
+                        initiate(credential, current);
+                        return null;
+                    }
+                });
+                fetched++;
+                log.tracef("Obtained service ticket for '%s'", current);
+            } catch (Exception e) {
+                log.debug("Unable to obtain service ticket for '" + current + "'", e);
+            }
+        }
+
+        return fetched;
+    }
+
+    private static void initiate(final GSSCredential credential, final String target) throws GSSException {
+        GSSManager manager = GSSManager.getInstance();
+        Oid nameType = target.indexOf('/') > 0 ? KRB5_PRINCIPAL_NAME : GSSName.NT_HOSTBASED_SERVICE;
+        GSSName name = manager.createName(target, nameType, Constants.KERBEROS_V5);
+        GSSContext context = manager.createContext(name, Constants.KERBEROS_V5, credential, GSSContext.DEFAULT_LIFETIME);
+        try {
+            context.requestMutualAuth(false);
+            context.initSecContext(new byte[0], 0, 0);
+        } finally {
+            context.dispose();
+        }
+    }
+
+}
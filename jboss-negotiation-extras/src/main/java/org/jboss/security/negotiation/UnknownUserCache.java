@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Locale;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * A process wide cache of the usernames the user search of the {@link AdvancedLdapLoginModule} found no match for, so
+ * repeated attempts with usernames that do not exist can be rejected without searching the directory.
+ *
+ * Entries are only held for a short time and the whole cache is discarded on any change to the directory so that a
+ * newly created user is not rejected.
+ */
+final class UnknownUserCache implements DirectoryChangeTracker.ChangeListener {
+
+    private static final SharedInstances<String, UnknownUserCache> INSTANCES = SharedInstances.create();
+
+    private final ExpiringCache<String, Boolean> unknown;
+
+    private UnknownUserCache(final long timeout, final int maxSize) {
+        unknown = new ExpiringCache<String, Boolean>(timeout, maxSize);
+    }
+
+    /**
+     * Obtain the cache for the specified configuration, creating it if it does not already exist.
+     *
+     * @param configurationKey - The key identifying the login module configuration.
+     * @param timeout - The time in milliseconds unknown users are remembered for.
+     * @param maxSize - The maximum number of unknown users to remember.
+     * @return The shared cache.
+     */
+    static UnknownUserCache getInstance(final String configurationKey, final long timeout, final int maxSize) {
+        UnknownUserCache cache = INSTANCES.get(configurationKey);
+        if (cache == null) {
+            cache = INSTANCES.register(configurationKey, new UnknownUserCache(timeout, maxSize));
+        }
+
+        return cache;
+    }
+
+    boolean isUnknown(final String username) {
+        return unknown.get(normalize(username)) != null;
+    }
+
+    void addUnknown(final String username) {
+        unknown.put(normalize(username), Boolean.TRUE);
+    }
+
+    /**
+     * The DN of a new user can not be mapped back to a username so any change discards all entries.
+     */
+    public void entryChanged(final String dn) {
+        unknown.clear();
+    }
+
+    public void allChanged() {
+        unknown.clear();
+    }
+
+    private static String normalize(final String username) {
+        return username.toLowerCase(Locale.ENGLISH);
+    }
+
+}
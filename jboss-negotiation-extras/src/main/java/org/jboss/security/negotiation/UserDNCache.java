@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Locale;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * A process wide cache of the DN found by the user search of the {@link AdvancedLdapLoginModule} for each username, the
+ * DN may be relative or an absolute URL where the user was found by following a referral.
+ */
+final class UserDNCache implements DirectoryChangeTracker.ChangeListener {
+
+    private static final SharedInstances<String, UserDNCache> INSTANCES = SharedInstances.create();
+
+    private final ExpiringCache<String, CachedDN> userDNs;
+
+    private UserDNCache(final long timeout, final int maxSize) {
+        userDNs = new ExpiringCache<String, CachedDN>(timeout, maxSize);
+    }
+
+    /**
+     * Obtain the cache for the specified configuration, creating it if it does not already exist.
+     *
+     * @param configurationKey - The key identifying the login module configuration.
+     * @param timeout - The time in milliseconds DNs are cached for.
+     * @param maxSize - The maximum number of DNs to cache.
+     * @return The shared cache.
+     */
+    static UserDNCache getInstance(final String configurationKey, final long timeout, final int maxSize) {
+        UserDNCache cache = INSTANCES.get(configurationKey);
+        if (cache == null) {
+            cache = INSTANCES.register(configurationKey, new UserDNCache(timeout, maxSize));
+        }
+
+        return cache;
+    }
+
+    String get(final String username) {
+        CachedDN cached = userDNs.get(normalizeUsername(username));
+        return cached != null ? cached.getDN() : null;
+    }
+
+    void put(final String username, final String userDN) {
+        userDNs.put(normalizeUsername(username), new CachedDN(userDN));
+    }
+
+    void remove(final String username) {
+        userDNs.remove(normalizeUsername(username));
+    }
+
+    public void entryChanged(final String dn) {
+        userDNs.removeValue(new CachedDN(dn));
+    }
+
+    public void allChanged() {
+        userDNs.clear();
+    }
+
+    private static String normalizeUsername(final String username) {
+        return username.toLowerCase(Locale.ENGLISH);
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the BindCache.
+ */
+public class BindCacheTestCase extends TestCase
+{
+
+   private static final String USER_DN = "CN=Alice,OU=Users,DC=example,DC=com";
+
+   public void testVerify()
+   {
+      BindCache cache = BindCache.getInstance(getName(), 60000, 10);
+      assertFalse(cache.verify(USER_DN, "secret".toCharArray()));
+
+      cache.add(USER_DN, "secret".toCharArray());
+
+      assertTrue(cache.verify(USER_DN, "secret".toCharArray()));
+      assertTrue(cache.verify("cn=alice, ou=users, dc=example, dc=com", "secret".toCharArray()));
+      assertFalse(cache.verify(USER_DN, "Secret".toCharArray()));
+      assertFalse(cache.verify("CN=Bob,OU=Users,DC=example,DC=com", "secret".toCharArray()));
+   }
+
+   public void testChangedEntryRemoved()
+   {
+      BindCache cache = BindCache.getInstance(getName(), 60000, 10);
+      cache.add(USER_DN, "secret".toCharArray());
+
+      cache.entryChanged("cn=Alice,ou=Users,dc=example,dc=com");
+
+      assertFalse(cache.verify(USER_DN, "secret".toCharArray()));
+   }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.security.auth.login.LoginException;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * Test case for the BindCredentialCache.
+ */
+public class BindCredentialCacheTestCase extends TestCase
+{
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      SharedInstances.clearAll();
+      TestDirectory.reset();
+   }
+
+   public void testCopyReturned() throws Exception
+   {
+      BindCredentialCache cache = BindCredentialCache.getInstance(getName(), "secret", null);
+      char[] credential = cache.getCredential();
+      assertEquals("secret", new String(credential));
+
+      Arrays.fill(credential, '\0');
+      assertEquals("secret", new String(cache.getCredential()));
+   }
+
+   public void testKeyedByConfiguration() throws Exception
+   {
+      BindCredentialCache first = BindCredentialCache.getInstance(getName() + "1", "first", null);
+      BindCredentialCache second = BindCredentialCache.getInstance(getName() + "2", "second", null);
+
+      assertNotSame(first, second);
+      assertSame(first, BindCredentialCache.getInstance(getName() + "1", "first", null));
+      assertEquals("second", new String(second.getCredential()));
+   }
+
+   public void testRefreshUnchanged() throws Exception
+   {
+      BindCredentialCache cache = BindCredentialCache.getInstance(getName(), "secret", null);
+
+      assertFalse(cache.refresh("secret".toCharArray()));
+      assertTrue(cache.refresh("previous".toCharArray()));
+   }
+
+   public void testClearAll() throws Exception
+   {
+      BindCredentialCache cache = BindCredentialCache.getInstance(getName(), "secret", null);
+      cache.getCredential();
+
+      SharedInstances.clearAll();
+      assertNotSame(cache, BindCredentialCache.getInstance(getName(), "secret", null));
+      assertEquals("Resolved again", "secret", new String(cache.getCredential()));
+   }
+
+   public void testRejectedSearchBindNotRetried() throws Exception
+   {
+      TestDirectory.addUser("alice", "password", "Users");
+      Map<String, String> options = TestDirectory.options();
+      options.put("bindCredential", "wrong");
+
+      try
+      {
+         TestDirectory.login(new AdvancedLdapLoginModule(), options, "alice", "password");
+         fail("Expected LoginException");
+      }
+      catch (LoginException expected)
+      {
+      }
+      assertEquals(1, TestDirectory.count("bind:" + TestDirectory.SEARCH_DN));
+   }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.ietf.jgss.GSSCredential;
+import org.jboss.security.negotiation.common.NegotiationContext;
+
+/**
+ * Test case for the DelegationContextSnapshot.
+ */
+public class DelegationContextSnapshotTestCase extends TestCase
+{
+
+   private ExecutorService executor;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      executor = Executors.newSingleThreadExecutor();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      executor.shutdownNow();
+      DelegationSecurityActions.setPropagatedCredential(null);
+      NegotiationContext current = NegotiationContext.getCurrentNegotiationContext();
+      if (current != null)
+      {
+         current.disassociate();
+      }
+   }
+
+   public void testEmptyCapture() throws Exception
+   {
+      DelegationContextSnapshot snapshot = DelegationContextSnapshot.capture();
+
+      assertNull(snapshot.getDelegationCredential());
+      assertSame(snapshot, DelegationContextSnapshot.capture());
+   }
+
+   public void testRestoreAndClose() throws Exception
+   {
+      GSSCredential credential = credential();
+      NegotiationContext context = new NegotiationContext();
+      DelegationSecurityActions.setPropagatedCredential(credential);
+      context.associate();
+      DelegationContextSnapshot snapshot = DelegationContextSnapshot.capture();
+      assertSame(credential, snapshot.getDelegationCredential());
+
+      GSSCredential previousCredential = credential();
+      NegotiationContext previousContext = new NegotiationContext();
+      DelegationSecurityActions.setPropagatedCredential(previousCredential);
+      previousContext.associate();
+
+      DelegationContextSnapshot.Scope scope = snapshot.restore();
+      assertSame(credential, DelegationCredentialContext.getDelegCredential());
+      assertSame(context, NegotiationContext.getCurrentNegotiationContext());
+
+      scope.close();
+      assertSame(previousCredential, DelegationCredentialContext.getDelegCredential());
+      assertSame(previousContext, NegotiationContext.getCurrentNegotiationContext());
+   }
+
+   public void testRestoreEmptyClearsThread() throws Exception
+   {
+      DelegationContextSnapshot snapshot = DelegationContextSnapshot.capture();
+
+      GSSCredential previousCredential = credential();
+      NegotiationContext previousContext = new NegotiationContext();
+      DelegationSecurityActions.setPropagatedCredential(previousCredential);
+      previousContext.associate();
+
+      DelegationContextSnapshot.Scope scope = snapshot.restore();
+      assertNull(DelegationCredentialContext.getDelegCredential());
+      assertNull(NegotiationContext.getCurrentNegotiationContext());
+
+      scope.close();
+      assertSame(previousCredential, DelegationCredentialContext.getDelegCredential());
+      assertSame(previousContext, NegotiationContext.getCurrentNegotiationContext());
+   }
+
+   public void testCloseClearsThread() throws Exception
+   {
+      GSSCredential credential = credential();
+      NegotiationContext context = new NegotiationContext();
+      DelegationSecurityActions.setPropagatedCredential(credential);
+      context.associate();
+      DelegationContextSnapshot snapshot = DelegationContextSnapshot.capture();
+      DelegationSecurityActions.setPropagatedCredential(null);
+      context.disassociate();
+
+      DelegationContextSnapshot.Scope scope = snapshot.restore();
+      scope.close();
+
+      assertNull(DelegationCredentialContext.getDelegCredential());
+      assertNull(NegotiationContext.getCurrentNegotiationContext());
+   }
+
+   public void testWrapRunnable() throws Exception
+   {
+      GSSCredential credential = credential();
+      NegotiationContext context = new NegotiationContext();
+      DelegationSecurityActions.setPropagatedCredential(credential);
+      context.associate();
+
+      final Object[] seen = new Object[2];
+      Runnable task = DelegationContextSnapshot.capture().wrap(new Runnable()
+      {
+
+         @Override
+         public void run()
+         {
+            seen[0] = DelegationCredentialContext.getDelegCredential();
+            seen[1] = NegotiationContext.getCurrentNegotiationContext();
+         }
+      });
+      executor.submit(task).get();
+
+      assertSame(credential, seen[0]);
+      assertSame(context, seen[1]);
+      assertClearedOnWorker();
+   }
+
+   public void testWrapCallable() throws Exception
+   {
+      GSSCredential credential = credential();
+      DelegationSecurityActions.setPropagatedCredential(credential);
+
+      Callable<GSSCredential> task = DelegationContextSnapshot.capture().wrap(new CredentialTask());
+
+      assertSame(credential, executor.submit(task).get());
+      assertClearedOnWorker();
+   }
+
+   public void testWrapRestoresOnFailure() throws Exception
+   {
+      DelegationSecurityActions.setPropagatedCredential(credential());
+      Callable<GSSCredential> task = DelegationContextSnapshot.capture().wrap(new Callable<GSSCredential>()
+      {
+
+         @Override
+         public GSSCredential call() throws Exception
+         {
+            throw new IllegalStateException("Task failed");
+         }
+      });
+
+      try
+      {
+         executor.submit(task).get();
+         fail("Expected the task to fail");
+      }
+      catch (Exception expected)
+      {
+         assertTrue(expected.getCause() instanceof IllegalStateException);
+      }
+      assertClearedOnWorker();
+   }
+
+   public void testPropagatingSubmit() throws Exception
+   {
+      ExecutorService propagating = DelegationContextSnapshot.propagating(executor);
+      GSSCredential first = credential();
+      DelegationSecurityActions.setPropagatedCredential(first);
+      Future<GSSCredential> firstResult = propagating.submit(new CredentialTask());
+
+      GSSCredential second = credential();
+      DelegationSecurityActions.setPropagatedCredential(second);
+      Future<GSSCredential> secondResult = propagating.submit(new CredentialTask());
+
+      // Each task runs with the credential of the thread at the time it was submitted.
+      assertSame(first, firstResult.get());
+      assertSame(second, secondResult.get());
+      assertClearedOnWorker();
+   }
+
+   public void testPropagatingInvokeAll() throws Exception
+   {
+      ExecutorService propagating = DelegationContextSnapshot.propagating(executor);
+      GSSCredential credential = credential();
+      DelegationSecurityActions.setPropagatedCredential(credential);
+
+      List<Future<GSSCredential>> results = propagating.invokeAll(Arrays.<Callable<GSSCredential>> asList(
+            new CredentialTask(), new CredentialTask()));
+
+      assertEquals(2, results.size());
+      for (Future<GSSCredential> current : results)
+      {
+         assertSame(credential, current.get());
+      }
+      assertClearedOnWorker();
+   }
+
+   public void testPropagatingShutdown() throws Exception
+   {
+      ExecutorService propagating = DelegationContextSnapshot.propagating(executor);
+      propagating.shutdown();
+
+      assertTrue(executor.isShutdown());
+      assertTrue(propagating.isShutdown());
+   }
+
+   /**
+    * Check the worker thread was left as it was found once the propagated tasks completed.
+    */
+   private void assertClearedOnWorker() throws Exception
+   {
+      Future<Object[]> state = executor.submit(new Callable<Object[]>()
+      {
+
+         @Override
+         public Object[] call() throws Exception
+         {
+            return new Object[]
+            {DelegationCredentialContext.getDelegCredential(), NegotiationContext.getCurrentNegotiationContext()};
+         }
+      });
+
+      Object[] result = state.get();
+      assertNull(result[0]);
+      assertNull(result[1]);
+   }
+
+   private static GSSCredential credential()
+   {
+      return (GSSCredential) Proxy.newProxyInstance(DelegationContextSnapshotTestCase.class.getClassLoader(),
+            new Class<?>[]
+            {GSSCredential.class}, new InvocationHandler()
+            {
+
+               @Override
+               public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+               {
+                  if ("equals".equals(method.getName()))
+                  {
+                     return proxy == args[0];
+                  }
+                  if ("hashCode".equals(method.getName()))
+                  {
+                     return System.identityHashCode(proxy);
+                  }
+                  throw new UnsupportedOperationException(method.getName());
+               }
+            });
+   }
+
+   private static class CredentialTask implements Callable<GSSCredential>
+   {
+
+      @Override
+      public GSSCredential call() throws Exception
+      {
+         return DelegationCredentialContext.getDelegCredential();
+      }
+   }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.naming.NamingException;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the DirectoryChangeTracker using an in memory directory that tracks a change number per entry.
+ */
+public class DirectoryChangeTrackerTestCase extends TestCase
+{
+
+   private final InMemoryDirectory directory = new InMemoryDirectory();
+
+   private final RecordingListener listener = new RecordingListener();
+
+   private DirectoryChangeTracker tracker;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      directory.modify("cn=a");
+      directory.modify("cn=b");
+      directory.modify("cn=c");
+      directory.addMember("cn=b", "cn=a");
+      directory.addMember("cn=b", "cn=c");
+
+      tracker = DirectoryChangeTracker.create(directory);
+      tracker.addListener(listener);
+   }
+
+   public void testFirstPollResets() throws Exception
+   {
+      tracker.poll();
+      assertEquals(1, listener.resets);
+      assertTrue(listener.changed.isEmpty());
+
+      tracker.poll();
+      assertEquals(1, listener.resets);
+      assertTrue(listener.changed.isEmpty());
+   }
+
+   public void testOnlyChangedEntriesReported() throws Exception
+   {
+      tracker.poll();
+      directory.modify("cn=c");
+      directory.modify("cn=a");
+      tracker.poll();
+
+      assertEquals(Arrays.asList("cn=a", "cn=c"), sorted(listener.changed));
+
+      listener.changed.clear();
+      tracker.poll();
+      assertTrue(listener.changed.isEmpty());
+   }
+
+   public void testFailedPollRetried() throws Exception
+   {
+      tracker.poll();
+      directory.modify("cn=b");
+      directory.failNext = true;
+      tracker.poll();
+      assertTrue(listener.changed.isEmpty());
+
+      tracker.poll();
+      assertEquals(Collections.singletonList("cn=b"), listener.changed);
+   }
+
+   public void testGroupCacheInvalidated() throws Exception
+   {
+      GroupGraphCache cache = GroupGraphCache.getInstance(getName(), 0);
+      tracker.addListener(cache);
+      tracker.poll();
+
+      assertEquals(new HashSet<String>(Arrays.asList("a", "b")), cache.getRoleNames("cn=a", directory));
+      assertEquals(new HashSet<String>(Arrays.asList("c", "b")), cache.getRoleNames("cn=c", directory));
+      directory.loads.clear();
+
+      // Removing a from b only changes the entry of b.
+      directory.removeMember("cn=b", "cn=a");
+      tracker.poll();
+
+      assertEquals(Collections.singleton("a"), cache.getRoleNames("cn=a", directory));
+      assertEquals(new HashSet<String>(Arrays.asList("c", "b")), cache.getRoleNames("cn=c", directory));
+      assertEquals(Arrays.asList("cn=a", "cn=c", "cn=b"), directory.loads);
+   }
+
+   public void testNestedGroupAdded() throws Exception
+   {
+      GroupGraphCache cache = GroupGraphCache.getInstance(getName(), 0);
+      tracker.addListener(cache);
+      directory.modify("cn=d");
+      tracker.poll();
+
+      assertEquals(new HashSet<String>(Arrays.asList("a", "b")), cache.getRoleNames("cn=a", directory));
+
+      // Adding a to d changes the member attribute of d, the memberOf backlink of a does not change the entry of a.
+      directory.addMember("cn=d", "cn=a");
+      tracker.poll();
+      assertEquals(Collections.singletonList("cn=d"), listener.changed);
+
+      assertEquals(new HashSet<String>(Arrays.asList("a", "b", "d")), cache.getRoleNames("cn=a", directory));
+   }
+
+   private static List<String> sorted(final List<String> values)
+   {
+      List<String> result = new ArrayList<String>(values);
+      Collections.sort(result);
+      return result;
+   }
+
+   private static class InMemoryDirectory implements DirectoryChangeTracker.ChangeSource, GroupGraphCache.GroupLoader
+   {
+
+      private final Map<String, Long> changeNumbers = new HashMap<String, Long>();
+
+      private final Map<String, Set<String>> members = new HashMap<String, Set<String>>();
+
+      private final List<String> loads = new ArrayList<String>();
+
+      private long highestChangeNumber = 100;
+
+      private boolean failNext;
+
+      void modify(final String dn)
+      {
+         changeNumbers.put(dn, Long.valueOf(++highestChangeNumber));
+      }
+
+      /**
+       * As in Active Directory membership is held on the group, only the group is modified.
+       */
+      void addMember(final String groupDN, final String memberDN)
+      {
+         Set<String> groupMembers = members.get(groupDN);
+         if (groupMembers == null)
+         {
+            groupMembers = new HashSet<String>();
+            members.put(groupDN, groupMembers);
+         }
+         groupMembers.add(memberDN);
+         modify(groupDN);
+      }
+
+      void removeMember(final String groupDN, final String memberDN)
+      {
+         members.get(groupDN).remove(memberDN);
+         modify(groupDN);
+      }
+
+      public String findChanges(final String highWaterMark, final Set<String> changedDNs) throws NamingException
+      {
+         if (failNext)
+         {
+            failNext = false;
+            throw new NamingException("Simulated failure");
+         }
+         if (highWaterMark == null)
+         {
+            return String.valueOf(highestChangeNumber);
+         }
+
+         long from = Long.parseLong(highWaterMark);
+         long newHighWaterMark = from;
+         for (Map.Entry<String, Long> current : changeNumbers.entrySet())
+         {
+            long changeNumber = current.getValue().longValue();
+            if (changeNumber > from)
+            {
+               changedDNs.add(current.getKey());
+               newHighWaterMark = Math.max(newHighWaterMark, changeNumber);
+            }
+         }
+
+         return String.valueOf(newHighWaterMark);
+      }
+
+      public GroupGraphCache.GroupNode load(final String groupDN) throws NamingException
+      {
+         loads.add(groupDN);
+         Set<String> roleNames = Collections.singleton(groupDN.substring(3));
+         // The memberOf backlink of the group.
+         Set<String> parents = new HashSet<String>();
+         for (Map.Entry<String, Set<String>> current : members.entrySet())
+         {
+            if (current.getValue().contains(groupDN))
+            {
+               parents.add(current.getKey());
+            }
+         }
+         return new GroupGraphCache.GroupNode(roleNames, parents);
+      }
+
+   }
+
+   private static class RecordingListener implements DirectoryChangeTracker.ChangeListener
+   {
+
+      private final List<String> changed = new ArrayList<String>();
+
+      private int resets;
+
+      public void entryChanged(final String dn)
+      {
+         changed.add(dn);
+      }
+
+      public void allChanged()
+      {
+         resets++;
+      }
+
+   }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.naming.NamingException;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the GroupGraphCache.
+ */
+public class GroupGraphCacheTestCase extends TestCase
+{
+
+   private final Map<String, String[]> parents = new HashMap<String, String[]>();
+
+   private final Map<String, Integer> loads = new HashMap<String, Integer>();
+
+   private final GroupGraphCache.GroupLoader loader = new GroupGraphCache.GroupLoader()
+   {
+
+      public GroupGraphCache.GroupNode load(String groupDN) throws NamingException
+      {
+         String key = groupDN.toLowerCase(Locale.ENGLISH);
+         Integer count = loads.get(key);
+         loads.put(key, count == null ? 1 : count + 1);
+         String[] groupParents = parents.get(key);
+         if (groupParents == null)
+         {
+            throw new NamingException("Unknown group " + groupDN);
+         }
+         Set<String> roleNames = new HashSet<String>(Arrays.asList(groupDN.substring(3)));
+         return new GroupGraphCache.GroupNode(roleNames, new HashSet<String>(Arrays.asList(groupParents)));
+      }
+   };
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      parents.put("cn=a", new String[] {"cn=b", "cn=c"});
+      parents.put("cn=b", new String[] {"cn=d"});
+      parents.put("cn=c", new String[] {"cn=d"});
+      parents.put("cn=d", new String[] {"cn=a"});
+      parents.put("cn=e", new String[] {"cn=c"});
+   }
+
+   public void testTransitiveClosureWithCycle() throws Exception
+   {
+      GroupGraphCache cache = GroupGraphCache.getInstance(getName(), 60000);
+
+      Set<String> roles = cache.getRoleNames("cn=a", loader);
+      assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c", "d")), roles);
+      assertEquals(Integer.valueOf(1), loads.get("cn=d"));
+
+      // The second group shares most of the hierarchy so only the new group should be loaded.
+      roles = cache.getRoleNames("CN=E", loader);
+      assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c", "d", "E")), roles);
+      assertEquals(5, loads.size());
+      for (Integer current : loads.values())
+      {
+         assertEquals(Integer.valueOf(1), current);
+      }
+   }
+
+   public void testInvalidate() throws Exception
+   {
+      GroupGraphCache cache = GroupGraphCache.getInstance(getName(), 60000);
+      cache.getRoleNames("cn=b", loader);
+
+      // Removing d from the members of a changes the entry of a, not the entry of d.
+      parents.put("cn=d", new String[0]);
+      cache.entryChanged("CN=A");
+
+      Set<String> roles = cache.getRoleNames("cn=b", loader);
+      assertEquals(new HashSet<String>(Arrays.asList("b", "d")), roles);
+      assertEquals(Integer.valueOf(2), loads.get("cn=b"));
+      assertEquals(Integer.valueOf(2), loads.get("cn=d"));
+   }
+
+   public void testExpiry() throws Exception
+   {
+      GroupGraphCache cache = GroupGraphCache.getInstance(getName(), 1);
+      cache.getRoleNames("cn=d", loader);
+      Thread.sleep(10);
+      cache.getRoleNames("cn=d", loader);
+
+      assertEquals(Integer.valueOf(2), loads.get("cn=d"));
+   }
+
+   public void testFailedLoadNotMemoized() throws Exception
+   {
+      GroupGraphCache cache = GroupGraphCache.getInstance(getName(), 60000);
+      parents.put("cn=b", new String[] {"cn=x"});
+      try
+      {
+         cache.getRoleNames("cn=b", loader);
+         fail("Expected NamingException");
+      }
+      catch (NamingException expected)
+      {
+      }
+
+      parents.put("cn=x", new String[0]);
+      Set<String> roles = cache.getRoleNames("cn=b", loader);
+      assertEquals(new HashSet<String>(Arrays.asList("b", "x")), roles);
+   }
+
+}
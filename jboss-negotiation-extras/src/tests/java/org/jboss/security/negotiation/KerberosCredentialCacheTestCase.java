@@ -0,0 +1,182 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.spi.LoginModule;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * Test case for the KerberosCredentialCache.
+ */
+public class KerberosCredentialCacheTestCase extends TestCase
+{
+
+   private static final AtomicInteger logins = new AtomicInteger();
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      logins.set(0);
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      // Cancels the scheduled renewals.
+      SharedInstances.clearAll();
+   }
+
+   public void testCredentialsShared() throws Exception
+   {
+      KerberosCredentialCache cache = getCache(60000);
+      assertSame(cache, getCache(60000));
+
+      KerberosCredentialCache.Credentials first = cache.getCredentials();
+      KerberosCredentialCache.Credentials second = cache.getCredentials();
+
+      assertSame(first, second);
+      assertEquals(1, logins.get());
+      assertEquals(1, first.getSubject().getPrincipals(KerberosPrincipal.class).size());
+   }
+
+   public void testRenewedBeforeExpiry() throws Exception
+   {
+      KerberosCredentialCache cache = getCache(60000);
+      KerberosCredentialCache.Credentials first = cache.getCredentials();
+      long expiry = first.getExpiryTime();
+
+      cache.renew();
+      KerberosCredentialCache.Credentials renewed = cache.getCredentials();
+
+      assertNotSame(first, renewed);
+      assertTrue(renewed.getExpiryTime() >= expiry);
+      assertEquals(2, logins.get());
+   }
+
+   public void testIdleNotRenewed() throws Exception
+   {
+      KerberosCredentialCache cache = getCache(60000);
+      cache.getCredentials();
+
+      // Renewed once as used after the initial login, then left to expire.
+      cache.renew();
+      cache.renew();
+      assertEquals(2, logins.get());
+   }
+
+   public void testPrefetchPublishesCopy() throws Exception
+   {
+      KerberosCredentialCache cache = getCache(60000, Arrays.asList("HTTP/backend.example.com@EXAMPLE.COM"));
+      KerberosCredentialCache.Credentials first = cache.getCredentials();
+      int principals = first.getSubject().getPrincipals().size();
+      int privateCredentials = first.getSubject().getPrivateCredentials().size();
+
+      KerberosCredentialCache.Credentials prefetched = first;
+      for (int i = 0; i < 100 && prefetched == first; i++)
+      {
+         Thread.sleep(50);
+         prefetched = cache.getCredentials();
+      }
+
+      // Without a KDC no ticket is obtained but the published credentials are replaced by the copy.
+      assertNotSame(first, prefetched);
+      assertEquals(principals, first.getSubject().getPrincipals().size());
+      assertEquals(privateCredentials, first.getSubject().getPrivateCredentials().size());
+      assertEquals(first.getSubject().getPrincipals(), prefetched.getSubject().getPrincipals());
+      assertEquals(first.getExpiryTime(), prefetched.getExpiryTime());
+      assertEquals(1, logins.get());
+   }
+
+   private KerberosCredentialCache getCache(final long lifetime)
+   {
+      return getCache(lifetime, Collections.<String> emptyList());
+   }
+
+   @SuppressWarnings("unchecked")
+   private KerberosCredentialCache getCache(final long lifetime, final List<String> targetServices)
+   {
+      Class<?> moduleClass = TestKrb5LoginModule.class;
+      return KerberosCredentialCache.getInstance((Class<LoginModule>) moduleClass,
+            Collections.singletonMap("lifetime", getName() + "|" + lifetime), false, 0, targetServices);
+   }
+
+   public static class TestKrb5LoginModule implements LoginModule
+   {
+
+      private Subject subject;
+      private long lifetime;
+
+      public void initialize(Subject subject, CallbackHandler callbackHandler, Map<String, ?> sharedState,
+            Map<String, ?> options)
+      {
+         this.subject = subject;
+         String value = (String) options.get("lifetime");
+         lifetime = Long.parseLong(value.substring(value.indexOf('|') + 1));
+      }
+
+      public boolean login()
+      {
+         logins.incrementAndGet();
+         return true;
+      }
+
+      public boolean commit()
+      {
+         KerberosPrincipal client = new KerberosPrincipal("HTTP/web.example.com@EXAMPLE.COM");
+         KerberosPrincipal server = new KerberosPrincipal("krbtgt/EXAMPLE.COM@EXAMPLE.COM");
+         Date now = new Date();
+         subject.getPrincipals().add(client);
+         subject.getPrivateCredentials().add(
+               new KerberosTicket(new byte[] {1}, client, server, new byte[16], 17, new boolean[32], now, now,
+                     new Date(now.getTime() + lifetime), null, null));
+
+         return true;
+      }
+
+      public boolean abort()
+      {
+         return true;
+      }
+
+      public boolean logout()
+      {
+         return true;
+      }
+
+   }
+
+}
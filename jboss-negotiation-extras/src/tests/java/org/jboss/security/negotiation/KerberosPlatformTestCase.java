@@ -0,0 +1,55 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import javax.security.auth.spi.LoginModule;
+
+import junit.framework.TestCase;
+
+import com.sun.security.auth.module.Krb5LoginModule;
+
+/**
+ * Test case for the KerberosPlatform.
+ */
+public class KerberosPlatformTestCase extends TestCase
+{
+
+   public void testLoginModuleLinked()
+   {
+      Class<LoginModule> moduleClass = KerberosPlatform.getLoginModuleClass();
+
+      assertSame(Krb5LoginModule.class, moduleClass);
+      assertTrue(SecurityActions.newInstance(moduleClass) instanceof Krb5LoginModule);
+      assertTrue(KerberosPlatform.isCreateSubjectAvailable());
+   }
+
+   @SuppressWarnings("unchecked")
+   public void testOtherModulesInstantiated()
+   {
+      Class<LoginModule> moduleClass = (Class<LoginModule>) (Class<?>) KerberosCredentialCacheTestCase.TestKrb5LoginModule.class;
+
+      assertNull(KerberosPlatform.newLoginModule(moduleClass));
+      assertTrue(SecurityActions.newInstance(moduleClass) instanceof KerberosCredentialCacheTestCase.TestKrb5LoginModule);
+   }
+
+}
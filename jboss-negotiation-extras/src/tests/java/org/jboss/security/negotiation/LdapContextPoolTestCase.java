@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+import javax.naming.ldap.LdapContext;
+import javax.security.auth.login.LoginException;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * Test case for the LdapContextPool.
+ */
+public class LdapContextPoolTestCase extends TestCase
+{
+
+   private final Set<Object> closed = new HashSet<Object>();
+
+   public void testMostRecentlyUsedReturned() throws Exception
+   {
+      LdapContextPool pool = LdapContextPool.getInstance(getName(), 2);
+      assertNull(pool.borrow());
+
+      LdapContext first = context();
+      LdapContext second = context();
+      pool.release(first);
+      pool.release(second);
+
+      assertSame(second, pool.borrow());
+      assertSame(first, pool.borrow());
+      assertNull(pool.borrow());
+      assertTrue(closed.isEmpty());
+   }
+
+   public void testExcessClosed() throws Exception
+   {
+      LdapContextPool pool = LdapContextPool.getInstance(getName(), 1);
+      LdapContext first = context();
+      LdapContext second = context();
+      pool.release(first);
+      pool.release(second);
+
+      assertTrue(closed.contains(second));
+      assertSame(first, pool.borrow());
+   }
+
+   public void testClearAll() throws Exception
+   {
+      LdapContextPool pool = LdapContextPool.getInstance(getName(), 2);
+      LdapContext idle = context();
+      pool.release(idle);
+
+      SharedInstances.clearAll();
+      assertTrue(closed.contains(idle));
+      assertNotSame(pool, LdapContextPool.getInstance(getName(), 2));
+
+      LdapContext released = context();
+      pool.release(released);
+      assertTrue("Released after dispose", closed.contains(released));
+   }
+
+   public void testCommunicationFailure()
+   {
+      NamingException ne = new NamingException("Search failed");
+      ne.setRootCause(new CommunicationException("Connection reset"));
+      LoginException le = new LoginException("Unable to find user DN");
+      le.initCause(ne);
+
+      assertTrue(LdapContextPool.isCommunicationFailure(le));
+      assertFalse(LdapContextPool.isCommunicationFailure(new LoginException("Authentication failed")));
+   }
+
+   private LdapContext context()
+   {
+      return (LdapContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {LdapContext.class},
+            new InvocationHandler()
+            {
+
+               public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+               {
+                  if ("close".equals(method.getName()))
+                  {
+                     closed.add(proxy);
+                  }
+                  else if ("hashCode".equals(method.getName()))
+                  {
+                     return Integer.valueOf(System.identityHashCode(proxy));
+                  }
+                  else if ("equals".equals(method.getName()))
+                  {
+                     return Boolean.valueOf(proxy == args[0]);
+                  }
+                  return null;
+               }
+            });
+   }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the LdapMetrics.
+ */
+public class LdapMetricsTestCase extends TestCase
+{
+
+   public void testCostAddedOnFinish()
+   {
+      LdapMetrics metrics = LdapMetrics.getInstance(getName());
+      LdapMetrics.Cost cost = metrics.startLogin();
+      cost.operation(LdapMetrics.Operation.SEARCH, System.nanoTime());
+      cost.operation(LdapMetrics.Operation.SEARCH, System.nanoTime());
+      cost.operation(LdapMetrics.Operation.BIND, System.nanoTime());
+      cost.cache(LdapMetrics.Cache.USER_DN, true);
+      cost.cache(LdapMetrics.Cache.GROUP, false);
+
+      assertEquals(0, metrics.getSearches());
+
+      cost.finish("user");
+
+      assertEquals(1, metrics.getLogins());
+      assertEquals(2, metrics.getSearches());
+      assertEquals(1, metrics.getBinds());
+      assertEquals(0, metrics.getReads());
+      assertEquals(1, metrics.getUserDNCacheHits());
+      assertEquals(0, metrics.getUserDNCacheMisses());
+      assertEquals(1, metrics.getGroupCacheMisses());
+   }
+
+   public void testReset()
+   {
+      LdapMetrics metrics = LdapMetrics.getInstance(getName());
+      LdapMetrics.Cost cost = metrics.startLogin();
+      cost.operation(LdapMetrics.Operation.READ, System.nanoTime());
+      cost.cache(LdapMetrics.Cache.BIND, true);
+      cost.finish("user");
+
+      metrics.reset();
+
+      assertEquals(0, metrics.getLogins());
+      assertEquals(0, metrics.getReads());
+      assertEquals(0, metrics.getBindCacheHits());
+   }
+
+   public void testSharedByName()
+   {
+      LdapMetrics metrics = LdapMetrics.getInstance(getName());
+
+      assertSame(metrics, LdapMetrics.getInstance(getName()));
+   }
+
+}
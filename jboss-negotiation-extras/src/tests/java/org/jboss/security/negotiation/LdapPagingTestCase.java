@@ -0,0 +1,140 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.NamingException;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.ldap.LdapContext;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the ranged attribute retrieval of LdapPaging.
+ */
+public class LdapPagingTestCase extends TestCase
+{
+
+   private static final String USER_DN = "CN=Alice,OU=Users,DC=example,DC=com";
+
+   public void testNextRangeStart()
+   {
+      assertEquals(1500, LdapPaging.nextRangeStart("memberOf;range=0-1499"));
+      assertEquals(3000, LdapPaging.nextRangeStart("memberOf;Range=1500-2999"));
+      assertEquals(-1, LdapPaging.nextRangeStart("memberOf;range=3000-*"));
+      assertEquals(-1, LdapPaging.nextRangeStart("memberOf"));
+   }
+
+   public void testUnrangedValues() throws NamingException
+   {
+      Attributes attributes = new BasicAttributes(true);
+      attributes.put(attribute("memberOf", 0, 3));
+
+      List<String> values = new ArrayList<String>();
+      LdapPaging.forEachValue(rangedContext(new ArrayList<String>()), USER_DN, attributes, "memberOf", collector(values));
+
+      assertEquals(3, values.size());
+      assertEquals("CN=Group0", values.get(0));
+   }
+
+   public void testRangedValues() throws NamingException
+   {
+      Attributes attributes = new BasicAttributes(true);
+      attributes.put(attribute("memberOf;range=0-1", 0, 2));
+
+      List<String> requested = new ArrayList<String>();
+      List<String> values = new ArrayList<String>();
+      LdapPaging.forEachValue(rangedContext(requested), USER_DN, attributes, "memberOf", collector(values));
+
+      assertEquals(5, values.size());
+      assertEquals("CN=Group4", values.get(4));
+      assertEquals(2, requested.size());
+      assertEquals("memberOf;range=2-*", requested.get(0));
+      assertEquals("memberOf;range=4-*", requested.get(1));
+   }
+
+   private static BasicAttribute attribute(final String id, final int first, final int count)
+   {
+      BasicAttribute attribute = new BasicAttribute(id);
+      for (int i = first; i < first + count; i++)
+      {
+         attribute.add("CN=Group" + i);
+      }
+
+      return attribute;
+   }
+
+   private static LdapPaging.ValueHandler<NamingException> collector(final List<String> values)
+   {
+      return new LdapPaging.ValueHandler<NamingException>()
+      {
+
+         public void value(String value)
+         {
+            values.add(value);
+         }
+      };
+   }
+
+   /**
+    * A context returning five values in total for ranges of two values.
+    */
+   private static LdapContext rangedContext(final List<String> requested)
+   {
+      return (LdapContext) Proxy.newProxyInstance(LdapPagingTestCase.class.getClassLoader(), new Class<?>[]
+      {LdapContext.class}, new InvocationHandler()
+      {
+
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            if ("getAttributes".equals(method.getName()) == false)
+            {
+               throw new UnsupportedOperationException(method.getName());
+            }
+
+            String id = ((String[]) args[1])[0];
+            requested.add(id);
+            int start = Integer.parseInt(id.substring(id.indexOf('=') + 1, id.lastIndexOf('-')));
+            Attributes attributes = new BasicAttributes(true);
+            if (start >= 4)
+            {
+               attributes.put(attribute("memberOf;range=" + start + "-*", start, 1));
+            }
+            else
+            {
+               attributes.put(attribute("memberOf;range=" + start + "-" + (start + 1), start, 2));
+            }
+
+            return attributes;
+         }
+      });
+   }
+
+}
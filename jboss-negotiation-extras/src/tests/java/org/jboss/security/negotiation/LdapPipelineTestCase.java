@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.Subject;
+import javax.security.auth.login.LoginException;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * Test case for the pipelined requests of the AdvancedLdapLoginModule and AdvancedADLoginModule.
+ */
+public class LdapPipelineTestCase extends TestCase
+{
+
+   private static final String BASE_DN = "dc=example,dc=com";
+
+   private static final String GROUP_DN = "cn=Developers,ou=groups,dc=example,dc=com";
+
+   private static final String PRIMARY_GROUP_DN = "cn=Domain Users,ou=groups,dc=example,dc=com";
+
+   private static final byte[] USER_SID =
+   {1, 5, 0, 0, 0, 0, 0, 5, 21, 0, 0, 0, 1, 0, 0, 0, 2, 0, 0, 0, (byte) 0xE9, 3, 0, 0};
+
+   private static final byte[] PRIMARY_GROUP_SID =
+   {1, 5, 0, 0, 0, 0, 0, 5, 21, 0, 0, 0, 1, 0, 0, 0, 2, 0, 0, 0, 1, 2, 0, 0};
+
+   private String userDN;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      TestDirectory.reset();
+      userDN = TestDirectory.addUser("alice", "password");
+      TestDirectory.addEntry(userDN, "password", "uid", "alice", "objectSid", USER_SID, "primaryGroupID", "513");
+      TestDirectory.addEntry(GROUP_DN, null, "cn", "Developers", "member", userDN);
+      TestDirectory.addEntry(PRIMARY_GROUP_DN, null, "cn", "Domain Users", "objectSid", PRIMARY_GROUP_SID);
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      SharedInstances.clearAll();
+      TestDirectory.reset();
+   }
+
+   public void testRolesPipelined() throws Exception
+   {
+      Subject subject = TestDirectory.login(new AdvancedLdapLoginModule(), options(), "alice", "password");
+
+      assertTrue(TestDirectory.roles(subject).contains("Developers"));
+      assertTrue(TestDirectory.thread("search:(member=").startsWith("Negotiation LDAP Pipeline"));
+   }
+
+   public void testFailedAuthenticationDiscardsRoles() throws Exception
+   {
+      AdvancedLdapLoginModule module = new AdvancedLdapLoginModule();
+      try
+      {
+         TestDirectory.login(module, options(), "alice", "wrong");
+         fail("Expected LoginException");
+      }
+      catch (LoginException expected)
+      {
+      }
+
+      assertFalse(module.getRoleSets()[0].members().hasMoreElements());
+   }
+
+   public void testEmptyPasswordNotPipelined() throws Exception
+   {
+      AdvancedLdapLoginModule module = new AdvancedLdapLoginModule();
+      Subject subject = TestDirectory.login(module, options(), "alice", "");
+
+      assertTrue(subject.getPrincipals().isEmpty());
+      assertEquals(0, TestDirectory.count("search:(member="));
+   }
+
+   public void testPrimaryGroupPipelined() throws Exception
+   {
+      Subject subject = TestDirectory.login(new AdvancedADLoginModule(), options(), "alice", "password");
+
+      Set<String> roles = TestDirectory.roles(subject);
+      assertTrue(roles.toString(), roles.contains("Developers"));
+      assertTrue(roles.toString(), roles.contains("Domain Users"));
+      // The primary group is looked up by a request nested within the pipelined role search.
+      assertTrue(TestDirectory.thread("read:" + userDN).startsWith("Negotiation LDAP Pipeline"));
+      assertTrue(TestDirectory.thread("search:(objectSid=").startsWith("Negotiation LDAP Pipeline"));
+   }
+
+   public void testPrimaryGroupNotPipelined() throws Exception
+   {
+      Map<String, String> options = options();
+      options.remove("pipelineRequests");
+      Subject subject = TestDirectory.login(new AdvancedADLoginModule(), options, "alice", "password");
+
+      Set<String> roles = TestDirectory.roles(subject);
+      assertTrue(roles.toString(), roles.contains("Developers"));
+      assertTrue(roles.toString(), roles.contains("Domain Users"));
+      assertFalse(TestDirectory.thread("search:(objectSid=").startsWith("Negotiation LDAP Pipeline"));
+   }
+
+   private Map<String, String> options()
+   {
+      Map<String, String> options = TestDirectory.options();
+      options.put("baseCtxDN", BASE_DN);
+      options.put("rolesCtxDN", BASE_DN);
+      options.put("roleFilter", "(member={1})");
+      options.put("roleAttributeID", "cn");
+      options.put("roleNameAttributeID", "cn");
+      options.put("pipelineRequests", "true");
+
+      return options;
+   }
+
+}
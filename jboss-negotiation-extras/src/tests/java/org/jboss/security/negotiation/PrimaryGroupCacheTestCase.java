@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the PrimaryGroupCache.
+ */
+public class PrimaryGroupCacheTestCase extends TestCase
+{
+
+   /*
+    * S-1-5-21-3623879623-3361051004-30300820-513, the Domain Users group of a domain.
+    */
+   private static final byte[] DOMAIN_USERS_SID =
+   {0x01, 0x05, 0x00, 0x00, 0x00, 0x00, 0x00, 0x05, 0x15, 0x00, 0x00, 0x00, (byte) 0xC7, 0x03, 0x00, (byte) 0xD8,
+         0x7C, (byte) 0x91, 0x55, (byte) 0xC8, (byte) 0x94, 0x5A, (byte) 0xCE, 0x01, 0x01, 0x02, 0x00, 0x00};
+
+   private static final String DOMAIN_USERS_DN = "CN=Domain Users,CN=Users,DC=example,DC=com";
+
+   public void testToString()
+   {
+      assertEquals("S-1-5-21-3623879623-3361051004-30300820-513", PrimaryGroupCache.toString(DOMAIN_USERS_SID));
+   }
+
+   public void testGet()
+   {
+      PrimaryGroupCache cache = PrimaryGroupCache.getInstance(getName(), 60000);
+      assertNull(cache.get(DOMAIN_USERS_SID));
+
+      cache.put(DOMAIN_USERS_SID, DOMAIN_USERS_DN);
+
+      assertEquals(DOMAIN_USERS_DN, cache.get(DOMAIN_USERS_SID.clone()));
+   }
+
+   public void testChangedEntryRemoved()
+   {
+      PrimaryGroupCache cache = PrimaryGroupCache.getInstance(getName(), 60000);
+      cache.put(DOMAIN_USERS_SID, DOMAIN_USERS_DN);
+
+      cache.entryChanged("cn=domain users, cn=users, dc=example, dc=com");
+
+      assertNull(cache.get(DOMAIN_USERS_SID));
+   }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for reading and writing the RoleSnapshot.
+ */
+public class RoleSnapshotTestCase extends TestCase
+{
+
+   private Path directory;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      directory = Files.createTempDirectory("snapshot");
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      for (Path current : Files.newDirectoryStream(directory))
+      {
+         Files.delete(current);
+      }
+      Files.delete(directory);
+   }
+
+   public void testWriteAndRead() throws Exception
+   {
+      Map<String, Set<String>> roles = new HashMap<String, Set<String>>();
+      for (int i = 0; i < 1000; i++)
+      {
+         roles.put("User" + i, new HashSet<String>(Arrays.asList("Role" + (i % 7), "Role" + (i % 11))));
+      }
+      roles.put("NoRoles", Collections.<String> emptySet());
+
+      Path file = directory.resolve("roles.snapshot");
+      RoleSnapshot.write(file, roles);
+      RoleSnapshot snapshot = RoleSnapshot.open(file);
+
+      assertEquals(1001, snapshot.size());
+      for (int i = 0; i < 1000; i++)
+      {
+         String[] found = snapshot.getRoles("User" + i);
+         assertEquals(roles.get("User" + i), new HashSet<String>(Arrays.asList(found)));
+      }
+      assertEquals(2, snapshot.getRoles("USER12").length);
+      assertEquals(0, snapshot.getRoles("NoRoles").length);
+      assertNull(snapshot.getRoles("Unknown"));
+      // Role names are interned so are shared between principals.
+      assertSame(snapshot.getRoles("User0")[0], snapshot.getRoles("User77")[0]);
+   }
+
+   public void testReplace() throws Exception
+   {
+      Path file = directory.resolve("roles.snapshot");
+      RoleSnapshot.write(file, Collections.singletonMap("User", Collections.singleton("Old")));
+      RoleSnapshot original = RoleSnapshot.open(file);
+
+      RoleSnapshot.write(file, Collections.singletonMap("User", Collections.singleton("New")));
+
+      assertEquals("Old", original.getRoles("User")[0]);
+      assertEquals("New", RoleSnapshot.open(file).getRoles("User")[0]);
+      assertEquals(1, directory.toFile().list().length);
+   }
+
+   public void testTruncatedRejected() throws Exception
+   {
+      Map<String, Set<String>> roles = new HashMap<String, Set<String>>();
+      for (int i = 0; i < 10; i++)
+      {
+         roles.put("User" + i, new HashSet<String>(Arrays.asList("Role" + i)));
+      }
+      Path file = directory.resolve("roles.snapshot");
+      RoleSnapshot.write(file, roles);
+      byte[] content = Files.readAllBytes(file);
+
+      Path truncated = directory.resolve("truncated.snapshot");
+      for (int length = 0; length < content.length; length++)
+      {
+         Files.write(truncated, Arrays.copyOf(content, length));
+         try
+         {
+            RoleSnapshot.open(truncated);
+            fail("Expected IOException for length " + length);
+         }
+         catch (IOException expected)
+         {
+         }
+      }
+   }
+
+   public void testCorruptRoleIndexRejected() throws Exception
+   {
+      Path file = directory.resolve("roles.snapshot");
+      RoleSnapshot.write(file, Collections.singletonMap("User", Collections.singleton("Role")));
+      byte[] content = Files.readAllBytes(file);
+      // The record of the only principal is last, ending with the index of its role.
+      ByteBuffer.wrap(content).putInt(content.length - 4, 7);
+      Files.write(file, content);
+
+      try
+      {
+         RoleSnapshot.open(file);
+         fail("Expected IOException");
+      }
+      catch (IOException expected)
+      {
+      }
+      assertNull(RoleSnapshot.getReference(file).get());
+   }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Date;
+import java.util.Set;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the ServiceTicketCache.
+ */
+public class ServiceTicketCacheTestCase extends TestCase
+{
+
+   private static final String ALICE = "alice@EXAMPLE.COM";
+
+   private static final String BOB = "bob@EXAMPLE.COM";
+
+   public void testTicketsReused()
+   {
+      ServiceTicketCache cache = ServiceTicketCache.getInstance(getName(), 101);
+      KerberosTicket ticket = ticket(ALICE, "HTTP/app.example.com@EXAMPLE.COM", 600000);
+      Subject first = new Subject();
+      first.getPrivateCredentials().add(ticket);
+      first.getPrivateCredentials().add(ticket(ALICE, "krbtgt/EXAMPLE.COM@EXAMPLE.COM", 600000));
+      first.getPrivateCredentials().add(ticket(BOB, "HTTP/app.example.com@EXAMPLE.COM", 600000));
+      cache.storeTickets(ALICE, first);
+
+      Subject second = new Subject();
+      Set<KerberosTicket> added = cache.addTickets(ALICE, second);
+
+      assertEquals(1, added.size());
+      assertSame(ticket, added.iterator().next());
+      assertTrue(second.getPrivateCredentials().contains(ticket));
+      assertTrue(cache.addTickets(BOB, new Subject()).isEmpty());
+   }
+
+   public void testExpiringTicketsNotReused() throws Exception
+   {
+      ServiceTicketCache cache = ServiceTicketCache.getInstance(getName(), 102);
+      KerberosTicket ticket = ticket(ALICE, "HTTP/app.example.com@EXAMPLE.COM", 600000);
+      Subject first = new Subject();
+      first.getPrivateCredentials().add(ticket);
+      first.getPrivateCredentials().add(ticket(ALICE, "HTTP/other.example.com@EXAMPLE.COM", 10000));
+      cache.storeTickets(ALICE, first);
+      assertEquals(1, cache.addTickets(ALICE, new Subject()).size());
+
+      ticket.destroy();
+      assertTrue(cache.addTickets(ALICE, new Subject()).isEmpty());
+   }
+
+   public void testConfigurationsNotShared()
+   {
+      ServiceTicketCache cache = ServiceTicketCache.getInstance("HTTP/one.example.com@EXAMPLE.COM", 104);
+      assertSame(cache, ServiceTicketCache.getInstance("HTTP/one.example.com@EXAMPLE.COM", 104));
+      store(cache, ticket(ALICE, "HTTP/app.example.com@EXAMPLE.COM", 600000));
+
+      ServiceTicketCache other = ServiceTicketCache.getInstance("HTTP/two.example.com@EXAMPLE.COM", 104);
+      assertNotSame(cache, other);
+      assertTrue(other.addTickets(ALICE, new Subject()).isEmpty());
+   }
+
+   public void testLeastRecentlyUsedEvicted()
+   {
+      ServiceTicketCache cache = ServiceTicketCache.getInstance(getName(), 103);
+      KerberosTicket eldest = ticket(ALICE, "HTTP/app0.example.com@EXAMPLE.COM", 600000);
+      store(cache, eldest);
+      for (int i = 1; i < 32; i++)
+      {
+         store(cache, ticket(ALICE, "HTTP/app" + i + ".example.com@EXAMPLE.COM", 600000));
+      }
+
+      // Using the eldest ticket again stores it again after the login.
+      store(cache, eldest);
+      store(cache, ticket(ALICE, "HTTP/new.example.com@EXAMPLE.COM", 600000));
+
+      Set<KerberosTicket> cached = cache.addTickets(ALICE, new Subject());
+      assertEquals(32, cached.size());
+      assertTrue("Recently used ticket retained", cached.contains(eldest));
+   }
+
+   private static void store(final ServiceTicketCache cache, final KerberosTicket ticket)
+   {
+      Subject subject = new Subject();
+      subject.getPrivateCredentials().add(ticket);
+      cache.storeTickets(ALICE, subject);
+   }
+
+   private static KerberosTicket ticket(final String client, final String server, final long lifetime)
+   {
+      Date now = new Date();
+      return new KerberosTicket(new byte[] {1}, new KerberosPrincipal(client), new KerberosPrincipal(server),
+            new byte[16], 17, new boolean[32], now, now, new Date(now.getTime() + lifetime), null, null);
+   }
+
+}
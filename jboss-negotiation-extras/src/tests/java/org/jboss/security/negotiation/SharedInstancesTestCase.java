@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * Test case for the SharedInstances registry.
+ */
+public class SharedInstancesTestCase extends TestCase
+{
+
+   private static final SharedInstances<String, TestInstance> INSTANCES = SharedInstances.create();
+
+   private final ClassLoader first = new URLClassLoader(new URL[0]);
+   private final ClassLoader second = new URLClassLoader(new URL[0]);
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      INSTANCES.clear();
+   }
+
+   public void testReleasedWhenUnused() throws Exception
+   {
+      TestInstance instance = obtain(first, "key");
+      assertSame(instance, obtain(first, "key"));
+
+      SharedInstances.release(first);
+
+      assertTrue(instance.disposed);
+      assertNotSame(instance, obtain(first, "key"));
+   }
+
+   public void testRetainedForOtherDeployment() throws Exception
+   {
+      TestInstance instance = obtain(first, "key");
+      assertSame(instance, obtain(second, "key"));
+
+      SharedInstances.release(first);
+      assertFalse(instance.disposed);
+      assertSame(instance, obtain(second, "key"));
+
+      SharedInstances.release(second);
+      assertTrue(instance.disposed);
+   }
+
+   public void testOtherConfigurationsRetained() throws Exception
+   {
+      TestInstance mine = obtain(first, "mine");
+      TestInstance theirs = obtain(second, "theirs");
+
+      SharedInstances.release(first);
+
+      assertTrue(mine.disposed);
+      assertFalse(theirs.disposed);
+      assertSame(theirs, obtain(second, "theirs"));
+   }
+
+   public void testClearAll() throws Exception
+   {
+      TestInstance instance = obtain(first, "key");
+      obtain(second, "key");
+
+      SharedInstances.clearAll();
+
+      assertTrue(instance.disposed);
+   }
+
+   /**
+    * Obtain the instance for the key as the deployment with the class loader would.
+    */
+   private static TestInstance obtain(final ClassLoader owner, final String key)
+   {
+      Thread thread = Thread.currentThread();
+      ClassLoader previous = thread.getContextClassLoader();
+      thread.setContextClassLoader(owner);
+      try
+      {
+         TestInstance instance = INSTANCES.get(key);
+         if (instance == null)
+         {
+            instance = INSTANCES.register(key, new TestInstance());
+         }
+         return instance;
+      }
+      finally
+      {
+         thread.setContextClassLoader(previous);
+      }
+   }
+
+   private static class TestInstance implements SharedInstances.Disposable
+   {
+
+      private volatile boolean disposed;
+
+      public void dispose()
+      {
+         disposed = true;
+      }
+
+   }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KerberosTicket;
+import javax.security.auth.login.AppConfigurationEntry;
+import javax.security.auth.login.AppConfigurationEntry.LoginModuleControlFlag;
+import javax.security.auth.login.Configuration;
+import javax.security.auth.spi.LoginModule;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.common.SubjectCache;
+
+/**
+ * Test case for the SubjectCache.
+ */
+public class SubjectCacheTestCase extends TestCase
+{
+
+   // The security domains of the tests, the value is how long the TGT remains valid after the login.
+   private static final String DUE_FOR_RENEWAL = "due-for-renewal";
+   private static final String EXPIRED = "expired";
+   private static final String VALID = "valid";
+
+   private Configuration previous;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      previous = Configuration.getConfiguration();
+      Configuration.setConfiguration(new Configuration()
+      {
+
+         @Override
+         public AppConfigurationEntry[] getAppConfigurationEntry(String name)
+         {
+            long remaining = EXPIRED.equals(name) ? -1000 : (DUE_FOR_RENEWAL.equals(name) ? 10000 : 3600000);
+            return new AppConfigurationEntry[]
+            {new AppConfigurationEntry(TestKrb5LoginModule.class.getName(), LoginModuleControlFlag.REQUIRED,
+                  Collections.singletonMap("remaining", String.valueOf(remaining)))};
+         }
+      });
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      for (String current : new String[]
+      {DUE_FOR_RENEWAL, EXPIRED, VALID})
+      {
+         SubjectCache.getInstance(current).dispose();
+      }
+      Configuration.setConfiguration(previous);
+   }
+
+   public void testSubjectCached() throws Exception
+   {
+      SubjectCache cache = SubjectCache.getInstance(VALID);
+      Subject subject = cache.getSubject();
+
+      assertSame(subject, cache.getSubject());
+      assertSame(cache, SubjectCache.getInstance(VALID));
+   }
+
+   public void testReplacedSubjectUsable() throws Exception
+   {
+      SubjectCache cache = SubjectCache.getInstance(DUE_FOR_RENEWAL);
+      Subject held = cache.getSubject();
+
+      Subject replacement = cache.getSubject();
+      assertNotSame(held, replacement);
+      assertUsable(held);
+
+      cache.invalidate();
+      assertNotSame(replacement, cache.getSubject());
+      assertUsable(held);
+      assertUsable(replacement);
+   }
+
+   public void testReplacedSubjectLoggedOutOnDispose() throws Exception
+   {
+      SubjectCache cache = SubjectCache.getInstance(DUE_FOR_RENEWAL);
+      Subject held = cache.getSubject();
+      Subject replacement = cache.getSubject();
+
+      cache.dispose();
+
+      assertLoggedOut(held);
+      assertLoggedOut(replacement);
+   }
+
+   public void testExpiredSubjectLoggedOut() throws Exception
+   {
+      SubjectCache cache = SubjectCache.getInstance(EXPIRED);
+      Subject expired = cache.getSubject();
+
+      Subject replacement = cache.getSubject();
+      assertNotSame(expired, replacement);
+      assertLoggedOut(expired);
+   }
+
+   private static void assertUsable(final Subject subject)
+   {
+      assertEquals(1, subject.getPrivateCredentials(KerberosTicket.class).size());
+   }
+
+   private static void assertLoggedOut(final Subject subject)
+   {
+      assertEquals(0, subject.getPrivateCredentials(KerberosTicket.class).size());
+   }
+
+   public static class TestKrb5LoginModule implements LoginModule
+   {
+
+      private Subject subject;
+      private long remaining;
+      private KerberosTicket ticket;
+
+      public void initialize(Subject subject, CallbackHandler callbackHandler, Map<String, ?> sharedState,
+            Map<String, ?> options)
+      {
+         this.subject = subject;
+         remaining = Long.parseLong((String) options.get("remaining"));
+      }
+
+      public boolean login()
+      {
+         return true;
+      }
+
+      public boolean commit()
+      {
+         KerberosPrincipal client = new KerberosPrincipal("HTTP/web.example.com@EXAMPLE.COM");
+         KerberosPrincipal server = new KerberosPrincipal("krbtgt/EXAMPLE.COM@EXAMPLE.COM");
+         // Issued 80 seconds ago so a TGT with less than 20 seconds remaining is due for renewal.
+         Date start = new Date(System.currentTimeMillis() - 80000);
+         ticket = new KerberosTicket(new byte[] {1}, client, server, new byte[16], 17, new boolean[32], start, start,
+               new Date(System.currentTimeMillis() + remaining), null, null);
+         subject.getPrincipals().add(client);
+         subject.getPrivateCredentials().add(ticket);
+
+         return true;
+      }
+
+      public boolean abort()
+      {
+         return true;
+      }
+
+      public boolean logout()
+      {
+         // As Krb5LoginModule the tickets are removed from the Subject and destroyed.
+         subject.getPrivateCredentials().remove(ticket);
+         subject.getPrincipals().clear();
+
+         return true;
+      }
+
+   }
+
+}
@@ -0,0 +1,433 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.Principal;
+import java.security.acl.Group;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.naming.AuthenticationException;
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.LdapContext;
+import javax.naming.spi.InitialContextFactory;
+import javax.security.auth.Subject;
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.PasswordCallback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import javax.security.auth.login.LoginException;
+import javax.security.auth.spi.LoginModule;
+
+/**
+ * A minimal in memory directory for testing the login modules, set as the java.naming.factory.initial option.
+ *
+ * Only equality filters of the form (attribute={n}) or (attribute=value) are supported, every operation is recorded
+ * in {@link #OPERATIONS} as "bind:dn", "search:filter" or "read:dn" along with the name of the thread that issued it.
+ */
+public class TestDirectory implements InitialContextFactory
+{
+
+   static final String SEARCH_DN = "cn=search,dc=example,dc=com";
+
+   static final String SEARCH_PASSWORD = "searchPassword";
+
+   static final String USERS_DN = "ou=users,dc=example,dc=com";
+
+   static final List<String> OPERATIONS = new CopyOnWriteArrayList<String>();
+
+   private static final Map<String, String> THREADS = new ConcurrentHashMap<String, String>();
+
+   private static final Map<String, Attributes> ENTRIES = new ConcurrentHashMap<String, Attributes>();
+
+   private static final Map<String, String> PASSWORDS = new ConcurrentHashMap<String, String>();
+
+   static void reset()
+   {
+      ENTRIES.clear();
+      PASSWORDS.clear();
+      OPERATIONS.clear();
+      THREADS.clear();
+   }
+
+   /**
+    * Add or replace an entry, the attributes are specified as pairs of id and value.
+    */
+   static void addEntry(String dn, String password, Object... attributes)
+   {
+      Attributes entry = new BasicAttributes(true);
+      for (int i = 0; i < attributes.length; i += 2)
+      {
+         Attribute attribute = entry.get((String) attributes[i]);
+         if (attribute == null)
+         {
+            entry.put((String) attributes[i], attributes[i + 1]);
+         }
+         else
+         {
+            attribute.add(attributes[i + 1]);
+         }
+      }
+      ENTRIES.put(key(dn), entry);
+      if (password != null)
+      {
+         PASSWORDS.put(key(dn), password);
+      }
+   }
+
+   static void removeEntry(String dn)
+   {
+      ENTRIES.remove(key(dn));
+      PASSWORDS.remove(key(dn));
+   }
+
+   static int count(String prefix)
+   {
+      int count = 0;
+      for (String current : OPERATIONS)
+      {
+         if (current.startsWith(prefix))
+         {
+            count++;
+         }
+      }
+
+      return count;
+   }
+
+   /**
+    * @return The name of the thread that last issued an operation starting with the prefix.
+    */
+   static String thread(String prefix)
+   {
+      for (Map.Entry<String, String> current : THREADS.entrySet())
+      {
+         if (current.getKey().startsWith(prefix))
+         {
+            return current.getValue();
+         }
+      }
+
+      return null;
+   }
+
+   private static void record(String operation)
+   {
+      OPERATIONS.add(operation);
+      THREADS.put(operation, Thread.currentThread().getName());
+   }
+
+   /**
+    * @return The options of a login module searching this directory as cn=search,dc=example,dc=com for users under
+    * ou=users,dc=example,dc=com by uid, the role names are the values of the role attribute of the user entry.
+    */
+   static Map<String, String> options()
+   {
+      Map<String, String> options = new HashMap<String, String>();
+      options.put(Context.INITIAL_CONTEXT_FACTORY, TestDirectory.class.getName());
+      options.put(Context.PROVIDER_URL, "ldap://test:389");
+      options.put("bindDN", SEARCH_DN);
+      options.put("bindCredential", SEARCH_PASSWORD);
+      options.put("baseCtxDN", USERS_DN);
+      options.put("baseFilter", "(uid={0})");
+      options.put("roleAttributeID", "role");
+      options.put("roleAttributeIsDN", "false");
+
+      return options;
+   }
+
+   /**
+    * Add the search identity and a user with the specified roles.
+    */
+   static String addUser(String uid, String password, String... roles)
+   {
+      addEntry(SEARCH_DN, SEARCH_PASSWORD);
+      String dn = "uid=" + uid + "," + USERS_DN;
+      String[] attributes = new String[roles.length * 2 + 2];
+      attributes[0] = "uid";
+      attributes[1] = uid;
+      for (int i = 0; i < roles.length; i++)
+      {
+         attributes[i * 2 + 2] = "role";
+         attributes[i * 2 + 3] = roles[i];
+      }
+      addEntry(dn, password, attributes);
+
+      return dn;
+   }
+
+   /**
+    * Initialize the login module with the options and login with the username and password.
+    *
+    * @return The Subject populated by the commit.
+    */
+   static Subject login(LoginModule module, Map<String, String> options, final String username, final String password)
+         throws LoginException
+   {
+      Subject subject = new Subject();
+      module.initialize(subject, new CallbackHandler()
+      {
+
+         public void handle(Callback[] callbacks) throws IOException, UnsupportedCallbackException
+         {
+            for (Callback current : callbacks)
+            {
+               if (current instanceof NameCallback)
+               {
+                  ((NameCallback) current).setName(username);
+               }
+               else if (current instanceof PasswordCallback)
+               {
+                  ((PasswordCallback) current).setPassword(password.toCharArray());
+               }
+               else
+               {
+                  throw new UnsupportedCallbackException(current);
+               }
+            }
+         }
+      }, new HashMap<String, Object>(), options);
+      module.login();
+      module.commit();
+
+      return subject;
+   }
+
+   /**
+    * @return The names of the roles in the Roles group of the Subject.
+    */
+   static Set<String> roles(Subject subject)
+   {
+      Set<String> roles = new HashSet<String>();
+      for (Group current : subject.getPrincipals(Group.class))
+      {
+         if ("Roles".equals(current.getName()))
+         {
+            Enumeration<? extends Principal> members = current.members();
+            while (members.hasMoreElements())
+            {
+               roles.add(members.nextElement().getName());
+            }
+         }
+      }
+
+      return roles;
+   }
+
+   public Context getInitialContext(Hashtable<?, ?> environment) throws NamingException
+   {
+      Object principal = environment.get(Context.SECURITY_PRINCIPAL);
+      Object credential = environment.get(Context.SECURITY_CREDENTIALS);
+      if (principal != null)
+      {
+         record("bind:" + principal);
+         String password = credential instanceof char[] ? new String((char[]) credential) : (String) credential;
+         if (password == null || password.equals(PASSWORDS.get(key(principal.toString()))) == false)
+         {
+            throw new AuthenticationException("Invalid credentials for " + principal);
+         }
+      }
+
+      return context();
+   }
+
+   private static LdapContext context()
+   {
+      return (LdapContext) Proxy.newProxyInstance(TestDirectory.class.getClassLoader(),
+            new Class<?>[] {LdapContext.class}, new InvocationHandler()
+            {
+
+               public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+               {
+                  String name = method.getName();
+                  if ("search".equals(name) && args.length == 4 && args[2] instanceof Object[])
+                  {
+                     return search(args[0].toString(), (String) args[1], (Object[]) args[2]);
+                  }
+                  else if ("getAttributes".equals(name))
+                  {
+                     return read(args[0].toString(), args.length > 1 ? (String[]) args[1] : null);
+                  }
+                  else if ("newInstance".equals(name))
+                  {
+                     return context();
+                  }
+                  else if ("getEnvironment".equals(name))
+                  {
+                     return new Hashtable<Object, Object>();
+                  }
+                  else if ("hashCode".equals(name))
+                  {
+                     return Integer.valueOf(System.identityHashCode(proxy));
+                  }
+                  else if ("equals".equals(name))
+                  {
+                     return Boolean.valueOf(proxy == args[0]);
+                  }
+                  else if ("toString".equals(name))
+                  {
+                     return "TestDirectory context";
+                  }
+
+                  return null;
+               }
+            });
+   }
+
+   private static NamingEnumeration<SearchResult> search(String base, String filter, Object[] filterArgs)
+         throws NamingException
+   {
+      record("search:" + filter);
+      String expression = filter.substring(1, filter.length() - 1);
+      int separator = expression.indexOf('=');
+      String attributeId = expression.substring(0, separator);
+      Object value = expression.substring(separator + 1);
+      if (expression.charAt(separator + 1) == '{')
+      {
+         value = filterArgs[Integer.parseInt(expression.substring(separator + 2, expression.length() - 1))];
+      }
+
+      List<SearchResult> results = new ArrayList<SearchResult>();
+      String suffix = "," + key(base);
+      for (Map.Entry<String, Attributes> current : ENTRIES.entrySet())
+      {
+         Attribute attribute = current.getValue().get(attributeId);
+         if (current.getKey().endsWith(suffix) && attribute != null && contains(attribute, value))
+         {
+            String relative = current.getKey().substring(0, current.getKey().length() - suffix.length());
+            results.add(new SearchResult(relative, null, (Attributes) current.getValue().clone(), true));
+         }
+      }
+
+      return enumeration(results);
+   }
+
+   private static boolean contains(Attribute attribute, Object value) throws NamingException
+   {
+      for (int i = 0; i < attribute.size(); i++)
+      {
+         Object current = attribute.get(i);
+         if (value instanceof byte[] ? current instanceof byte[] && Arrays.equals((byte[]) value, (byte[]) current)
+               : value.toString().equalsIgnoreCase(current.toString()))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private static Attributes read(String dn, String[] attributeIds) throws NamingException
+   {
+      record("read:" + dn);
+      Attributes entry = ENTRIES.get(key(dn));
+      if (entry == null)
+      {
+         throw new NameNotFoundException(dn);
+      }
+
+      Attributes result = new BasicAttributes(true);
+      for (String current : attributeIds != null ? Arrays.asList(attributeIds) : ids(entry))
+      {
+         Attribute attribute = entry.get(current);
+         if (attribute != null)
+         {
+            result.put((Attribute) attribute.clone());
+         }
+      }
+
+      return result;
+   }
+
+   private static List<String> ids(Attributes entry) throws NamingException
+   {
+      List<String> ids = new ArrayList<String>();
+      NamingEnumeration<String> it = entry.getIDs();
+      while (it.hasMore())
+      {
+         ids.add(it.next());
+      }
+
+      return ids;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static NamingEnumeration<SearchResult> enumeration(List<SearchResult> results)
+   {
+      final Iterator<SearchResult> it = results.iterator();
+      return (NamingEnumeration<SearchResult>) Proxy.newProxyInstance(TestDirectory.class.getClassLoader(),
+            new Class<?>[] {NamingEnumeration.class}, new InvocationHandler()
+            {
+
+               public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+               {
+                  String name = method.getName();
+                  if ("hasMore".equals(name) || "hasMoreElements".equals(name))
+                  {
+                     return Boolean.valueOf(it.hasNext());
+                  }
+                  else if ("next".equals(name) || "nextElement".equals(name))
+                  {
+                     return it.next();
+                  }
+
+                  return null;
+               }
+            });
+   }
+
+   private static String key(String dn)
+   {
+      String key = dn.trim();
+      if (key.startsWith("\"") && key.endsWith("\""))
+      {
+         key = key.substring(1, key.length() - 1);
+      }
+
+      return key.replace(", ", ",").toLowerCase(Locale.ENGLISH);
+   }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Map;
+
+import javax.security.auth.login.LoginException;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * Test case for the UnknownUserCache and its use by the AdvancedLdapLoginModule.
+ */
+public class UnknownUserCacheTestCase extends TestCase
+{
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      TestDirectory.reset();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      SharedInstances.clearAll();
+      TestDirectory.reset();
+   }
+
+   public void testCaseInsensitiveUsername()
+   {
+      UnknownUserCache cache = UnknownUserCache.getInstance(getName(), 60000, 10);
+      cache.addUnknown("Mallory");
+
+      assertTrue(cache.isUnknown("mallory"));
+      assertFalse(cache.isUnknown("alice"));
+   }
+
+   public void testChangeClearsAll()
+   {
+      UnknownUserCache cache = UnknownUserCache.getInstance(getName(), 60000, 10);
+      cache.addUnknown("mallory");
+      cache.addUnknown("trudy");
+
+      cache.entryChanged("uid=alice,ou=users,dc=example,dc=com");
+      assertFalse(cache.isUnknown("mallory"));
+      assertFalse(cache.isUnknown("trudy"));
+
+      cache.addUnknown("mallory");
+      cache.allChanged();
+      assertFalse(cache.isUnknown("mallory"));
+   }
+
+   public void testUnknownUserRejectedWithoutSearch() throws Exception
+   {
+      TestDirectory.addUser("alice", "password", "Users");
+      Map<String, String> options = TestDirectory.options();
+      options.put("unknownUserCacheTimeout", "60");
+
+      assertLoginFails(options, "mallory");
+      assertEquals(1, TestDirectory.count("search:"));
+
+      TestDirectory.OPERATIONS.clear();
+      assertLoginFails(options, "Mallory");
+      assertTrue("No connection made " + TestDirectory.OPERATIONS, TestDirectory.OPERATIONS.isEmpty());
+
+      // Known users are unaffected.
+      assertTrue(TestDirectory.roles(TestDirectory.login(new AdvancedLdapLoginModule(), options, "alice", "password"))
+            .contains("Users"));
+   }
+
+   public void testFailedPasswordNotRemembered() throws Exception
+   {
+      TestDirectory.addUser("alice", "password", "Users");
+      Map<String, String> options = TestDirectory.options();
+      options.put("unknownUserCacheTimeout", "60");
+
+      try
+      {
+         TestDirectory.login(new AdvancedLdapLoginModule(), options, "alice", "wrong");
+         fail("Expected LoginException");
+      }
+      catch (LoginException expected)
+      {
+      }
+
+      TestDirectory.login(new AdvancedLdapLoginModule(), options, "alice", "password");
+   }
+
+   public void testDisabledByDefault() throws Exception
+   {
+      Map<String, String> options = TestDirectory.options();
+      TestDirectory.addEntry(TestDirectory.SEARCH_DN, TestDirectory.SEARCH_PASSWORD);
+
+      assertLoginFails(options, "mallory");
+      assertLoginFails(options, "mallory");
+      assertEquals(2, TestDirectory.count("search:"));
+   }
+
+   private void assertLoginFails(Map<String, String> options, String username)
+   {
+      try
+      {
+         TestDirectory.login(new AdvancedLdapLoginModule(), options, username, "password");
+         fail("Expected LoginException");
+      }
+      catch (LoginException expected)
+      {
+         assertTrue(expected.getMessage(), expected.getMessage().contains("found no matches"));
+      }
+   }
+
+}
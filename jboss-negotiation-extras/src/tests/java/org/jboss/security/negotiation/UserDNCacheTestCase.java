@@ -0,0 +1,112 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2026, Red Hat, Inc. and/or its affiliates, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation;
+
+import java.util.Map;
+
+import javax.security.auth.Subject;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * Test case for the UserDNCache.
+ */
+public class UserDNCacheTestCase extends TestCase
+{
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      TestDirectory.reset();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      SharedInstances.clearAll();
+      TestDirectory.reset();
+   }
+
+   public void testCaseInsensitiveUsername()
+   {
+      UserDNCache cache = UserDNCache.getInstance(getName(), 60000, 10);
+      cache.put("Alice", "CN=Alice,OU=Users,DC=example,DC=com");
+
+      assertEquals("CN=Alice,OU=Users,DC=example,DC=com", cache.get("alice"));
+      assertNull(cache.get("bob"));
+   }
+
+   public void testChangedEntryRemoved()
+   {
+      UserDNCache cache = UserDNCache.getInstance(getName(), 60000, 10);
+      cache.put("alice", "CN=Alice,OU=Users,DC=example,DC=com");
+      cache.put("bob", "CN=Bob,OU=Users,DC=example,DC=com");
+      cache.put("carol", "ldap://child.example.com:389/CN=Carol,OU=Users,DC=child,DC=example,DC=com");
+
+      cache.entryChanged("cn=alice, ou=Users, dc=example, dc=com");
+      cache.entryChanged("CN=Carol,OU=Users,DC=child,DC=example,DC=com");
+
+      assertNull(cache.get("alice"));
+      assertNull(cache.get("carol"));
+      assertEquals("CN=Bob,OU=Users,DC=example,DC=com", cache.get("bob"));
+   }
+
+   public void testCachedDNUsed() throws Exception
+   {
+      TestDirectory.addUser("alice", "password", "Users");
+      Map<String, String> options = TestDirectory.options();
+      options.put("userDNCacheTimeout", "60");
+
+      TestDirectory.login(new AdvancedLdapLoginModule(), options, "alice", "password");
+      TestDirectory.OPERATIONS.clear();
+      Subject subject = TestDirectory.login(new AdvancedLdapLoginModule(), options, "alice", "password");
+
+      assertTrue(TestDirectory.roles(subject).contains("Users"));
+      assertEquals(0, TestDirectory.count("search:"));
+   }
+
+   public void testRenamedUserSearchedAgain() throws Exception
+   {
+      String oldDN = TestDirectory.addUser("alice", "password", "Users");
+      Map<String, String> options = TestDirectory.options();
+      options.put("userDNCacheTimeout", "60");
+      options.put("bindCacheTimeout", "60");
+      TestDirectory.login(new AdvancedLdapLoginModule(), options, "alice", "password");
+
+      TestDirectory.removeEntry(oldDN);
+      TestDirectory.addEntry("cn=Alice,ou=users,dc=example,dc=com", "password", "uid", "alice", "role", "Renamed");
+      TestDirectory.OPERATIONS.clear();
+      Subject subject = TestDirectory.login(new AdvancedLdapLoginModule(), options, "alice", "password");
+
+      assertTrue(TestDirectory.roles(subject).contains("Renamed"));
+      assertEquals(1, TestDirectory.count("search:"));
+      assertEquals(1, TestDirectory.count("bind:cn=alice,ou=users"));
+
+      TestDirectory.OPERATIONS.clear();
+      TestDirectory.login(new AdvancedLdapLoginModule(), options, "alice", "password");
+      assertEquals("New DN cached", 0, TestDirectory.count("search:"));
+   }
+
+}
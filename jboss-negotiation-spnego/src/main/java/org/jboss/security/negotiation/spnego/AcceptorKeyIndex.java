@@ -0,0 +1,446 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosKey;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.login.LoginException;
+
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.common.SharedInstances;
+import org.jboss.security.negotiation.spnego.encoding.TokenParser;
+
+/**
+ * A process wide index of the keys of many service principals, which may be in different realms, read from a single
+ * keytab so one login module can accept for every virtual host without a security domain and login for each host.
+ *
+ * Accepting only requires the keys of the service so no TGT is obtained, the Subject holds the keys of all of the
+ * principals and JGSS selects the key using the sname, realm and kvno of the ticket. The same selection is made from
+ * the index when the ticket is decrypted to obtain the PAC.
+ *
+ * The keytab is watched and re-read when it changes, the new keys replace the index in a single step so logins never
+ * see a partially loaded keytab. Keys no longer in the keytab are retained for a grace period so tickets issued before
+ * the keys were rotated continue to be accepted.
+ */
+final class AcceptorKeyIndex implements SharedInstances.Disposable
+{
+
+   private static final Logger log = Logger.getLogger(AcceptorKeyIndex.class);
+
+   private static final SharedInstances<String, AcceptorKeyIndex> INSTANCES = SharedInstances.create();
+
+   /**
+    * The default time in seconds keys are retained after they are removed from the keytab, this is the default
+    * maximum lifetime of the service tickets issued by Active Directory.
+    */
+   static final int DEFAULT_GRACE_PERIOD = (int) TimeUnit.HOURS.toSeconds(10);
+
+   private final File keyTab;
+
+   private final Set<String> principals;
+
+   private final long gracePeriod;
+
+   private volatile Keys current;
+
+   private volatile WatchService watcher;
+
+   private AcceptorKeyIndex(final File keyTab, final List<String> principals, final long gracePeriod)
+         throws LoginException
+   {
+      this.keyTab = keyTab;
+      this.principals = new HashSet<String>();
+      for (String current : principals)
+      {
+         this.principals.add(new KerberosPrincipal(current).getName());
+      }
+      this.gracePeriod = gracePeriod;
+      current = new Keys(read(), Collections.<KerberosKey, Long> emptyMap());
+      log.debugf("Indexed %d keys of %d principals from '%s'", current.active.size(), current.names.size(),
+            keyTab);
+   }
+
+   /**
+    * Obtain the index of the keys of the principals, reading them from the keytab and watching it for changes if not
+    * already indexed.
+    *
+    * @param keyTab - The path of the keytab.
+    * @param principals - The names of the service principals, if empty all principals in the keytab are indexed.
+    * @param gracePeriod - The time in seconds keys are retained after they are removed from the keytab.
+    * @return The shared index.
+    * @throws LoginException - If the keytab can not be read or does not contain keys for each of the principals.
+    */
+   static AcceptorKeyIndex getInstance(final String keyTab, final List<String> principals, final int gracePeriod)
+         throws LoginException
+   {
+      String key = keyTab + "|" + principals + "|" + gracePeriod;
+      AcceptorKeyIndex index = INSTANCES.get(key);
+      if (index == null)
+      {
+         AcceptorKeyIndex created = new AcceptorKeyIndex(new File(keyTab).getAbsoluteFile(), principals,
+               TimeUnit.SECONDS.toMillis(gracePeriod));
+         index = INSTANCES.register(key, created);
+         if (index == created)
+         {
+            index.watch();
+         }
+      }
+
+      return index;
+   }
+
+   /**
+    * Split a comma separated list of principal names.
+    */
+   static List<String> parsePrincipals(final String principals)
+   {
+      if (principals == null)
+      {
+         return Collections.emptyList();
+      }
+      List<String> result = new ArrayList<String>();
+      for (String current : principals.split(","))
+      {
+         current = current.trim();
+         if (current.length() > 0)
+         {
+            result.add(current);
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * @return The Subject holding the principals and keys to accept with, it is shared so must not be modified.
+    */
+   Subject getSubject()
+   {
+      return current.subject;
+   }
+
+   /**
+    * Select the key the ticket for the service is encrypted with.
+    *
+    * @param serverName - The name of the service including the realm.
+    * @param keyType - The encryption type.
+    * @param keyVersion - The key version or -1 to select the latest version.
+    * @return The key or null if the index does not hold a matching key.
+    */
+   KerberosKey getKey(final String serverName, final int keyType, final int keyVersion)
+   {
+      if (serverName == null)
+      {
+         return null;
+      }
+      Keys keys = current;
+
+      return keyVersion >= 0 ? keys.byVersion.get(id(serverName, keyType, keyVersion)) : keys.latest.get(serverName
+            + "|" + keyType);
+   }
+
+   /**
+    * @return A TokenParser selecting the key to decrypt the ticket from this index.
+    */
+   TokenParser newTokenParser()
+   {
+      return new TokenParser()
+      {
+
+         @Override
+         public KerberosKey getKrbKey(final Subject sub, final String serverName, final int keyType,
+               final int keyVersion)
+         {
+            return getKey(serverName, keyType, keyVersion);
+         }
+      };
+   }
+
+   /**
+    * Re-read the keytab and replace the index, the keys no longer in the keytab are retained until the grace period
+    * ends. If the keytab can not be read the current keys remain in use.
+    */
+   synchronized void reload()
+   {
+      List<KerberosKey> loaded;
+      try
+      {
+         loaded = read();
+      }
+      catch (LoginException e)
+      {
+         log.warn("Unable to reload keytab '" + keyTab + "', the current keys remain in use", e);
+         return;
+      }
+
+      Set<String> loadedIds = new HashSet<String>();
+      for (KerberosKey key : loaded)
+      {
+         loadedIds.add(id(key));
+      }
+      long now = System.currentTimeMillis();
+      Keys previous = current;
+      Map<KerberosKey, Long> retired = new HashMap<KerberosKey, Long>();
+      for (KerberosKey key : previous.active)
+      {
+         if (loadedIds.contains(id(key)) == false)
+         {
+            retired.put(key, Long.valueOf(now + gracePeriod));
+         }
+      }
+      for (Map.Entry<KerberosKey, Long> entry : previous.retired.entrySet())
+      {
+         if (entry.getValue().longValue() > now && loadedIds.contains(id(entry.getKey())) == false)
+         {
+            retired.put(entry.getKey(), entry.getValue());
+         }
+      }
+
+      current = new Keys(loaded, retired);
+      log.infof("Reloaded %d keys from '%s', retaining %d previous keys", loaded.size(), keyTab, retired.size());
+   }
+
+   /**
+    * Remove the retired keys where the grace period has ended.
+    */
+   synchronized void expire()
+   {
+      long now = System.currentTimeMillis();
+      Keys previous = current;
+      Map<KerberosKey, Long> retired = new HashMap<KerberosKey, Long>();
+      for (Map.Entry<KerberosKey, Long> entry : previous.retired.entrySet())
+      {
+         if (entry.getValue().longValue() > now)
+         {
+            retired.put(entry.getKey(), entry.getValue());
+         }
+      }
+      if (retired.size() < previous.retired.size())
+      {
+         current = new Keys(previous.active, retired);
+         log.debugf("Removed %d keys retired from '%s'", previous.retired.size() - retired.size(), keyTab);
+      }
+   }
+
+   private List<KerberosKey> read() throws LoginException
+   {
+      List<KerberosKey> all;
+      try
+      {
+         all = KeyTabFile.read(keyTab);
+      }
+      catch (IOException e)
+      {
+         LoginException le = new LoginException("Unable to read keytab '" + keyTab + "'");
+         le.initCause(e);
+         throw le;
+      }
+      if (principals.isEmpty())
+      {
+         return all;
+      }
+
+      List<KerberosKey> keys = new ArrayList<KerberosKey>();
+      Set<String> found = new HashSet<String>();
+      for (KerberosKey key : all)
+      {
+         String name = key.getPrincipal().getName();
+         if (principals.contains(name))
+         {
+            keys.add(key);
+            found.add(name);
+         }
+      }
+      for (String principal : principals)
+      {
+         if (found.contains(principal) == false)
+         {
+            throw new LoginException("No keys for '" + principal + "' in keytab '" + keyTab + "'");
+         }
+      }
+
+      return keys;
+   }
+
+   private void watch()
+   {
+      final Path file = keyTab.toPath();
+      final WatchService watcher;
+      try
+      {
+         watcher = FileSystems.getDefault().newWatchService();
+         this.watcher = watcher;
+         file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+               StandardWatchEventKinds.ENTRY_MODIFY);
+      }
+      catch (IOException e)
+      {
+         log.warn("Unable to watch keytab '" + keyTab + "', changes will not be loaded", e);
+         return;
+      }
+
+      Thread thread = new Thread(new Runnable()
+      {
+
+         public void run()
+         {
+            try
+            {
+               while (true)
+               {
+                  long nextExpiry = current.nextExpiry;
+                  WatchKey key = nextExpiry == Long.MAX_VALUE ? watcher.take() : watcher.poll(
+                        Math.max(nextExpiry - System.currentTimeMillis(), 1), TimeUnit.MILLISECONDS);
+                  if (key != null)
+                  {
+                     boolean changed = false;
+                     for (WatchEvent<?> event : key.pollEvents())
+                     {
+                        changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                              || file.getFileName().equals(event.context());
+                     }
+                     key.reset();
+                     if (changed)
+                     {
+                        reload();
+                     }
+                  }
+                  if (System.currentTimeMillis() >= current.nextExpiry)
+                  {
+                     expire();
+                  }
+               }
+            }
+            catch (InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+            catch (ClosedWatchServiceException e)
+            {
+               log.debug("Keytab watcher closed", e);
+            }
+         }
+      }, "Keytab Watcher " + keyTab.getName());
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   /**
+    * Stop watching the keytab, the watcher thread exits as the watch service is closed.
+    */
+   public void dispose()
+   {
+      WatchService watcher = this.watcher;
+      if (watcher != null)
+      {
+         try
+         {
+            watcher.close();
+         }
+         catch (IOException e)
+         {
+            log.debug("Unable to close keytab watcher", e);
+         }
+      }
+   }
+
+   private static String id(final KerberosKey key)
+   {
+      return id(key.getPrincipal().getName(), key.getKeyType(), key.getVersionNumber());
+   }
+
+   private static String id(final String principal, final int keyType, final int keyVersion)
+   {
+      return principal + "|" + keyType + "|" + keyVersion;
+   }
+
+   /**
+    * The immutable keys in use, replaced as a whole when the keytab is reloaded or retired keys expire.
+    */
+   private static final class Keys
+   {
+
+      private final List<KerberosKey> active;
+
+      private final Map<KerberosKey, Long> retired;
+
+      private final long nextExpiry;
+
+      private final Subject subject = new Subject();
+
+      private final Map<String, KerberosKey> byVersion = new HashMap<String, KerberosKey>();
+
+      private final Map<String, KerberosKey> latest = new HashMap<String, KerberosKey>();
+
+      private final Set<String> names = new HashSet<String>();
+
+      private Keys(final List<KerberosKey> active, final Map<KerberosKey, Long> retired)
+      {
+         this.active = active;
+         this.retired = retired;
+         long expiry = Long.MAX_VALUE;
+         for (Long current : retired.values())
+         {
+            expiry = Math.min(expiry, current.longValue());
+         }
+         nextExpiry = expiry;
+
+         List<KerberosKey> all = new ArrayList<KerberosKey>(active);
+         all.addAll(retired.keySet());
+         for (KerberosKey key : all)
+         {
+            String principal = key.getPrincipal().getName();
+            names.add(principal);
+            subject.getPrincipals().add(key.getPrincipal());
+            subject.getPrivateCredentials().add(key);
+            byVersion.put(id(key), key);
+            String typeId = principal + "|" + key.getKeyType();
+            KerberosKey previous = latest.get(typeId);
+            if (previous == null || key.getVersionNumber() > previous.getVersionNumber())
+            {
+               latest.put(typeId, key);
+            }
+         }
+      }
+
+   }
+
+}
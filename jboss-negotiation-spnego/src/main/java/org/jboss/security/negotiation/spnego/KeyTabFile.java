@@ -0,0 +1,168 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.security.auth.kerberos.KerberosKey;
+import javax.security.auth.kerberos.KerberosPrincipal;
+
+/**
+ * Reads the keys from a keytab in the MIT format, the file is mapped into memory and parsed in a single pass.
+ */
+final class KeyTabFile
+{
+
+   private static final int VERSION_1 = 0x0501;
+
+   private static final int VERSION_2 = 0x0502;
+
+   private KeyTabFile()
+   {
+   }
+
+   /**
+    * Read all of the keys in the keytab.
+    *
+    * @param file - The keytab.
+    * @return The keys in the order they appear in the keytab.
+    * @throws IOException - If the keytab can not be read or is not a valid keytab.
+    */
+   static List<KerberosKey> read(final File file) throws IOException
+   {
+      FileInputStream fis = new FileInputStream(file);
+      try
+      {
+         FileChannel channel = fis.getChannel();
+         return read(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+      }
+      finally
+      {
+         fis.close();
+      }
+   }
+
+   static List<KerberosKey> read(final ByteBuffer buffer) throws IOException
+   {
+      try
+      {
+         buffer.order(ByteOrder.BIG_ENDIAN);
+         int version = buffer.getShort() & 0xffff;
+         if (version == VERSION_1)
+         {
+            buffer.order(ByteOrder.nativeOrder());
+         }
+         else if (version != VERSION_2)
+         {
+            throw new IOException("Unsupported keytab version 0x" + Integer.toHexString(version));
+         }
+
+         List<KerberosKey> keys = new ArrayList<KerberosKey>();
+         while (buffer.remaining() >= 4)
+         {
+            int size = buffer.getInt();
+            if (size == 0)
+            {
+               break;
+            }
+            if (size > 0)
+            {
+               ByteBuffer entry = buffer.slice();
+               entry.order(buffer.order());
+               entry.limit(size);
+               keys.add(readEntry(entry, version));
+            }
+            // A negative size is an entry which has been deleted.
+            buffer.position(buffer.position() + Math.abs(size));
+         }
+
+         return keys;
+      }
+      catch (BufferUnderflowException e)
+      {
+         throw new IOException("Truncated keytab", e);
+      }
+      catch (IllegalArgumentException e)
+      {
+         throw new IOException("Invalid keytab", e);
+      }
+   }
+
+   private static KerberosKey readEntry(final ByteBuffer entry, final int version)
+   {
+      int components = entry.getShort() & 0xffff;
+      if (version == VERSION_1)
+      {
+         // Version 1 included the realm in the count.
+         components--;
+      }
+      String realm = readString(entry);
+      StringBuilder name = new StringBuilder();
+      for (int i = 0; i < components; i++)
+      {
+         if (i > 0)
+         {
+            name.append('/');
+         }
+         name.append(readString(entry));
+      }
+      if (version == VERSION_2)
+      {
+         // The name type, the keys are matched by name alone.
+         entry.getInt();
+      }
+      // The timestamp.
+      entry.getInt();
+      int keyVersion = entry.get() & 0xff;
+      int keyType = entry.getShort();
+      byte[] key = new byte[entry.getShort() & 0xffff];
+      entry.get(key);
+      if (entry.remaining() >= 4)
+      {
+         // The full 32 bit key version replaces the 8 bit version where present.
+         int extended = entry.getInt();
+         if (extended != 0)
+         {
+            keyVersion = extended;
+         }
+      }
+
+      return new KerberosKey(new KerberosPrincipal(name + "@" + realm), key, keyType, keyVersion);
+   }
+
+   private static String readString(final ByteBuffer entry)
+   {
+      byte[] bytes = new byte[entry.getShort() & 0xffff];
+      entry.get(bytes);
+      return new String(bytes);
+   }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Subject;
+
+import org.ietf.jgss.GSSContext;
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.GSSManager;
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.Constants;
+import org.jboss.security.negotiation.MessageFactory;
+import org.jboss.security.negotiation.NegotiationException;
+import org.jboss.security.negotiation.cipher.Decoder;
+import org.jboss.security.negotiation.common.SubjectCache;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenInit;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenInitEncoder;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenTarg;
+
+/**
+ * Warm-up to be run as a deployment is started so the first users after a deploy do not pay for the class loading,
+ * JCE provider and JGSS initialisation and keytab login of the negotiation stack.
+ *
+ * Synthetic tokens are driven through the message factories and every supported ticket encryption type is
+ * decrypted until the hot paths are compiled, the Subject of the server security domain is obtained and used to
+ * accept a synthetic Kerberos token which initialises JGSS and reads the keys from the keytab. Additional phases,
+ * for example opening the directory connections of the login modules that follow, can be added and are run last.
+ *
+ * A phase that fails is logged and does not prevent the remaining phases from running, once all phases have run the
+ * stack is reported ready and the cost of each phase is logged separately from the readiness.
+ */
+public class NegotiationWarmUp
+{
+
+   private static final Logger log = Logger.getLogger(NegotiationWarmUp.class);
+
+   /**
+    * The default number of times each synthetic token is decoded and each encryption type decrypted.
+    */
+   public static final int DEFAULT_ITERATIONS = 10000;
+
+   private static final int[] ENCRYPTION_TYPES =
+   {1, 3, 16, 17, 18, 23};
+
+   // The ticket usage for the encrypted part of a ticket.
+   private static final int TICKET_USAGE = 2;
+
+   private static final int CIPHER_LENGTH = 64;
+
+   private static volatile boolean ready;
+
+   private final String serverSecurityDomain;
+
+   private final Map<String, Callable<?>> phases = new LinkedHashMap<String, Callable<?>>();
+
+   private int iterations = DEFAULT_ITERATIONS;
+
+   /**
+    * @param serverSecurityDomain - The security domain used to obtain the Subject of the server, if null no Subject
+    *        is obtained and JGSS is not initialised.
+    */
+   public NegotiationWarmUp(final String serverSecurityDomain)
+   {
+      this.serverSecurityDomain = serverSecurityDomain;
+   }
+
+   /**
+    * @param iterations - The number of times each synthetic token is decoded and each encryption type decrypted.
+    */
+   public void setIterations(final int iterations)
+   {
+      this.iterations = iterations;
+   }
+
+   /**
+    * Add a phase to run after the negotiation stack is warmed up.
+    *
+    * @param name - The name the cost of the phase is reported under.
+    * @param phase - The phase, the result is ignored.
+    */
+   public void addPhase(final String name, final Callable<?> phase)
+   {
+      phases.put(name, phase);
+   }
+
+   /**
+    * @return true once a warm-up has run in this process.
+    */
+   public static boolean isReady()
+   {
+      return ready;
+   }
+
+   /**
+    * Run the warm-up and report the negotiation stack ready.
+    *
+    * @return The time in milliseconds taken by each phase that completed, in the order they were run.
+    */
+   public Map<String, Long> run()
+   {
+      Map<String, Callable<?>> toRun = new LinkedHashMap<String, Callable<?>>();
+      toRun.put("messages", new Callable<Object>()
+      {
+
+         public Object call() throws Exception
+         {
+            warmUpMessages();
+            return null;
+         }
+      });
+      toRun.put("ciphers", new Callable<Object>()
+      {
+
+         public Object call() throws Exception
+         {
+            warmUpCiphers();
+            return null;
+         }
+      });
+      if (serverSecurityDomain != null)
+      {
+         toRun.put("serverSubject", new Callable<Object>()
+         {
+
+            public Object call() throws Exception
+            {
+               warmUpAcceptor();
+               return null;
+            }
+         });
+      }
+      toRun.putAll(phases);
+
+      long start = System.nanoTime();
+      Map<String, Long> costs = new LinkedHashMap<String, Long>();
+      for (Map.Entry<String, Callable<?>> current : toRun.entrySet())
+      {
+         long phaseStart = System.nanoTime();
+         try
+         {
+            current.getValue().call();
+            costs.put(current.getKey(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - phaseStart));
+         }
+         catch (Exception e)
+         {
+            log.warn("Warm-up phase '" + current.getKey() + "' failed", e);
+         }
+      }
+
+      ready = true;
+      log.info("Negotiation ready");
+      log.infof("Negotiation warm-up took %dms %s", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), costs);
+
+      return Collections.unmodifiableMap(costs);
+   }
+
+   private void warmUpMessages() throws GSSException, IOException, NegotiationException
+   {
+      List<byte[]> tokens = syntheticTokens();
+      NegTokenTarg response = new NegTokenTarg();
+      response.setNegResult(NegTokenTarg.ACCEPT_COMPLETED);
+      response.setResponseToken(kerberosToken());
+      for (int i = 0; i < iterations; i++)
+      {
+         MessageFactory mf = MessageFactory.newInstance();
+         for (byte[] current : tokens)
+         {
+            InputStream is = new ByteArrayInputStream(current);
+            if (mf.accepts(is))
+            {
+               mf.createMessage(is);
+            }
+         }
+         response.writeTo(new ByteArrayOutputStream());
+      }
+   }
+
+   private void warmUpCiphers() throws NegotiationException
+   {
+      byte[] cipher = new byte[CIPHER_LENGTH];
+      for (int i = 0; i < cipher.length; i++)
+      {
+         cipher[i] = (byte) i;
+      }
+
+      for (int type : ENCRYPTION_TYPES)
+      {
+         Decoder decoder = Decoder.getInstace(type);
+         byte[] key = new byte[decoder.keySize()];
+         Arrays.fill(key, (byte) 0x5b);
+         for (int i = 0; i < iterations; i++)
+         {
+            try
+            {
+               decoder.decryptedData(decoder.decrypt(cipher, key, TICKET_USAGE));
+            }
+            catch (NegotiationException expected)
+            {
+               // The synthetic ticket is not expected to pass the integrity check.
+            }
+         }
+      }
+   }
+
+   /**
+    * Obtain the Subject of the server and use it to accept a synthetic token, this reads the keys from the keytab
+    * and initialises JGSS before the token is rejected.
+    */
+   private void warmUpAcceptor() throws Exception
+   {
+      Subject serverSubject = SubjectCache.getInstance(serverSecurityDomain).getSubject();
+      final byte[] token = kerberosToken();
+      Subject.doAs(serverSubject, new PrivilegedExceptionAction<Object>()
+      {
+
+         public Object run() throws GSSException
+         {
+            GSSContext context = GSSManager.getInstance().createContext((GSSCredential) null);
+            try
+            {
+               context.acceptSecContext(token, 0, token.length);
+            }
+            catch (GSSException e)
+            {
+               if (e.getMajor() == GSSException.NO_CRED)
+               {
+                  throw e;
+               }
+               log.trace("Synthetic token rejected", e);
+            }
+            finally
+            {
+               context.dispose();
+            }
+
+            return null;
+         }
+      });
+   }
+
+   /**
+    * @return A NegTokenInit, NegTokenTarg, raw Kerberos token and NTLM negotiate message.
+    */
+   static List<byte[]> syntheticTokens() throws GSSException, IOException
+   {
+      List<byte[]> tokens = new ArrayList<byte[]>(4);
+      byte[] kerberosToken = kerberosToken();
+
+      NegTokenInit negTokenInit = new NegTokenInit();
+      negTokenInit.setMessageOid(Constants.SPNEGO);
+      negTokenInit.addMechType(Constants.KERBEROS_V5);
+      negTokenInit.addMechType(Constants.KERBEROS_V5_LEGACY);
+      negTokenInit.setMechToken(kerberosToken);
+      tokens.add(NegTokenInitEncoder.encode(negTokenInit));
+
+      NegTokenTarg negTokenTarg = new NegTokenTarg();
+      negTokenTarg.setNegResult(NegTokenTarg.ACCEPT_INCOMPLETE);
+      negTokenTarg.setSupportedMech(Constants.KERBEROS_V5);
+      negTokenTarg.setResponseToken(kerberosToken);
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      negTokenTarg.writeTo(baos);
+      tokens.add(baos.toByteArray());
+
+      tokens.add(kerberosToken);
+
+      // NTLMSSP negotiate message with no domain or workstation.
+      tokens.add(new byte[]
+      {'N', 'T', 'L', 'M', 'S', 'S', 'P', 0, 1, 0, 0, 0, 0x07, 0x02, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0});
+
+      return tokens;
+   }
+
+   /**
+    * @return A Kerberos token with an empty AP-REQ.
+    */
+   private static byte[] kerberosToken() throws GSSException
+   {
+      byte[] oid = Constants.KERBEROS_V5.getDER();
+      byte[] token = new byte[oid.length + 6];
+      token[0] = 0x60;
+      token[1] = (byte) (oid.length + 4);
+      System.arraycopy(oid, 0, token, 2, oid.length);
+      // TOK_ID of an AP-REQ followed by an empty AP-REQ.
+      token[oid.length + 2] = 0x01;
+      token[oid.length + 3] = 0x00;
+      token[oid.length + 4] = 0x6e;
+      token[oid.length + 5] = 0x00;
+
+      return token;
+   }
+
+}
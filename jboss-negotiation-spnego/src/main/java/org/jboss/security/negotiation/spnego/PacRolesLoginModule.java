@@ -0,0 +1,182 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.io.IOException;
+import java.security.acl.Group;
+import java.util.Map;
+
+import javax.security.auth.Subject;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.login.LoginException;
+
+import org.jboss.security.SimpleGroup;
+import org.jboss.security.negotiation.common.CommonLoginModule;
+import org.jboss.security.negotiation.spnego.encoding.PacLogonInfo;
+
+/**
+ * Login module to follow the SPNEGOLoginModule to load the roles of the user from the
+ * group SIDs in the PAC of the users ticket, the SIDs are mapped to role names using a
+ * properties file so no directory access is required.
+ *
+ * The SPNEGOLoginModule must be configured with decodePac=true and both login modules with
+ * password-stacking=useFirstPass.
+ */
+public class PacRolesLoginModule extends CommonLoginModule
+{
+
+   /*
+    * Configuration Option Constants
+    */
+
+   // The properties file mapping each SID to a comma separated list of role names.
+   private static final String SID_MAPPING = "sidMapping";
+
+   // The time in seconds after which the SID mapping is reloaded, by default it is never reloaded.
+   private static final String SID_MAPPING_TIMEOUT = "sidMappingTimeout";
+
+   // If true SIDs without a mapping are added as roles using the S-1-5-... form.
+   private static final String INCLUDE_UNMAPPED_SIDS = "includeUnmappedSids";
+
+   private static final String[] ALL_VALID_OPTIONS =
+   {
+      SID_MAPPING,SID_MAPPING_TIMEOUT,INCLUDE_UNMAPPED_SIDS
+   };
+
+   /*
+    * Configuration Options
+    */
+
+   private String sidMapping;
+
+   private int sidMappingTimeout = 0;
+
+   private boolean includeUnmappedSids;
+
+   /*
+    * Module State
+    */
+
+   private SimpleGroup userRoles = new SimpleGroup("Roles");
+
+   @Override
+   public void initialize(final Subject subject, final CallbackHandler callbackHandler, final Map sharedState,
+         final Map options)
+   {
+      addValidOptions(ALL_VALID_OPTIONS);
+      super.initialize(subject, callbackHandler, sharedState, options);
+
+      sidMapping = (String) options.get(SID_MAPPING);
+      String temp = (String) options.get(SID_MAPPING_TIMEOUT);
+      if (temp != null)
+      {
+         try
+         {
+            sidMappingTimeout = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using sidMappingTimeout=" + sidMappingTimeout);
+         }
+      }
+      temp = (String) options.get(INCLUDE_UNMAPPED_SIDS);
+      includeUnmappedSids = Boolean.valueOf(temp);
+
+      if (log.isDebugEnabled())
+      {
+         log.debug("sidMapping=" + sidMapping);
+         log.debug("sidMappingTimeout=" + sidMappingTimeout);
+         log.debug("includeUnmappedSids=" + includeUnmappedSids);
+      }
+   }
+
+   @Override
+   public boolean login() throws LoginException
+   {
+      if (super.login() == false)
+      {
+         throw new LoginException("No authenticated identity, password-stacking=useFirstPass is required.");
+      }
+      processIdentityAndCredential();
+
+      userRoles = new SimpleGroup("Roles");
+      PacLogonInfo logonInfo = (PacLogonInfo) sharedState.get(PacLogonInfo.SHARED_STATE_KEY);
+      if (logonInfo == null)
+      {
+         log.debug("No PAC available for '" + getIdentity().getName() + "'");
+         return true;
+      }
+
+      SidRoleMapping mapping = null;
+      if (sidMapping != null)
+      {
+         try
+         {
+            mapping = SidRoleMapping.getInstance(sidMapping, sidMappingTimeout * 1000L);
+         }
+         catch (IOException e)
+         {
+            LoginException le = new LoginException("Unable to load the SID mapping '" + sidMapping + "'");
+            le.initCause(e);
+            throw le;
+         }
+      }
+
+      for (String sid : logonInfo.getGroupSids())
+      {
+         String[] roleNames = mapping != null ? mapping.getRoles(sid) : new String[0];
+         if (roleNames.length == 0 && includeUnmappedSids)
+         {
+            roleNames = new String[] { sid };
+         }
+         for (String current : roleNames)
+         {
+            addRole(current);
+         }
+      }
+
+      return true;
+   }
+
+   private void addRole(final String roleName) throws LoginException
+   {
+      try
+      {
+         userRoles.addMember(createIdentity(roleName));
+      }
+      catch (Exception e)
+      {
+         if (log.isDebugEnabled())
+            log.debug("Failed to create principal", e);
+         throw new LoginException("Failed to create principal: " + e.getMessage());
+      }
+   }
+
+   @Override
+   protected Group[] getRoleSets() throws LoginException
+   {
+      Group[] roleSets =
+      {userRoles};
+      return roleSets;
+   }
+
+}
@@ -0,0 +1,357 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.io.IOException;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Subject;
+
+import org.ietf.jgss.GSSContext;
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.GSSManager;
+import org.ietf.jgss.GSSName;
+import org.ietf.jgss.Oid;
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.Constants;
+import org.jboss.security.negotiation.DelegationCredentialContext;
+import org.jboss.security.negotiation.common.SharedInstances;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenInit;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenInitEncoder;
+import org.picketbox.commons.cipher.Base64;
+
+/**
+ * Initiator to create the 'Authorization: Negotiate ...' header for outbound HTTP calls to a Kerberos protected
+ * service, using either a delegated credential or the Kerberos credentials of the Subject of the calling thread.
+ *
+ * Mutual authentication is not requested so a single header authenticates the request and no context is held between
+ * calls, each header contains a new authenticator as the service will reject a replayed one. What is reused for each
+ * target is the resolved service name and the service ticket, the tickets obtained using a credential are held in a
+ * Subject shared by all initiators for the same client so only the first call to each service contacts the KDC.
+ */
+public class SPNEGOInitiator
+{
+
+   private static final Logger log = Logger.getLogger(SPNEGOInitiator.class);
+
+   private static final String NEGOTIATE = "Negotiate";
+
+   private static final int MAX_TARGETS = 256;
+
+   private static final int MAX_CLIENTS = 256;
+
+   private static final int MAX_THREADS = 4;
+
+   private static final int MAX_QUEUED = 256;
+
+   private static final String EXECUTOR_KEY = "SPNEGO Initiator";
+
+   private static final Oid KRB5_PRINCIPAL_NAME;
+
+   static
+   {
+      try
+      {
+         KRB5_PRINCIPAL_NAME = new Oid("1.2.840.113554.1.2.2.1");
+      }
+      catch (GSSException e)
+      {
+         throw new RuntimeException("Unable to initialise Oid", e);
+      }
+   }
+
+   private static final Map<String, GSSName> targets = Collections.synchronizedMap(new Lru<GSSName>(MAX_TARGETS));
+
+   private static final Map<String, Subject> ticketSubjects = Collections.synchronizedMap(new Lru<Subject>(MAX_CLIENTS));
+
+   private static final SharedInstances<String, HeaderExecutor> executors = SharedInstances.create();
+
+   private final GSSManager manager;
+
+   private final GSSCredential credential;
+
+   private final Subject ticketSubject;
+
+   /**
+    * @param credential - The credential to initiate with, if null the Kerberos credentials of the Subject of the
+    *        calling thread are used, for example within Subject.doAs for the servers own identity.
+    * @throws GSSException - If the name of the credential can not be obtained.
+    */
+   public SPNEGOInitiator(final GSSCredential credential) throws GSSException
+   {
+      this(GSSManager.getInstance(), credential);
+   }
+
+   SPNEGOInitiator(final GSSManager manager, final GSSCredential credential) throws GSSException
+   {
+      this.manager = manager;
+      this.credential = credential;
+      this.ticketSubject = credential != null ? getTicketSubject(credential.getName().toString()) : null;
+   }
+
+   /**
+    * Create an initiator for the credential delegated to this server by the client of the current request.
+    *
+    * @return The initiator.
+    * @throws GSSException - If no delegated credential is available.
+    */
+   public static SPNEGOInitiator forDelegatedCredential() throws GSSException
+   {
+      GSSCredential delegated = DelegationCredentialContext.getDelegCredential();
+      if (delegated == null)
+      {
+         throw new GSSException(GSSException.NO_CRED, 0, "No delegated credential available");
+      }
+
+      return new SPNEGOInitiator(delegated);
+   }
+
+   /**
+    * Create the value of the Authorization header for a call to the specified service.
+    *
+    * @param spn - The service principal name e.g. HTTP/www.example.com@EXAMPLE.COM or HTTP@www.example.com
+    * @return The header value.
+    */
+   public String createAuthorizationHeader(final String spn) throws GSSException
+   {
+      return NEGOTIATE + " " + Base64.encodeBytes(createToken(spn), Base64.DONT_BREAK_LINES);
+   }
+
+   /**
+    * Start creating the value of the Authorization header in the background so any KDC exchange for the service
+    * ticket overlaps with the preparation of the request.
+    *
+    * @param spn - The service principal name.
+    * @return A Future for the header value.
+    */
+   public Future<String> prepareAuthorizationHeader(final String spn)
+   {
+      // The Subject of the calling thread is not inherited by the executor.
+      final Subject subject = credential == null ? Subject.getSubject(AccessController.getContext()) : null;
+
+      return getExecutor().submit(new Callable<String>()
+      {
+
+         public String call() throws Exception
+         {
+            if (subject == null)
+            {
+               return createAuthorizationHeader(spn);
+            }
+            try
+            {
+               return Subject.doAs(subject, new PrivilegedExceptionAction<String>()
+               {
+
+                  public String run() throws GSSException
+                  {
+                     return createAuthorizationHeader(spn);
+                  }
+               });
+            }
+            catch (PrivilegedActionException e)
+            {
+               throw e.getException();
+            }
+         }
+      });
+   }
+
+   /**
+    * Create the NegTokenInit for a call to the specified service.
+    */
+   byte[] createToken(final String spn) throws GSSException
+   {
+      final GSSName target = getTarget(spn);
+      byte[] mechToken;
+      if (ticketSubject == null)
+      {
+         mechToken = initiate(target);
+      }
+      else
+      {
+         try
+         {
+            mechToken = Subject.doAs(ticketSubject, new PrivilegedExceptionAction<byte[]>()
+            {
+
+               public byte[] run() throws GSSException
+               {
+                  return initiate(target);
+               }
+            });
+         }
+         catch (PrivilegedActionException e)
+         {
+            throw (GSSException) e.getException();
+         }
+      }
+
+      NegTokenInit negTokenInit = new NegTokenInit();
+      negTokenInit.setMessageOid(Constants.SPNEGO);
+      negTokenInit.addMechType(Constants.KERBEROS_V5);
+      negTokenInit.setMechToken(mechToken);
+      try
+      {
+         return NegTokenInitEncoder.encode(negTokenInit);
+      }
+      catch (IOException e)
+      {
+         GSSException gsse = new GSSException(GSSException.FAILURE, 0, "Unable to encode NegTokenInit message.");
+         gsse.initCause(e);
+         throw gsse;
+      }
+   }
+
+   private byte[] initiate(final GSSName target) throws GSSException
+   {
+      GSSContext context = manager.createContext(target, Constants.KERBEROS_V5, credential,
+            GSSContext.DEFAULT_LIFETIME);
+      try
+      {
+         context.requestMutualAuth(false);
+         return context.initSecContext(new byte[0], 0, 0);
+      }
+      finally
+      {
+         context.dispose();
+      }
+   }
+
+   private GSSName getTarget(final String spn) throws GSSException
+   {
+      GSSName target = targets.get(spn);
+      if (target == null)
+      {
+         Oid nameType = spn.indexOf('/') > 0 ? KRB5_PRINCIPAL_NAME : GSSName.NT_HOSTBASED_SERVICE;
+         target = manager.createName(spn, nameType, Constants.KERBEROS_V5);
+         targets.put(spn, target);
+         log.tracef("Resolved target '%s' as '%s'", spn, target);
+      }
+
+      return target;
+   }
+
+   private static ExecutorService getExecutor()
+   {
+      HeaderExecutor executor = executors.get(EXECUTOR_KEY);
+      if (executor == null)
+      {
+         HeaderExecutor created = new HeaderExecutor();
+         executor = executors.register(EXECUTOR_KEY, created);
+         if (executor != created)
+         {
+            created.dispose();
+         }
+      }
+
+      return executor.pool;
+   }
+
+   private static Subject getTicketSubject(final String client)
+   {
+      synchronized (ticketSubjects)
+      {
+         Subject subject = ticketSubjects.get(client);
+         if (subject == null)
+         {
+            subject = new Subject();
+            ticketSubjects.put(client, subject);
+         }
+
+         return subject;
+      }
+   }
+
+   /**
+    * The threads creating headers in the background, bounded so the number of threads does not grow with the number of
+    * concurrent outbound calls. Once all threads are busy and the queue is full, or the executor has been disposed of as
+    * the deployments using it are undeployed, the header is created by the calling thread.
+    */
+   private static final class HeaderExecutor implements SharedInstances.Disposable
+   {
+
+      private final ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(MAX_QUEUED), new ThreadFactory()
+            {
+
+               public Thread newThread(final Runnable r)
+               {
+                  Thread thread = new Thread(r, "SPNEGO Initiator");
+                  thread.setDaemon(true);
+                  return thread;
+               }
+            }, new RejectedExecutionHandler()
+            {
+
+               public void rejectedExecution(final Runnable r, final ThreadPoolExecutor executor)
+               {
+                  r.run();
+               }
+            });
+
+      private HeaderExecutor()
+      {
+         pool.allowCoreThreadTimeOut(true);
+      }
+
+      public void dispose()
+      {
+         pool.shutdown();
+      }
+   }
+
+   private static final class Lru<V> extends LinkedHashMap<String, V>
+   {
+
+      private static final long serialVersionUID = 1L;
+
+      private final int maxSize;
+
+      private Lru(final int maxSize)
+      {
+         super(16, 0.75f, true);
+         this.maxSize = maxSize;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, V> eldest)
+      {
+         return size() > maxSize;
+      }
+   }
+
+}
@@ -49,9 +49,12 @@ import org.jboss.security.negotiation.Constants;
 import org.jboss.security.negotiation.NegotiationMessage;
 import org.jboss.security.negotiation.common.CommonLoginModule;
 import org.jboss.security.negotiation.common.NegotiationContext;
+import org.jboss.security.negotiation.common.SubjectCache;
 import org.jboss.security.negotiation.spnego.encoding.NegTokenInit;
 import org.jboss.security.negotiation.spnego.encoding.NegTokenTarg;
+import org.jboss.security.negotiation.spnego.encoding.PacLogonInfo;
 import org.jboss.security.negotiation.spnego.encoding.SPNEGOMessage;
+import org.jboss.security.negotiation.spnego.encoding.TokenParser;
 
 /**
  * Login module to work in conjunction with SPNEGOAuthenticator to handle the
@@ -76,9 +79,22 @@ public class SPNEGOLoginModule extends CommonLoginModule
    // The security domain to delegate username/password authentication to.
    private static final String USERNAME_PASSWORD_DOMAIN = "usernamePasswordDomain";
 
+   // If true decode the PAC from the ticket and pass it to the following login modules.
+   private static final String DECODE_PAC = "decodePac";
+
+   // A keytab holding the keys of each acceptorPrincipals, used in place of the serverSecurityDomain.
+   private static final String ACCEPTOR_KEYTAB = "acceptorKeyTab";
+
+   // A comma separated list of the service principals to accept for e.g. one for each virtual host, all if not set.
+   private static final String ACCEPTOR_PRINCIPALS = "acceptorPrincipals";
+
+   // The time in seconds keys are still accepted after they are removed from the acceptorKeyTab.
+   private static final String ACCEPTOR_KEY_GRACE_PERIOD = "acceptorKeyGracePeriod";
+
    private static final String[] ALL_VALID_OPTIONS =
    {
-      REMOVE_REALM_FROM_PRINCIPAL,SERVER_SECURITY_DOMAIN,USERNAME_PASSWORD_DOMAIN
+      REMOVE_REALM_FROM_PRINCIPAL,SERVER_SECURITY_DOMAIN,USERNAME_PASSWORD_DOMAIN,DECODE_PAC,ACCEPTOR_KEYTAB,
+      ACCEPTOR_PRINCIPALS,ACCEPTOR_KEY_GRACE_PERIOD
    };
 
    /*
@@ -102,14 +118,24 @@ public class SPNEGOLoginModule extends CommonLoginModule
 
    private String usernamePasswordDomain;
 
+   private boolean decodePac;
+
+   private String acceptorKeyTab;
+
+   private List<String> acceptorPrincipals;
+
+   private int acceptorKeyGracePeriod = AcceptorKeyIndex.DEFAULT_GRACE_PERIOD;
+
    /*
     * Module State
     */
 
-   private LoginContext serverLoginContext = null;
+   private AcceptorKeyIndex acceptorKeys;
 
    private GSSCredential delegatedCredential = null;
 
+   private PacLogonInfo logonInfo = null;
+
    @Override
    public void initialize(final Subject subject, final CallbackHandler callbackHandler, final Map sharedState,
          final Map options)
@@ -123,6 +149,22 @@ public class SPNEGOLoginModule extends CommonLoginModule
       usernamePasswordDomain = (String) options.get(USERNAME_PASSWORD_DOMAIN);
       temp = (String) options.get(REMOVE_REALM_FROM_PRINCIPAL);
       removeRealmFromPrincipal = Boolean.valueOf(temp);
+      temp = (String) options.get(DECODE_PAC);
+      decodePac = Boolean.valueOf(temp);
+      acceptorKeyTab = (String) options.get(ACCEPTOR_KEYTAB);
+      acceptorPrincipals = AcceptorKeyIndex.parsePrincipals((String) options.get(ACCEPTOR_PRINCIPALS));
+      temp = (String) options.get(ACCEPTOR_KEY_GRACE_PERIOD);
+      if (temp != null)
+      {
+         try
+         {
+            acceptorKeyGracePeriod = Integer.parseInt(temp);
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Failed to parse: " + temp + ", using acceptorKeyGracePeriod=" + acceptorKeyGracePeriod);
+         }
+      }
       if (removeRealmFromPrincipal == false && principalClassName == null)
       {
          principalClassName = KerberosPrincipal.class.getName();
@@ -132,6 +174,10 @@ public class SPNEGOLoginModule extends CommonLoginModule
          log.debug("removeRealmFromPrincipal=" + removeRealmFromPrincipal);
          log.debug("serverSecurityDomain=" + serverSecurityDomain);
          log.debug("usernamePasswordDomain=" + usernamePasswordDomain);
+         log.debug("decodePac=" + decodePac);
+         log.debug("acceptorKeyTab=" + acceptorKeyTab);
+         log.debug("acceptorPrincipals=" + acceptorPrincipals);
+         log.debug("acceptorKeyGracePeriod=" + acceptorKeyGracePeriod);
       }
    }
 
@@ -167,6 +213,10 @@ public class SPNEGOLoginModule extends CommonLoginModule
                sharedState.put("javax.security.auth.login.name", identity);
                sharedState.put("javax.security.auth.login.password", "");
             }
+            if (logonInfo != null)
+            {
+               sharedState.put(PacLogonInfo.SHARED_STATE_KEY, logonInfo);
+            }
          }
       }
       else if (result instanceof Exception)
@@ -283,23 +333,11 @@ public class SPNEGOLoginModule extends CommonLoginModule
          throw new LoginException(message);
       }
 
-      try
-      {
-         Subject server = getServerSubject();
-         AcceptSecContext action = new AcceptSecContext(negotiationContext);
-         Object result = Subject.doAs(server, action);
-
-         return result;
-      }
-      finally
-      {
-         if (serverLoginContext != null)
-         {
-            // TODO - We may not actually want to logout as if we use cache this may clear it,
-            serverLoginContext.logout();
-         }
-      }
+      Subject server = getServerSubject();
+      AcceptSecContext action = new AcceptSecContext(negotiationContext, server);
+      Object result = Subject.doAs(server, action);
 
+      return result;
    }
 
 
@@ -329,18 +367,33 @@ public class SPNEGOLoginModule extends CommonLoginModule
       return groups;
    }
 
+   /**
+    * Obtain the Subject of the server, the Subject is shared by all logins using the same
+    * serverSecurityDomain and with the AdvancedLdapLoginModule where its jaasSecurityDomain
+    * is the same security domain, so the keytab is only read when the TGT is due for renewal.
+    *
+    * With an acceptorKeyTab the Subject holds the keys of every acceptorPrincipals instead and
+    * no login takes place, the Subject is replaced when the keytab changes.
+    */
    protected Subject getServerSubject() throws LoginException
    {
-      LoginContext lc = new LoginContext(serverSecurityDomain);
-      lc.login();
-      // Cache so we can log out.
-      serverLoginContext = lc;
+      if (acceptorKeyTab != null)
+      {
+         acceptorKeys = AcceptorKeyIndex.getInstance(acceptorKeyTab, acceptorPrincipals, acceptorKeyGracePeriod);
+         if (log.isDebugEnabled())
+         {
+            log.debug("Using the keys of " + (acceptorPrincipals.isEmpty() ? "all principals" : acceptorPrincipals)
+                  + " from '" + acceptorKeyTab + "'");
+         }
+
+         return acceptorKeys.getSubject();
+      }
 
-      Subject serverSubject = serverLoginContext.getSubject();
+      Subject serverSubject = SubjectCache.getInstance(serverSecurityDomain).getSubject();
       if (log.isDebugEnabled())
       {
          log.debug("Subject = " + serverSubject);
-         log.debug("Logged in '" + serverSecurityDomain + "' LoginContext");
+         log.debug("Using '" + serverSecurityDomain + "' Subject");
       }
 
       return serverSubject;
@@ -350,11 +403,13 @@ public class SPNEGOLoginModule extends CommonLoginModule
    {
 
       private final NegotiationContext negotiationContext;
+      private final Subject server;
       private boolean DEBUG = log.isDebugEnabled();
 
-      public AcceptSecContext(final NegotiationContext negotiationContext)
+      public AcceptSecContext(final NegotiationContext negotiationContext, final Subject server)
       {
          this.negotiationContext = negotiationContext;
+         this.server = server;
       }
 
       public Object run()
@@ -434,7 +489,7 @@ public class SPNEGOLoginModule extends CommonLoginModule
             if (gssContext.isEstablished())
             {
                log.warn("Authentication was performed despite already being authenticated!");
-               processIdentity(gssContext);
+               processIdentity(gssContext, null);
                return Boolean.TRUE;
             }
 
@@ -466,7 +521,7 @@ public class SPNEGOLoginModule extends CommonLoginModule
             }
             else
             {
-               processIdentity(gssContext);
+               processIdentity(gssContext, gssToken);
                return Boolean.TRUE;
             }
 
@@ -478,7 +533,7 @@ public class SPNEGOLoginModule extends CommonLoginModule
 
       }
 
-      private void processIdentity(GSSContext gssContext) throws GSSException, Exception
+      private void processIdentity(GSSContext gssContext, byte[] gssToken) throws GSSException, Exception
       {
          setIdentity(createIdentity(gssContext.getSrcName().toString()));
 
@@ -493,8 +548,38 @@ public class SPNEGOLoginModule extends CommonLoginModule
              delegatedCredential = gssContext.getDelegCred();
          }
 
+         if (decodePac && gssToken != null)
+         {
+            processPac(gssToken);
+         }
+
          negotiationContext.setAuthenticationMethod(SPNEGO);
          negotiationContext.setAuthenticated(true);
       }
+
+      /**
+       * Decrypt the ticket from the token that established the context to obtain the PAC,
+       * a ticket without a PAC or one that can not be decoded does not fail the authentication
+       * as the following login modules can still load the roles.
+       */
+      private void processPac(byte[] gssToken)
+      {
+         try
+         {
+            TokenParser parser = acceptorKeys != null ? acceptorKeys.newTokenParser() : new TokenParser();
+            parser.parseToken(gssToken, server);
+            byte[] authorizationData = parser.getAuthorizationData();
+            logonInfo = authorizationData != null ? PacLogonInfo.decode(authorizationData) : null;
+
+            if (DEBUG)
+            {
+               log.debug("PAC logon info = " + logonInfo);
+            }
+         }
+         catch (Exception e)
+         {
+            log.warn("Unable to decode the PAC from the ticket of '" + getIdentity().getName() + "'", e);
+         }
+      }
    }
 }
@@ -0,0 +1,167 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.spnego;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import org.jboss.logging.Logger;
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * A process wide table of the role names for each SID, loaded from a properties file where each key is a SID in the
+ * S-1-5-... form and each value is a comma separated list of role names.
+ *
+ * The table is loaded once for each location and optionally reloaded after a timeout, if a reload fails the previous
+ * table remains in use.
+ */
+final class SidRoleMapping {
+
+    private static final Logger log = Logger.getLogger(SidRoleMapping.class);
+
+    private static final SharedInstances<String, SidRoleMapping> INSTANCES = SharedInstances.create();
+
+    private static final String[] NO_ROLES = new String[0];
+
+    private final String location;
+    private final long timeout;
+
+    private volatile Map<String, String[]> roles;
+    private volatile long loadTime;
+
+    private SidRoleMapping(final String location, final long timeout) {
+        this.location = location;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Obtain the mapping for the specified location, loading it if it has not already been loaded.
+     *
+     * @param location - The name of the properties file as a class path resource, URL or file name.
+     * @param timeout - The time in milliseconds after which the table is reloaded or 0 to never reload.
+     * @return The shared mapping.
+     * @throws IOException - If the table has not previously been loaded and can not be loaded now.
+     */
+    static SidRoleMapping getInstance(final String location, final long timeout) throws IOException {
+        String key = location + "|" + timeout;
+        SidRoleMapping mapping = INSTANCES.get(key);
+        if (mapping == null) {
+            mapping = INSTANCES.register(key, new SidRoleMapping(location, timeout));
+        }
+        mapping.checkLoaded();
+
+        return mapping;
+    }
+
+    /**
+     * @return The role names for the SID, an empty array if the SID is not mapped.
+     */
+    String[] getRoles(final String sid) {
+        String[] result = roles.get(sid);
+        return result != null ? result : NO_ROLES;
+    }
+
+    private void checkLoaded() throws IOException {
+        if (roles == null) {
+            synchronized (this) {
+                if (roles == null) {
+                    load();
+                }
+            }
+        } else if (timeout > 0 && System.currentTimeMillis() - loadTime > timeout) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - loadTime > timeout) {
+                    try {
+                        load();
+                    } catch (IOException e) {
+                        // Don't retry on each login, keep the existing table until the next timeout.
+                        loadTime = System.currentTimeMillis();
+                        log.warn("Unable to reload the SID mapping from '" + location + "'", e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        Properties properties = new Properties();
+        InputStream is = open();
+        try {
+            properties.load(is);
+        } finally {
+            is.close();
+        }
+
+        Map<String, String[]> loaded = new HashMap<String, String[]>(properties.size() * 2);
+        for (String sid : properties.stringPropertyNames()) {
+            String[] names = properties.getProperty(sid).split(",");
+            int count = 0;
+            for (String current : names) {
+                String name = current.trim();
+                if (name.length() > 0) {
+                    names[count++] = name.intern();
+                }
+            }
+            if (count > 0) {
+                String[] mapped = new String[count];
+                System.arraycopy(names, 0, mapped, 0, count);
+                loaded.put(sid.trim().toUpperCase(Locale.ENGLISH), mapped);
+            }
+        }
+
+        roles = loaded;
+        loadTime = System.currentTimeMillis();
+        log.debugf("Loaded %d SID mappings from '%s'", loaded.size(), location);
+    }
+
+    private InputStream open() throws IOException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        URL url = classLoader != null ? classLoader.getResource(location) : null;
+        if (url == null) {
+            url = SidRoleMapping.class.getClassLoader().getResource(location);
+        }
+        if (url == null) {
+            File file = new File(location);
+            if (file.isFile()) {
+                url = file.toURI().toURL();
+            } else {
+                try {
+                    url = new URL(location);
+                } catch (MalformedURLException e) {
+                    throw new FileNotFoundException("Unable to locate SID mapping '" + location + "'");
+                }
+            }
+        }
+
+        return url.openStream();
+    }
+
+}
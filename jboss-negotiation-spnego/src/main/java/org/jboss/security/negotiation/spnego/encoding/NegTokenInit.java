@@ -21,6 +21,7 @@ import java.io.OutputStream;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.ietf.jgss.GSSException;
 import org.ietf.jgss.Oid;
 
 /**
@@ -83,7 +84,16 @@ public class NegTokenInit extends SPNEGOMessage
    @Override
    public void writeTo(OutputStream os) throws IOException
    {
-     throw new IllegalAccessError("Not Implemented");
+      try
+      {
+         NegTokenInitEncoder.encode(this, os);
+      }
+      catch (GSSException e)
+      {
+         IOException ioe = new IOException("Unable to encode NegTokenInit message.");
+         ioe.initCause(e);
+         throw ioe;
+      }
    }
 
    
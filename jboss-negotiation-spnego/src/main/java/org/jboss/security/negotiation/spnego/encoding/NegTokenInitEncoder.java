@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego.encoding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.Oid;
+
+/**
+ * NegTokenInit Encoder, produces the InitialContextToken sent by an initiator.
+ */
+public class NegTokenInitEncoder extends NegTokenEncoder
+{
+
+   protected static int getTotalLength(final List<byte[]> tokens)
+   {
+      int length = 0;
+      Iterator<byte[]> it = tokens.iterator();
+      while (it.hasNext())
+      {
+         length += it.next().length;
+      }
+
+      return length;
+   }
+
+   protected static void encodeOctetString(final List<byte[]> tokens, final byte type, final byte[] value)
+   {
+      if (value == null || value.length == 0)
+         return;
+
+      byte[] octetLength = createTypeLength((byte) 0x04, value.length);
+      byte[] sequenceLength = createTypeLength(type, value.length + octetLength.length);
+
+      tokens.add(0, value);
+      tokens.add(0, octetLength);
+      tokens.add(0, sequenceLength);
+   }
+
+   protected static void encodeReqFlags(final List<byte[]> tokens, final byte[] reqFlags)
+   {
+      if (reqFlags == null || reqFlags.length == 0)
+         return;
+
+      // The flags are held as the encoded BIT STRING as read by the decoder.
+      tokens.add(0, reqFlags);
+      tokens.add(0, createTypeLength((byte) 0xa1, reqFlags.length));
+   }
+
+   protected static void encodeMechTypes(final List<byte[]> tokens, final List<Oid> mechTypes) throws GSSException
+   {
+      List<byte[]> mechTypeTokens = new LinkedList<byte[]>();
+      for (Oid current : mechTypes)
+      {
+         mechTypeTokens.add(current.getDER());
+      }
+      int length = getTotalLength(mechTypeTokens);
+      byte[] sequenceLength = createTypeLength((byte) 0x30, length);
+
+      tokens.addAll(0, mechTypeTokens);
+      tokens.add(0, sequenceLength);
+      tokens.add(0, createTypeLength((byte) 0xa0, length + sequenceLength.length));
+   }
+
+   protected static void wrap(final List<byte[]> tokens, final byte type)
+   {
+      tokens.add(0, createTypeLength(type, getTotalLength(tokens)));
+   }
+
+   public static void encode(final NegTokenInit negTokenInit, final OutputStream os) throws GSSException, IOException
+   {
+      List<byte[]> tokens = new LinkedList<byte[]>();
+
+      encodeOctetString(tokens, (byte) 0xa3, negTokenInit.getMechListMIC());
+      encodeOctetString(tokens, (byte) 0xa2, negTokenInit.getMechToken());
+      encodeReqFlags(tokens, negTokenInit.getReqFlags());
+      encodeMechTypes(tokens, negTokenInit.getMechTypes());
+      wrap(tokens, (byte) 0x30);
+      wrap(tokens, (byte) 0xa0);
+      tokens.add(0, negTokenInit.getMessageOid().getDER());
+      wrap(tokens, (byte) 0x60);
+
+      Iterator<byte[]> it = tokens.iterator();
+      while (it.hasNext())
+      {
+         os.write(it.next());
+      }
+   }
+
+   public static byte[] encode(final NegTokenInit negTokenInit) throws GSSException, IOException
+   {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      encode(negTokenInit, baos);
+
+      return baos.toByteArray();
+   }
+}
@@ -0,0 +1,486 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego.encoding;
+
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.security.negotiation.NegotiationException;
+
+/**
+ * The logon information (KERB_VALIDATION_INFO) from the Privilege Attribute Certificate
+ * that Active Directory adds to the authorization data of the tickets it issues.
+ *
+ * The group SIDs are the primary group, the domain groups, the extra SIDs and the resource
+ * groups of the user as calculated by the KDC, so no directory search is needed to obtain them.
+ * The signatures of the PAC are not verified, the PAC is only trusted as it is contained within
+ * the encrypted part of the ticket which was decrypted using the key of the service.
+ */
+public class PacLogonInfo implements Serializable
+{
+
+   private static final long serialVersionUID = -4012463585213627741L;
+
+   /**
+    * The key used to pass the decoded logon information to the login modules that follow
+    * the SPNEGOLoginModule in the shared state.
+    */
+   public static final String SHARED_STATE_KEY = PacLogonInfo.class.getName();
+
+   /*
+    * Authorization data types, RFC 4120 and MS-PAC.
+    */
+
+   private static final int AD_IF_RELEVANT = 1;
+
+   private static final int AD_WIN2K_PAC = 128;
+
+   /*
+    * PAC buffer types.
+    */
+
+   private static final int LOGON_INFO = 1;
+
+   private static final int SEQUENCE = 0x30;
+
+   private final String userName;
+
+   private final String domainName;
+
+   private final String userSid;
+
+   private final List<String> groupSids;
+
+   private PacLogonInfo(final String userName, final String domainName, final String userSid,
+         final List<String> groupSids)
+   {
+      this.userName = userName;
+      this.domainName = domainName;
+      this.userSid = userSid;
+      this.groupSids = Collections.unmodifiableList(groupSids);
+   }
+
+   /**
+    * @return the account name of the user.
+    */
+   public String getUserName()
+   {
+      return userName;
+   }
+
+   /**
+    * @return the NetBIOS name of the domain of the user.
+    */
+   public String getDomainName()
+   {
+      return domainName;
+   }
+
+   /**
+    * @return the SID of the user in the S-1-5-... form.
+    */
+   public String getUserSid()
+   {
+      return userSid;
+   }
+
+   /**
+    * @return the SIDs of all groups the user is a member of in the S-1-5-... form.
+    */
+   public List<String> getGroupSids()
+   {
+      return groupSids;
+   }
+
+   /**
+    * Decode the logon information from the authorization data of a ticket.
+    *
+    * @param authorizationData the DER encoded AuthorizationData of the ticket
+    * @return the logon information or null if the authorization data does not contain a PAC
+    * @throws NegotiationException if the authorization data or the PAC can not be decoded
+    */
+   public static PacLogonInfo decode(final byte[] authorizationData) throws NegotiationException
+   {
+      try
+      {
+         byte[] pac = findPac(ByteBuffer.wrap(authorizationData));
+
+         return pac != null ? decodePac(pac) : null;
+      }
+      catch (BufferUnderflowException e)
+      {
+         throw new NegotiationException("Truncated authorization data");
+      }
+      catch (IllegalArgumentException e)
+      {
+         throw new NegotiationException("Invalid authorization data");
+      }
+      catch (IndexOutOfBoundsException e)
+      {
+         throw new NegotiationException("Invalid authorization data");
+      }
+   }
+
+   /**
+    * Search the AuthorizationData sequence for the PAC, the PAC is usually wrapped within an
+    * AD-IF-RELEVANT element.
+    */
+   private static byte[] findPac(final ByteBuffer authorizationData) throws NegotiationException
+   {
+      ByteBuffer entries = readValue(authorizationData, SEQUENCE);
+      while (entries.hasRemaining())
+      {
+         ByteBuffer entry = readValue(entries, SEQUENCE);
+         int type = -1;
+         byte[] data = null;
+         while (entry.hasRemaining())
+         {
+            int tag = entry.get() & 0xFF;
+            ByteBuffer value = readValue(entry);
+            if (tag == 0xA0)
+            {
+               ByteBuffer integer = readValue(value, 0x02);
+               type = 0;
+               while (integer.hasRemaining())
+               {
+                  type = (type << 8) | (integer.get() & 0xFF);
+               }
+            }
+            else if (tag == 0xA1)
+            {
+               ByteBuffer octets = readValue(value, 0x04);
+               data = new byte[octets.remaining()];
+               octets.get(data);
+            }
+         }
+
+         if (type == AD_WIN2K_PAC && data != null)
+         {
+            return data;
+         }
+         else if (type == AD_IF_RELEVANT && data != null)
+         {
+            byte[] pac = findPac(ByteBuffer.wrap(data));
+            if (pac != null)
+            {
+               return pac;
+            }
+         }
+      }
+
+      return null;
+   }
+
+   private static ByteBuffer readValue(final ByteBuffer buffer, final int expectedTag) throws NegotiationException
+   {
+      int tag = buffer.get() & 0xFF;
+      if (tag != expectedTag)
+      {
+         throw new NegotiationException("Expected tag " + expectedTag + " but found " + tag);
+      }
+
+      return readValue(buffer);
+   }
+
+   private static ByteBuffer readValue(final ByteBuffer buffer) throws NegotiationException
+   {
+      int length = buffer.get() & 0xFF;
+      if (length > 127)
+      {
+         int lengthLength = length & 0x7F;
+         if (lengthLength > 3)
+         {
+            throw new NegotiationException("Unsupported length of length " + lengthLength);
+         }
+         length = 0;
+         for (int i = 0; i < lengthLength; i++)
+         {
+            length = (length << 8) | (buffer.get() & 0xFF);
+         }
+      }
+
+      ByteBuffer value = buffer.slice();
+      value.limit(length);
+      buffer.position(buffer.position() + length);
+
+      return value;
+   }
+
+   /**
+    * Locate the logon information buffer within the PACTYPE structure.
+    */
+   private static PacLogonInfo decodePac(final byte[] pac) throws NegotiationException
+   {
+      ByteBuffer buffer = ByteBuffer.wrap(pac).order(ByteOrder.LITTLE_ENDIAN);
+      int count = buffer.getInt();
+      int version = buffer.getInt();
+      if (version != 0)
+      {
+         throw new NegotiationException("Unsupported PAC version " + version);
+      }
+
+      for (int i = 0; i < count; i++)
+      {
+         int type = buffer.getInt();
+         int size = buffer.getInt();
+         long offset = buffer.getLong();
+         if (type == LOGON_INFO)
+         {
+            if (offset < 0 || offset + size > pac.length)
+            {
+               throw new NegotiationException("Invalid logon information buffer");
+            }
+            ByteBuffer logonInfo = ByteBuffer.wrap(pac, (int) offset, size).slice();
+
+            return decodeLogonInfo(logonInfo.order(ByteOrder.LITTLE_ENDIAN));
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Decode the NDR encoded KERB_VALIDATION_INFO structure, the deferred pointers follow the
+    * structure in the order the pointers appear within it.
+    */
+   private static PacLogonInfo decodeLogonInfo(final ByteBuffer buffer) throws NegotiationException
+   {
+      // Common and private type serialization headers.
+      if (buffer.get(0) != 1 || buffer.get(1) != 0x10)
+      {
+         throw new NegotiationException("Unsupported NDR encoding of the logon information");
+      }
+      buffer.position(16);
+      // Referent of the KERB_VALIDATION_INFO itself.
+      buffer.getInt();
+
+      // LogonTime, LogoffTime, KickOffTime, PasswordLastSet, PasswordCanChange and PasswordMustChange.
+      skip(buffer, 6 * 8);
+      boolean effectiveName = readStringHeader(buffer);
+      boolean[] otherNames = new boolean[5];
+      // FullName, LogonScript, ProfilePath, HomeDirectory and HomeDirectoryDrive.
+      for (int i = 0; i < otherNames.length; i++)
+      {
+         otherNames[i] = readStringHeader(buffer);
+      }
+      // LogonCount and BadPasswordCount.
+      skip(buffer, 4);
+      int userId = buffer.getInt();
+      int primaryGroupId = buffer.getInt();
+      int groupCount = buffer.getInt();
+      boolean groupIds = buffer.getInt() != 0;
+      // UserFlags and UserSessionKey.
+      skip(buffer, 4 + 16);
+      boolean logonServer = readStringHeader(buffer);
+      boolean logonDomainName = readStringHeader(buffer);
+      boolean logonDomainId = buffer.getInt() != 0;
+      // Reserved1, UserAccountControl, SubAuthStatus, LastSuccessfulILogon, LastFailedILogon,
+      // FailedILogonCount and Reserved3.
+      skip(buffer, 8 + 4 + 4 + 8 + 8 + 4 + 4);
+      int sidCount = buffer.getInt();
+      boolean extraSids = buffer.getInt() != 0;
+      boolean resourceGroupDomainSid = buffer.getInt() != 0;
+      int resourceGroupCount = buffer.getInt();
+      boolean resourceGroupIds = buffer.getInt() != 0;
+
+      String userName = effectiveName ? readString(buffer) : null;
+      for (boolean current : otherNames)
+      {
+         if (current)
+         {
+            readString(buffer);
+         }
+      }
+      int[] groupRids = groupIds ? readGroupMembership(buffer, groupCount) : new int[0];
+      if (logonServer)
+      {
+         readString(buffer);
+      }
+      String domainName = logonDomainName ? readString(buffer) : null;
+      if (logonDomainId == false)
+      {
+         throw new NegotiationException("The logon information does not contain the domain SID");
+      }
+      String domainSid = readSid(buffer);
+
+      List<String> groupSids = new ArrayList<String>(1 + groupRids.length + sidCount + resourceGroupCount);
+      groupSids.add(domainSid + "-" + toUnsigned(primaryGroupId));
+      for (int current : groupRids)
+      {
+         String sid = domainSid + "-" + toUnsigned(current);
+         if (groupSids.contains(sid) == false)
+         {
+            groupSids.add(sid);
+         }
+      }
+
+      if (extraSids)
+      {
+         align(buffer);
+         int count = buffer.getInt();
+         checkRemaining(buffer, count, 8);
+         boolean[] present = new boolean[count];
+         for (int i = 0; i < count; i++)
+         {
+            present[i] = buffer.getInt() != 0;
+            // Attributes
+            buffer.getInt();
+         }
+         for (boolean current : present)
+         {
+            if (current)
+            {
+               groupSids.add(readSid(buffer));
+            }
+         }
+      }
+
+      if (resourceGroupDomainSid && resourceGroupIds)
+      {
+         String resourceDomainSid = readSid(buffer);
+         for (int current : readGroupMembership(buffer, resourceGroupCount))
+         {
+            groupSids.add(resourceDomainSid + "-" + toUnsigned(current));
+         }
+      }
+
+      return new PacLogonInfo(userName, domainName, domainSid + "-" + toUnsigned(userId), groupSids);
+   }
+
+   /**
+    * Read the RPC_UNICODE_STRING, the characters are deferred.
+    *
+    * @return true if the string is present
+    */
+   private static boolean readStringHeader(final ByteBuffer buffer)
+   {
+      // Length and MaximumLength
+      buffer.getInt();
+
+      return buffer.getInt() != 0;
+   }
+
+   private static String readString(final ByteBuffer buffer)
+   {
+      align(buffer);
+      // MaximumCount and Offset
+      skip(buffer, 8);
+      int actualCount = buffer.getInt();
+      checkRemaining(buffer, actualCount, 2);
+      char[] chars = new char[actualCount];
+      for (int i = 0; i < actualCount; i++)
+      {
+         chars[i] = buffer.getChar();
+      }
+
+      return new String(chars);
+   }
+
+   private static int[] readGroupMembership(final ByteBuffer buffer, final int expected) throws NegotiationException
+   {
+      align(buffer);
+      int count = buffer.getInt();
+      if (count != expected)
+      {
+         throw new NegotiationException("Expected " + expected + " groups but found " + count);
+      }
+      checkRemaining(buffer, count, 8);
+      int[] rids = new int[count];
+      for (int i = 0; i < count; i++)
+      {
+         rids[i] = buffer.getInt();
+         // Attributes
+         buffer.getInt();
+      }
+
+      return rids;
+   }
+
+   /**
+    * Read the RPC_SID and convert it to the S-1-5-... form.
+    */
+   private static String readSid(final ByteBuffer buffer)
+   {
+      align(buffer);
+      // MaximumCount of the SubAuthority array.
+      buffer.getInt();
+      int revision = buffer.get() & 0xFF;
+      int subAuthorityCount = buffer.get() & 0xFF;
+      long authority = 0;
+      for (int i = 0; i < 6; i++)
+      {
+         authority = (authority << 8) | (buffer.get() & 0xFF);
+      }
+
+      StringBuilder sb = new StringBuilder("S-");
+      sb.append(revision).append('-').append(authority);
+      for (int i = 0; i < subAuthorityCount; i++)
+      {
+         sb.append('-').append(toUnsigned(buffer.getInt()));
+      }
+
+      return sb.toString();
+   }
+
+   /**
+    * Verify the buffer holds the elements of an array before it is allocated.
+    */
+   private static void checkRemaining(final ByteBuffer buffer, final int count, final int size)
+   {
+      if (count < 0 || (long) count * size > buffer.remaining())
+      {
+         throw new BufferUnderflowException();
+      }
+   }
+
+   private static long toUnsigned(final int value)
+   {
+      return value & 0xFFFFFFFFL;
+   }
+
+   private static void align(final ByteBuffer buffer)
+   {
+      int remainder = buffer.position() % 4;
+      if (remainder != 0)
+      {
+         skip(buffer, 4 - remainder);
+      }
+   }
+
+   private static void skip(final ByteBuffer buffer, final int count)
+   {
+      buffer.position(buffer.position() + count);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "PacLogonInfo [userName=" + userName + ", domainName=" + domainName + ", userSid=" + userSid
+            + ", groupSids=" + groupSids + "]";
+   }
+
+}
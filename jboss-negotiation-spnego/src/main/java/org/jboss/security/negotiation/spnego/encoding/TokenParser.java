@@ -22,6 +22,7 @@
 package org.jboss.security.negotiation.spnego.encoding;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
@@ -32,6 +33,8 @@ import java.util.Set;
 
 import javax.security.auth.Subject;
 import javax.security.auth.kerberos.KerberosKey;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KeyTab;
 
 import org.jboss.security.negotiation.NegotiationException;
 import org.jboss.security.negotiation.cipher.Decoder;
@@ -49,6 +52,14 @@ public class TokenParser
    
    private String cname;
 
+   private String srealm;
+
+   private String sname;
+
+   private int kvno = -1;
+
+   private byte[] encTicketPart;
+
    /**
     * Method to be invoked to parse and decode the token.
     * 
@@ -67,6 +78,7 @@ public class TokenParser
       // get the Ticket part
       b = getTicket(bais);
       bais.close();
+      parseTicket(b);
       
       bais = new ByteArrayInputStream(b);
       // get the EncryptedData part
@@ -148,6 +160,77 @@ public class TokenParser
       return bytes;
    }
 
+   /**
+    * Reads the realm and name of the service and the version of the key the ticket is encrypted with, so the key
+    * can be selected where the {@link Subject} holds the keys of more than one service.
+    * 
+    * @param ticket the Ticket data
+    * @throws Exception
+    */
+   public void parseTicket(byte[] ticket) throws Exception
+   {
+      // Ticket ::= [APPLICATION 1] SEQUENCE
+      byte[] sequence = contents(contents(ticket));
+
+      byte[] realm = element(sequence, 1);
+      srealm = realm != null ? new String(contents(realm)) : null;
+
+      byte[] principalName = element(sequence, 2);
+      byte[] names = principalName != null ? element(contents(principalName), 1) : null;
+      if (names != null)
+      {
+         sname = join(getNames(new ByteArrayInputStream(contents(names))));
+      }
+
+      byte[] encryptedData = element(sequence, 3);
+      byte[] version = encryptedData != null ? element(contents(encryptedData), 1) : null;
+      kvno = version != null ? new BigInteger(contents(version)).intValue() : -1;
+   }
+
+   /**
+    * @return the contents of the DER encoded element.
+    */
+   private static byte[] contents(byte[] element) throws IOException
+   {
+      ByteArrayInputStream bais = new ByteArrayInputStream(element);
+      bais.read();
+      int length = NegTokenDecoder.readLength(bais);
+      byte[] bytes = new byte[length];
+      bais.read(bytes);
+      return bytes;
+   }
+
+   /**
+    * @return the context specific element of the DER encoded sequence or null if it is not present.
+    */
+   private static byte[] element(byte[] sequence, int tag) throws IOException
+   {
+      ByteArrayInputStream bais = new ByteArrayInputStream(sequence);
+      while (bais.available() > 0)
+      {
+         byte current = (byte) bais.read();
+         int length = NegTokenDecoder.readLength(bais);
+         byte[] bytes = new byte[length];
+         bais.read(bytes);
+         if ((current & 0xe0) == 0xa0 && (current & 0x1f) == tag)
+         {
+            return bytes;
+         }
+      }
+      return null;
+   }
+
+   private static String join(String[] names)
+   {
+      StringBuilder buffer = new StringBuilder(names[0]);
+      for (int i = 1; i < names.length; i++)
+      {
+         buffer.append("/");
+         buffer.append(names[i]);
+      }
+      return buffer.toString();
+   }
+
    /**
     * Parses the {@link InputStream} until the EncryptedData is found.
     * 
@@ -179,7 +262,11 @@ public class TokenParser
       BigInteger bi = new BigInteger(bytes);
       int eType = bi.intValue();
 
-      KerberosKey key = getKrbKey(subject, eType);
+      KerberosKey key = getKrbKey(subject, getServerName(), eType, kvno);
+      if (key == null)
+      {
+         throw new NegotiationException("No key available for encryption type " + eType);
+      }
 
       is.reset();
       bytes = getValueAt(is, (byte) 2);
@@ -200,6 +287,7 @@ public class TokenParser
       temp = new byte[length];
       bais.read(temp);
       bais.close();
+      encTicketPart = temp;
       bais = new ByteArrayInputStream(temp);
       
       byte[] realm = getValueAt(bais, (byte) 2);
@@ -258,7 +346,82 @@ public class TokenParser
    }
    
    /**
-    * Retrieves the private key from the {@link Subject}.
+    * Parses the decrypted ticket to find the optional authorization data, for tickets
+    * issued by Active Directory this contains the PAC.
+    * 
+    * @return the DER encoded AuthorizationData or null if the ticket does not contain any
+    * @throws IOException
+    */
+   public byte[] getAuthorizationData() throws IOException
+   {
+      if (encTicketPart == null)
+      {
+         throw new IllegalStateException("No token has been parsed.");
+      }
+
+      ByteArrayInputStream bais = new ByteArrayInputStream(encTicketPart);
+      bais.read();
+      NegTokenDecoder.readLength(bais);
+      while (bais.available() > 0)
+      {
+         byte tag = (byte) bais.read();
+         int length = NegTokenDecoder.readLength(bais);
+         byte[] bytes = new byte[length];
+         bais.read(bytes);
+         if (isContextSpecific(tag, (byte) 10))
+         {
+            return bytes;
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Retrieves the private key of the service the ticket was issued for from the {@link Subject},
+    * if there is no key for the service and version the key is selected by type alone.
+    * 
+    * @param sub {@link Subject} containing the private keys
+    * @param serverName name of the service including the realm or null if not known
+    * @param keyType type of the key
+    * @param keyVersion version of the key or -1 if not known
+    * @return the private key
+    */
+   public KerberosKey getKrbKey(Subject sub, String serverName, int keyType, int keyVersion)
+   {
+      if (serverName != null)
+      {
+         KerberosPrincipal server = new KerberosPrincipal(serverName);
+         for (KerberosKey key : sub.getPrivateCredentials(KerberosKey.class))
+         {
+            if (server.equals(key.getPrincipal()) && matches(key, keyType, keyVersion))
+            {
+               return key;
+            }
+         }
+         for (KeyTab keyTab : sub.getPrivateCredentials(KeyTab.class))
+         {
+            for (KerberosKey key : keyTab.getKeys(server))
+            {
+               if (matches(key, keyType, keyVersion))
+               {
+                  return key;
+               }
+            }
+         }
+      }
+
+      return getKrbKey(sub, keyType);
+   }
+
+   private static boolean matches(KerberosKey key, int keyType, int keyVersion)
+   {
+      return key.getKeyType() == keyType && (keyVersion < 0 || key.getVersionNumber() == keyVersion);
+   }
+
+   /**
+    * Retrieves the private key from the {@link Subject}, if the {@link Subject} holds a
+    * {@link KeyTab} instead of the keys the key is read from the {@link KeyTab}.
     * 
     * @param sub {@link SUbject} containing the private key
     * @param keyType type of the key
@@ -278,6 +441,20 @@ public class TokenParser
                return (KerberosKey) cred;
             }
          }
+         else if (cred instanceof KeyTab)
+         {
+            KeyTab keyTab = (KeyTab) cred;
+            for (KerberosPrincipal principal : sub.getPrincipals(KerberosPrincipal.class))
+            {
+               for (KerberosKey key : keyTab.getKeys(principal))
+               {
+                  if (key.getKeyType() == keyType)
+                  {
+                     return key;
+                  }
+               }
+            }
+         }
       }
       return null;
    }
@@ -337,4 +514,24 @@ public class TokenParser
    {
       return cname + "@" + crealm;
    }
+
+   /**
+    * Returns the principal name of the service the ticket was issued for.
+    * 
+    * @return principal name or null if the ticket has not been parsed
+    */
+   public String getServerName()
+   {
+      return sname != null && srealm != null ? sname + "@" + srealm : null;
+   }
+
+   /**
+    * Returns the version of the key the ticket is encrypted with.
+    * 
+    * @return key version or -1 if not present in the ticket
+    */
+   public int getKeyVersion()
+   {
+      return kvno;
+   }
 }
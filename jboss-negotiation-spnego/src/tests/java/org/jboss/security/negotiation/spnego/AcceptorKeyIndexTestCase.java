@@ -0,0 +1,302 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.security.auth.Subject;
+import javax.security.auth.kerberos.KerberosKey;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.login.LoginException;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.spnego.encoding.TokenParser;
+
+/**
+ * Test case for the AcceptorKeyIndex and the selection of the key by the service named in the ticket.
+ */
+public class AcceptorKeyIndexTestCase extends TestCase
+{
+
+   private static final String WEB = "HTTP/web.example.com@EXAMPLE.COM";
+
+   private static final String SHOP = "HTTP/shop.example.org@EXAMPLE.ORG";
+
+   private static final int AES128 = 17;
+
+   private File keyTab;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      keyTab = File.createTempFile(getName(), ".keytab");
+      keyTab.deleteOnExit();
+      writeKeyTab(keyTab, entry("EXAMPLE.COM", "web.example.com", 1, (byte) 1),
+            entry("EXAMPLE.COM", "web.example.com", 2, (byte) 2), entry("EXAMPLE.ORG", "shop.example.org", 5, (byte) 5),
+            entry("EXAMPLE.COM", "other.example.com", 1, (byte) 9));
+   }
+
+   public void testPrincipalsIndexed() throws Exception
+   {
+      AcceptorKeyIndex index = index(Arrays.asList(WEB, SHOP));
+      assertSame(index, index(Arrays.asList(WEB, SHOP)));
+
+      assertEquals(2, index.getSubject().getPrincipals(KerberosPrincipal.class).size());
+      assertEquals(3, index.getSubject().getPrivateCredentials(KerberosKey.class).size());
+   }
+
+   public void testKeySelected() throws Exception
+   {
+      AcceptorKeyIndex index = index(Arrays.asList(WEB, SHOP));
+
+      assertEquals(1, index.getKey(WEB, AES128, 1).getVersionNumber());
+      assertEquals(2, index.getKey(WEB, AES128, -1).getVersionNumber());
+      assertEquals(5, index.getKey(SHOP, AES128, 5).getEncoded()[0]);
+      assertNull(index.getKey(WEB, AES128, 3));
+      assertNull(index.getKey(WEB, 23, 1));
+      assertNull(index.getKey("HTTP/other.example.com@EXAMPLE.COM", AES128, 1));
+   }
+
+   public void testMissingPrincipalRejected() throws Exception
+   {
+      try
+      {
+         index(Collections.singletonList("HTTP/missing.example.com@EXAMPLE.COM"));
+         fail("Expected LoginException");
+      }
+      catch (LoginException expected)
+      {
+      }
+   }
+
+   public void testAllPrincipalsIndexed() throws Exception
+   {
+      AcceptorKeyIndex index = index(Collections.<String> emptyList());
+
+      assertEquals(3, index.getSubject().getPrincipals(KerberosPrincipal.class).size());
+      assertEquals(9, index.getKey("HTTP/other.example.com@EXAMPLE.COM", AES128, 1).getEncoded()[0]);
+   }
+
+   public void testRotatedKeysRetained() throws Exception
+   {
+      AcceptorKeyIndex index = AcceptorKeyIndex.getInstance(keyTab.getPath(), Collections.singletonList(WEB), 1);
+      writeKeyTab(keyTab, entry("EXAMPLE.COM", "web.example.com", 3, (byte) 3));
+      index.reload();
+
+      assertEquals(3, index.getKey(WEB, AES128, -1).getVersionNumber());
+      assertNotNull(index.getKey(WEB, AES128, 1));
+      assertNotNull(index.getKey(WEB, AES128, 2));
+      assertEquals(3, index.getSubject().getPrivateCredentials(KerberosKey.class).size());
+
+      Thread.sleep(1100);
+      index.expire();
+
+      assertNull(index.getKey(WEB, AES128, 1));
+      assertNull(index.getKey(WEB, AES128, 2));
+      assertEquals(1, index.getSubject().getPrivateCredentials(KerberosKey.class).size());
+   }
+
+   public void testInvalidKeyTabIgnored() throws Exception
+   {
+      AcceptorKeyIndex index = index(Arrays.asList(WEB, SHOP));
+      Subject subject = index.getSubject();
+
+      writeKeyTab(keyTab, entry("EXAMPLE.COM", "web.example.com", 3, (byte) 3));
+      index.reload();
+      assertSame(subject, index.getSubject());
+
+      FileOutputStream out = new FileOutputStream(keyTab);
+      out.write(new byte[] {5, 2, 0, 0, 0, 64, 0});
+      out.close();
+      index.reload();
+      assertSame(subject, index.getSubject());
+   }
+
+   public void testChangeLoaded() throws Exception
+   {
+      AcceptorKeyIndex index = index(Collections.singletonList(WEB));
+      writeKeyTab(keyTab, entry("EXAMPLE.COM", "web.example.com", 3, (byte) 3));
+
+      for (int i = 0; i < 200 && index.getKey(WEB, AES128, 3) == null; i++)
+      {
+         Thread.sleep(50);
+      }
+
+      assertEquals(3, index.getKey(WEB, AES128, -1).getVersionNumber());
+      assertNotNull(index.getKey(WEB, AES128, 2));
+   }
+
+   public void testKeyTabFormats() throws Exception
+   {
+      ByteBuffer buffer = ByteBuffer.allocate(512);
+      buffer.putShort((short) 0x0502);
+      buffer.putInt(-8);
+      buffer.put(new byte[8]);
+      byte[] extended = entry("EXAMPLE.COM", "web.example.com", 300, (byte) 1);
+      buffer.put(extended);
+      buffer.putInt(0);
+      buffer.flip();
+
+      List<KerberosKey> keys = KeyTabFile.read(buffer);
+      assertEquals(1, keys.size());
+      assertEquals(WEB, keys.get(0).getPrincipal().getName());
+      assertEquals(300, keys.get(0).getVersionNumber());
+
+      buffer = ByteBuffer.allocate(512).order(ByteOrder.nativeOrder());
+      buffer.put(new byte[] {5, 1});
+      buffer.putInt(47);
+      buffer.putShort((short) 3);
+      for (String current : new String[] {"EXAMPLE.COM", "HTTP", "web.example.com"})
+      {
+         buffer.putShort((short) current.length());
+         buffer.put(current.getBytes());
+      }
+      buffer.putInt(0);
+      buffer.put((byte) 4);
+      buffer.putShort((short) 23);
+      buffer.putShort((short) 0);
+      buffer.flip();
+
+      keys = KeyTabFile.read(buffer);
+      assertEquals(1, keys.size());
+      assertEquals(WEB, keys.get(0).getPrincipal().getName());
+      assertEquals(4, keys.get(0).getVersionNumber());
+      assertEquals(23, keys.get(0).getKeyType());
+   }
+
+   public void testParsePrincipals()
+   {
+      assertEquals(Arrays.asList(WEB, SHOP), AcceptorKeyIndex.parsePrincipals(" " + WEB + ", ," + SHOP));
+      assertTrue(AcceptorKeyIndex.parsePrincipals(null).isEmpty());
+   }
+
+   public void testTicketParsed() throws Exception
+   {
+      byte[] sname = sequence(tagged(0, der(0x02, new byte[] {2})),
+            tagged(1, sequence(der(0x1b, "HTTP".getBytes()), der(0x1b, "shop.example.org".getBytes()))));
+      byte[] encPart = sequence(tagged(0, der(0x02, new byte[] {AES128})), tagged(1, der(0x02, new byte[] {5})),
+            tagged(2, der(0x04, new byte[16])));
+      byte[] ticket = der(0x61, sequence(tagged(0, der(0x02, new byte[] {5})),
+            tagged(1, der(0x1b, "EXAMPLE.ORG".getBytes())), tagged(2, sname), tagged(3, encPart)));
+
+      AcceptorKeyIndex index = index(Arrays.asList(WEB, SHOP));
+      TokenParser parser = index.newTokenParser();
+      parser.parseTicket(ticket);
+
+      assertEquals(SHOP, parser.getServerName());
+      assertEquals(5, parser.getKeyVersion());
+      assertEquals(5, parser.getKrbKey(null, parser.getServerName(), AES128, parser.getKeyVersion())
+            .getVersionNumber());
+   }
+
+   private AcceptorKeyIndex index(final List<String> principals) throws LoginException
+   {
+      return AcceptorKeyIndex.getInstance(keyTab.getPath(), principals, AcceptorKeyIndex.DEFAULT_GRACE_PERIOD);
+   }
+
+   private static void writeKeyTab(File file, byte[]... entries) throws IOException
+   {
+      File temp = new File(file.getPath() + ".tmp");
+      FileOutputStream out = new FileOutputStream(temp);
+      try
+      {
+         out.write(new byte[] {5, 2});
+         for (byte[] current : entries)
+         {
+            out.write(current);
+         }
+      }
+      finally
+      {
+         out.close();
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   private static byte[] entry(String realm, String host, int kvno, byte key) throws IOException
+   {
+      ByteArrayOutputStream entry = new ByteArrayOutputStream();
+      DataOutputStream data = new DataOutputStream(entry);
+      data.writeShort(2);
+      for (String current : new String[] {realm, "HTTP", host})
+      {
+         data.writeShort(current.length());
+         data.write(current.getBytes());
+      }
+      data.writeInt(1);
+      data.writeInt((int) (System.currentTimeMillis() / 1000));
+      data.writeByte(kvno);
+      data.writeShort(AES128);
+      byte[] bytes = new byte[16];
+      Arrays.fill(bytes, key);
+      data.writeShort(bytes.length);
+      data.write(bytes);
+      data.writeInt(kvno);
+      data.close();
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new DataOutputStream(out).writeInt(entry.size());
+      entry.writeTo(out);
+      return out.toByteArray();
+   }
+
+   private static byte[] tagged(int tag, byte[] contents)
+   {
+      return der(0xa0 | tag, contents);
+   }
+
+   private static byte[] sequence(byte[]... elements)
+   {
+      ByteArrayOutputStream contents = new ByteArrayOutputStream();
+      for (byte[] current : elements)
+      {
+         contents.write(current, 0, current.length);
+      }
+      return der(0x30, contents.toByteArray());
+   }
+
+   private static byte[] der(int tag, byte[] contents)
+   {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      out.write(tag);
+      if (contents.length > 0x7f)
+      {
+         out.write(0x81);
+      }
+      out.write(contents.length);
+      out.write(contents, 0, contents.length);
+      return out.toByteArray();
+   }
+
+}
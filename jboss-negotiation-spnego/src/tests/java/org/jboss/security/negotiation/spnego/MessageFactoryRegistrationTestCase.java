@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.MessageFactory;
+import org.jboss.security.negotiation.MessageFactoryReset;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenInit;
+
+/**
+ * Test case for the MessageFactory registered explicitly instead of being located by name.
+ */
+public class MessageFactoryRegistrationTestCase extends TestCase
+{
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      // The registration is process wide so would otherwise be seen by the later tests.
+      MessageFactoryReset.reset();
+   }
+
+   public void testRegisteredFactoriesUsed() throws Exception
+   {
+      SPNEGOMessageFactory spnego = new SPNEGOMessageFactory();
+      MessageFactory.register(spnego);
+      assertSame(spnego, MessageFactory.newInstance());
+
+      MessageFactory.register(new KerberosMessageFactory());
+      MessageFactory mf = MessageFactory.newInstance();
+      assertSame(mf, MessageFactory.newInstance());
+
+      List<byte[]> tokens = NegotiationWarmUp.syntheticTokens();
+      assertTrue(mf.createMessage(new ByteArrayInputStream(tokens.get(0))) instanceof NegTokenInit);
+      assertTrue(mf.createMessage(new ByteArrayInputStream(tokens.get(2))) instanceof KerberosMessage);
+      // Only the registered factories are consulted.
+      assertFalse(mf.accepts(new ByteArrayInputStream(tokens.get(3))));
+   }
+
+   public void testResetLocatesByName() throws Exception
+   {
+      MessageFactory registered = new SPNEGOMessageFactory();
+      MessageFactory.register(registered);
+      MessageFactoryReset.reset();
+
+      MessageFactory mf = MessageFactory.newInstance();
+      assertNotSame(registered, mf);
+      assertNotSame(mf, MessageFactory.newInstance());
+   }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.MessageFactory;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenInit;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenTarg;
+
+/**
+ * Test case for the NegotiationWarmUp.
+ */
+public class NegotiationWarmUpTestCase extends TestCase
+{
+
+   public void testSyntheticTokensDecoded() throws Exception
+   {
+      List<byte[]> tokens = NegotiationWarmUp.syntheticTokens();
+      MessageFactory mf = MessageFactory.newInstance();
+
+      assertTrue(mf.createMessage(new ByteArrayInputStream(tokens.get(0))) instanceof NegTokenInit);
+      assertTrue(mf.createMessage(new ByteArrayInputStream(tokens.get(1))) instanceof NegTokenTarg);
+      assertTrue(mf.createMessage(new ByteArrayInputStream(tokens.get(2))) instanceof KerberosMessage);
+   }
+
+   public void testPhasesReported() throws Exception
+   {
+      NegotiationWarmUp warmUp = new NegotiationWarmUp(null);
+      warmUp.setIterations(10);
+      warmUp.addPhase("directory", new Callable<Object>()
+      {
+
+         public Object call()
+         {
+            return null;
+         }
+      });
+      warmUp.addPhase("failing", new Callable<Object>()
+      {
+
+         public Object call() throws Exception
+         {
+            throw new Exception("Expected");
+         }
+      });
+
+      Map<String, Long> costs = warmUp.run();
+
+      // A failed phase is not reported but does not prevent the stack being reported ready.
+      assertEquals(Arrays.asList("messages", "ciphers", "directory"), Arrays.asList(costs.keySet().toArray()));
+      assertTrue(NegotiationWarmUp.isReady());
+   }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.Principal;
+import java.security.acl.Group;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.Subject;
+import javax.security.auth.login.LoginException;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+import org.jboss.security.negotiation.spnego.encoding.PacLogonInfo;
+import org.jboss.security.negotiation.spnego.encoding.PacLogonInfoTestCase;
+
+/**
+ * Test case for the PacRolesLoginModule.
+ */
+public class PacRolesLoginModuleTestCase extends TestCase
+{
+
+   private static final String DOMAIN_SID = PacLogonInfoTestCase.DOMAIN_SID;
+
+   private File mapping;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      mapping = File.createTempFile(getName(), ".properties");
+      mapping.deleteOnExit();
+      FileOutputStream fos = new FileOutputStream(mapping);
+      try
+      {
+         fos.write((DOMAIN_SID + "-513=Users\n" + DOMAIN_SID + "-1106=Developers,Staff\n").getBytes("ISO-8859-1"));
+      }
+      finally
+      {
+         fos.close();
+      }
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      SharedInstances.clearAll();
+      mapping.delete();
+   }
+
+   public void testMappedRoles() throws Exception
+   {
+      Set<String> roles = login(options(), PacLogonInfoTestCase.sample());
+
+      assertEquals(3, roles.size());
+      assertTrue(roles.contains("Users"));
+      assertTrue(roles.contains("Developers"));
+      assertTrue(roles.contains("Staff"));
+   }
+
+   public void testUnmappedSidsIncluded() throws Exception
+   {
+      Map<String, String> options = options();
+      options.put("includeUnmappedSids", "true");
+      Set<String> roles = login(options, PacLogonInfoTestCase.sample());
+
+      assertEquals(5, roles.size());
+      assertTrue(roles.contains(DOMAIN_SID + "-1107"));
+      assertTrue(roles.contains("S-1-18-1"));
+   }
+
+   public void testNoPac() throws Exception
+   {
+      assertTrue(login(options(), null).isEmpty());
+   }
+
+   public void testMissingMapping() throws Exception
+   {
+      mapping.delete();
+      try
+      {
+         login(options(), PacLogonInfoTestCase.sample());
+         fail("Expected LoginException");
+      }
+      catch (LoginException expected)
+      {
+      }
+   }
+
+   public void testPasswordStackingRequired() throws Exception
+   {
+      Map<String, String> options = options();
+      options.remove("password-stacking");
+      try
+      {
+         login(options, PacLogonInfoTestCase.sample());
+         fail("Expected LoginException");
+      }
+      catch (LoginException expected)
+      {
+      }
+   }
+
+   private Map<String, String> options()
+   {
+      Map<String, String> options = new HashMap<String, String>();
+      options.put("password-stacking", "useFirstPass");
+      options.put("sidMapping", mapping.getAbsolutePath());
+
+      return options;
+   }
+
+   /**
+    * Login as the identity authenticated by a previous login module with the logon information of its ticket.
+    *
+    * @return The names of the roles added to the Subject.
+    */
+   private Set<String> login(final Map<String, String> options, final PacLogonInfo logonInfo) throws LoginException
+   {
+      Map<String, Object> sharedState = new HashMap<String, Object>();
+      sharedState.put("javax.security.auth.login.name", "darranl@JBOSS");
+      sharedState.put("javax.security.auth.login.password", "token");
+      if (logonInfo != null)
+      {
+         sharedState.put(PacLogonInfo.SHARED_STATE_KEY, logonInfo);
+      }
+
+      Subject subject = new Subject();
+      PacRolesLoginModule module = new PacRolesLoginModule();
+      module.initialize(subject, null, sharedState, options);
+      module.login();
+      module.commit();
+
+      Set<String> roles = new HashSet<String>();
+      for (Group current : subject.getPrincipals(Group.class))
+      {
+         Enumeration<? extends Principal> members = current.members();
+         while (members.hasMoreElements())
+         {
+            roles.add(members.nextElement().getName());
+         }
+      }
+
+      return roles;
+   }
+
+}
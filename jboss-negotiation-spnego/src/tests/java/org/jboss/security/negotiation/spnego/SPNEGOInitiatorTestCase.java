@@ -0,0 +1,230 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.Provider;
+import java.util.Arrays;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.ietf.jgss.GSSContext;
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.GSSManager;
+import org.ietf.jgss.GSSName;
+import org.ietf.jgss.Oid;
+import org.jboss.security.negotiation.Constants;
+import org.jboss.security.negotiation.common.SharedInstances;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenInit;
+import org.jboss.security.negotiation.spnego.encoding.NegTokenInitDecoder;
+
+/**
+ * Test case for the SPNEGOInitiator, the tokens are verified by a stand-in acceptor decoding them in the same way as
+ * the SPNEGOLoginModule.
+ */
+public class SPNEGOInitiatorTestCase extends TestCase
+{
+
+   public void testNegTokenInit() throws Exception
+   {
+      StandInManager manager = new StandInManager();
+      SPNEGOInitiator initiator = new SPNEGOInitiator(manager, null);
+
+      NegTokenInit negTokenInit = NegTokenInitDecoder.decode(initiator.createToken("HTTP/one.example.com@EXAMPLE.COM"));
+
+      assertEquals(Constants.SPNEGO, negTokenInit.getMessageOid());
+      assertEquals(Arrays.asList(Constants.KERBEROS_V5), negTokenInit.getMechTypes());
+      assertEquals("AP-REQ 1 HTTP/one.example.com@EXAMPLE.COM", new String(negTokenInit.getMechToken(), "UTF-8"));
+      assertFalse(manager.mutualAuth);
+   }
+
+   public void testTargetReused() throws Exception
+   {
+      StandInManager manager = new StandInManager();
+      SPNEGOInitiator initiator = new SPNEGOInitiator(manager, null);
+
+      byte[] first = initiator.createToken("HTTP@two.example.com");
+      byte[] second = initiator.createToken("HTTP@two.example.com");
+
+      // The name is only resolved once but each token has a new authenticator.
+      assertEquals(1, manager.names.get());
+      assertEquals(2, manager.contexts.get());
+      assertFalse(Arrays.equals(first, second));
+   }
+
+   public void testPrepareAuthorizationHeader() throws Exception
+   {
+      StandInManager manager = new StandInManager();
+      SPNEGOInitiator initiator = new SPNEGOInitiator(manager, null);
+
+      Future<String> header = initiator.prepareAuthorizationHeader("HTTP/three.example.com@EXAMPLE.COM");
+
+      assertTrue(header.get().startsWith("Negotiate "));
+      assertEquals(1, manager.contexts.get());
+   }
+
+   public void testPrepareAfterRelease() throws Exception
+   {
+      StandInManager manager = new StandInManager();
+      SPNEGOInitiator initiator = new SPNEGOInitiator(manager, null);
+      initiator.prepareAuthorizationHeader("HTTP/four.example.com@EXAMPLE.COM").get();
+
+      // The executor is shut down as the deployments are undeployed, later calls use a new one.
+      SharedInstances.clearAll();
+      Future<String> header = initiator.prepareAuthorizationHeader("HTTP/four.example.com@EXAMPLE.COM");
+
+      assertTrue(header.get().startsWith("Negotiate "));
+      assertEquals(2, manager.contexts.get());
+   }
+
+   /**
+    * A GSSManager where each context produces a token identifying the target.
+    */
+   private static class StandInManager extends GSSManager
+   {
+
+      private final AtomicInteger names = new AtomicInteger();
+
+      private final AtomicInteger contexts = new AtomicInteger();
+
+      private volatile boolean mutualAuth = true;
+
+      @Override
+      public GSSName createName(final String nameStr, final Oid nameType, final Oid mech)
+      {
+         names.incrementAndGet();
+         return (GSSName) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {GSSName.class},
+               new InvocationHandler()
+               {
+
+                  public Object invoke(Object proxy, Method method, Object[] args)
+                  {
+                     return "toString".equals(method.getName()) ? nameStr : null;
+                  }
+               });
+      }
+
+      @Override
+      public GSSContext createContext(final GSSName peer, Oid mech, GSSCredential myCred, int lifetime)
+      {
+         final int count = contexts.incrementAndGet();
+         return (GSSContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {GSSContext.class},
+               new InvocationHandler()
+               {
+
+                  public Object invoke(Object proxy, Method method, Object[] args) throws Exception
+                  {
+                     if ("requestMutualAuth".equals(method.getName()))
+                     {
+                        mutualAuth = (Boolean) args[0];
+                     }
+                     else if ("initSecContext".equals(method.getName()))
+                     {
+                        return ("AP-REQ " + count + " " + peer).getBytes("UTF-8");
+                     }
+                     return null;
+                  }
+               });
+      }
+
+      @Override
+      public Oid[] getMechs()
+      {
+         return new Oid[] {Constants.KERBEROS_V5};
+      }
+
+      @Override
+      public Oid[] getNamesForMech(Oid mech)
+      {
+         return null;
+      }
+
+      @Override
+      public Oid[] getMechsForName(Oid nameType)
+      {
+         return null;
+      }
+
+      @Override
+      public GSSName createName(String nameStr, Oid nameType)
+      {
+         return createName(nameStr, nameType, null);
+      }
+
+      @Override
+      public GSSName createName(byte[] name, Oid nameType)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public GSSName createName(byte[] name, Oid nameType, Oid mech)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public GSSCredential createCredential(int usage)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public GSSCredential createCredential(GSSName name, int lifetime, Oid mech, int usage)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public GSSCredential createCredential(GSSName name, int lifetime, Oid[] mechs, int usage)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public GSSContext createContext(GSSCredential myCred)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public GSSContext createContext(byte[] interProcessToken)
+      {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void addProviderAtFront(Provider p, Oid mech)
+      {
+      }
+
+      @Override
+      public void addProviderAtEnd(Provider p, Oid mech)
+      {
+      }
+   }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.common.SharedInstances;
+
+/**
+ * Test case for the SidRoleMapping.
+ */
+public class SidRoleMappingTestCase extends TestCase
+{
+
+   private static final String DOMAIN_USERS = "S-1-5-21-1004336348-1177238915-682003330-513";
+
+   private static final String DEVELOPERS = "S-1-5-21-1004336348-1177238915-682003330-1106";
+
+   private File mapping;
+
+   @Override
+   protected void setUp() throws Exception
+   {
+      mapping = File.createTempFile(getName(), ".properties");
+      mapping.deleteOnExit();
+   }
+
+   @Override
+   protected void tearDown() throws Exception
+   {
+      SharedInstances.clearAll();
+      mapping.delete();
+   }
+
+   public void testMapping() throws Exception
+   {
+      write(DOMAIN_USERS + "=Users, Staff ,\n" + DEVELOPERS.toLowerCase() + "=Developers\nS-1-18-1= , \n");
+      SidRoleMapping sidRoleMapping = SidRoleMapping.getInstance(mapping.getAbsolutePath(), 0);
+
+      assertEquals(Arrays.asList("Users", "Staff"), Arrays.asList(sidRoleMapping.getRoles(DOMAIN_USERS)));
+      assertEquals(Arrays.asList("Developers"), Arrays.asList(sidRoleMapping.getRoles(DEVELOPERS)));
+      assertEquals(0, sidRoleMapping.getRoles("S-1-18-1").length);
+      assertEquals(0, sidRoleMapping.getRoles("S-1-5-32-544").length);
+      assertSame(sidRoleMapping, SidRoleMapping.getInstance(mapping.getAbsolutePath(), 0));
+   }
+
+   public void testReload() throws Exception
+   {
+      write(DOMAIN_USERS + "=Users\n");
+      SidRoleMapping sidRoleMapping = SidRoleMapping.getInstance(mapping.getAbsolutePath(), 1);
+
+      write(DOMAIN_USERS + "=Staff\n");
+      Thread.sleep(10);
+      assertSame(sidRoleMapping, SidRoleMapping.getInstance(mapping.getAbsolutePath(), 1));
+      assertEquals(Arrays.asList("Staff"), Arrays.asList(sidRoleMapping.getRoles(DOMAIN_USERS)));
+
+      // A failed reload keeps the previous table.
+      mapping.delete();
+      Thread.sleep(10);
+      SidRoleMapping.getInstance(mapping.getAbsolutePath(), 1);
+      assertEquals(Arrays.asList("Staff"), Arrays.asList(sidRoleMapping.getRoles(DOMAIN_USERS)));
+   }
+
+   public void testNotReloadedWithoutTimeout() throws Exception
+   {
+      write(DOMAIN_USERS + "=Users\n");
+      SidRoleMapping sidRoleMapping = SidRoleMapping.getInstance(mapping.getAbsolutePath(), 0);
+
+      write(DOMAIN_USERS + "=Staff\n");
+      Thread.sleep(10);
+      SidRoleMapping.getInstance(mapping.getAbsolutePath(), 0);
+      assertEquals(Arrays.asList("Users"), Arrays.asList(sidRoleMapping.getRoles(DOMAIN_USERS)));
+   }
+
+   public void testMissingMapping() throws Exception
+   {
+      mapping.delete();
+      try
+      {
+         SidRoleMapping.getInstance(mapping.getAbsolutePath(), 0);
+         fail("Expected FileNotFoundException");
+      }
+      catch (FileNotFoundException expected)
+      {
+      }
+   }
+
+   private void write(final String content) throws IOException
+   {
+      FileOutputStream fos = new FileOutputStream(mapping);
+      try
+      {
+         fos.write(content.getBytes("ISO-8859-1"));
+      }
+      finally
+      {
+         fos.close();
+      }
+   }
+
+}
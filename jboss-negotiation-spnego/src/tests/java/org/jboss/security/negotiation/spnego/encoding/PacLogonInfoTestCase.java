@@ -0,0 +1,199 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.security.negotiation.spnego.encoding;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.jboss.security.negotiation.NegotiationException;
+
+/**
+ * Test case to test decoding the logon information from the PAC.
+ */
+public class PacLogonInfoTestCase extends TestCase
+{
+
+   public static final String DOMAIN_SID = "S-1-5-21-1004336348-1177238915-682003330";
+
+   /**
+    * @return The logon information of the sample PAC, a member of the groups DOMAIN_SID-513, -1106, -1107 and
+    * S-1-18-1.
+    */
+   public static PacLogonInfo sample() throws NegotiationException
+   {
+      return PacLogonInfo.decode(authorizationData(128, pac(logonInfo())));
+   }
+
+   public void testDecode() throws Exception
+   {
+      PacLogonInfo logonInfo = sample();
+
+      assertEquals("darranl", logonInfo.getUserName());
+      assertEquals("JBOSS", logonInfo.getDomainName());
+      assertEquals(DOMAIN_SID + "-1105", logonInfo.getUserSid());
+      assertEquals(Arrays.asList(DOMAIN_SID + "-513", DOMAIN_SID + "-1106", DOMAIN_SID + "-1107", "S-1-18-1"),
+            logonInfo.getGroupSids());
+   }
+
+   public void testNoPac() throws Exception
+   {
+      assertNull(PacLogonInfo.decode(authorizationData(141, new byte[] {1, 2, 3})));
+   }
+
+   public void testTruncated() throws Exception
+   {
+      byte[] authorizationData = authorizationData(128, pac(logonInfo()));
+      byte[] truncated = Arrays.copyOf(authorizationData, authorizationData.length - 40);
+      try
+      {
+         PacLogonInfo.decode(truncated);
+         fail("Expected NegotiationException");
+      }
+      catch (NegotiationException expected)
+      {
+      }
+   }
+
+   /**
+    * AuthorizationData with the element wrapped in AD-IF-RELEVANT as Active Directory does.
+    */
+   private static byte[] authorizationData(final int type, final byte[] data)
+   {
+      byte[] inner = der(0x30, der(0x30, concat(der(0xA0, integer(type)), der(0xA1, der(0x04, data)))));
+
+      return der(0x30, der(0x30, concat(der(0xA0, integer(1)), der(0xA1, der(0x04, inner)))));
+   }
+
+   private static byte[] pac(final byte[] logonInfo)
+   {
+      ByteBuffer buffer = ByteBuffer.allocate(24 + logonInfo.length).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(1).putInt(0);
+      buffer.putInt(1).putInt(logonInfo.length).putLong(24);
+      buffer.put(logonInfo);
+
+      return buffer.array();
+   }
+
+   private static byte[] logonInfo()
+   {
+      ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.put(new byte[] {1, 0x10, 8, 0, (byte) 0xCC, (byte) 0xCC, (byte) 0xCC, (byte) 0xCC});
+      buffer.putInt(0).putInt(0);
+      buffer.putInt(0x20000);
+
+      buffer.put(new byte[6 * 8]);
+      stringHeader(buffer, "darranl");
+      stringHeader(buffer, "Darran Lofthouse");
+      stringHeader(buffer, null);
+      stringHeader(buffer, null);
+      stringHeader(buffer, null);
+      stringHeader(buffer, null);
+      buffer.putShort((short) 10).putShort((short) 0);
+      buffer.putInt(1105).putInt(513).putInt(2).putInt(0x20008);
+      buffer.putInt(0x20);
+      buffer.put(new byte[16]);
+      stringHeader(buffer, null);
+      stringHeader(buffer, "JBOSS");
+      buffer.putInt(0x2000C);
+      buffer.put(new byte[8 + 4 + 4 + 8 + 8 + 4 + 4]);
+      buffer.putInt(1).putInt(0x20010);
+      buffer.putInt(0).putInt(0).putInt(0);
+
+      string(buffer, "darranl");
+      string(buffer, "Darran Lofthouse");
+      buffer.putInt(2).putInt(1106).putInt(7).putInt(1107).putInt(7);
+      string(buffer, "JBOSS");
+      sid(buffer, 5, 21, 1004336348, 1177238915, 682003330);
+      buffer.putInt(1).putInt(0x20014).putInt(7);
+      sid(buffer, 18, 1);
+
+      return Arrays.copyOf(buffer.array(), buffer.position());
+   }
+
+   private static void stringHeader(final ByteBuffer buffer, final String value)
+   {
+      int length = value != null ? value.length() * 2 : 0;
+      buffer.putShort((short) length).putShort((short) length);
+      buffer.putInt(value != null ? 0x20004 : 0);
+   }
+
+   private static void string(final ByteBuffer buffer, final String value)
+   {
+      buffer.putInt(value.length()).putInt(0).putInt(value.length());
+      for (char current : value.toCharArray())
+      {
+         buffer.putChar(current);
+      }
+      while (buffer.position() % 4 != 0)
+      {
+         buffer.put((byte) 0);
+      }
+   }
+
+   private static void sid(final ByteBuffer buffer, final int authority, final int... subAuthorities)
+   {
+      buffer.putInt(subAuthorities.length);
+      buffer.put((byte) 1).put((byte) subAuthorities.length);
+      buffer.put(new byte[] {0, 0, 0, 0, 0, (byte) authority});
+      for (int current : subAuthorities)
+      {
+         buffer.putInt(current);
+      }
+   }
+
+   private static byte[] integer(final int value)
+   {
+      return value > 127 ? der(0x02, new byte[] {0, (byte) value}) : der(0x02, new byte[] {(byte) value});
+   }
+
+   private static byte[] der(final int tag, final byte[] value)
+   {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      baos.write(tag);
+      if (value.length < 128)
+      {
+         baos.write(value.length);
+      }
+      else
+      {
+         baos.write(0x82);
+         baos.write(value.length >> 8);
+         baos.write(value.length);
+      }
+      baos.write(value, 0, value.length);
+
+      return baos.toByteArray();
+   }
+
+   private static byte[] concat(final byte[] first, final byte[] second)
+   {
+      byte[] result = Arrays.copyOf(first, first.length + second.length);
+      System.arraycopy(second, 0, result, first.length, second.length);
+
+      return result;
+   }
+
+}
@@ -43,6 +43,7 @@ import org.jboss.security.SecurityContextAssociation;
 import org.jboss.security.SubjectInfo;
 import org.jboss.security.identity.Identity;
 import org.jboss.security.identity.Role;
+import org.jboss.security.negotiation.DelegationContextSnapshot;
 import org.jboss.security.negotiation.DelegationCredentialContext;
 
 //import org.jboss.security.SecurityAssociation;
@@ -66,14 +67,15 @@ public class SecuredServlet extends HttpServlet
 
         if (goAsyc) {
             final AsyncContext asyncContext = req.startAsync();
-            asyncContext.start(() -> {
+            // Carry the delegation credential of the request to the thread writing the response.
+            asyncContext.start(DelegationContextSnapshot.capture().wrap(() -> {
                 try {
                     writeResponse(req, resp, true);
                     asyncContext.complete();
                 } catch (Exception e) {
                     throw new RuntimeException(e);
                 }
-            });
+            }));
 
         } else {
             writeResponse(req, resp, false);
@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2026, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.security.negotiation.toolkit;
+
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.jboss.security.negotiation.DirectoryWarmUp;
+import org.jboss.security.negotiation.common.SharedInstances;
+import org.jboss.security.negotiation.spnego.NegotiationWarmUp;
+
+/**
+ * Listener to warm up the negotiation stack as the toolkit is deployed, the deployment only completes once the
+ * warm-up has run so requests are not accepted before the stack is ready.
+ *
+ * The cost of each phase is published as the 'org.jboss.security.negotiation.WarmUp' context attribute, as the toolkit
+ * is undeployed the instances shared by the login modules of the toolkit are released.
+ */
+public class WarmUpListener implements ServletContextListener
+{
+
+   private static final String PREFIX = "org.jboss.security.negotiation.WarmUp.";
+
+   public void contextInitialized(final ServletContextEvent sce)
+   {
+      ServletContext context = sce.getServletContext();
+      NegotiationWarmUp warmUp = new NegotiationWarmUp(context.getInitParameter(PREFIX + "ServerSecurityDomain"));
+
+      String iterations = context.getInitParameter(PREFIX + "Iterations");
+      if (iterations != null)
+      {
+         warmUp.setIterations(Integer.parseInt(iterations));
+      }
+      String directorySecurityDomain = context.getInitParameter(PREFIX + "DirectorySecurityDomain");
+      if (directorySecurityDomain != null)
+      {
+         warmUp.addPhase("directory", new DirectoryWarmUp(directorySecurityDomain));
+      }
+
+      Map<String, Long> costs = warmUp.run();
+      context.setAttribute("org.jboss.security.negotiation.WarmUp", costs);
+   }
+
+   public void contextDestroyed(final ServletContextEvent sce)
+   {
+      // Only the shared instances no other deployment is using are released.
+      SharedInstances.release(sce.getServletContext().getClassLoader());
+   }
+
+}